@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language;
+
+import static org.testng.AssertJUnit.assertArrayEquals;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link DataColumns} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class DataColumnsTest {
+
+  private static DataColumns cycle(final DataColumns columns) {
+    final FudgeContext context = FudgeContext.GLOBAL_DEFAULT;
+    final FudgeMsg msg = context.deserialize(context.toByteArray(columns.toFudgeMsg(context))).getMessage();
+    return DataColumns.fromFudgeMsg(msg);
+  }
+
+  @Test
+  public void testDoubleLinear() {
+    final DataColumns columns = cycle(DataColumns.of(new double[] {1.0, 2.5, -3.0 }));
+    assertEquals(DataColumns.Type.DOUBLE, columns.getType());
+    assertFalse(columns.isMatrix());
+    assertEquals(3, columns.getLength());
+    assertArrayEquals(new Value[] {ValueUtils.of(1.0), ValueUtils.of(2.5), ValueUtils.of(-3.0) }, columns.toLinear());
+  }
+
+  @Test
+  public void testIntMatrix() {
+    final DataColumns columns = cycle(DataColumns.of(new int[][] { {1, 2, 3 }, {4, 5, 6 } }));
+    assertEquals(DataColumns.Type.INTEGER, columns.getType());
+    assertTrue(columns.isMatrix());
+    assertEquals(2, columns.getRows());
+    assertEquals(3, columns.getColumns());
+    final Value[][] matrix = columns.toMatrix();
+    assertEquals(ValueUtils.of(1), matrix[0][0]);
+    assertEquals(ValueUtils.of(6), matrix[1][2]);
+  }
+
+  @Test
+  public void testBooleanLinear() {
+    final boolean[] values = new boolean[19];
+    values[0] = true;
+    values[9] = true;
+    values[18] = true;
+    final DataColumns columns = cycle(DataColumns.of(values));
+    assertEquals(DataColumns.Type.BOOLEAN, columns.getType());
+    final boolean[] result = (boolean[]) columns.getValues();
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(values[i], result[i]);
+    }
+  }
+
+  @Test
+  public void testStringDictionary() {
+    final DataColumns columns = cycle(DataColumns.of(new String[] {"Foo", "Bar", null, "Foo" }));
+    assertEquals(DataColumns.Type.STRING, columns.getType());
+    assertTrue(columns.hasNulls());
+    assertTrue(columns.isNull(2));
+    assertArrayEquals(new Value[] {ValueUtils.of("Foo"), ValueUtils.of("Bar"), new Value(), ValueUtils.of("Foo") }, columns.toLinear());
+  }
+
+  @Test
+  public void testFromValues() {
+    final Value[] values = new Value[] {ValueUtils.of(1.0), new Value(), ValueUtils.ofError(42), ValueUtils.of(4.0) };
+    final DataColumns columns = cycle(DataColumns.of(values));
+    assertNotNull(columns);
+    assertEquals(DataColumns.Type.DOUBLE, columns.getType());
+    assertTrue(columns.isNull(1));
+    assertNull(columns.getError(1));
+    assertTrue(columns.isNull(2));
+    assertEquals((Integer) 42, columns.getError(2));
+    assertArrayEquals(values, columns.toLinear());
+  }
+
+  @Test
+  public void testFromMixedValues() {
+    assertNull(DataColumns.of(new Value[] {ValueUtils.of(1.0), ValueUtils.of("Foo") }));
+    assertNull(DataColumns.of(new Value[] {ValueUtils.of(FudgeContext.GLOBAL_DEFAULT.newMessage()) }));
+  }
+
+  @Test
+  public void testJagged() {
+    assertNull(DataColumns.of(new double[][] { {1.0 }, {2.0, 3.0 } }));
+    assertNull(DataColumns.of(new Value[][] { {ValueUtils.of(1) }, {ValueUtils.of(2), ValueUtils.of(3) } }));
+  }
+
+  @Test
+  public void testDataUtils() {
+    final Data data = DataUtils.of(new double[][] { {1.0, 2.0 }, {3.0, 4.0 } });
+    assertNotNull(data.getColumns());
+    assertNull(data.getMatrix());
+    assertFalse(DataUtils.isNull(data));
+    assertNull(DataUtils.getLinear(data));
+    assertEquals(ValueUtils.of(4.0), DataUtils.getMatrix(data)[1][1]);
+    assertEquals(ValueUtils.of(1.0), DataUtils.toValue(data));
+    final Data expanded = DataUtils.expand(data);
+    assertNull(expanded.getColumns());
+    assertEquals(2, expanded.getMatrix().length);
+    final Data compacted = DataUtils.compact(expanded);
+    assertNotNull(compacted.getColumns());
+    assertArrayEquals(DataUtils.getMatrix(data), DataUtils.getMatrix(compacted));
+  }
+
+}
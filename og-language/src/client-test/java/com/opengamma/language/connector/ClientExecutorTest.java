@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ClientExecutor} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ClientExecutorTest {
+
+  private static final class LimitCheck implements Runnable {
+
+    private final AtomicInteger _global;
+    private final AtomicInteger _client;
+    private final AtomicInteger _violations;
+
+    public LimitCheck(final AtomicInteger global, final AtomicInteger client, final AtomicInteger violations) {
+      _global = global;
+      _client = client;
+      _violations = violations;
+    }
+
+    @Override
+    public void run() {
+      if ((_global.incrementAndGet() > 3) | (_client.incrementAndGet() > 2)) {
+        _violations.incrementAndGet();
+      }
+      Thread.yield();
+      _client.decrementAndGet();
+      _global.decrementAndGet();
+    }
+
+  }
+
+  @Test(timeOut = 30000)
+  public void testThreadLimits() throws InterruptedException {
+    final ClientExecutor executor = new ClientExecutor(2, 3);
+    final AtomicInteger global = new AtomicInteger();
+    final AtomicInteger violations = new AtomicInteger();
+    final List<ClientExecutor.PerClientExecutor> clients = new ArrayList<ClientExecutor.PerClientExecutor>();
+    for (int i = 0; i < 5; i++) {
+      final ClientExecutor.PerClientExecutor client = executor.createClientExecutor();
+      final Runnable command = new LimitCheck(global, new AtomicInteger(), violations);
+      for (int j = 0; j < 1000; j++) {
+        client.execute(command);
+      }
+      clients.add(client);
+    }
+    for (ClientExecutor.PerClientExecutor client : clients) {
+      client.shutdown();
+      assertTrue(client.awaitTermination(10, TimeUnit.SECONDS));
+      assertTrue(client.isTerminated());
+      assertEquals(0, client.getQueueDepth());
+    }
+    assertEquals(0, violations.get());
+  }
+
+  @Test(timeOut = 10000)
+  public void testPriority() throws InterruptedException {
+    final ClientExecutor.PerClientExecutor client = new ClientExecutor(1, 10).createClientExecutor();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    client.execute(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    started.await();
+    for (final String name : Arrays.asList("B1", "B2")) {
+      client.execute(ClientExecutor.withPriority(new Runnable() {
+        @Override
+        public void run() {
+          order.add(name);
+        }
+      }, ClientExecutor.Priority.BULK));
+    }
+    for (final String name : Arrays.asList("I1", "I2")) {
+      client.execute(new Runnable() {
+        @Override
+        public void run() {
+          order.add(name);
+        }
+      });
+    }
+    assertEquals(4, client.getQueueDepth());
+    release.countDown();
+    client.shutdown();
+    assertTrue(client.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("I1", "I2", "B1", "B2"), order);
+  }
+
+  @Test(timeOut = 10000)
+  public void testShutdownNow() throws InterruptedException {
+    final ClientExecutor.PerClientExecutor client = new ClientExecutor(1, 10).createClientExecutor();
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicInteger interrupted = new AtomicInteger();
+    client.execute(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          Thread.sleep(10000);
+        } catch (InterruptedException e) {
+          interrupted.incrementAndGet();
+        }
+      }
+    });
+    final Runnable queued = new Runnable() {
+      @Override
+      public void run() {
+      }
+    };
+    client.execute(queued);
+    started.await();
+    assertFalse(client.isTerminated());
+    assertEquals(Collections.singletonList(queued), client.shutdownNow());
+    assertTrue(client.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(client.isTerminated());
+    assertEquals(1, interrupted.get());
+  }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ClientOutputQueue} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ClientOutputQueueTest {
+
+  private static FudgeMsgEnvelope message(final int value) {
+    final MutableFudgeMsg msg = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    msg.add("value", value);
+    return new FudgeMsgEnvelope(msg);
+  }
+
+  public void testOrdered() throws InterruptedException {
+    final ClientOutputQueue queue = new ClientOutputQueue(10, true, 0);
+    final FudgeMsgEnvelope async = message(1);
+    final FudgeMsgEnvelope essential = message(2);
+    queue.addAsynchronous(async);
+    queue.add(essential);
+    assertEquals(2, queue.getDepth());
+    final List<FudgeMsgEnvelope> messages = new ArrayList<FudgeMsgEnvelope>();
+    queue.drainTo(messages);
+    assertEquals(2, messages.size());
+    assertSame(async, messages.get(0));
+    assertSame(essential, messages.get(1));
+    assertTrue(queue.isEmpty());
+    assertEquals(2, queue.getMaxDepth());
+  }
+
+  public void testEssentialAheadWhenFull() throws InterruptedException {
+    final ClientOutputQueue queue = new ClientOutputQueue(2, true, 0);
+    final FudgeMsgEnvelope[] msgs = new FudgeMsgEnvelope[] {message(1), message(2), message(3), message(4), message(5) };
+    queue.addAsynchronous(msgs[0]);
+    queue.add(msgs[1]);
+    queue.addAsynchronous(msgs[2]);
+    // The queue is now full so essential messages go ahead of the asynchronous backlog, but stay in order
+    queue.add(msgs[3]);
+    queue.add(msgs[4]);
+    final List<FudgeMsgEnvelope> messages = new ArrayList<FudgeMsgEnvelope>();
+    queue.drainTo(messages);
+    assertEquals(5, messages.size());
+    assertSame(msgs[0], messages.get(0));
+    assertSame(msgs[1], messages.get(1));
+    assertSame(msgs[3], messages.get(2));
+    assertSame(msgs[4], messages.get(3));
+    assertSame(msgs[2], messages.get(4));
+  }
+
+  public void testDropOldest() throws InterruptedException {
+    final ClientOutputQueue queue = new ClientOutputQueue(2, true, 0);
+    final FudgeMsgEnvelope[] async = new FudgeMsgEnvelope[] {message(1), message(2), message(3) };
+    for (FudgeMsgEnvelope msg : async) {
+      queue.addAsynchronous(msg);
+    }
+    // Essential messages are never dropped
+    queue.add(message(4));
+    assertEquals(3, queue.getDepth());
+    assertEquals(1, queue.getDropped());
+    final List<FudgeMsgEnvelope> messages = new ArrayList<FudgeMsgEnvelope>();
+    queue.drainTo(messages);
+    assertEquals(3, messages.size());
+    assertEquals(4, messages.get(0).getMessage().getInt("value").intValue());
+    assertSame(async[1], messages.get(1));
+    assertSame(async[2], messages.get(2));
+  }
+
+  public void testBlockTimeout() {
+    final ClientOutputQueue queue = new ClientOutputQueue(1, false, 10);
+    queue.addAsynchronous(message(1));
+    queue.addAsynchronous(message(2));
+    assertEquals(1, queue.getDepth());
+    assertEquals(1, queue.getBlocked());
+    assertEquals(1, queue.getDropped());
+  }
+
+  @Test(timeOut = 5000)
+  public void testBlockUntilDrained() throws InterruptedException {
+    final ClientOutputQueue queue = new ClientOutputQueue(1, false, 5000);
+    queue.addAsynchronous(message(1));
+    final Thread drainer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100);
+          queue.drainTo(new ArrayList<FudgeMsgEnvelope>());
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    drainer.start();
+    queue.addAsynchronous(message(2));
+    drainer.join();
+    assertEquals(1, queue.getDepth());
+    assertEquals(1, queue.getBlocked());
+    assertEquals(0, queue.getDropped());
+  }
+
+}
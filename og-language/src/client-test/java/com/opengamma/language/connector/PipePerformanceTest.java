@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.wire.FudgeMsgReader;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Compares the throughput and latency of the channel based pipe transport with the stream based one it replaced. A file is used in
+ * place of the pipe.
+ */
+@Test(groups = TestGroup.INTEGRATION)
+public class PipePerformanceTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(PipePerformanceTest.class);
+
+  private static final FudgeContext s_fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+
+  private static final int MESSAGES = 20000;
+  private static final int BATCH = 10;
+  private static final int RUNS = 5;
+
+  private static FudgeMsgEnvelope message(final int i) {
+    final MutableFudgeMsg msg = s_fudgeContext.newMessage();
+    msg.add("handle", i);
+    final MutableFudgeMsg payload = msg.addSubMessage("payload", null);
+    for (int j = 0; j < 20; j++) {
+      payload.add("value", (double) j * i);
+      payload.add("name", "Value " + j);
+    }
+    return new FudgeMsgEnvelope(msg, 0, MessageDirectives.USER);
+  }
+
+  private static File createFile() throws IOException {
+    final File file = File.createTempFile("PipePerformanceTest", ".tmp");
+    file.deleteOnExit();
+    return file;
+  }
+
+  private static void report(final String test, final long nanos, final long bytes) {
+    s_logger.info("{}: {} MB/s, {}us per message", new Object[] {test, (double) bytes * 1e3 / (double) nanos,
+      (double) nanos / 1e3 / (double) MESSAGES });
+  }
+
+  private long writeStreams(final File file, final FudgeMsgEnvelope[] messages) throws IOException {
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      final FudgeMsgWriter writer = new FudgeMsgWriter(s_fudgeContext.createWriter((DataOutput) new DataOutputStream(buffer)));
+      final long start = System.nanoTime();
+      for (int i = 0; i < messages.length; i++) {
+        writer.writeMessageEnvelope(messages[i]);
+        if ((i % BATCH) == BATCH - 1) {
+          buffer.writeTo(out);
+          out.flush();
+          buffer.reset();
+        }
+      }
+      buffer.writeTo(out);
+      out.flush();
+      return System.nanoTime() - start;
+    } finally {
+      out.close();
+    }
+  }
+
+  private long writeChannel(final File file, final FudgeMsgEnvelope[] messages) throws IOException {
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      final FileChannel channel = out.getChannel();
+      final ByteBufferDataOutput buffer = new ByteBufferDataOutput();
+      final FudgeMsgWriter writer = new FudgeMsgWriter(s_fudgeContext.createWriter((DataOutput) buffer));
+      final long start = System.nanoTime();
+      for (int i = 0; i < messages.length; i++) {
+        writer.writeMessageEnvelope(messages[i]);
+        if ((i % BATCH) == BATCH - 1) {
+          buffer.writeTo(channel);
+        }
+      }
+      buffer.writeTo(channel);
+      return System.nanoTime() - start;
+    } finally {
+      out.close();
+    }
+  }
+
+  private long readStreams(final File file) throws IOException {
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      final long start = System.nanoTime();
+      final FudgeMsgReader reader = new FudgeMsgReader(s_fudgeContext.createReader((DataInput) new DataInputStream(new BufferedInputStream(
+          new InputStreamWrapper(Channels.newInputStream(in.getChannel()))))));
+      int count = 0;
+      while (reader.hasNext()) {
+        reader.nextMessageEnvelope();
+        count++;
+      }
+      final long time = System.nanoTime() - start;
+      assertEquals(count, MESSAGES);
+      return time;
+    } finally {
+      in.close();
+    }
+  }
+
+  private long readChannel(final File file) throws IOException {
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      final long start = System.nanoTime();
+      final PipeReader reader = new PipeReader(s_fudgeContext, in.getChannel());
+      int count = 0;
+      while (reader.read() != null) {
+        count++;
+      }
+      final long time = System.nanoTime() - start;
+      assertEquals(count, MESSAGES);
+      return time;
+    } finally {
+      in.close();
+    }
+  }
+
+  public void testThroughput() throws IOException {
+    final FudgeMsgEnvelope[] messages = new FudgeMsgEnvelope[MESSAGES];
+    for (int i = 0; i < MESSAGES; i++) {
+      messages[i] = message(i);
+    }
+    final File streams = createFile();
+    final File channel = createFile();
+    for (int run = 0; run < RUNS; run++) {
+      // Alternate the two so that neither consistently benefits from a warmer JIT or file cache
+      final long writeStreams = writeStreams(streams, messages);
+      final long writeChannel = writeChannel(channel, messages);
+      assertEquals(channel.length(), streams.length());
+      final long readStreams = readStreams(streams);
+      final long readChannel = readChannel(channel);
+      s_logger.info("Run {}", run);
+      report("Stream write", writeStreams, streams.length());
+      report("Channel write", writeChannel, channel.length());
+      report("Stream read", readStreams, streams.length());
+      report("Channel read", readChannel, channel.length());
+    }
+  }
+
+}
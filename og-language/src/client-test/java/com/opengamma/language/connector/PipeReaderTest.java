@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link PipeReader} and {@link ByteBufferDataOutput} classes.
+ */
+@Test(groups = TestGroup.UNIT)
+public class PipeReaderTest {
+
+  private static final FudgeContext s_fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+
+  private static FudgeMsgEnvelope message(final int i, final int fields) {
+    final MutableFudgeMsg msg = s_fudgeContext.newMessage();
+    msg.add("index", i);
+    for (int j = 0; j < fields; j++) {
+      msg.add("field" + j, "Field " + j + " of message " + i);
+    }
+    return new FudgeMsgEnvelope(msg, 0, (i % 2 == 0) ? MessageDirectives.USER : MessageDirectives.CLIENT);
+  }
+
+  private static File write(final FudgeMsgEnvelope... messages) throws IOException {
+    final File file = File.createTempFile("PipeReaderTest", ".tmp");
+    file.deleteOnExit();
+    // Small buffers so that messages span several of them
+    final ByteBufferDataOutput buffer = new ByteBufferDataOutput(64);
+    final FudgeMsgWriter writer = new FudgeMsgWriter(s_fudgeContext.createWriter((DataOutput) buffer));
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      final FileChannel channel = out.getChannel();
+      for (int i = 0; i < messages.length; i++) {
+        writer.writeMessageEnvelope(messages[i]);
+        if (i % 3 == 0) {
+          final long size = buffer.size();
+          assertEquals(buffer.writeTo(channel), size);
+          assertEquals(buffer.size(), 0);
+        }
+      }
+      buffer.writeTo(channel);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  public void testRoundTrip() throws IOException {
+    final FudgeMsgEnvelope[] messages = new FudgeMsgEnvelope[10];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = message(i, i * i * 10);
+    }
+    final File file = write(messages);
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      // Small initial buffer so that it has to grow
+      final PipeReader reader = new PipeReader(s_fudgeContext, in.getChannel(), 16);
+      for (FudgeMsgEnvelope expected : messages) {
+        final FudgeMsgEnvelope actual = reader.read();
+        assertEquals(actual.getProcessingDirectives(), expected.getProcessingDirectives());
+        assertEquals(actual.getMessage().getInt("index"), expected.getMessage().getInt("index"));
+        assertEquals(actual.getMessage().getNumFields(), expected.getMessage().getNumFields());
+      }
+      assertNull(reader.read());
+    } finally {
+      in.close();
+    }
+  }
+
+  public void testBufferShrinks() throws IOException {
+    final File file = write(message(0, 1000), message(1, 1), message(2, 1000));
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      final PipeReader reader = new PipeReader(s_fudgeContext, in.getChannel(), 1024);
+      assertEquals(reader.read().getMessage().getNumFields(), 1001);
+      // Only the small message is left, so the buffer can go back to its original size
+      assertEquals(reader.getBufferCapacity(), 1024);
+      assertEquals(reader.read().getMessage().getNumFields(), 2);
+      assertEquals(reader.read().getMessage().getNumFields(), 1001);
+      assertEquals(reader.getBufferCapacity(), 1024);
+      assertNull(reader.read());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test(expectedExceptions = EOFException.class)
+  public void testTruncated() throws IOException {
+    final File file = write(message(0, 10));
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(raf.length() - 1);
+    } finally {
+      raf.close();
+    }
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      new PipeReader(s_fudgeContext, in.getChannel()).read();
+    } finally {
+      in.close();
+    }
+  }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.Pipe;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link SharedMemoryRings} class. A temporary file laid out in the same way as the C++ client creates the segment stands in
+ * for the shared memory.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SharedMemoryRingsTest {
+
+  private static final FudgeContext s_fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+
+  private static File createSegment(final int magic, final int ringSize) throws IOException {
+    final File file = File.createTempFile("SharedMemoryRingsTest", ".tmp");
+    file.deleteOnExit();
+    final ByteBuffer header = ByteBuffer.allocate(SharedMemoryRings.SEGMENT_HEADER).order(ByteOrder.nativeOrder());
+    header.putInt(SharedMemoryRings.MAGIC_OFFSET, magic);
+    header.putInt(SharedMemoryRings.VERSION_OFFSET, SharedMemoryRings.VERSION);
+    header.putInt(SharedMemoryRings.RING_SIZE_OFFSET, ringSize);
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(SharedMemoryRings.SEGMENT_HEADER + 2 * (SharedMemoryRings.RING_HEADER + ringSize));
+      raf.getChannel().write(header, 0);
+    } finally {
+      raf.close();
+    }
+    return file;
+  }
+
+  private static FudgeMsgEnvelope message(final int i, final int fields) {
+    final MutableFudgeMsg msg = s_fudgeContext.newMessage();
+    msg.add("index", i);
+    for (int j = 0; j < fields; j++) {
+      msg.add("field" + j, "Field " + j + " of message " + i);
+    }
+    return new FudgeMsgEnvelope(msg, 0, MessageDirectives.USER);
+  }
+
+  public void testAccept() throws IOException {
+    final File file = createSegment(SharedMemoryRings.MAGIC, 4096);
+    SharedMemoryRings.open(file).accept();
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      final ByteBuffer header = ByteBuffer.allocate(SharedMemoryRings.SEGMENT_HEADER).order(ByteOrder.nativeOrder());
+      raf.getChannel().read(header, 0);
+      assertEquals(header.getInt(SharedMemoryRings.ACCEPTED_OFFSET), 1);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testInvalidMagic() throws IOException {
+    SharedMemoryRings.open(createSegment(0, 4096));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testInvalidRingSize() throws IOException {
+    SharedMemoryRings.open(createSegment(SharedMemoryRings.MAGIC, 1000));
+  }
+
+  public void testRoundTrip() throws Exception {
+    // A small ring so that messages wrap around it and some are larger than it
+    final SharedMemoryRings rings = SharedMemoryRings.open(createSegment(SharedMemoryRings.MAGIC, 256));
+    final Pipe signal = Pipe.open();
+    final FudgeMsgEnvelope[] messages = new FudgeMsgEnvelope[50];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = message(i, i % 10);
+    }
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    final Thread writer = new Thread() {
+      @Override
+      public void run() {
+        final GatheringByteChannel out = rings.openWriter(SharedMemoryRings.JAVA_TO_CPP, signal.sink());
+        final ByteBufferDataOutput buffer = new ByteBufferDataOutput(64);
+        final FudgeMsgWriter writer = new FudgeMsgWriter(s_fudgeContext.createWriter((DataOutput) buffer));
+        try {
+          for (int i = 0; i < messages.length; i++) {
+            writer.writeMessageEnvelope(messages[i]);
+            if (i % 3 == 0) {
+              buffer.writeTo(out);
+            }
+          }
+          buffer.writeTo(out);
+          out.close();
+        } catch (final Throwable t) {
+          error.set(t);
+        }
+      }
+    };
+    writer.start();
+    final PipeReader reader = new PipeReader(s_fudgeContext, rings.openReader(SharedMemoryRings.JAVA_TO_CPP, signal.source()), 16);
+    try {
+      for (FudgeMsgEnvelope expected : messages) {
+        final FudgeMsgEnvelope actual = reader.read();
+        assertEquals(actual.getMessage().getInt("index"), expected.getMessage().getInt("index"));
+        assertEquals(actual.getMessage().getNumFields(), expected.getMessage().getNumFields());
+      }
+      assertNull(reader.read());
+    } finally {
+      reader.close();
+    }
+    writer.join();
+    assertNull(error.get());
+  }
+
+}
@@ -11,10 +11,12 @@ import static org.testng.AssertJUnit.assertEquals;
 import org.testng.annotations.Test;
 
 import com.opengamma.language.Data;
+import com.opengamma.language.DataColumns;
 import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
 import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.invoke.DefaultValueConverter;
 import com.opengamma.language.test.AbstractConverterTest;
 import com.opengamma.util.test.TestGroup;
 
@@ -51,7 +53,40 @@ public class DataConverterTest extends AbstractConverterTest {
     data = DataUtils.of(createValue_2());
     assertValidConversion(_dataConverter, data.getMatrix(), target, data);
     assertInvalidConversion(_dataConverter, "foo", target);
-    assertConversionCount(3, _dataConverter, target);
+    assertConversionCount(9, _dataConverter, target);
+  }
+
+  @Test
+  public void testPrimitiveToData() {
+    final JavaTypeInfo<Data> target = JavaTypeInfo.builder(Data.class).get();
+    assertValidConversion(_dataConverter, new double[] {1.0, 2.0 }, target, DataUtils.of(new Value[] {ValueUtils.of(1.0), ValueUtils.of(2.0) }));
+    assertValidConversion(_dataConverter, new int[][] { {1, 2 }, {3, 4 } }, target, DataUtils.of(new Value[][] { {ValueUtils.of(1), ValueUtils.of(2) },
+        {ValueUtils.of(3), ValueUtils.of(4) } }));
+    assertInvalidConversion(_dataConverter, new double[][] { {1.0 }, {2.0, 3.0 } }, target);
+  }
+
+  @Test
+  public void testToDouble_1() {
+    final JavaTypeInfo<double[]> target = JavaTypeInfo.builder(double[].class).get();
+    assertEquals(true, _dataConverter.canConvertTo(target));
+    assertValidConversion(_dataConverter, DataUtils.of(new double[] {1.0, 2.0 }), target, new double[] {1.0, 2.0 });
+    assertValidConversion(_dataConverter, DataUtils.of(createValue_1()), target, new double[] {_count - 1, _count });
+    assertInvalidConversion(_dataConverter, DataUtils.of(new Value[] {ValueUtils.of(1.0), new Value() }), target);
+    assertInvalidConversion(_dataConverter, DataUtils.of(createValue_2()), target);
+    assertConversionCount(1, _dataConverter, target);
+  }
+
+  @Test
+  public void testToInt_2() {
+    final JavaTypeInfo<int[][]> target = JavaTypeInfo.builder(int[][].class).get();
+    assertEquals(true, _dataConverter.canConvertTo(target));
+    final Data data = DataUtils.of(DataColumns.of(new int[][] { {1, 2 }, {3, 4 } }));
+    final ValueConversionContext context = new ValueConversionContext(getSessionContext(), new DefaultValueConverter());
+    _dataConverter.convertValue(context, data, target);
+    final int[][] result = context.getResult();
+    assertEquals(2, result.length);
+    assertEquals(4, result[1][1]);
+    assertInvalidConversion(_dataConverter, DataUtils.of(createValue_1()), target);
   }
 
   @Test
@@ -82,6 +117,13 @@ public class DataConverterTest extends AbstractConverterTest {
     assertConversionCount(1, _dataConverter, target);
   }
 
+  @Test
+  public void testColumnsToValue_1() {
+    final JavaTypeInfo<Value[]> target = JavaTypeInfo.builder(Value[].class).get();
+    assertValidConversion(_dataConverter, DataUtils.of(new int[] {1, 2 }), target, new Value[] {ValueUtils.of(1), ValueUtils.of(2) });
+    assertInvalidConversion(_dataConverter, DataUtils.of(new int[][] { {1, 2 } }), target);
+  }
+
   @Test
   public void testToValue_2() {
     final JavaTypeInfo<Value[][]> target = JavaTypeInfo.builder(Value[][].class).get();
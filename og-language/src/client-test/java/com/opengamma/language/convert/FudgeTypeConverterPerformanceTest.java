@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.convert;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.core.security.Security;
+import com.opengamma.financial.security.equity.EquitySecurity;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.invoke.DefaultValueConverter;
+import com.opengamma.language.test.TestUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Measures the throughput of {@link FudgeTypeConverter} with many threads converting a mix of values at once, as happens when
+ * several sessions are invoking functions.
+ */
+@Test(groups = TestGroup.INTEGRATION)
+public class FudgeTypeConverterPerformanceTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(FudgeTypeConverterPerformanceTest.class);
+
+  private static final int THREADS = 32;
+  private static final int CONVERSIONS = 20000;
+  private static final int RUNS = 3;
+
+  private static final JavaTypeInfo<Currency> CURRENCY = JavaTypeInfo.builder(Currency.class).get();
+  private static final JavaTypeInfo<String> STRING = JavaTypeInfo.builder(String.class).get();
+  private static final JavaTypeInfo<Security> SECURITY = JavaTypeInfo.builder(Security.class).get();
+  private static final JavaTypeInfo<FudgeMsg> FUDGE_MSG = JavaTypeInfo.builder(FudgeMsg.class).get();
+
+  private final FudgeTypeConverter _converter = new FudgeTypeConverter(OpenGammaFudgeContext.getInstance());
+  private final SessionContext _sessionContext = new TestUtils().createSessionContext();
+
+  private int convert(final int thread) {
+    final ValueConversionContext context = new ValueConversionContext(_sessionContext, new DefaultValueConverter());
+    final Security security = new EquitySecurity("X" + thread, "XC", "CN", Currency.USD);
+    final FudgeMsg securityMsg = FudgeSerializer.addClassHeader(new FudgeSerializer(_converter.getFudgeContext()).objectToFudgeMsg(security),
+        security.getClass(), Security.class);
+    int failures = 0;
+    for (int i = 0; i < CONVERSIONS; i++) {
+      context.reset(_sessionContext);
+      switch (i & 3) {
+        case 0:
+          _converter.canConvertTo(CURRENCY);
+          _converter.convertValue(context, "USD", CURRENCY);
+          break;
+        case 1:
+          _converter.getConversionsTo(STRING);
+          _converter.convertValue(context, Currency.GBP, STRING);
+          break;
+        case 2:
+          _converter.canConvertTo(SECURITY);
+          _converter.convertValue(context, securityMsg, SECURITY);
+          break;
+        default:
+          _converter.getConversionsTo(FUDGE_MSG);
+          _converter.convertValue(context, security, FUDGE_MSG);
+          break;
+      }
+      if (context.isFailed()) {
+        failures++;
+      }
+    }
+    return failures;
+  }
+
+  public void testContention() throws InterruptedException {
+    for (int run = 0; run < RUNS; run++) {
+      final CountDownLatch start = new CountDownLatch(1);
+      final CountDownLatch done = new CountDownLatch(THREADS);
+      final AtomicInteger failures = new AtomicInteger();
+      for (int i = 0; i < THREADS; i++) {
+        final int thread = i;
+        new Thread() {
+          @Override
+          public void run() {
+            try {
+              start.await();
+              failures.addAndGet(convert(thread));
+            } catch (InterruptedException e) {
+              failures.incrementAndGet();
+            } finally {
+              done.countDown();
+            }
+          }
+        }.start();
+      }
+      final long begin = System.nanoTime();
+      start.countDown();
+      done.await();
+      final long nanos = System.nanoTime() - begin;
+      s_logger.info("Run {}: {} threads, {} conversions/s", new Object[] {run, THREADS, (double) THREADS * CONVERSIONS * 1e9 / (double) nanos });
+      assertEquals(failures.get(), 0);
+    }
+  }
+
+}
@@ -7,15 +7,28 @@
 package com.opengamma.language.convert;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.mapping.FudgeSerializer;
 import org.testng.annotations.Test;
 
+import com.opengamma.core.position.Position;
 import com.opengamma.core.security.Security;
 import com.opengamma.financial.security.equity.EquitySecurity;
+import com.opengamma.language.context.AbstractSessionContextEventHandler;
+import com.opengamma.language.context.DefaultSessionContextEventHandler;
+import com.opengamma.language.context.MutableSessionContext;
+import com.opengamma.language.context.SessionContext;
 import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.invoke.DefaultValueConverter;
+import com.opengamma.language.object.ObjectHandles;
 import com.opengamma.language.test.AbstractConverterTest;
+import com.opengamma.language.test.TestUtils;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.test.TestGroup;
@@ -70,4 +83,69 @@ public class FudgeTypeConverterTest extends AbstractConverterTest {
     assertConversionCount(1, _converter, target);
   }
 
+  public void testObjectHandles() {
+    final SessionContext sessionContext = TestUtils.createSessionContext(null, null, new AbstractSessionContextEventHandler(new DefaultSessionContextEventHandler()) {
+      @Override
+      protected void initContextImpl(final MutableSessionContext context) {
+        context.setObjectHandles(new ObjectHandles(16));
+      }
+    });
+    final Security security = createSecurityObject();
+    ValueConversionContext context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, security, JavaTypeInfo.builder(FudgeMsg.class).get());
+    assertFalse(context.isFailed());
+    final FudgeMsg handle = context.getResult();
+    assertNotNull(ObjectHandles.getHandle(handle));
+    assertEquals(sessionContext.getObjectHandles().size(), 1);
+    // The handle resolves to the original object, not a copy of it
+    context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, handle, JavaTypeInfo.builder(Security.class).get());
+    assertFalse(context.isFailed());
+    assertSame(context.getResult(), security);
+    // But not to an incompatible type
+    context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, handle, JavaTypeInfo.builder(Position.class).get());
+    assertTrue(context.isFailed());
+  }
+
+  public void testObjectHandleAliasing() {
+    final SessionContext sessionContext = TestUtils.createSessionContext(null, null, new AbstractSessionContextEventHandler(new DefaultSessionContextEventHandler()) {
+      @Override
+      protected void initContextImpl(final MutableSessionContext context) {
+        context.setObjectHandles(new ObjectHandles(16));
+      }
+    });
+    final EquitySecurity security = (EquitySecurity) createSecurityObject();
+    ValueConversionContext context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, security, JavaTypeInfo.builder(FudgeMsg.class).get());
+    final FudgeMsg handle = context.getResult();
+    // A function given the handle receives the live instance; modifying it modifies the object the client holds
+    context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, handle, JavaTypeInfo.builder(EquitySecurity.class).get());
+    ((EquitySecurity) context.getResult()).setShortName("Y");
+    assertEquals(((EquitySecurity) sessionContext.getObjectHandles().get(ObjectHandles.getHandle(handle))).getShortName(), "Y");
+    // Returning the modified object reuses its handle
+    context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, security, JavaTypeInfo.builder(FudgeMsg.class).get());
+    assertEquals(ObjectHandles.getHandle((FudgeMsg) context.getResult()), ObjectHandles.getHandle(handle));
+  }
+
+  public void testObjectHandlesFull() {
+    final SessionContext sessionContext = TestUtils.createSessionContext(null, null, new AbstractSessionContextEventHandler(new DefaultSessionContextEventHandler()) {
+      @Override
+      protected void initContextImpl(final MutableSessionContext context) {
+        context.setObjectHandles(new ObjectHandles(1));
+      }
+    });
+    ValueConversionContext context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, createSecurityObject(), JavaTypeInfo.builder(FudgeMsg.class).get());
+    assertNotNull(ObjectHandles.getHandle((FudgeMsg) context.getResult()));
+    // The store is full, so the next object is passed by value
+    context = new ValueConversionContext(sessionContext, new DefaultValueConverter());
+    _converter.convertValue(context, createSecurityObject(), JavaTypeInfo.builder(FudgeMsg.class).get());
+    assertFalse(context.isFailed());
+    assertNull(ObjectHandles.getHandle((FudgeMsg) context.getResult()));
+    assertEquals(context.getResult(), createSecurityMessage());
+  }
+
 }
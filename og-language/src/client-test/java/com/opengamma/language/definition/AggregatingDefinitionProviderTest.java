@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.definition;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link AggregatingDefinitionProvider} and {@link AbstractDefinitionProvider} classes.
+ */
+@Test(groups = TestGroup.UNIT)
+public class AggregatingDefinitionProviderTest {
+
+  private static class Aggregator extends AggregatingDefinitionProvider<Definition> {
+
+    public Aggregator(final boolean enableCache) {
+      super(enableCache);
+    }
+
+  }
+
+  private static class Provider extends AbstractDefinitionProvider<Definition> {
+
+    private final AtomicInteger _loads = new AtomicInteger();
+    private final CountDownLatch _latch;
+    private final String[] _definitions;
+
+    public Provider(final CountDownLatch latch, final String... definitions) {
+      _latch = latch;
+      _definitions = definitions;
+    }
+
+    @Override
+    protected void loadDefinitions(final Collection<Definition> definitions) {
+      _loads.incrementAndGet();
+      if (_latch != null) {
+        // Each provider waits for all of the others to have started
+        _latch.countDown();
+        try {
+          if (!_latch.await(5, TimeUnit.SECONDS)) {
+            throw new OpenGammaRuntimeException("Providers not loaded concurrently");
+          }
+        } catch (InterruptedException e) {
+          throw new OpenGammaRuntimeException("Interrupted", e);
+        }
+      }
+      for (String definition : _definitions) {
+        final Definition d = new Definition(definition);
+        d.setDescription(toString());
+        definitions.add(d);
+      }
+    }
+
+  }
+
+  private static Map<String, String> descriptions(final Set<Definition> definitions) {
+    final Map<String, String> result = new HashMap<String, String>();
+    for (Definition definition : definitions) {
+      result.put(definition.getName(), definition.getDescription());
+    }
+    return result;
+  }
+
+  public void testPrecedence() {
+    final Aggregator aggregator = new Aggregator(false);
+    final Provider a = new Provider(null, "X", "Y");
+    final Provider b = new Provider(null, "Y", "Z");
+    aggregator.addProvider(a);
+    aggregator.addProvider(b);
+    final Map<String, String> result = descriptions(aggregator.getDefinitions());
+    assertEquals(result.size(), 3);
+    assertEquals(result.get("X"), a.toString());
+    assertEquals(result.get("Y"), b.toString());
+    assertEquals(result.get("Z"), b.toString());
+  }
+
+  public void testConcurrentLoad() {
+    final int count = 2;
+    final CountDownLatch latch = new CountDownLatch(count);
+    final Aggregator aggregator = new Aggregator(false);
+    for (int i = 0; i < count; i++) {
+      aggregator.addProvider(new Provider(latch, "D" + i));
+    }
+    assertEquals(aggregator.getDefinitions().size(), count);
+  }
+
+  public void testCaching() {
+    final Aggregator aggregator = new Aggregator(true);
+    final Provider a = new Provider(null, "X");
+    aggregator.addProvider(a);
+    final Set<Definition> first = aggregator.getDefinitions();
+    assertSame(aggregator.getDefinitions(), first);
+    assertEquals(a._loads.get(), 1);
+    aggregator.flush();
+    assertTrue(aggregator.getDefinitions() != first);
+    assertEquals(a._loads.get(), 2);
+  }
+
+}
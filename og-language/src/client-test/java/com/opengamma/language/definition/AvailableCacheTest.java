@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.definition;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.testng.annotations.Test;
+
+import com.opengamma.language.connector.UserMessage;
+import com.opengamma.language.connector.UserMessagePayload;
+import com.opengamma.language.debug.DebugFunctionLiteral;
+import com.opengamma.language.function.Available;
+import com.opengamma.language.function.FunctionProviderBean;
+import com.opengamma.language.function.FunctionRepository;
+import com.opengamma.language.function.MetaFunction;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link AvailableCache} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class AvailableCacheTest {
+
+  private static FunctionProviderBean provider(final String... names) {
+    final FunctionProviderBean provider = new FunctionProviderBean();
+    for (String name : names) {
+      provider.addFunction(new DebugFunctionLiteral(name, name));
+    }
+    provider.afterPropertiesSet();
+    return provider;
+  }
+
+  private static Available available(final FunctionRepository repository) {
+    final Available available = new Available();
+    for (Map.Entry<Integer, MetaFunction> definition : repository.getAll().entrySet()) {
+      available.addFunction(new Available.Entry(definition.getKey(), definition.getValue()));
+    }
+    return available;
+  }
+
+  private static int identifier(final FunctionRepository repository, final String name) {
+    for (Map.Entry<Integer, MetaFunction> definition : repository.getAll().entrySet()) {
+      if (name.equals(definition.getValue().getName())) {
+        return definition.getKey();
+      }
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  public void testRestore() throws IOException, InterruptedException {
+    final File file = File.createTempFile("AvailableCacheTest", ".cache");
+    try {
+      final FunctionRepository repository = new FunctionRepository();
+      repository.initialize(provider("B", "C"), false);
+      final AvailableCache cache = new AvailableCache(file, "Test", FudgeContext.GLOBAL_DEFAULT);
+      assertNull(cache.get("function", repository));
+      final Available available = available(repository);
+      cache.put("function", available, repository);
+      cache.sync();
+      // A new instance, as if the service had been restarted
+      final AvailableCache restored = new AvailableCache(file, "Test", FudgeContext.GLOBAL_DEFAULT);
+      final FunctionRepository session = new FunctionRepository();
+      final FudgeMsg cached = restored.get("function", session);
+      assertNotNull(cached);
+      assertEquals(available, Available.fromFudgeMsg(restored.getFudgeDeserializer(), cached));
+      assertTrue(session.getAll().isEmpty());
+      // "A" sorts first so would take the first identifier if they had not been reserved
+      session.initialize(provider("A", "B", "C"), false);
+      assertEquals(identifier(repository, "B"), identifier(session, "B"));
+      assertEquals(identifier(repository, "C"), identifier(session, "C"));
+      assertEquals(3, session.getAll().size());
+      // A different configuration doesn't use the file
+      assertNull(new AvailableCache(file, "Other", FudgeContext.GLOBAL_DEFAULT).get("function", new FunctionRepository()));
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static Available send(final UserMessagePayload payload) {
+    final FudgeMsg msg = new UserMessage(payload).toFudgeMsg(new FudgeSerializer(FudgeContext.GLOBAL_DEFAULT));
+    return (Available) UserMessage.fromFudgeMsg(new FudgeDeserializer(FudgeContext.GLOBAL_DEFAULT), msg).getPayload();
+  }
+
+  public void testGetAvailable() throws IOException, InterruptedException {
+    final File file = File.createTempFile("AvailableCacheTest", ".cache");
+    try {
+      final FunctionRepository repository = new FunctionRepository();
+      final AvailableCache cache = new AvailableCache(file, "Test", FudgeContext.GLOBAL_DEFAULT);
+      final Callable<Available> builder = new Callable<Available>() {
+        @Override
+        public Available call() {
+          repository.initialize(provider("A", "B"), true);
+          final Available available = available(repository);
+          available.setGeneration(repository.getGeneration());
+          return available;
+        }
+      };
+      // Not cached, so built and stored
+      Available available = send(cache.getAvailable("function", Available.class, repository, builder));
+      assertEquals(2, available.getFunction().size());
+      assertEquals(repository.getGeneration(), available.getGeneration().intValue());
+      assertEquals(repository.getEpoch(), available.getEpoch());
+      cache.sync();
+      // A new session is answered from the encoded cache entry
+      final FunctionRepository session = new FunctionRepository();
+      available = send(cache.getAvailable("function", Available.class, session, builder));
+      assertEquals(2, available.getFunction().size());
+      assertEquals(0, available.getGeneration().intValue());
+      assertEquals(session.getEpoch(), available.getEpoch());
+      assertTrue(session.getAll().isEmpty());
+      // Let the background rebuild finish before the file is removed
+      cache.sync();
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testReserveConflict() {
+    final FunctionRepository repository = new FunctionRepository();
+    repository.initialize(provider("A"), false);
+    final int a = identifier(repository, "A");
+    assertFalse(repository.reserve(Collections.singletonMap("B", a)));
+    assertFalse(repository.reserve(Collections.singletonMap("A", a + 1)));
+    assertTrue(repository.reserve(Collections.singletonMap("B", a + 1)));
+    repository.initialize(provider("B"), true);
+    assertEquals(a + 1, identifier(repository, "B"));
+  }
+
+}
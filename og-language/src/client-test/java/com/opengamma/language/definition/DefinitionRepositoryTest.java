@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.definition;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the generation tracking of the {@link DefinitionRepository} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class DefinitionRepositoryTest {
+
+  private static class Provider extends AbstractDefinitionProvider<Definition> {
+
+    private final List<Definition> _definitions = new ArrayList<Definition>();
+
+    public Provider() {
+      super(false);
+    }
+
+    public void set(final Definition... definitions) {
+      _definitions.clear();
+      Collections.addAll(_definitions, definitions);
+    }
+
+    @Override
+    protected void loadDefinitions(final Collection<Definition> definitions) {
+      definitions.addAll(_definitions);
+    }
+
+  }
+
+  private static Definition definition(final String name, final String description) {
+    final Definition definition = new Definition(name);
+    definition.setDescription(description);
+    return definition;
+  }
+
+  public void testChanges() {
+    final DefinitionRepository<Definition> repository = new DefinitionRepository<Definition>();
+    final Provider provider = new Provider();
+    provider.set(definition("A", "1"), definition("B", "1"), definition("C", "1"));
+    repository.initialize(provider, true);
+    final int generation = repository.getGeneration();
+    final int a = repository.add(definition("A", "1"));
+    final List<Integer> removed = new ArrayList<Integer>();
+    assertTrue(repository.getChanges(generation, removed).isEmpty());
+    assertTrue(removed.isEmpty());
+    assertEquals(repository.getGeneration(), generation);
+    assertEquals(repository.getChanges(0, removed).size(), 3);
+    // Change B, remove C and add D
+    provider.set(definition("A", "1"), definition("B", "2"), definition("D", "1"));
+    repository.initialize(provider, true);
+    final Map<Integer, Definition> changes = repository.getChanges(generation, removed);
+    assertEquals(changes.size(), 2);
+    assertEquals(removed.size(), 1);
+    assertNull(repository.get(removed.get(0)));
+    assertTrue(!changes.containsKey(a));
+    for (Definition definition : changes.values()) {
+      assertTrue("B".equals(definition.getName()) || "D".equals(definition.getName()));
+    }
+    // Restore C under its original identifier
+    final int next = repository.getGeneration();
+    assertEquals(repository.add(definition("C", "1")), (int) removed.get(0));
+    removed.clear();
+    assertEquals(repository.getChanges(next, removed).size(), 1);
+    assertTrue(removed.isEmpty());
+  }
+
+  public void testEpoch() {
+    final DefinitionRepository<Definition> a = new DefinitionRepository<Definition>();
+    final DefinitionRepository<Definition> b = new DefinitionRepository<Definition>();
+    // Both start from generation zero, so only the epoch tells them apart
+    assertEquals(a.getGeneration(), b.getGeneration());
+    assertFalse(a.getEpoch().equals(b.getEpoch()));
+    assertEquals(a.getEpoch(), a.getEpoch());
+  }
+
+}
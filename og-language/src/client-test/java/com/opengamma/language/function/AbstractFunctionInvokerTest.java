@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.function;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.language.Data;
+import com.opengamma.language.DataUtils;
+import com.opengamma.language.Value;
+import com.opengamma.language.ValueUtils;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.convert.Converters;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.error.Constants;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
+import com.opengamma.language.test.TestUtils;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the broadcast invocation mode of the {@link AbstractFunctionInvoker} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class AbstractFunctionInvokerTest {
+
+  private final SessionContext _sessionContext;
+
+  public AbstractFunctionInvokerTest() {
+    final TestUtils testUtils = new TestUtils();
+    testUtils.setTypeConverters(new Converters());
+    _sessionContext = testUtils.createSessionContext();
+  }
+
+  private static final class Add extends AbstractFunctionInvoker {
+
+    public Add() {
+      super(Arrays.asList(new MetaParameter("a", JavaTypeInfo.builder(Integer.class).get()), new MetaParameter("b", JavaTypeInfo.builder(Integer.class).get())));
+    }
+
+    @Override
+    protected boolean isBroadcast() {
+      return true;
+    }
+
+    @Override
+    protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
+      final int a = (Integer) parameters[0];
+      final int b = (Integer) parameters[1];
+      if (a < 0) {
+        throw new InvokeInvalidArgumentException(0, "Negative");
+      }
+      return a + b;
+    }
+
+  }
+
+  private static Value[] values(final int... values) {
+    final Value[] result = new Value[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = ValueUtils.of(values[i]);
+    }
+    return result;
+  }
+
+  private Data invoke(final Data a, final Data b) {
+    final Result result = new Add().invoke(_sessionContext, Arrays.asList(a, b));
+    final List<Data> data = result.getResult();
+    assertEquals(1, data.size());
+    return data.get(0);
+  }
+
+  public void testScalar() {
+    assertEquals(3, (int) ValueUtils.toInt(invoke(DataUtils.of(1), DataUtils.of(2)).getSingle()));
+  }
+
+  public void testLinear() {
+    final Value[] result = DataUtils.getLinear(invoke(DataUtils.of(values(1, 2, 3)), DataUtils.of(10)));
+    assertNotNull(result);
+    assertEquals(3, result.length);
+    assertEquals(11, (int) result[0].getIntValue());
+    assertEquals(12, (int) result[1].getIntValue());
+    assertEquals(13, (int) result[2].getIntValue());
+  }
+
+  public void testMatrix() {
+    final Data a = DataUtils.of(new Value[][] {values(1, 2), values(3, 4), values(5, 6) });
+    final Data b = DataUtils.of(new Value[][] {values(10, 20), values(30, 40), values(50, 60) });
+    final Value[][] result = DataUtils.getMatrix(invoke(a, b));
+    assertNotNull(result);
+    assertEquals(3, result.length);
+    assertEquals(2, result[0].length);
+    assertEquals(11, (int) result[0][0].getIntValue());
+    assertEquals(44, (int) result[1][1].getIntValue());
+    assertEquals(66, (int) result[2][1].getIntValue());
+  }
+
+  public void testElementError() {
+    final Value[] result = DataUtils.getLinear(invoke(DataUtils.of(values(1, -1, 3)), DataUtils.of(values(1, 1, 1))));
+    assertEquals(2, (int) result[0].getIntValue());
+    assertNull(result[1].getIntValue());
+    assertEquals(Constants.ERROR_INVALID_ARGUMENT, (int) result[1].getErrorValue());
+    assertEquals(4, (int) result[2].getIntValue());
+  }
+
+  public void testParallel() {
+    final int[] a = new int[10000];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = i;
+    }
+    final Value[] result = DataUtils.getLinear(invoke(DataUtils.of(values(a)), DataUtils.of(1)));
+    assertEquals(a.length, result.length);
+    for (int i = 0; i < a.length; i++) {
+      assertEquals(i + 1, (int) result[i].getIntValue());
+    }
+  }
+
+}
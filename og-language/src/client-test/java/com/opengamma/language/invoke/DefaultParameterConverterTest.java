@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.invoke;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.language.Data;
+import com.opengamma.language.DataUtils;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.convert.Converters;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.error.InvokeParameterConversionException;
+import com.opengamma.language.test.TestUtils;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link DefaultParameterConverter} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class DefaultParameterConverterTest {
+
+  private final SessionContext _sessionContext;
+
+  public DefaultParameterConverterTest() {
+    final TestUtils testUtils = new TestUtils();
+    testUtils.setTypeConverters(new Converters());
+    _sessionContext = testUtils.createSessionContext();
+  }
+
+  private static List<MetaParameter> parameters() {
+    return Arrays.asList(new MetaParameter("a", JavaTypeInfo.builder(Long.class).get()), new MetaParameter("b", JavaTypeInfo.builder(String.class).allowNull().get()));
+  }
+
+  @Test
+  public void testShapeCache() {
+    final DefaultParameterConverter converter = new DefaultParameterConverter();
+    final List<MetaParameter> parameters = parameters();
+    Object[] result = converter.convertParameters(_sessionContext, Arrays.asList(DataUtils.of(1), DataUtils.of("Foo")), parameters);
+    assertEquals(1L, result[0]);
+    assertEquals("Foo", result[1]);
+    assertEquals(0, converter.getShapeHits());
+    assertEquals(1, converter.getShapeMisses());
+    result = converter.convertParameters(_sessionContext, Arrays.asList(DataUtils.of(2), DataUtils.of("Bar")), parameters);
+    assertEquals(2L, result[0]);
+    assertEquals("Bar", result[1]);
+    assertEquals(1, converter.getShapeHits());
+    assertEquals(1, converter.getShapeMisses());
+    // A different shape for the same parameters
+    result = converter.convertParameters(_sessionContext, Arrays.asList(DataUtils.of(3), new Data()), parameters);
+    assertEquals(3L, result[0]);
+    assertNull(result[1]);
+    assertEquals(1, converter.getShapeHits());
+    assertEquals(2, converter.getShapeMisses());
+    // Equal, but not the same, parameter list
+    converter.convertParameters(_sessionContext, Arrays.asList(DataUtils.of(4), DataUtils.of("Foo")), parameters());
+    assertEquals(1, converter.getShapeHits());
+    assertEquals(3, converter.getShapeMisses());
+  }
+
+  @Test(expectedExceptions = InvokeParameterConversionException.class)
+  public void testFailure() {
+    final DefaultParameterConverter converter = new DefaultParameterConverter();
+    final List<MetaParameter> parameters = Arrays.asList(new MetaParameter("a", JavaTypeInfo.builder(char[].class).get()));
+    converter.convertParameters(_sessionContext, Arrays.asList(DataUtils.of(42)), parameters);
+  }
+
+}
@@ -9,6 +9,7 @@ package com.opengamma.language.invoke;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsgFactory;
@@ -120,6 +121,31 @@ public class DefaultValueConverterTest {
     assertTrue(times.getFirst() < times.getSecond());
   }
 
+  @Test
+  public void testPlanStatistics() {
+    final DefaultValueConverter converter = new DefaultValueConverter();
+    _valueConverter = converter;
+    final JavaTypeInfo<Long> longType = JavaTypeInfo.builder(Long.class).get();
+    assertEquals((Long) 42L, convert(DataUtils.of(42), longType));
+    final long misses = converter.getPlanMisses();
+    final long failures = converter.getConversionFailures();
+    assertTrue(misses > 0);
+    for (int i = 0; i < 10; i++) {
+      assertEquals((Long) (long) i, convert(DataUtils.of(i), longType));
+    }
+    // Repeated conversions are satisfied by the compiled plan without any further search
+    assertTrue(converter.getPlanHits() >= 10);
+    assertEquals(misses, converter.getPlanMisses());
+    assertEquals(failures, converter.getConversionFailures());
+    try {
+      convert(DataUtils.of(42), JavaTypeInfo.builder(char[].class).get());
+      fail();
+    } catch (InvalidConversionException e) {
+      // Expected
+    }
+    assertTrue(converter.getConversionFailures() > failures);
+  }
+
   @Test(expectedExceptions = InvalidConversionException.class)
   public void testFailedConversion() {
     final JavaTypeInfo<char[]> intArrayType = JavaTypeInfo.builder(char[].class).get();
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.livedata;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.language.DataUtils;
+import com.opengamma.language.connector.MessageSender;
+import com.opengamma.language.connector.UserMessagePayload;
+import com.opengamma.language.context.AbstractSessionContextEventHandler;
+import com.opengamma.language.context.MutableSessionContext;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.context.SessionContextEventHandler;
+import com.opengamma.language.test.TestUtils;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link StreamingLiveDataDispatcher} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class StreamingLiveDataDispatcherTest {
+
+  private static final class RecordingSender implements MessageSender {
+
+    private final List<UserMessagePayload> _messages = new ArrayList<UserMessagePayload>();
+
+    @Override
+    public synchronized void send(final UserMessagePayload message) {
+      _messages.add(message);
+    }
+
+    @Override
+    public void sendAndWait(final UserMessagePayload message, final long timeoutMillis) {
+      send(message);
+    }
+
+    @Override
+    public UserMessagePayload call(final UserMessagePayload message, final long timeoutMillis) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getDefaultTimeout() {
+      return 1000L;
+    }
+
+    public synchronized List<UserMessagePayload> getMessages() {
+      return new ArrayList<UserMessagePayload>(_messages);
+    }
+
+  }
+
+  private static SessionContext createSessionContext(final MessageSender sender) {
+    return new TestUtils() {
+      @Override
+      protected SessionContextEventHandler createSessionContextEventHandler() {
+        return new AbstractSessionContextEventHandler(super.createSessionContextEventHandler()) {
+          @Override
+          protected void initContextImpl(final MutableSessionContext sessionContext) {
+            sessionContext.setMessageSender(sender);
+          }
+        };
+      }
+    }.createSessionContext();
+  }
+
+  @Test
+  public void testImmediate() {
+    final RecordingSender sender = new RecordingSender();
+    final SessionContext context = createSessionContext(sender);
+    final StreamingLiveDataDispatcher dispatcher = new StreamingLiveDataDispatcher();
+    final Result result = dispatcher.createResult(context, 1, DataUtils.of(1));
+    assertEquals(DataUtils.of(1), result.getResult());
+    dispatcher.dispatchValue(context, 1, DataUtils.of(2));
+    dispatcher.dispatchValue(context, 1, DataUtils.of(3));
+    final List<UserMessagePayload> messages = sender.getMessages();
+    assertEquals(2, messages.size());
+    assertEquals(new Result(1, DataUtils.of(2)), messages.get(0));
+    assertEquals(new Result(1, DataUtils.of(3)), messages.get(1));
+    dispatcher.dispatchValue(context, 1, null);
+    assertEquals(0, dispatcher.getActiveSessions());
+    // A value racing with the close is dropped without reviving the session state
+    dispatcher.dispatchValue(context, 1, DataUtils.of(4));
+    assertEquals(2, sender.getMessages().size());
+    assertEquals(0, dispatcher.getActiveSessions());
+  }
+
+  @Test
+  public void testValueBeforeConnect() {
+    final RecordingSender sender = new RecordingSender();
+    final SessionContext context = createSessionContext(sender);
+    final StreamingLiveDataDispatcher dispatcher = new StreamingLiveDataDispatcher();
+    // The connection is registered with the session before it can produce values
+    context.getConnections().add(1, new Connection());
+    dispatcher.dispatchValue(context, 1, DataUtils.of(1));
+    assertTrue(sender.getMessages().isEmpty());
+    assertEquals(1, dispatcher.getActiveSessions());
+    final Result result = dispatcher.createResult(context, 1, null);
+    assertEquals(DataUtils.of(1), result.getResult());
+  }
+
+  @Test
+  public void testValueForClosedConnection() {
+    final RecordingSender sender = new RecordingSender();
+    final SessionContext context = createSessionContext(sender);
+    final StreamingLiveDataDispatcher dispatcher = new StreamingLiveDataDispatcher();
+    dispatcher.createResult(context, 1, DataUtils.of(1));
+    // Connection 2 is not registered with the session, so isn't being set up
+    dispatcher.dispatchValue(context, 2, DataUtils.of(2));
+    assertTrue(sender.getMessages().isEmpty());
+    dispatcher.dispatchValue(context, 1, null);
+    assertEquals(0, dispatcher.getActiveSessions());
+  }
+
+  @Test
+  public void testConflation() throws Exception {
+    final RecordingSender sender = new RecordingSender();
+    final SessionContext context = createSessionContext(sender);
+    final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      final StreamingLiveDataDispatcher dispatcher = new StreamingLiveDataDispatcher(scheduler, 100L);
+      dispatcher.createResult(context, 1, DataUtils.of(0));
+      dispatcher.createResult(context, 2, DataUtils.of(0));
+      for (int i = 1; i <= 10; i++) {
+        dispatcher.dispatchValue(context, 1, DataUtils.of(i));
+        dispatcher.dispatchValue(context, 2, DataUtils.of(-i));
+      }
+      scheduler.shutdown();
+      assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+      final List<UserMessagePayload> messages = sender.getMessages();
+      assertEquals(1, messages.size());
+      final Results results = (Results) messages.get(0);
+      assertEquals(2, results.getResult().size());
+      assertTrue(results.getResult().contains(new Result(1, DataUtils.of(10))));
+      assertTrue(results.getResult().contains(new Result(2, DataUtils.of(-10))));
+      assertEquals(18, dispatcher.getValuesConflated());
+      assertEquals(1, dispatcher.getMessagesSent());
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+}
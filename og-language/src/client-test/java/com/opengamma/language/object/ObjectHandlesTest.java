@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.object;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ObjectHandles} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ObjectHandlesTest {
+
+  public void testLockAndRelease() {
+    final ObjectHandles handles = new ObjectHandles(4);
+    final Object a = new Object();
+    final Long handle = handles.lock(a);
+    assertSame(handles.get(handle), a);
+    // Same object reuses the handle
+    assertEquals(handles.lock(a), handle);
+    assertEquals(handles.size(), 1);
+    assertTrue(handles.release(handle));
+    assertSame(handles.get(handle), a);
+    assertTrue(handles.release(handle));
+    assertNull(handles.get(handle));
+    assertFalse(handles.release(handle));
+    assertEquals(handles.size(), 0);
+  }
+
+  public void testFull() {
+    final ObjectHandles handles = new ObjectHandles(2);
+    final Long a = handles.lock("A");
+    final Long b = handles.lock("B");
+    // Referenced objects are never evicted to make room
+    assertNull(handles.lock("C"));
+    assertEquals(handles.size(), 2);
+    assertEquals(handles.get(a), "A");
+    assertEquals(handles.get(b), "B");
+    // An object already held can still be referenced again
+    assertEquals(handles.lock("A"), a);
+    handles.release(b);
+    final Long c = handles.lock("C");
+    assertNotNull(c);
+    assertEquals(handles.get(c), "C");
+    assertEquals(handles.get(a), "A");
+  }
+
+  public void testReleaseAll() {
+    final ObjectHandles handles = new ObjectHandles(2);
+    final Long a = handles.lock("A");
+    handles.releaseAll();
+    assertNull(handles.get(a));
+    assertEquals(handles.size(), 0);
+  }
+
+  public void testGetHandle() {
+    final MutableFudgeMsg msg = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    msg.add("foo", "bar");
+    assertNull(ObjectHandles.getHandle(msg));
+    msg.add(ObjectHandles.HANDLE_FIELD, 42L);
+    assertEquals(ObjectHandles.getHandle(msg), (Long) 42L);
+  }
+
+}
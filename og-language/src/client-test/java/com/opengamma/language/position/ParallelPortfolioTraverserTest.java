@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.position;
+
+import static org.testng.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.position.PortfolioNode;
+import com.opengamma.core.position.Position;
+import com.opengamma.core.position.impl.AbstractPortfolioNodeTraversalCallback;
+import com.opengamma.core.position.impl.PortfolioNodeTraverser;
+import com.opengamma.core.position.impl.SimplePortfolioNode;
+import com.opengamma.core.position.impl.SimplePosition;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ParallelPortfolioTraverser} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ParallelPortfolioTraverserTest {
+
+  private ExecutorService _executor;
+
+  @BeforeClass
+  public void createExecutor() {
+    _executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void destroyExecutor() {
+    _executor.shutdown();
+  }
+
+  private static int s_nextId;
+
+  private static SimplePortfolioNode createNode(final int depth) {
+    final SimplePortfolioNode node = new SimplePortfolioNode(UniqueId.of("Node", Integer.toString(s_nextId++)), "Node");
+    for (int i = 0; i < (s_nextId % 7); i++) {
+      node.addPosition(new SimplePosition(UniqueId.of("Position", Integer.toString(s_nextId++)), BigDecimal.ONE, ExternalId.of("Security", "Foo")));
+    }
+    if (depth > 0) {
+      for (int i = 0; i < 3; i++) {
+        node.addChildNode(createNode(depth - 1));
+      }
+    }
+    return node;
+  }
+
+  private static List<String> depthFirst(final PortfolioNode rootNode) {
+    final List<String> result = new ArrayList<String>();
+    PortfolioNodeTraverser.depthFirst(new AbstractPortfolioNodeTraversalCallback() {
+
+      @Override
+      public void preOrderOperation(final PortfolioNode node) {
+        result.add(node.getUniqueId().toString());
+      }
+
+      @Override
+      public void preOrderOperation(final PortfolioNode parentNode, final Position position) {
+        // Two rows per position
+        result.add(position.getUniqueId().toString());
+        result.add(parentNode.getUniqueId().toString());
+      }
+
+    }).traverse(rootNode);
+    return result;
+  }
+
+  private static final class Identifiers extends ParallelPortfolioTraverser.Callback {
+
+    private String[] _identifiers;
+
+    @Override
+    protected int getRowCount(final PortfolioNode node) {
+      return 1;
+    }
+
+    @Override
+    protected int getRowCount(final PortfolioNode parentNode, final Position position) {
+      return 2;
+    }
+
+    @Override
+    protected void allocate(final int rows) {
+      _identifiers = new String[rows];
+    }
+
+    @Override
+    protected void store(final int row, final PortfolioNode node) {
+      _identifiers[row] = node.getUniqueId().toString();
+    }
+
+    @Override
+    protected void store(final int row, final PortfolioNode parentNode, final Position position) {
+      _identifiers[row] = position.getUniqueId().toString();
+      _identifiers[row + 1] = parentNode.getUniqueId().toString();
+    }
+
+  }
+
+  private void testTraverse(final ExecutorService executor, final int batchSize) {
+    final PortfolioNode rootNode = createNode(5);
+    final List<String> expected = depthFirst(rootNode);
+    final Identifiers identifiers = new Identifiers();
+    final int rows = new ParallelPortfolioTraverser(executor, batchSize).traverse(rootNode, identifiers);
+    assertEquals(rows, expected.size());
+    assertEquals(identifiers._identifiers.length, expected.size());
+    for (int i = 0; i < rows; i++) {
+      assertEquals(identifiers._identifiers[i], expected.get(i));
+    }
+  }
+
+  public void testTraverseSequential() {
+    testTraverse(null, ParallelPortfolioTraverser.DEFAULT_BATCH_SIZE);
+  }
+
+  public void testTraverseParallel() {
+    testTraverse(_executor, 3);
+  }
+
+  public void testExecute() {
+    final AtomicIntegerArray counts = new AtomicIntegerArray(1000);
+    new ParallelPortfolioTraverser(_executor, 7).execute(counts.length(), new ParallelPortfolioTraverser.Operation() {
+      @Override
+      public void execute(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+          counts.incrementAndGet(i);
+        }
+      }
+    });
+    for (int i = 0; i < counts.length(); i++) {
+      assertEquals(counts.get(i), 1);
+    }
+  }
+
+  public void testExecuteWaitsForHelpers() {
+    final Thread caller = Thread.currentThread();
+    final AtomicIntegerArray counts = new AtomicIntegerArray(64);
+    new ParallelPortfolioTraverser(_executor, 1).execute(counts.length(), new ParallelPortfolioTraverser.Operation() {
+      @Override
+      public void execute(final int from, final int to) {
+        if (Thread.currentThread() != caller) {
+          // Helpers are slow so that the caller runs out of batches while they are still working
+          try {
+            Thread.sleep(50);
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+        for (int i = from; i < to; i++) {
+          counts.incrementAndGet(i);
+        }
+      }
+    });
+    for (int i = 0; i < counts.length(); i++) {
+      assertEquals(counts.get(i), 1);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testExecuteHelperFailure() {
+    final Thread caller = Thread.currentThread();
+    new ParallelPortfolioTraverser(_executor, 1).execute(64, new ParallelPortfolioTraverser.Operation() {
+      @Override
+      public void execute(final int from, final int to) {
+        if (Thread.currentThread() != caller) {
+          throw new IllegalStateException();
+        }
+        // The caller is slow so that the helpers get some of the batches
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          throw new OpenGammaRuntimeException("Interrupted", e);
+        }
+      }
+    });
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testExecuteFailure() {
+    new ParallelPortfolioTraverser(_executor, 1).execute(100, new ParallelPortfolioTraverser.Operation() {
+      @Override
+      public void execute(final int from, final int to) {
+        if (from == 50) {
+          throw new IllegalStateException();
+        }
+      }
+    });
+  }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.snapshot;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
+import com.opengamma.core.marketdatasnapshot.impl.ManageableUnstructuredMarketDataSnapshot;
+import com.opengamma.id.ExternalId;
+import com.opengamma.language.Value;
+import com.opengamma.language.ValueUtils;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link UnstructuredMarketDataSnapshotUtil} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class UnstructuredMarketDataSnapshotUtilTest {
+
+  private static final ExternalId FOO = ExternalId.of("Test", "Foo");
+  private static final ExternalId BAR = ExternalId.of("Test", "Bar");
+
+  public void testRemoveThenOverride() {
+    final ManageableUnstructuredMarketDataSnapshot snapshot = new ManageableUnstructuredMarketDataSnapshot();
+    snapshot.putValue(FOO, "Value", new ValueSnapshot(1.0, null));
+    UnstructuredMarketDataSnapshotUtil.setValues(snapshot, new String[] {"Value", "Value" }, new ExternalId[] {FOO, FOO },
+        new Value[] {new Value(), ValueUtils.of(2.0) }, new Value[] {new Value(), new Value() }, 0);
+    final ValueSnapshot value = snapshot.getValue(FOO, "Value");
+    assertNull(value.getMarketValue());
+    assertEquals(value.getOverrideValue(), 2.0);
+    assertEquals(snapshot.getTargets().size(), 1);
+  }
+
+  public void testAddThenOverride() {
+    final ManageableUnstructuredMarketDataSnapshot snapshot = new ManageableUnstructuredMarketDataSnapshot();
+    snapshot.putValue(FOO, "Value", new ValueSnapshot(1.0, null));
+    UnstructuredMarketDataSnapshotUtil.setValues(snapshot, new String[] {"Value", "Value" }, new ExternalId[] {BAR, BAR },
+        new Value[] {new Value(), ValueUtils.of(4.0) }, new Value[] {ValueUtils.of(3.0), new Value() }, 0);
+    final ValueSnapshot value = snapshot.getValue(BAR, "Value");
+    assertEquals(value.getMarketValue(), 3.0);
+    assertEquals(value.getOverrideValue(), 4.0);
+    assertEquals(snapshot.getTargets().size(), 2);
+  }
+
+}
@@ -126,4 +126,17 @@ public class VolatilityCubeTensorTest {
     assertValue(snapshot, Tenor.YEAR, Tenor.YEAR, 4.2, 2.0, 1.2);
   }
 
+  public void testUpdatePoints() {
+    ManageableVolatilityCubeSnapshot snapshot = createSnapshot();
+    // No override values are given, so the existing ones are kept
+    snapshot = SetVolatilityCubePointsFunction.invoke(snapshot, new Tenor[] {Tenor.DAY, Tenor.YEAR }, new Tenor[] {Tenor.YEAR, Tenor.YEAR },
+        new Double[] {0d, 4.2 }, null, new Value[] {ValueUtils.of(0.5), ValueUtils.of(0.6) });
+    assertValue(snapshot, Tenor.DAY, Tenor.YEAR, 0, 0.5, 0.25);
+    assertValue(snapshot, Tenor.YEAR, Tenor.YEAR, 4.2, 0.6, 0.35);
+    // No market values are given, so the existing ones are kept
+    snapshot = SetVolatilityCubePointsFunction.invoke(snapshot, new Tenor[] {Tenor.DAY }, new Tenor[] {Tenor.DAY }, new Double[] {0d },
+        new Value[] {ValueUtils.of(0.15) }, null);
+    assertValue(snapshot, Tenor.DAY, Tenor.DAY, 0, 0.1, 0.15);
+  }
+
 }
@@ -16,6 +16,7 @@ import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
 import com.opengamma.core.marketdatasnapshot.impl.ManageableVolatilitySurfaceSnapshot;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
 import com.opengamma.util.test.TestGroup;
 import com.opengamma.util.tuple.Pair;
 
@@ -112,4 +113,39 @@ public class VolatilitySurfaceTensorTest {
     assertValue(snapshot, "C", "J", 1.6, 1.0);
   }
 
+  public void testUpdatePoints() {
+    ManageableVolatilitySurfaceSnapshot snapshot = createSnapshot();
+    snapshot = SetVolatilitySurfacePointsFunction.invoke(snapshot, new String[] {"A", "C" }, new String[] {"J", "J" }, null,
+        new Value[] {ValueUtils.of(0.5), ValueUtils.of(0.6) });
+    assertValue(snapshot, "A", "I", 0.1, null);
+    assertValue(snapshot, "B", "I", 0.2, 0.25);
+    assertValue(snapshot, "A", "J", 0.5, null);
+    assertValue(snapshot, "C", "J", 0.6, 0.35);
+    assertEquals(snapshot.getValues().size(), 4);
+    snapshot = SetVolatilitySurfacePointsFunction.invoke(snapshot, new String[] {"B" }, new String[] {"I" }, new Value[] {new Value() }, null);
+    assertValue(snapshot, "B", "I", 0.2, null);
+  }
+
+  @Test(expectedExceptions = InvokeInvalidArgumentException.class)
+  public void testUpdatePointsMissingKey() {
+    SetVolatilitySurfacePointsFunction.invoke(createSnapshot(), new String[] {"D" }, new String[] {"I" }, null, new Value[] {ValueUtils.of(0.5) });
+  }
+
+  public void testAxesChanged() {
+    final ManageableVolatilitySurfaceSnapshot snapshot = createSnapshot();
+    Value[][] values = GetVolatilitySurfaceTensorFunction.invoke(snapshot, Boolean.TRUE, Boolean.FALSE);
+    assertEquals(values.length, 2);
+    assertEquals(values[0].length, 3);
+    // A point on a new key must extend the axes
+    snapshot.getValues().put(Pair.<Object, Object>of("AA", "I"), new ValueSnapshot(0.4, null));
+    values = GetVolatilitySurfaceTensorFunction.invoke(snapshot, Boolean.TRUE, Boolean.FALSE);
+    assertEquals(values[0].length, 4);
+    assertEquals(values[0][1].getDoubleValue(), 0.4);
+    // Removing the last point on a key must shrink them
+    snapshot.getValues().remove(Pair.of("C", "J"));
+    values = GetVolatilitySurfaceTensorFunction.invoke(snapshot, Boolean.TRUE, Boolean.FALSE);
+    assertEquals(values.length, 1);
+    assertEquals(values[0].length, 3);
+  }
+
 }
@@ -6,6 +6,7 @@
 package com.opengamma.language.snapshot;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 import org.testng.annotations.Test;
 
@@ -15,6 +16,7 @@ import com.opengamma.core.marketdatasnapshot.impl.ManageableYieldCurveSnapshot;
 import com.opengamma.id.ExternalId;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
 import com.opengamma.util.test.TestGroup;
 
 /**
@@ -88,4 +90,30 @@ public class YieldCurveTensorTest {
     assertValue(snapshot, "C", 0.5, 0.7);
   }
 
+  public void testUpdatePoints() {
+    ManageableYieldCurveSnapshot snapshot = createSnapshot();
+    snapshot = SetYieldCurvePointsFunction.invoke(snapshot, new String[] {"V", "V", "V" },
+        new ExternalId[] {ExternalId.of("Test", "A"), ExternalId.of("Test", "B"), ExternalId.of("Test", "D") },
+        new Value[] {ValueUtils.of(0.15), new Value(), ValueUtils.of(0.45) }, null);
+    assertValue(snapshot, "A", 0.15, 0.1);
+    // No market values were given, so clearing the override leaves the market value
+    assertValue(snapshot, "B", null, 0.2);
+    assertValue(snapshot, "C", 0.35, null);
+    assertValue(snapshot, "D", 0.45, null);
+    snapshot = SetYieldCurvePointsFunction.invoke(snapshot, new String[] {"V", "V" }, new ExternalId[] {ExternalId.of("Test", "C"), ExternalId.of("Test", "D") }, null,
+        new Value[] {ValueUtils.of(0.5), ValueUtils.of(0.6) });
+    // No override values were given, so the existing ones are kept
+    assertValue(snapshot, "C", 0.35, 0.5);
+    assertValue(snapshot, "D", 0.45, 0.6);
+    snapshot = SetYieldCurvePointsFunction.invoke(snapshot, new String[] {"V" }, new ExternalId[] {ExternalId.of("Test", "B") },
+        new Value[] {new Value() }, new Value[] {new Value() });
+    assertNull(snapshot.getValues().getValue(ExternalId.of("Test", "B"), "V"));
+  }
+
+  @Test(expectedExceptions = InvokeInvalidArgumentException.class)
+  public void testUpdatePointsMismatched() {
+    SetYieldCurvePointsFunction.invoke(createSnapshot(), new String[] {"V", "V" }, new ExternalId[] {ExternalId.of("Test", "A") }, null,
+        new Value[] {ValueUtils.of(0.5), ValueUtils.of(0.6) });
+  }
+
 }
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.timeseries;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Clock;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZoneOffset;
+
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.core.historicaltimeseries.impl.SimpleHistoricalTimeSeries;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.UniqueId;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link CachingHistoricalTimeSeriesSource} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CachingHistoricalTimeSeriesSourceTest {
+
+  private static final LocalDate BASE = LocalDate.of(2013, 1, 1);
+  private static final UniqueId A = UniqueId.of("Test", "A");
+  private static final UniqueId B = UniqueId.of("Test", "B");
+  private static final ExternalIdBundle A_ID = ExternalIdBundle.of(ExternalId.of("Ticker", "A"));
+  /**
+   * Clock for which the current date is 200 days into 2013.
+   */
+  private static final Clock CLOCK = Clock.fixed(BASE.plusDays(200).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+
+  /**
+   * Underlying source with a point on each of the first 100 days of 2013, unless more have been added, recording the ranges requested.
+   */
+  private static class Underlying extends FetchTimeSeriesFunctionTest.TestHistoricalTimeSeriesSource {
+
+    private final List<String> _requests = new ArrayList<String>();
+    private int _days = 100;
+
+    private LocalDateDoubleTimeSeries series(final LocalDate start, final LocalDate end) {
+      final List<LocalDate> dates = new ArrayList<LocalDate>();
+      final List<Double> values = new ArrayList<Double>();
+      for (int i = 0; i < _days; i++) {
+        final LocalDate date = BASE.plusDays(i);
+        if (((start == null) || !date.isBefore(start)) && ((end == null) || !date.isAfter(end))) {
+          dates.add(date);
+          values.add((double) i);
+        }
+      }
+      return ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+    }
+
+    @Override
+    public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end,
+        final boolean includeEnd) {
+      assertEquals(includeStart, true);
+      assertEquals(includeEnd, true);
+      _requests.add(uniqueId.getValue() + " " + start + " " + end);
+      return new SimpleHistoricalTimeSeries(uniqueId, series(start, end));
+    }
+
+    @Override
+    public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+        final String resolutionKey, final LocalDate start, final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+      _requests.add(identifierBundle + " " + start + " " + end);
+      return new SimpleHistoricalTimeSeries(A, series(start, end));
+    }
+
+  }
+
+  private static LocalDate day(final int i) {
+    return BASE.plusDays(i);
+  }
+
+  private static void assertSeries(final HistoricalTimeSeries hts, final int first, final int last) {
+    final LocalDateDoubleTimeSeries ts = hts.getTimeSeries();
+    assertEquals(ts.size(), last - first + 1);
+    assertEquals(ts.getEarliestTime(), day(first));
+    assertEquals(ts.getLatestTime(), day(last));
+    assertEquals(ts.getEarliestValue(), (Double) (double) first);
+    assertEquals(ts.getLatestValue(), (Double) (double) last);
+  }
+
+  public void testSubRange() {
+    final Underlying underlying = new Underlying();
+    final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(underlying, 1000, CLOCK);
+    assertSeries(cache.getHistoricalTimeSeries(A, day(10), true, day(50), true), 10, 50);
+    assertSeries(cache.getHistoricalTimeSeries(A, day(20), true, day(30), false), 20, 29);
+    assertSeries(cache.getHistoricalTimeSeries(A, day(10), false, day(50), true), 11, 50);
+    assertEquals(underlying._requests.size(), 1);
+    assertEquals(cache.getHits(), 2);
+    assertEquals(cache.getMisses(), 1);
+    assertEquals(cache.getPoints(), 41);
+  }
+
+  public void testMissingSegments() {
+    final Underlying underlying = new Underlying();
+    final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(underlying, 1000, CLOCK);
+    cache.getHistoricalTimeSeries(A, day(10), true, day(20), true);
+    cache.getHistoricalTimeSeries(A, day(30), true, day(40), true);
+    underlying._requests.clear();
+    assertSeries(cache.getHistoricalTimeSeries(A, day(5), true, day(45), true), 5, 45);
+    assertEquals(underlying._requests.size(), 3);
+    assertEquals(underlying._requests.get(0), "A " + day(5) + " " + day(9));
+    assertEquals(underlying._requests.get(1), "A " + day(21) + " " + day(29));
+    assertEquals(underlying._requests.get(2), "A " + day(41) + " " + day(45));
+    underlying._requests.clear();
+    assertSeries(cache.getHistoricalTimeSeries(A, null, true, day(45), true), 0, 45);
+    assertEquals(underlying._requests.size(), 1);
+    assertEquals(underlying._requests.get(0), "A null " + day(4));
+    underlying._requests.clear();
+    assertSeries(cache.getHistoricalTimeSeries(A), 0, 99);
+    assertEquals(underlying._requests.size(), 1);
+    assertEquals(underlying._requests.get(0), "A " + day(46) + " null");
+    // The open tail is never treated as covered
+    assertSeries(cache.getHistoricalTimeSeries(A, day(60), true, null, true), 60, 99);
+    assertEquals(underlying._requests.size(), 2);
+    assertEquals(underlying._requests.get(1), "A " + day(200) + " null");
+  }
+
+  public void testAppendedPoints() {
+    final Underlying underlying = new Underlying();
+    final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(underlying, 1000,
+        Clock.fixed(day(99).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+    assertSeries(cache.getHistoricalTimeSeries(A, day(90), true, null, true), 90, 99);
+    underlying._days = 101;
+    assertSeries(cache.getHistoricalTimeSeries(A, day(90), true, null, true), 90, 100);
+    assertEquals(underlying._requests.size(), 2);
+    assertEquals(underlying._requests.get(1), "A " + day(99) + " null");
+    underlying._days = 102;
+    // A closed range ending after the current date is not covered beyond it either
+    assertSeries(cache.getHistoricalTimeSeries(A, day(95), true, day(120), true), 95, 101);
+    assertEquals(underlying._requests.size(), 3);
+    assertEquals(underlying._requests.get(2), "A " + day(99) + " " + day(120));
+    assertSeries(cache.getHistoricalTimeSeries(A, day(90), true, day(98), true), 90, 98);
+    assertEquals(underlying._requests.size(), 3);
+  }
+
+  public void testEviction() {
+    final Underlying underlying = new Underlying();
+    final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(underlying, 60, CLOCK);
+    cache.getHistoricalTimeSeries(A, day(0), true, day(29), true);
+    cache.getHistoricalTimeSeries(B, day(0), true, day(29), true);
+    assertEquals(cache.getPoints(), 60);
+    cache.getHistoricalTimeSeries(A, day(0), true, day(9), true);
+    cache.getHistoricalTimeSeries(A, day(30), true, day(39), true);
+    // B was least recently used
+    assertEquals(cache.getPoints(), 40);
+    underlying._requests.clear();
+    cache.getHistoricalTimeSeries(A, day(0), true, day(39), true);
+    assertEquals(underlying._requests.size(), 0);
+    cache.getHistoricalTimeSeries(B, day(0), true, day(9), true);
+    assertEquals(underlying._requests.size(), 1);
+  }
+
+  public void testResolution() {
+    final Underlying underlying = new Underlying();
+    final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(underlying, 1000, CLOCK);
+    assertSeries(cache.getHistoricalTimeSeries("Field", A_ID, null, "Key", day(10), true, day(50), true), 10, 50);
+    assertSeries(cache.getHistoricalTimeSeries("Field", A_ID, null, "Key", day(20), true, day(30), true), 20, 30);
+    assertSeries(cache.getHistoricalTimeSeries(A, day(15), true, day(25), true), 15, 25);
+    assertEquals(underlying._requests.size(), 1);
+    assertSeries(cache.getHistoricalTimeSeries("Field", A_ID, null, "Key", day(40), true, day(60), true), 40, 60);
+    assertEquals(underlying._requests.size(), 2);
+    assertEquals(underlying._requests.get(1), "A " + day(51) + " " + day(60));
+  }
+
+  public void testInvalidate() {
+    final Underlying underlying = new Underlying();
+    final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(underlying, 1000, CLOCK);
+    cache.getHistoricalTimeSeries("Field", A_ID, null, "Key", day(10), true, day(50), true);
+    cache.getHistoricalTimeSeries(B, day(10), true, day(50), true);
+    cache.invalidate(A_ID);
+    assertEquals(cache.getPoints(), 41);
+    cache.getHistoricalTimeSeries("Field", A_ID, null, "Key", day(10), true, day(50), true);
+    assertEquals(underlying._requests.size(), 3);
+    cache.invalidate(null, B.getObjectId());
+    assertEquals(cache.getPoints(), 41);
+    cache.getHistoricalTimeSeries(B, day(10), true, day(50), true);
+    assertEquals(underlying._requests.size(), 4);
+  }
+
+  public void testMissingSeries() {
+    final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(new FetchTimeSeriesFunctionTest.TestHistoricalTimeSeriesSource() {
+      @Override
+      public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end,
+          final boolean includeEnd) {
+        return null;
+      }
+    }, 1000, CLOCK);
+    assertNull(cache.getHistoricalTimeSeries(A, day(0), true, day(10), true));
+    assertEquals(cache.getPoints(), 0);
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.timeseries;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.DataNotFoundException;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.id.UniqueId;
+import com.opengamma.language.DataUtils;
+import com.opengamma.language.Value;
+import com.opengamma.language.ValueUtils;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.convert.Converters;
+import com.opengamma.language.identifier.IdentifierConverter;
+import com.opengamma.language.invoke.AggregatingTypeConverterProvider;
+import com.opengamma.language.invoke.TypeConverterProviderBean;
+import com.opengamma.language.test.TestUtils;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link FetchTimeSeriesBatchFunction} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class FetchTimeSeriesBatchFunctionTest {
+
+  private static final ExternalScheme TEST = ExternalScheme.of("Test");
+  private static final LocalDate D1 = LocalDate.of(2013, 1, 1);
+  private static final LocalDate D2 = LocalDate.of(2013, 1, 2);
+  private static final LocalDate D3 = LocalDate.of(2013, 1, 3);
+
+  private SessionContext createSessionContext(final HistoricalTimeSeriesSource historicalTimeSeriesSource) {
+    final TestUtils testUtils = new TestUtils();
+    testUtils.setHistoricalTimeSeriesSource(historicalTimeSeriesSource);
+    final Converters converters = new Converters();
+    converters.setFudgeContext(OpenGammaFudgeContext.getInstance());
+    final TypeConverterProviderBean extra = new TypeConverterProviderBean();
+    extra.setConverters(Arrays.asList(IdentifierConverter.INSTANCE));
+    final AggregatingTypeConverterProvider agg = new AggregatingTypeConverterProvider();
+    agg.addTypeConverterProvider(converters);
+    agg.addTypeConverterProvider(extra);
+    testUtils.setTypeConverters(agg);
+    return testUtils.createSessionContext();
+  }
+
+  private static HistoricalTimeSeries result(final LocalDateDoubleTimeSeries timeSeries) {
+    return new HistoricalTimeSeries() {
+
+      @Override
+      public LocalDateDoubleTimeSeries getTimeSeries() {
+        return timeSeries;
+      }
+
+      @Override
+      public UniqueId getUniqueId() {
+        return null;
+      }
+    };
+  }
+
+  private static LocalDateDoubleTimeSeries series(final String id) {
+    if ("A".equals(id)) {
+      return ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D3 }, new double[] {1, 3 });
+    } else if ("B".equals(id)) {
+      return ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D2, D3 }, new double[] {20, 30 });
+    } else {
+      return null;
+    }
+  }
+
+  private static void assertRow(final Value[] row, final LocalDate date, final double a, final double b, final double c) {
+    assertEquals(ValueUtils.toString(row[0], false), date.toString());
+    assertEquals(row[1].getDoubleValue(), (Double) a);
+    assertEquals(row[2].getDoubleValue(), (Double) b);
+    assertEquals(row[3].getDoubleValue(), (Double) c);
+  }
+
+  private static void assertResult(final Object result) {
+    assertTrue(result instanceof Value[][]);
+    final Value[][] matrix = (Value[][]) result;
+    assertEquals(matrix.length, 3);
+    assertRow(matrix[0], D1, 1, Double.NaN, Double.NaN);
+    assertRow(matrix[1], D2, Double.NaN, 20, Double.NaN);
+    assertRow(matrix[2], D3, 3, 30, Double.NaN);
+  }
+
+  private static Value[] identifiers() {
+    return new Value[] {ValueUtils.of("Test~A"), ValueUtils.of("Test~B"), ValueUtils.of("Test~C") };
+  }
+
+  public void testBulk() {
+    final SessionContext sessionContext = createSessionContext(new FetchTimeSeriesFunctionTest.TestHistoricalTimeSeriesSource() {
+      @Override
+      public Map<ExternalIdBundle, HistoricalTimeSeries> getHistoricalTimeSeries(final Set<ExternalIdBundle> identifierSet, final String dataSource, final String dataProvider,
+          final String dataField, final LocalDate start, final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+        assertEquals(identifierSet.size(), 3);
+        assertEquals(dataField, "field");
+        final Map<ExternalIdBundle, HistoricalTimeSeries> result = new HashMap<ExternalIdBundle, HistoricalTimeSeries>();
+        for (ExternalIdBundle identifier : identifierSet) {
+          final LocalDateDoubleTimeSeries series = series(identifier.getValue(TEST));
+          if (series != null) {
+            result.put(identifier, result(series));
+          }
+        }
+        return result;
+      }
+    });
+    final Object result = new FetchTimeSeriesBatchFunction().invokeImpl(sessionContext, new Object[] {
+        DataUtils.of(identifiers()), null, null, "field", null, Boolean.TRUE, Boolean.FALSE, "source", "provider", null });
+    assertResult(result);
+  }
+
+  public void testConcurrent() {
+    final SessionContext sessionContext = createSessionContext(new FetchTimeSeriesFunctionTest.TestHistoricalTimeSeriesSource() {
+      @Override
+      public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey) {
+        assertEquals(dataField, "field");
+        assertEquals(resolutionKey, "key");
+        final LocalDateDoubleTimeSeries series = series(identifierBundle.getValue(TEST));
+        return (series != null) ? result(series) : null;
+      }
+    });
+    final Object result = new FetchTimeSeriesBatchFunction().invokeImpl(sessionContext, new Object[] {
+        DataUtils.of(identifiers()), null, null, "field", "key", Boolean.TRUE, Boolean.FALSE, null, null, null });
+    assertResult(result);
+  }
+
+  public void testConcurrentFailure() {
+    final SessionContext sessionContext = createSessionContext(new FetchTimeSeriesFunctionTest.TestHistoricalTimeSeriesSource() {
+      @Override
+      public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey) {
+        final LocalDateDoubleTimeSeries series = series(identifierBundle.getValue(TEST));
+        if (series == null) {
+          throw new DataNotFoundException(identifierBundle.toString());
+        }
+        return result(series);
+      }
+    });
+    final Object result = new FetchTimeSeriesBatchFunction().invokeImpl(sessionContext, new Object[] {
+        DataUtils.of(identifiers()), null, null, "field", "key", Boolean.TRUE, Boolean.FALSE, null, null, null });
+    assertResult(result);
+  }
+
+}
@@ -41,7 +41,7 @@ import com.opengamma.util.tuple.Pair;
 @Test(groups = TestGroup.UNIT)
 public class FetchTimeSeriesFunctionTest {
 
-  private static class TestHistoricalTimeSeriesSource implements HistoricalTimeSeriesSource {
+  /* package */static class TestHistoricalTimeSeriesSource implements HistoricalTimeSeriesSource {
 
     @Override
     public HistoricalTimeSeries getHistoricalTimeSeries(UniqueId uniqueId) {
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.timeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link LocalDateDoubleTimeSeriesCodec} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LocalDateDoubleTimeSeriesCodecTest {
+
+  private static int yyyymmdd(final LocalDate date) {
+    return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+  }
+
+  public void testEpochDay() {
+    LocalDate date = LocalDate.of(1899, 12, 25);
+    final LocalDate end = LocalDate.of(2101, 1, 5);
+    while (!date.isAfter(end)) {
+      assertEquals(date.toString(), (int) date.toEpochDay(), LocalDateDoubleTimeSeriesCodec.toEpochDay(yyyymmdd(date)));
+      assertEquals(date.toString(), yyyymmdd(date), LocalDateDoubleTimeSeriesCodec.fromEpochDay((int) date.toEpochDay()));
+      date = date.plusDays(1);
+    }
+  }
+
+  public void testRoundTrip() {
+    final LocalDateDoubleTimeSeries timeSeries = ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {LocalDate.of(1970, 1, 1), LocalDate.of(2000, 2, 29),
+        LocalDate.of(2013, 3, 1) }, new double[] {1, 2, Double.NaN });
+    final FudgeMsg msg = LocalDateDoubleTimeSeriesCodec.toFudgeMsg(FudgeContext.GLOBAL_DEFAULT, timeSeries);
+    final int[] dates = (int[]) msg.getByOrdinal(LocalDateDoubleTimeSeriesCodec.DATES_ORDINAL).getValue();
+    assertEquals(0, dates[0]);
+    assertEquals(11016, dates[1]);
+    assertEquals(15765, dates[2]);
+    assertEquals(timeSeries, LocalDateDoubleTimeSeriesCodec.fromFudgeMsg(msg));
+    // Through the wire encoding
+    final FudgeMsg decoded = FudgeContext.GLOBAL_DEFAULT.deserialize(FudgeContext.GLOBAL_DEFAULT.toByteArray(msg)).getMessage();
+    assertEquals(timeSeries, LocalDateDoubleTimeSeriesCodec.fromFudgeMsg(decoded));
+  }
+
+  public void testEmpty() {
+    final LocalDateDoubleTimeSeries timeSeries = ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES;
+    assertEquals(timeSeries, LocalDateDoubleTimeSeriesCodec.fromFudgeMsg(LocalDateDoubleTimeSeriesCodec.toFudgeMsg(FudgeContext.GLOBAL_DEFAULT, timeSeries)));
+  }
+
+  public void testOtherMessage() {
+    final MutableFudgeMsg msg = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    msg.add(null, LocalDateDoubleTimeSeriesCodec.DATES_ORDINAL, new int[] {1, 2 });
+    msg.add(null, LocalDateDoubleTimeSeriesCodec.VALUES_ORDINAL, new double[] {1 });
+    assertNull(LocalDateDoubleTimeSeriesCodec.fromFudgeMsg(msg));
+    msg.add("foo", "bar");
+    assertNull(LocalDateDoubleTimeSeriesCodec.fromFudgeMsg(msg));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnordered() {
+    final MutableFudgeMsg msg = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    msg.add(null, LocalDateDoubleTimeSeriesCodec.DATES_ORDINAL, new int[] {2, 1 });
+    msg.add(null, LocalDateDoubleTimeSeriesCodec.VALUES_ORDINAL, new double[] {1, 2 });
+    LocalDateDoubleTimeSeriesCodec.fromFudgeMsg(msg);
+  }
+
+}
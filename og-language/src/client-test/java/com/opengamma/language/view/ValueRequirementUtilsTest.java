@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.view;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.Triple;
+
+/**
+ * Tests the {@link ValueRequirementUtils} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ValueRequirementUtilsTest {
+
+  public void testParseDefaultConfiguration() {
+    final Triple<String, String, ValueProperties> parsed = ValueRequirementUtils.parseRequirement("Present Value");
+    assertEquals(parsed.getFirst(), "Default");
+    assertEquals(parsed.getSecond(), "Present Value");
+    assertEquals(parsed.getThird(), ValueProperties.none());
+  }
+
+  public void testParseConfigurationAndConstraints() {
+    final Triple<String, String, ValueProperties> parsed = ValueRequirementUtils.parseRequirement("Foo/Present Value[Currency=USD]");
+    assertEquals(parsed.getFirst(), "Foo");
+    assertEquals(parsed.getSecond(), "Present Value");
+    assertEquals(parsed.getThird(), ValueProperties.with("Currency", "USD").get());
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void testParseInvalid() {
+    ValueRequirementUtils.parseRequirement("");
+  }
+
+  public void testCacheHit() {
+    final Triple<String, String, ValueProperties> parsed = ValueRequirementUtils.parseRequirement("Bar/Cache Hit[Currency=GBP]");
+    assertSame(ValueRequirementUtils.parseRequirement("Bar/Cache Hit[Currency=GBP]"), parsed);
+    // A new, equal, string finds the same entry
+    assertSame(ValueRequirementUtils.parseRequirement(new String("Bar/Cache Hit[Currency=GBP]")), parsed);
+  }
+
+  public void testCacheMiss() {
+    final Triple<String, String, ValueProperties> gbp = ValueRequirementUtils.parseRequirement("Bar/Cache Miss[Currency=GBP]");
+    final Triple<String, String, ValueProperties> usd = ValueRequirementUtils.parseRequirement("Bar/Cache Miss[Currency=USD]");
+    assertNotSame(usd, gbp);
+    assertEquals(gbp.getThird(), ValueProperties.with("Currency", "GBP").get());
+    assertEquals(usd.getThird(), ValueProperties.with("Currency", "USD").get());
+  }
+
+  public void testCacheDiscarded() {
+    final Triple<String, String, ValueProperties> parsed = ValueRequirementUtils.parseRequirement("Discarded");
+    for (int i = 0; i < ValueRequirementUtils.MAX_PARSED_REQUIREMENTS; i++) {
+      ValueRequirementUtils.parseRequirement("Value " + i);
+    }
+    final Triple<String, String, ValueProperties> reparsed = ValueRequirementUtils.parseRequirement("Discarded");
+    assertNotSame(reparsed, parsed);
+    assertEquals(reparsed, parsed);
+  }
+
+}
@@ -11,6 +11,9 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 import org.testng.annotations.Test;
 
 import com.opengamma.id.UniqueId;
@@ -33,6 +36,10 @@ public class ViewClientsTest {
   private static final UniqueId VIEW_ID = UniqueId.of("abc", "def");
 
   private TestUtils createTestUtils() {
+    return createTestUtils(null, 0, 0);
+  }
+
+  private TestUtils createTestUtils(final ScheduledExecutorService scheduler, final int graveyardSize, final long graveyardAge) {
     final TestUtils testUtils = new TestUtils() {
 
       @Override
@@ -41,7 +48,7 @@ public class ViewClientsTest {
 
           @Override
           protected void initContextImpl(final MutableUserContext context) {
-            context.setViewClients(new UserViewClients(context));
+            context.setViewClients(new UserViewClients(context, scheduler, graveyardSize, graveyardAge));
           }
 
           @Override
@@ -125,4 +132,36 @@ public class ViewClientsTest {
     assertNull(handle4);
   }
 
+  public void testGraveyard() {
+    final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      final SessionContext context = createTestUtils(scheduler, 1, 60000L).createSessionContext();
+      final UserViewClients viewClients = context.getUserContext().getViewClients();
+      final ViewClientKey vck1 = new ViewClientKey(ViewClientDescriptor.tickingMarketData(VIEW_ID, null), true);
+      final ViewClientKey vck2 = new ViewClientKey(ViewClientDescriptor.tickingMarketData(VIEW_ID, null), false);
+      ViewClientHandle handle = viewClients.lockViewClient(vck1);
+      final MockViewClient viewClient1 = (MockViewClient) handle.get().getViewClient();
+      handle.unlock();
+      assertFalse(viewClient1.isShutdown());
+      assertEquals(viewClients.getGraveyardSize(), 1);
+      // Revived from the graveyard
+      handle = viewClients.lockViewClient(vck1);
+      assertSame(handle.get().getViewClient(), viewClient1);
+      assertEquals(viewClients.getRevivedCount(), 1L);
+      assertEquals(viewClients.getGraveyardSize(), 0);
+      handle.unlock();
+      // Releasing a second client evicts the first
+      handle = viewClients.lockViewClient(vck2);
+      final MockViewClient viewClient2 = (MockViewClient) handle.get().getViewClient();
+      handle.unlock();
+      assertTrue(viewClient1.isShutdown());
+      assertFalse(viewClient2.isShutdown());
+      assertEquals(viewClients.getEvictedCount(), 1L);
+      viewClients.destroyAll();
+      assertTrue(viewClient2.isShutdown());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
 }
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.view;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ViewResultModelIndex} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ViewResultModelIndexTest {
+
+  private static final ComputationTargetSpecification TARGET_1 = ComputationTargetSpecification.of(UniqueId.of("Test", "1"));
+  private static final ComputationTargetSpecification TARGET_2 = ComputationTargetSpecification.of(UniqueId.of("Test", "2"));
+
+  private static ComputedValueResult value(final String name, final ComputationTargetSpecification target, final String function, final Object value) {
+    return new ComputedValueResult(new ValueSpecification(name, target, ValueProperties.with(ValuePropertyNames.FUNCTION, function).get()), value,
+        AggregatedExecutionLog.EMPTY);
+  }
+
+  private static InMemoryViewComputationResultModel createResultModel() {
+    final InMemoryViewComputationResultModel resultModel = new InMemoryViewComputationResultModel();
+    resultModel.addValue("Default", value("Present Value", TARGET_1, "Missing", null));
+    resultModel.addValue("Default", value("Present Value", TARGET_1, "A", 42d));
+    resultModel.addValue("Default", value("Present Value", TARGET_1, "B", 43d));
+    resultModel.addValue("Default", value("Currency", TARGET_1, "A", "USD"));
+    resultModel.addValue("Other", value("Present Value", TARGET_2, "A", 44d));
+    return resultModel;
+  }
+
+  private static ValueProperties function(final String function) {
+    return ValueProperties.with(ValuePropertyNames.FUNCTION, function).get();
+  }
+
+  public void testIndexPerResultModel() {
+    final InMemoryViewComputationResultModel resultModel = createResultModel();
+    assertSame(ViewResultModelIndex.of(resultModel), ViewResultModelIndex.of(resultModel));
+    assertNotSame(ViewResultModelIndex.of(createResultModel()), ViewResultModelIndex.of(resultModel));
+  }
+
+  public void testLookupByConstraints() {
+    final InMemoryViewComputationResultModel resultModel = createResultModel();
+    final ViewResultModelIndex index = ViewResultModelIndex.of(resultModel);
+    assertEquals(index.get(resultModel, "Default", "Present Value", TARGET_1, function("A")).getValue(), 42d);
+    assertEquals(index.get(resultModel, "Default", "Present Value", TARGET_1, function("B")).getValue(), 43d);
+    assertEquals(index.get(resultModel, "Default", "Currency", TARGET_1, ValueProperties.none()).getValue(), "USD");
+    assertEquals(index.get(resultModel, "Other", "Present Value", TARGET_2, ValueProperties.none()).getValue(), 44d);
+  }
+
+  public void testLookupSkipsMissingValues() {
+    final InMemoryViewComputationResultModel resultModel = createResultModel();
+    final ViewResultModelIndex index = ViewResultModelIndex.of(resultModel);
+    assertNull(index.get(resultModel, "Default", "Present Value", TARGET_1, function("Missing")));
+    final Object value = index.get(resultModel, "Default", "Present Value", TARGET_1, ValueProperties.none()).getValue();
+    assertTrue(value.equals(42d) || value.equals(43d));
+  }
+
+  public void testLookupNotFound() {
+    final InMemoryViewComputationResultModel resultModel = createResultModel();
+    final ViewResultModelIndex index = ViewResultModelIndex.of(resultModel);
+    assertNull(index.get(resultModel, "Default", "Present Value", TARGET_1, function("C")));
+    assertNull(index.get(resultModel, "Default", "Foo", TARGET_1, ValueProperties.none()));
+    assertNull(index.get(resultModel, "Default", "Present Value", TARGET_2, ValueProperties.none()));
+    assertNull(index.get(resultModel, "Missing", "Present Value", TARGET_1, ValueProperties.none()));
+  }
+
+  public void testRepeatedLookup() {
+    final InMemoryViewComputationResultModel resultModel = createResultModel();
+    final ViewResultModelIndex index = ViewResultModelIndex.of(resultModel);
+    final ComputedValueResult result = index.get(resultModel, "Default", "Present Value", TARGET_1, function("A"));
+    assertSame(index.get(resultModel, "Default", "Present Value", TARGET_1, function("A")), result);
+    // Failed lookups are remembered too
+    assertNull(index.get(resultModel, "Default", "Present Value", TARGET_1, function("C")));
+    assertNull(index.get(resultModel, "Default", "Present Value", TARGET_1, function("C")));
+  }
+
+}
@@ -2,13 +2,15 @@
 ///CLOVER:OFF - CSOFF
 package com.opengamma.language;
 public class Data implements java.io.Serializable {
-  private static final long serialVersionUID = -25046238613169372l;
+  private static final long serialVersionUID = -1929317468713203604l;
   private com.opengamma.language.Value _single;
   public static final int SINGLE_ORDINAL = 1;
   private com.opengamma.language.Value[] _linear;
   public static final int LINEAR_ORDINAL = 2;
   private com.opengamma.language.Value[][] _matrix;
   public static final int MATRIX_ORDINAL = 3;
+  private org.fudgemsg.FudgeMsg _columns;
+  public static final int COLUMNS_ORDINAL = 10;
   public Data () {
   }
   protected Data (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
@@ -79,8 +81,19 @@ public class Data implements java.io.Serializable {
         throw new IllegalArgumentException ("Fudge message is not a Data - field 'matrix' is not Value message[][]", e);
       }
     }
+    fudgeField = fudgeMsg.getByOrdinal (COLUMNS_ORDINAL);
+    if (fudgeField != null)  {
+      try {
+        final org.fudgemsg.FudgeMsg fudge1;
+        fudge1 = fudgeMsg.getFieldValue (org.fudgemsg.FudgeMsg.class, fudgeField);
+        setColumns (fudge1);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a Data - field 'columns' is not anonymous/unknown message", e);
+      }
+    }
   }
-  public Data (com.opengamma.language.Value single, com.opengamma.language.Value[] linear, com.opengamma.language.Value[][] matrix) {
+  public Data (com.opengamma.language.Value single, com.opengamma.language.Value[] linear, com.opengamma.language.Value[][] matrix, org.fudgemsg.FudgeMsg columns) {
     if (single == null) _single = null;
     else {
       _single = (com.opengamma.language.Value)single.clone ();
@@ -110,6 +123,7 @@ public class Data implements java.io.Serializable {
       }
       _matrix = matrix;
     }
+    _columns = columns;
   }
   protected Data (final Data source) {
     if (source == null) throw new NullPointerException ("'source' must not be null");
@@ -142,6 +156,7 @@ public class Data implements java.io.Serializable {
       }
       _matrix = fudge0;
     }
+    _columns = source._columns;
   }
   public Data clone () {
     return new Data (this);
@@ -195,6 +210,9 @@ public class Data implements java.io.Serializable {
       }
       msg.add (null, MATRIX_ORDINAL, fudge1);
     }
+    if (_columns != null)  {
+      msg.add (null, COLUMNS_ORDINAL, (_columns instanceof org.fudgemsg.MutableFudgeMsg) ? serializer.newMessage (_columns) : _columns);
+    }
   }
   public static Data fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
@@ -254,6 +272,12 @@ public class Data implements java.io.Serializable {
       _matrix = matrix;
     }
   }
+  public org.fudgemsg.FudgeMsg getColumns () {
+    return _columns;
+  }
+  public void setColumns (org.fudgemsg.FudgeMsg columns) {
+    _columns = columns;
+  }
   public boolean equals (final Object o) {
     if (o == this) return true;
     if (!(o instanceof Data)) return false;
@@ -267,6 +291,13 @@ public class Data implements java.io.Serializable {
     else if (msg._single != null) return false;
     if (!java.util.Arrays.deepEquals (_linear, msg._linear)) return false;
     if (!java.util.Arrays.deepEquals (_matrix, msg._matrix)) return false;
+    if (_columns != null) {
+      if (msg._columns != null) {
+        if (!_columns.equals (msg._columns)) return false;
+      }
+      else return false;
+    }
+    else if (msg._columns != null) return false;
     return true;
   }
   public int hashCode () {
@@ -277,6 +308,8 @@ public class Data implements java.io.Serializable {
     if (_linear != null)hc += java.util.Arrays.deepHashCode (_linear);
     hc *= 31;
     if (_matrix != null)hc += java.util.Arrays.deepHashCode (_matrix);
+    hc *= 31;
+    if (_columns != null) hc += _columns.hashCode ();
     return hc;
   }
   public String toString () {
@@ -0,0 +1,654 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language;
+
+import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgFactory;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Columnar encoding of a linear or matrix {@link Data} instance whose elements are all of a single primitive
+ * type. Instead of a {@link Value} sub-message per element, the elements are held in a primitive array
+ * (stored row-major for a matrix) with a bitmap marking any null elements and a sparse list of any error
+ * values. The encoded form is carried in the {@link Data#getColumns} field.
+ * <p>
+ * The message fields are:
+ * <ul>
+ * <li>1 - number of rows (or elements for a linear value)
+ * <li>2 - number of columns; omitted for a linear value
+ * <li>3 - {@code double[]} element values
+ * <li>4 - {@code int[]} element values
+ * <li>5 - {@code byte[]} bitmap of boolean element values
+ * <li>6 - sub-message of strings forming the dictionary of string element values
+ * <li>7 - {@code int[]} element values as indices into the string dictionary
+ * <li>8 - {@code byte[]} bitmap of null elements
+ * <li>9 - {@code int[]} indices of elements that are error values
+ * <li>10 - {@code int[]} error values for each of the indices in field 9
+ * </ul>
+ * Exactly one of the value fields 3, 4, 5 or 7 is present. Bitmaps hold the first element in the least
+ * significant bit of the first byte.
+ */
+public final class DataColumns {
+
+  /**
+   * Ordinal of the row count field.
+   */
+  public static final int ROWS_ORDINAL = 1;
+  /**
+   * Ordinal of the column count field.
+   */
+  public static final int COLUMNS_ORDINAL = 2;
+  /**
+   * Ordinal of the double values field.
+   */
+  public static final int DOUBLE_VALUES_ORDINAL = 3;
+  /**
+   * Ordinal of the integer values field.
+   */
+  public static final int INT_VALUES_ORDINAL = 4;
+  /**
+   * Ordinal of the boolean values bitmap.
+   */
+  public static final int BOOL_VALUES_ORDINAL = 5;
+  /**
+   * Ordinal of the string dictionary.
+   */
+  public static final int STRING_DICTIONARY_ORDINAL = 6;
+  /**
+   * Ordinal of the string dictionary indices.
+   */
+  public static final int STRING_VALUES_ORDINAL = 7;
+  /**
+   * Ordinal of the null element bitmap.
+   */
+  public static final int NULL_VALUES_ORDINAL = 8;
+  /**
+   * Ordinal of the error element indices.
+   */
+  public static final int ERROR_INDICES_ORDINAL = 9;
+  /**
+   * Ordinal of the error values.
+   */
+  public static final int ERROR_VALUES_ORDINAL = 10;
+
+  /**
+   * The primitive type of the encoded elements.
+   */
+  public static enum Type {
+    /**
+     * Elements are {@code boolean}.
+     */
+    BOOLEAN,
+    /**
+     * Elements are {@code double}.
+     */
+    DOUBLE,
+    /**
+     * Elements are {@code int}.
+     */
+    INTEGER,
+    /**
+     * Elements are {@code String}.
+     */
+    STRING
+  }
+
+  private static final int[] NO_ERRORS = new int[0];
+
+  private final int _rows;
+  private final int _columns;
+  private final Type _type;
+  private final Object _values;
+  private final boolean[] _nulls;
+  private final int[] _errorIndices;
+  private final int[] _errorValues;
+
+  private DataColumns(final int rows, final int columns, final Type type, final Object values, final boolean[] nulls, final int[] errorIndices, final int[] errorValues) {
+    _rows = rows;
+    _columns = columns;
+    _type = type;
+    _values = values;
+    _nulls = nulls;
+    _errorIndices = errorIndices;
+    _errorValues = errorValues;
+  }
+
+  // Construction from primitive arrays
+
+  public static DataColumns of(final double[] values) {
+    ArgumentChecker.notNull(values, "values");
+    return new DataColumns(values.length, -1, Type.DOUBLE, values, null, NO_ERRORS, NO_ERRORS);
+  }
+
+  public static DataColumns of(final int[] values) {
+    ArgumentChecker.notNull(values, "values");
+    return new DataColumns(values.length, -1, Type.INTEGER, values, null, NO_ERRORS, NO_ERRORS);
+  }
+
+  public static DataColumns of(final boolean[] values) {
+    ArgumentChecker.notNull(values, "values");
+    return new DataColumns(values.length, -1, Type.BOOLEAN, values, null, NO_ERRORS, NO_ERRORS);
+  }
+
+  public static DataColumns of(final String[] values) {
+    ArgumentChecker.notNull(values, "values");
+    return new DataColumns(values.length, -1, Type.STRING, values, nullsOf(values), NO_ERRORS, NO_ERRORS);
+  }
+
+  /**
+   * Creates a matrix encoding of the values. The matrix must be rectangular.
+   *
+   * @param values the values to encode, not null
+   * @return the encoded form, or null if the matrix is jagged
+   */
+  public static DataColumns of(final double[][] values) {
+    ArgumentChecker.notNull(values, "values");
+    final int columns = columnCount(values);
+    if (columns < 0) {
+      return null;
+    }
+    final double[] flat = new double[values.length * columns];
+    for (int i = 0; i < values.length; i++) {
+      System.arraycopy(values[i], 0, flat, i * columns, columns);
+    }
+    return new DataColumns(values.length, columns, Type.DOUBLE, flat, null, NO_ERRORS, NO_ERRORS);
+  }
+
+  /**
+   * Creates a matrix encoding of the values. The matrix must be rectangular.
+   *
+   * @param values the values to encode, not null
+   * @return the encoded form, or null if the matrix is jagged
+   */
+  public static DataColumns of(final int[][] values) {
+    ArgumentChecker.notNull(values, "values");
+    final int columns = columnCount(values);
+    if (columns < 0) {
+      return null;
+    }
+    final int[] flat = new int[values.length * columns];
+    for (int i = 0; i < values.length; i++) {
+      System.arraycopy(values[i], 0, flat, i * columns, columns);
+    }
+    return new DataColumns(values.length, columns, Type.INTEGER, flat, null, NO_ERRORS, NO_ERRORS);
+  }
+
+  /**
+   * Creates a matrix encoding of the values. The matrix must be rectangular.
+   *
+   * @param values the values to encode, not null
+   * @return the encoded form, or null if the matrix is jagged
+   */
+  public static DataColumns of(final boolean[][] values) {
+    ArgumentChecker.notNull(values, "values");
+    final int columns = columnCount(values);
+    if (columns < 0) {
+      return null;
+    }
+    final boolean[] flat = new boolean[values.length * columns];
+    for (int i = 0; i < values.length; i++) {
+      System.arraycopy(values[i], 0, flat, i * columns, columns);
+    }
+    return new DataColumns(values.length, columns, Type.BOOLEAN, flat, null, NO_ERRORS, NO_ERRORS);
+  }
+
+  /**
+   * Creates a matrix encoding of the values. The matrix must be rectangular.
+   *
+   * @param values the values to encode, not null
+   * @return the encoded form, or null if the matrix is jagged
+   */
+  public static DataColumns of(final String[][] values) {
+    ArgumentChecker.notNull(values, "values");
+    final int columns = columnCount(values);
+    if (columns < 0) {
+      return null;
+    }
+    final String[] flat = new String[values.length * columns];
+    for (int i = 0; i < values.length; i++) {
+      System.arraycopy(values[i], 0, flat, i * columns, columns);
+    }
+    return new DataColumns(values.length, columns, Type.STRING, flat, nullsOf(flat), NO_ERRORS, NO_ERRORS);
+  }
+
+  // Construction from Value arrays
+
+  /**
+   * Creates the columnar encoding of a linear {@link Value} array, if possible.
+   *
+   * @param values the values to encode, not null
+   * @return the encoded form, or null if the values are not all of a single primitive type
+   */
+  public static DataColumns of(final Value[] values) {
+    ArgumentChecker.notNull(values, "values");
+    return ofValues(values, values.length, -1);
+  }
+
+  /**
+   * Creates the columnar encoding of a matrix of {@link Value} instances, if possible.
+   *
+   * @param values the values to encode, not null
+   * @return the encoded form, or null if the matrix is jagged or the values are not all of a single primitive type
+   */
+  public static DataColumns of(final Value[][] values) {
+    ArgumentChecker.notNull(values, "values");
+    final int columns = columnCount(values);
+    if (columns < 0) {
+      return null;
+    }
+    final Value[] flat = new Value[values.length * columns];
+    for (int i = 0; i < values.length; i++) {
+      System.arraycopy(values[i], 0, flat, i * columns, columns);
+    }
+    return ofValues(flat, values.length, columns);
+  }
+
+  private static Type typeOf(final Value value) {
+    if (value.getMessageValue() != null) {
+      return null;
+    } else if (value.getDoubleValue() != null) {
+      return Type.DOUBLE;
+    } else if (value.getIntValue() != null) {
+      return Type.INTEGER;
+    } else if (value.getBoolValue() != null) {
+      return Type.BOOLEAN;
+    } else if (value.getStringValue() != null) {
+      return Type.STRING;
+    } else {
+      return null;
+    }
+  }
+
+  private static DataColumns ofValues(final Value[] values, final int rows, final int columns) {
+    Type type = null;
+    int nullCount = 0;
+    int errorCount = 0;
+    for (Value value : values) {
+      if (value == null) {
+        nullCount++;
+      } else if (value.getErrorValue() != null) {
+        errorCount++;
+      } else if (ValueUtils.isNull(value)) {
+        nullCount++;
+      } else {
+        final Type valueType = typeOf(value);
+        if (valueType == null) {
+          return null;
+        }
+        if (type == null) {
+          type = valueType;
+        } else if (type != valueType) {
+          return null;
+        }
+      }
+    }
+    if (type == null) {
+      // All nulls or errors; an arbitrary type will do
+      type = Type.INTEGER;
+    }
+    final boolean[] nulls = (nullCount + errorCount > 0) ? new boolean[values.length] : null;
+    final int[] errorIndices = (errorCount > 0) ? new int[errorCount] : NO_ERRORS;
+    final int[] errorValues = (errorCount > 0) ? new int[errorCount] : NO_ERRORS;
+    errorCount = 0;
+    final Object array;
+    switch (type) {
+      case BOOLEAN: {
+        final boolean[] result = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+          final Boolean value = (values[i] != null) ? values[i].getBoolValue() : null;
+          if (value != null) {
+            result[i] = value;
+          }
+        }
+        array = result;
+        break;
+      }
+      case DOUBLE: {
+        final double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+          final Double value = (values[i] != null) ? values[i].getDoubleValue() : null;
+          if (value != null) {
+            result[i] = value;
+          }
+        }
+        array = result;
+        break;
+      }
+      case INTEGER: {
+        final int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+          final Integer value = (values[i] != null) ? values[i].getIntValue() : null;
+          if (value != null) {
+            result[i] = value;
+          }
+        }
+        array = result;
+        break;
+      }
+      case STRING: {
+        final String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+          if (values[i] != null) {
+            result[i] = values[i].getStringValue();
+          }
+        }
+        array = result;
+        break;
+      }
+      default:
+        throw new IllegalStateException();
+    }
+    if (nulls != null) {
+      for (int i = 0; i < values.length; i++) {
+        final Value value = values[i];
+        if ((value == null) || ValueUtils.isNull(value)) {
+          nulls[i] = true;
+        } else if (value.getErrorValue() != null) {
+          nulls[i] = true;
+          errorIndices[errorCount] = i;
+          errorValues[errorCount++] = value.getErrorValue();
+        }
+      }
+    }
+    return new DataColumns(rows, columns, type, array, nulls, errorIndices, errorValues);
+  }
+
+  private static int columnCount(final Object[] matrix) {
+    if (matrix.length == 0) {
+      return 0;
+    }
+    if (matrix[0] == null) {
+      return -1;
+    }
+    final int columns = Array.getLength(matrix[0]);
+    for (int i = 1; i < matrix.length; i++) {
+      if ((matrix[i] == null) || (Array.getLength(matrix[i]) != columns)) {
+        return -1;
+      }
+    }
+    return columns;
+  }
+
+  private static boolean[] nullsOf(final String[] values) {
+    boolean[] nulls = null;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        if (nulls == null) {
+          nulls = new boolean[values.length];
+        }
+        nulls[i] = true;
+      }
+    }
+    return nulls;
+  }
+
+  // Accessors
+
+  /**
+   * Returns the number of rows in a matrix, or the number of elements in a linear value.
+   *
+   * @return the row or element count
+   */
+  public int getRows() {
+    return _rows;
+  }
+
+  /**
+   * Returns the number of columns in a matrix.
+   *
+   * @return the column count, or -1 for a linear value
+   */
+  public int getColumns() {
+    return _columns;
+  }
+
+  public boolean isMatrix() {
+    return _columns >= 0;
+  }
+
+  public int getLength() {
+    return isMatrix() ? _rows * _columns : _rows;
+  }
+
+  public Type getType() {
+    return _type;
+  }
+
+  /**
+   * Returns the underlying element array, in row-major order for a matrix. The array must not be modified.
+   *
+   * @return the {@code double[]}, {@code int[]}, {@code boolean[]} or {@code String[]} element values
+   */
+  public Object getValues() {
+    return _values;
+  }
+
+  public boolean isNull(final int index) {
+    return (_nulls != null) && _nulls[index];
+  }
+
+  public boolean hasNulls() {
+    return _nulls != null;
+  }
+
+  /**
+   * Returns the error value of an element.
+   *
+   * @param index the element index
+   * @return the error value or null if the element is not an error
+   */
+  public Integer getError(final int index) {
+    for (int i = 0; i < _errorIndices.length; i++) {
+      if (_errorIndices[i] == index) {
+        return _errorValues[i];
+      }
+    }
+    return null;
+  }
+
+  // Expansion to the per-Value form
+
+  /**
+   * Returns a single element as a {@link Value}.
+   *
+   * @param index the element index, in row-major order for a matrix
+   * @return the value
+   */
+  public Value getValue(final int index) {
+    if (isNull(index)) {
+      final Integer error = getError(index);
+      if (error != null) {
+        return ValueUtils.ofError(error);
+      } else {
+        return new Value();
+      }
+    }
+    switch (_type) {
+      case BOOLEAN:
+        return ValueUtils.of(((boolean[]) _values)[index]);
+      case DOUBLE:
+        return ValueUtils.of(((double[]) _values)[index]);
+      case INTEGER:
+        return ValueUtils.of(((int[]) _values)[index]);
+      case STRING:
+        return ValueUtils.of(((String[]) _values)[index]);
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Expands the encoding to a linear array of {@link Value} instances. A matrix is returned in row-major order.
+   *
+   * @return the values
+   */
+  public Value[] toLinear() {
+    final Value[] result = new Value[getLength()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getValue(i);
+    }
+    return result;
+  }
+
+  /**
+   * Expands the encoding to a matrix of {@link Value} instances. A linear value is returned as a single column.
+   *
+   * @return the values
+   */
+  public Value[][] toMatrix() {
+    final int columns = isMatrix() ? _columns : 1;
+    final Value[][] result = new Value[_rows][columns];
+    int index = 0;
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        result[i][j] = getValue(index++);
+      }
+    }
+    return result;
+  }
+
+  // Fudge encoding
+
+  private static byte[] toBitmap(final boolean[] bits) {
+    final byte[] bitmap = new byte[(bits.length + 7) >> 3];
+    for (int i = 0; i < bits.length; i++) {
+      if (bits[i]) {
+        bitmap[i >> 3] |= (byte) (1 << (i & 7));
+      }
+    }
+    return bitmap;
+  }
+
+  private static boolean[] fromBitmap(final byte[] bitmap, final int length) {
+    final boolean[] bits = new boolean[length];
+    for (int i = 0; i < length; i++) {
+      bits[i] = (bitmap[i >> 3] & (1 << (i & 7))) != 0;
+    }
+    return bits;
+  }
+
+  public MutableFudgeMsg toFudgeMsg(final FudgeMsgFactory factory) {
+    final MutableFudgeMsg msg = factory.newMessage();
+    msg.add(null, ROWS_ORDINAL, _rows);
+    if (isMatrix()) {
+      msg.add(null, COLUMNS_ORDINAL, _columns);
+    }
+    switch (_type) {
+      case BOOLEAN:
+        msg.add(null, BOOL_VALUES_ORDINAL, toBitmap((boolean[]) _values));
+        break;
+      case DOUBLE:
+        msg.add(null, DOUBLE_VALUES_ORDINAL, _values);
+        break;
+      case INTEGER:
+        msg.add(null, INT_VALUES_ORDINAL, _values);
+        break;
+      case STRING: {
+        final String[] values = (String[]) _values;
+        final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+        final MutableFudgeMsg dictionaryMsg = factory.newMessage();
+        final int[] indices = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+          if (values[i] != null) {
+            Integer index = dictionary.get(values[i]);
+            if (index == null) {
+              index = dictionary.size();
+              dictionary.put(values[i], index);
+              dictionaryMsg.add(null, null, values[i]);
+            }
+            indices[i] = index;
+          }
+        }
+        msg.add(null, STRING_DICTIONARY_ORDINAL, dictionaryMsg);
+        msg.add(null, STRING_VALUES_ORDINAL, indices);
+        break;
+      }
+      default:
+        throw new IllegalStateException();
+    }
+    if (_nulls != null) {
+      msg.add(null, NULL_VALUES_ORDINAL, toBitmap(_nulls));
+    }
+    if (_errorIndices.length > 0) {
+      msg.add(null, ERROR_INDICES_ORDINAL, _errorIndices);
+      msg.add(null, ERROR_VALUES_ORDINAL, _errorValues);
+    }
+    return msg;
+  }
+
+  /**
+   * Decodes a message produced by {@link #toFudgeMsg}.
+   *
+   * @param msg the message to decode, not null
+   * @return the decoded form
+   * @throws IllegalArgumentException if the message is not a valid encoding
+   */
+  public static DataColumns fromFudgeMsg(final FudgeMsg msg) {
+    ArgumentChecker.notNull(msg, "msg");
+    final Integer rows = msg.getInt(ROWS_ORDINAL);
+    if (rows == null) {
+      throw new IllegalArgumentException("Missing row count in " + msg);
+    }
+    final Integer columnsValue = msg.getInt(COLUMNS_ORDINAL);
+    final int columns = (columnsValue != null) ? columnsValue : -1;
+    final int length = (columns >= 0) ? rows * columns : rows;
+    final Type type;
+    final Object values;
+    if (msg.hasField(DOUBLE_VALUES_ORDINAL)) {
+      type = Type.DOUBLE;
+      values = msg.getValue(double[].class, DOUBLE_VALUES_ORDINAL);
+    } else if (msg.hasField(INT_VALUES_ORDINAL)) {
+      type = Type.INTEGER;
+      values = msg.getValue(int[].class, INT_VALUES_ORDINAL);
+    } else if (msg.hasField(BOOL_VALUES_ORDINAL)) {
+      type = Type.BOOLEAN;
+      values = fromBitmap(msg.getValue(byte[].class, BOOL_VALUES_ORDINAL), length);
+    } else if (msg.hasField(STRING_VALUES_ORDINAL)) {
+      type = Type.STRING;
+      final FudgeMsg dictionaryMsg = msg.getMessage(STRING_DICTIONARY_ORDINAL);
+      final String[] dictionary = new String[(dictionaryMsg != null) ? dictionaryMsg.getNumFields() : 0];
+      if (dictionaryMsg != null) {
+        int i = 0;
+        for (FudgeField field : dictionaryMsg) {
+          dictionary[i++] = (String) field.getValue();
+        }
+      }
+      final int[] indices = msg.getValue(int[].class, STRING_VALUES_ORDINAL);
+      final String[] strings = new String[indices.length];
+      for (int i = 0; i < indices.length; i++) {
+        if (indices[i] < dictionary.length) {
+          strings[i] = dictionary[indices[i]];
+        }
+      }
+      values = strings;
+    } else {
+      throw new IllegalArgumentException("Missing element values in " + msg);
+    }
+    if (Array.getLength(values) != length) {
+      throw new IllegalArgumentException("Expected " + length + " elements in " + msg);
+    }
+    final byte[] nullBitmap = msg.getValue(byte[].class, NULL_VALUES_ORDINAL);
+    final boolean[] nulls = (nullBitmap != null) ? fromBitmap(nullBitmap, length) : null;
+    int[] errorIndices = msg.getValue(int[].class, ERROR_INDICES_ORDINAL);
+    int[] errorValues = msg.getValue(int[].class, ERROR_VALUES_ORDINAL);
+    if ((errorIndices == null) || (errorValues == null)) {
+      errorIndices = NO_ERRORS;
+      errorValues = NO_ERRORS;
+    } else if (errorIndices.length != errorValues.length) {
+      throw new IllegalArgumentException("Mismatched error values in " + msg);
+    }
+    return new DataColumns(rows, columns, type, values, nulls, errorIndices, errorValues);
+  }
+
+}
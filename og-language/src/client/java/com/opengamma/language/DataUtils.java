@@ -6,6 +6,7 @@
 
 package com.opengamma.language;
 
+import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 
 import com.opengamma.util.ArgumentChecker;
@@ -28,6 +29,8 @@ public final class DataUtils {
       return false;
     } else if (value.getMatrix() != null) {
       return false;
+    } else if (value.getColumns() != null) {
+      return false;
     } else {
       return true;
     }
@@ -87,6 +90,151 @@ public final class DataUtils {
     return data;
   }
 
+  /**
+   * Creates a {@link Data} instance with the columnar encoding.
+   * 
+   * @param columns  the encoded values, not null
+   * @return the data instance
+   */
+  public static Data of(final DataColumns columns) {
+    ArgumentChecker.notNull(columns, "columns");
+    final Data data = new Data();
+    data.setColumns(columns.toFudgeMsg(FudgeContext.GLOBAL_DEFAULT));
+    return data;
+  }
+
+  public static Data of(final double[] values) {
+    return of(DataColumns.of(values));
+  }
+
+  public static Data of(final int[] values) {
+    return of(DataColumns.of(values));
+  }
+
+  public static Data of(final boolean[] values) {
+    return of(DataColumns.of(values));
+  }
+
+  public static Data of(final String[] values) {
+    return of(DataColumns.of(values));
+  }
+
+  /**
+   * Creates a {@link Data} instance containing a matrix of values. The columnar encoding is used if the matrix is
+   * rectangular, otherwise the per-value encoding is used.
+   * 
+   * @param values  the values, not null
+   * @return the data instance
+   */
+  public static Data of(final double[][] values) {
+    final DataColumns columns = DataColumns.of(values);
+    if (columns != null) {
+      return of(columns);
+    }
+    final Value[][] matrix = new Value[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      ArgumentChecker.notNull(values[i], "value[" + i + "]");
+      matrix[i] = new Value[values[i].length];
+      for (int j = 0; j < values[i].length; j++) {
+        matrix[i][j] = ValueUtils.of(values[i][j]);
+      }
+    }
+    return of(matrix);
+  }
+
+  /**
+   * Returns the columnar encoding of a {@link Data} instance, if it has one.
+   * 
+   * @param data  the data instance, not null
+   * @return the decoded columns, or null if the data does not use the columnar encoding
+   */
+  public static DataColumns getColumns(final Data data) {
+    if (data.getColumns() != null) {
+      return DataColumns.fromFudgeMsg(data.getColumns());
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the linear form of a {@link Data} instance, expanding any columnar encoding of a linear value.
+   * 
+   * @param data  the data instance, not null
+   * @return the linear values, or null if the data is not linear
+   */
+  public static Value[] getLinear(final Data data) {
+    if (data.getLinear() != null) {
+      return data.getLinear();
+    } else if (data.getColumns() != null) {
+      final DataColumns columns = DataColumns.fromFudgeMsg(data.getColumns());
+      if (!columns.isMatrix()) {
+        return columns.toLinear();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the matrix form of a {@link Data} instance, expanding any columnar encoding of a matrix value.
+   * 
+   * @param data  the data instance, not null
+   * @return the matrix values, or null if the data is not a matrix
+   */
+  public static Value[][] getMatrix(final Data data) {
+    if (data.getMatrix() != null) {
+      return data.getMatrix();
+    } else if (data.getColumns() != null) {
+      final DataColumns columns = DataColumns.fromFudgeMsg(data.getColumns());
+      if (columns.isMatrix()) {
+        return columns.toMatrix();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Replaces any columnar encoding with the per-value encoding, for bound languages that do not support it.
+   * 
+   * @param data  the data instance, not null
+   * @return the data instance with the per-value encoding, the original instance if there was no columnar encoding
+   */
+  public static Data expand(final Data data) {
+    if (data.getColumns() == null) {
+      return data;
+    }
+    final DataColumns columns = DataColumns.fromFudgeMsg(data.getColumns());
+    final Data expanded = new Data();
+    if (columns.isMatrix()) {
+      expanded.setMatrix(columns.toMatrix());
+    } else {
+      expanded.setLinear(columns.toLinear());
+    }
+    return expanded;
+  }
+
+  /**
+   * Replaces a per-value encoding of a linear or matrix value with the columnar encoding if the values are all of a
+   * single primitive type.
+   * 
+   * @param data  the data instance, not null
+   * @return the data instance with the columnar encoding, the original instance if it cannot be used
+   */
+  public static Data compact(final Data data) {
+    final DataColumns columns;
+    if (data.getLinear() != null) {
+      columns = DataColumns.of(data.getLinear());
+    } else if (data.getMatrix() != null) {
+      columns = DataColumns.of(data.getMatrix());
+    } else {
+      columns = null;
+    }
+    if (columns != null) {
+      return of(columns);
+    } else {
+      return data;
+    }
+  }
+
   /**
    * Displayable form of the Data object.
    * 
@@ -95,7 +243,9 @@ public final class DataUtils {
    * @return the displayable string
    */
   public static String toString(final Data data, final boolean quoted) {
-    if (data.getSingle() != null) {
+    if (data.getColumns() != null) {
+      return toString(expand(data), quoted);
+    } else if (data.getSingle() != null) {
       return ValueUtils.toString(data.getSingle(), quoted);
     } else if (data.getLinear() != null) {
       final StringBuilder sb = new StringBuilder();
@@ -150,6 +300,13 @@ public final class DataUtils {
       } else {
         return null;
       }
+    } else if (data.getColumns() != null) {
+      final DataColumns columns = getColumns(data);
+      if (columns.getLength() > 0) {
+        return columns.getValue(0);
+      } else {
+        return null;
+      }
     } else {
       return null;
     }
@@ -19,6 +19,7 @@ import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.UniqueId;
 import com.opengamma.language.Data;
+import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.config.MarketDataOverride.Operation;
 import com.opengamma.language.context.SessionContext;
@@ -113,13 +114,16 @@ public class MarketDataOverrideFunction extends AbstractFunctionInvoker implemen
   private static Object convertData(final Data data) {
     if (data.getSingle() != null) {
       return convertSingle(data.getSingle());
-    } else if (data.getLinear() != null) {
-      return convertLinear(data.getLinear());
-    } else if (data.getMatrix() != null) {
-      return convertMatrix(data.getMatrix());
-    } else {
-      return null;
     }
+    final Value[] linear = DataUtils.getLinear(data);
+    if (linear != null) {
+      return convertLinear(linear);
+    }
+    final Value[][] matrix = DataUtils.getMatrix(data);
+    if (matrix != null) {
+      return convertMatrix(matrix);
+    }
+    return null;
   }
 
   // end of code which shouldn't be here
@@ -40,7 +40,7 @@ public abstract class AbstractMain {
     }
 
     @Override
-    public Client createClient(final String inputPipeName, final String outputPipeName,
+    public Client createClient(final String inputPipeName, final String outputPipeName, final String sharedMemoryName,
         final SessionContext sessionContext) {
       s_sessionContext = sessionContext;
       return null;
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Presents a byte buffer as a {@link DataInput} so that a Fudge reader can decode directly from it. The buffer must be big-endian.
+ */
+/* package */class ByteBufferDataInput implements DataInput {
+
+  private final ByteBuffer _buffer;
+
+  public ByteBufferDataInput(final ByteBuffer buffer) {
+    _buffer = buffer;
+  }
+
+  private ByteBuffer require(final int bytes) throws EOFException {
+    if (_buffer.remaining() < bytes) {
+      throw new EOFException();
+    }
+    return _buffer;
+  }
+
+  // DataInput
+
+  @Override
+  public void readFully(final byte[] b) throws IOException {
+    require(b.length).get(b);
+  }
+
+  @Override
+  public void readFully(final byte[] b, final int off, final int len) throws IOException {
+    require(len).get(b, off, len);
+  }
+
+  @Override
+  public int skipBytes(final int n) {
+    final int skip = Math.max(Math.min(n, _buffer.remaining()), 0);
+    _buffer.position(_buffer.position() + skip);
+    return skip;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    return require(1).get() != 0;
+  }
+
+  @Override
+  public byte readByte() throws IOException {
+    return require(1).get();
+  }
+
+  @Override
+  public int readUnsignedByte() throws IOException {
+    return require(1).get() & 0xFF;
+  }
+
+  @Override
+  public short readShort() throws IOException {
+    return require(2).getShort();
+  }
+
+  @Override
+  public int readUnsignedShort() throws IOException {
+    return require(2).getShort() & 0xFFFF;
+  }
+
+  @Override
+  public char readChar() throws IOException {
+    return require(2).getChar();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    return require(4).getInt();
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    return require(8).getLong();
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    return require(4).getFloat();
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    return require(8).getDouble();
+  }
+
+  /**
+   * Reads a line of text as described by {@link DataInput#readLine}, each byte being taken as a character. Fudge never calls this, but
+   * it is cheap to support on a buffer.
+   *
+   * @return the line, without its terminator, or null if the end of the buffer has been reached
+   */
+  @Override
+  public String readLine() {
+    if (!_buffer.hasRemaining()) {
+      return null;
+    }
+    final StringBuilder line = new StringBuilder();
+    while (_buffer.hasRemaining()) {
+      final char c = (char) (_buffer.get() & 0xFF);
+      if (c == '\n') {
+        break;
+      }
+      if (c == '\r') {
+        if (_buffer.hasRemaining() && (_buffer.get(_buffer.position()) == '\n')) {
+          _buffer.get();
+        }
+        break;
+      }
+      line.append(c);
+    }
+    return line.toString();
+  }
+
+  @Override
+  public String readUTF() throws IOException {
+    return DataInputStream.readUTF(this);
+  }
+
+}
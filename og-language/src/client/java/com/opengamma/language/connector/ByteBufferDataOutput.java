@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates data written to it in a sequence of direct byte buffers so that it can be passed to a channel with a single gathering
+ * write. Buffers are kept for reuse after each write, up to a limit, so that a steady stream of messages does not allocate.
+ * <p>
+ * This is not thread-safe; there should be one instance for each writing thread.
+ */
+/* package */class ByteBufferDataOutput implements DataOutput {
+
+  /**
+   * Default size of each buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+  /**
+   * Maximum number of buffers to keep for reuse after a write.
+   */
+  private static final int MAX_POOLED_BUFFERS = 16;
+
+  private final int _bufferSize;
+  private final List<ByteBuffer> _pool = new ArrayList<ByteBuffer>();
+  private final List<ByteBuffer> _buffers = new ArrayList<ByteBuffer>();
+  private ByteBuffer _current;
+  private long _size;
+
+  public ByteBufferDataOutput() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  public ByteBufferDataOutput(final int bufferSize) {
+    _bufferSize = bufferSize;
+  }
+
+  private ByteBuffer require(final int bytes) {
+    if ((_current == null) || (_current.remaining() < bytes)) {
+      if (_pool.isEmpty()) {
+        _current = ByteBuffer.allocateDirect(_bufferSize);
+      } else {
+        _current = _pool.remove(_pool.size() - 1);
+      }
+      _buffers.add(_current);
+    }
+    _size += bytes;
+    return _current;
+  }
+
+  /**
+   * Returns the number of bytes written since the last call to {@link #writeTo} or {@link #reset}.
+   *
+   * @return the number of bytes
+   */
+  public long size() {
+    return _size;
+  }
+
+  /**
+   * Writes everything accumulated to the channel and resets ready for the next batch.
+   *
+   * @param channel the channel to write to, not null
+   * @return the number of bytes written
+   * @throws IOException if there is a problem writing to the channel
+   */
+  public long writeTo(final GatheringByteChannel channel) throws IOException {
+    final ByteBuffer[] buffers = _buffers.toArray(new ByteBuffer[_buffers.size()]);
+    for (ByteBuffer buffer : buffers) {
+      buffer.flip();
+    }
+    long written = 0;
+    try {
+      int first = 0;
+      while (written < _size) {
+        written += channel.write(buffers, first, buffers.length - first);
+        while ((first < buffers.length) && !buffers[first].hasRemaining()) {
+          first++;
+        }
+      }
+    } finally {
+      reset();
+    }
+    return written;
+  }
+
+  /**
+   * Discards everything accumulated, returning the buffers to the pool.
+   */
+  public void reset() {
+    for (ByteBuffer buffer : _buffers) {
+      if (_pool.size() < MAX_POOLED_BUFFERS) {
+        buffer.clear();
+        _pool.add(buffer);
+      }
+    }
+    _buffers.clear();
+    _current = null;
+    _size = 0;
+  }
+
+  // DataOutput
+
+  @Override
+  public void write(final int b) {
+    require(1).put((byte) b);
+  }
+
+  @Override
+  public void write(final byte[] b) {
+    write(b, 0, b.length);
+  }
+
+  @Override
+  public void write(final byte[] b, int off, int len) {
+    while (len > 0) {
+      // Fill what is left of the current buffer before starting another
+      int chunk = (_current != null) ? Math.min(len, _current.remaining()) : 0;
+      if (chunk == 0) {
+        chunk = Math.min(len, _bufferSize);
+      }
+      require(chunk).put(b, off, chunk);
+      off += chunk;
+      len -= chunk;
+    }
+  }
+
+  @Override
+  public void writeBoolean(final boolean v) {
+    require(1).put(v ? (byte) 1 : (byte) 0);
+  }
+
+  @Override
+  public void writeByte(final int v) {
+    require(1).put((byte) v);
+  }
+
+  @Override
+  public void writeShort(final int v) {
+    require(2).putShort((short) v);
+  }
+
+  @Override
+  public void writeChar(final int v) {
+    require(2).putChar((char) v);
+  }
+
+  @Override
+  public void writeInt(final int v) {
+    require(4).putInt(v);
+  }
+
+  @Override
+  public void writeLong(final long v) {
+    require(8).putLong(v);
+  }
+
+  @Override
+  public void writeFloat(final float v) {
+    require(4).putFloat(v);
+  }
+
+  @Override
+  public void writeDouble(final double v) {
+    require(8).putDouble(v);
+  }
+
+  @Override
+  public void writeBytes(final String s) {
+    final int len = s.length();
+    for (int i = 0; i < len; i++) {
+      writeByte(s.charAt(i));
+    }
+  }
+
+  @Override
+  public void writeChars(final String s) {
+    final int len = s.length();
+    for (int i = 0; i < len; i++) {
+      writeChar(s.charAt(i));
+    }
+  }
+
+  @Override
+  public void writeUTF(final String s) throws IOException {
+    new DataOutputStream(new OutputStream() {
+      @Override
+      public void write(final int b) {
+        ByteBufferDataOutput.this.write(b);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) {
+        ByteBufferDataOutput.this.write(b, off, len);
+      }
+    }).writeUTF(s);
+  }
+
+}
@@ -5,36 +5,30 @@
  */
 package com.opengamma.language.connector;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.DataOutput;
-import java.io.DataOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.nio.channels.Channels;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.FudgeMsgEnvelope;
 import org.fudgemsg.mapping.FudgeDeserializer;
 import org.fudgemsg.mapping.FudgeSerializer;
-import org.fudgemsg.wire.FudgeMsgReader;
 import org.fudgemsg.wire.FudgeMsgWriter;
 import org.fudgemsg.wire.FudgeRuntimeIOException;
-import org.fudgemsg.wire.FudgeStreamReader;
-import org.fudgemsg.wire.FudgeStreamWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +39,7 @@ import com.opengamma.language.context.SessionContextInitializationEventHandler;
 import com.opengamma.util.async.AsynchronousExecution;
 import com.opengamma.util.async.AsynchronousResult;
 import com.opengamma.util.async.ResultListener;
+import com.opengamma.util.test.Profiler;
 
 /**
  * Client connection thread to interface with the C++ module. This connects to the two pipe interfaces and provides user message routing.
@@ -53,24 +48,54 @@ public class Client implements Runnable {
 
   private static final Logger s_logger = LoggerFactory.getLogger(Client.class);
 
+  private static final Profiler s_profilerFlush = Profiler.create(Client.class, "Flush");
+
+  /**
+   * Period, in milliseconds, between output metric reports.
+   */
+  private static final long METRICS_PERIOD = 60000L;
+
   private final ClientContext _clientContext;
   private final SessionContext _sessionContext;
   private final String _inputPipeName;
   private final String _outputPipeName;
-  private final BlockingQueue<FudgeMsgEnvelope> _outputMessageBuffer = new LinkedBlockingQueue<FudgeMsgEnvelope>();
-  private final ExecutorService _executor;
-
-  private FudgeStreamReader _inputPipe;
-  private FudgeStreamWriter _outputPipe;
+  private final String _sharedMemoryName;
+  private final ClientOutputQueue _outputMessageBuffer;
+  private final ClientExecutor.PerClientExecutor _executor;
+  private final AtomicLong _bytesWritten = new AtomicLong();
+  private final AtomicLong _flushes = new AtomicLong();
+  private final AtomicLong _flushNanos = new AtomicLong();
+  private final long _startTime = System.nanoTime();
+
+  private PipeReader _inputPipe;
+  private PipeReader _sharedInput;
+  private GatheringByteChannel _outputPipe;
   private volatile boolean _poisoned;
   private FudgeMsg _stashMessage;
+  private volatile QueryAvailableListener _queryAvailableListener;
 
   protected Client(final ClientContext clientContext, final String inputPipeName, final String outputPipeName, final SessionContext session) {
+    this(clientContext, inputPipeName, outputPipeName, null, session);
+  }
+
+  /**
+   * Creates a new client connection.
+   * 
+   * @param clientContext the client context, not null
+   * @param inputPipeName the pipe created for sending data from C++ to Java, not null
+   * @param outputPipeName the pipe created for sending data from Java to C++, not null
+   * @param sharedMemoryName the shared memory segment offered by the C++ client, null if none
+   * @param session the session context, not null
+   */
+  protected Client(final ClientContext clientContext, final String inputPipeName, final String outputPipeName, final String sharedMemoryName,
+      final SessionContext session) {
     _clientContext = clientContext;
     _sessionContext = session;
     _executor = clientContext.createExecutor();
+    _outputMessageBuffer = clientContext.createOutputQueue();
     _inputPipeName = inputPipeName;
     _outputPipeName = outputPipeName;
+    _sharedMemoryName = sharedMemoryName;
   }
 
   protected ClientContext getClientContext() {
@@ -81,6 +106,16 @@ public class Client implements Runnable {
     return _sessionContext;
   }
 
+  /**
+   * Sets the listener to be notified, through the session context, when the client's {@code QueryAvailable} messages are answered.
+   * This must be called before the client is run.
+   * 
+   * @param queryAvailableListener the listener, null for none
+   */
+  public void setQueryAvailableListener(final QueryAvailableListener queryAvailableListener) {
+    _queryAvailableListener = queryAvailableListener;
+  }
+
   private String getInputPipeName() {
     return _inputPipeName;
   }
@@ -89,22 +124,88 @@ public class Client implements Runnable {
     return _outputPipeName;
   }
 
-  private ExecutorService getExecutor() {
+  private String getSharedMemoryName() {
+    return _sharedMemoryName;
+  }
+
+  private ClientExecutor.PerClientExecutor getExecutor() {
     return _executor;
   }
 
-  private FudgeStreamReader getInputPipe() {
+  private PipeReader getInputPipe() {
     return _inputPipe;
   }
 
-  private FudgeStreamWriter getOutputPipe() {
+  private GatheringByteChannel getOutputPipe() {
     return _outputPipe;
   }
 
-  private BlockingQueue<FudgeMsgEnvelope> getOutputMessageBuffer() {
+  private ClientOutputQueue getOutputMessageBuffer() {
     return _outputMessageBuffer;
   }
 
+  /**
+   * Returns the number of messages waiting to be written to the client.
+   * 
+   * @return the queue depth
+   */
+  public int getOutputQueueDepth() {
+    return getOutputMessageBuffer().getDepth();
+  }
+
+  /**
+   * Returns the number of asynchronous messages discarded because the client was not reading them quickly enough.
+   * 
+   * @return the count
+   */
+  public long getOutputMessagesDropped() {
+    return getOutputMessageBuffer().getDropped();
+  }
+
+  /**
+   * Returns the mean rate data has been written to the client at since the connection was made.
+   * 
+   * @return the rate in bytes per second
+   */
+  public double getOutputBytesPerSecond() {
+    final long elapsed = System.nanoTime() - _startTime;
+    return (elapsed > 0) ? (double) _bytesWritten.get() * 1e9 / (double) elapsed : 0;
+  }
+
+  /**
+   * Returns the mean time taken to write and flush each batch of messages to the client.
+   * 
+   * @return the latency in milliseconds
+   */
+  public double getOutputFlushLatency() {
+    final long flushes = _flushes.get();
+    return (flushes > 0) ? (double) _flushNanos.get() / 1e6 / (double) flushes : 0;
+  }
+
+  /**
+   * Returns the number of user messages waiting for a dispatch thread.
+   * 
+   * @return the queue depth
+   */
+  public int getDispatchQueueDepth() {
+    return getExecutor().getQueueDepth();
+  }
+
+  /**
+   * Returns the mean time user messages have waited for a dispatch thread.
+   * 
+   * @return the wait time in milliseconds
+   */
+  public double getDispatchWaitTime() {
+    return getExecutor().getMeanWaitTime();
+  }
+
+  private void reportOutputMetrics() {
+    s_logger.info("Output queue depth {} (max {}), {} dropped, {} blocked, {} bytes/s, {}ms flush latency", new Object[] {getOutputQueueDepth(),
+      getOutputMessageBuffer().getMaxDepth(), getOutputMessagesDropped(), getOutputMessageBuffer().getBlocked(), (long) getOutputBytesPerSecond(),
+      getOutputFlushLatency() });
+  }
+
   private Runnable createPoisoner() {
     return new Runnable() {
       @Override
@@ -114,35 +215,75 @@ public class Client implements Runnable {
     };
   }
 
+  /**
+   * Creates the writer thread. Each pass takes everything that is queued, encodes it into pooled buffers and writes those to the pipe
+   * with one gathering write.
+   */
   private Runnable createMessageWriter() {
     return new Runnable() {
-      private final FudgeMsgWriter _writer = new FudgeMsgWriter(getOutputPipe());
+      private final ByteBufferDataOutput _buffer = new ByteBufferDataOutput();
+      private final FudgeMsgWriter _writer = new FudgeMsgWriter(getClientContext().getFudgeContext().createWriter((DataOutput) _buffer));
+      private final List<FudgeMsgEnvelope> _messages = new ArrayList<FudgeMsgEnvelope>();
+      private long _nextReport = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(METRICS_PERIOD);
+
+      private void flush() {
+        if (_buffer.size() == 0) {
+          return;
+        }
+        s_profilerFlush.begin();
+        final long start = System.nanoTime();
+        try {
+          final GatheringByteChannel out = getOutputPipe();
+          if (out != null) {
+            _bytesWritten.addAndGet(_buffer.writeTo(out));
+          }
+        } catch (final IOException e) {
+          s_logger.warn("Error writing to output pipe: {}", e.toString());
+        } finally {
+          final long end = System.nanoTime();
+          _flushNanos.addAndGet(end - start);
+          _flushes.incrementAndGet();
+          s_profilerFlush.end();
+          _buffer.reset();
+          if (end > _nextReport) {
+            reportOutputMetrics();
+            _nextReport = end + TimeUnit.MILLISECONDS.toNanos(METRICS_PERIOD);
+          }
+        }
+      }
 
       @Override
       public void run() {
         s_logger.info("Starting message writer thread");
-        while (true) {
-          FudgeMsgEnvelope msg;
+        boolean poisoned = false;
+        while (!poisoned) {
           try {
-            s_logger.debug("Waiting for message to write");
-            msg = getOutputMessageBuffer().take();
+            s_logger.debug("Waiting for message(s) to write");
+            getOutputMessageBuffer().drainTo(_messages);
           } catch (final InterruptedException e) {
             s_logger.warn("Interrupted receiving message from output queue");
             continue;
           }
-          if (msg.getMessage().getNumFields() > 0) {
-            try {
-              s_logger.debug("Writing message {}", msg);
-              _writer.writeMessageEnvelope(msg);
-            } catch (final Throwable t) {
-              s_logger.error("Exception during message write", t);
+          s_logger.debug("Writing {} message(s)", _messages.size());
+          for (final FudgeMsgEnvelope msg : _messages) {
+            if (msg.getMessage().getNumFields() > 0) {
+              try {
+                s_logger.debug("Writing message {}", msg);
+                _writer.writeMessageEnvelope(msg);
+              } catch (final Throwable t) {
+                s_logger.error("Exception during message write", t);
+              }
+            } else {
+              s_logger.info("Poison message found on output queue");
+              getOutputMessageBuffer().add(msg);
+              poisoned = true;
+              break;
             }
-          } else {
-            s_logger.info("Poison message found on output queue");
-            getOutputMessageBuffer().add(msg);
-            break;
           }
+          _messages.clear();
+          flush();
         }
+        reportOutputMetrics();
         s_logger.info("Message writer thread terminated");
       }
 
@@ -157,6 +298,16 @@ public class Client implements Runnable {
     getOutputMessageBuffer().add(new FudgeMsgEnvelope(msg, 0, MessageDirectives.USER));
   }
 
+  /**
+   * Sends a message that is not a response to the client. The message may be delayed or discarded if the client is not keeping up.
+   * 
+   * @param message the message to send, not null
+   */
+  protected void sendAsynchronousUserMessage(final UserMessage message) {
+    getOutputMessageBuffer().addAsynchronous(new FudgeMsgEnvelope(message.toFudgeMsg(new FudgeSerializer(getClientContext().getFudgeContext())), 0,
+        MessageDirectives.USER));
+  }
+
   protected SessionContextInitializationEventHandler getSessionInitializer() {
     return new SessionContextInitializationEventHandler() {
 
@@ -178,7 +329,7 @@ public class Client implements Runnable {
 
           @Override
           public void send(final UserMessagePayload payload) {
-            sendUserMessage(new UserMessage(payload));
+            sendAsynchronousUserMessage(new UserMessage(payload));
           }
 
           @Override
@@ -199,6 +350,10 @@ public class Client implements Runnable {
             setStashMessage(message);
           }
         });
+        final QueryAvailableListener queryAvailableListener = _queryAvailableListener;
+        if (queryAvailableListener != null) {
+          context.setQueryAvailableListener(queryAvailableListener);
+        }
       }
 
       @Override
@@ -247,13 +402,17 @@ public class Client implements Runnable {
     try {
       boolean contextInitialized = false;
       Queue<Runnable> deferredMessages = null;
-      @SuppressWarnings("resource" /* pipe gets closed during disconnect call, don't want it closed when reader falls out of scope */)
-      final FudgeMsgReader reader = new FudgeMsgReader(getInputPipe());
+      PipeReader reader = getInputPipe();
       final FudgeDeserializer deserializer = new FudgeDeserializer(getClientContext().getFudgeContext());
       s_logger.info("Starting message read loop");
-      while (!_poisoned && reader.hasNext()) {
-        final FudgeMsgEnvelope messageEnvelope = reader.nextMessageEnvelope();
+      FudgeMsgEnvelope messageEnvelope;
+      while (!_poisoned && ((messageEnvelope = reader.read()) != null)) {
         watchdog.stillAlive();
+        if (_sharedInput != null) {
+          // The first message comes through the pipe; everything after it is in the shared memory segment
+          reader = _sharedInput;
+          _sharedInput = null;
+        }
         switch (messageEnvelope.getProcessingDirectives()) {
           case MessageDirectives.USER: {
             final Runnable dispatch = dispatchUserMessage(messageEnvelope.getMessage());
@@ -305,6 +464,9 @@ public class Client implements Runnable {
         }
         s_logger.debug("Waiting for Fudge message");
       }
+    } catch (final IOException e) {
+      s_logger.warn("Error reading message {}", e.toString());
+      s_logger.debug("Caught exception", e);
     } catch (final FudgeRuntimeIOException e) {
       s_logger.warn("Error reading message {}", e.toString());
       s_logger.debug("Caught exception", e);
@@ -331,21 +493,51 @@ public class Client implements Runnable {
     s_logger.debug("Session context destroyed");
   }
 
+  /**
+   * Attaches to the shared memory segment offered by the client, if there is one. This must happen before the pipes are opened as the
+   * client checks whether it was accepted once its first write to the pipe has succeeded.
+   * 
+   * @return the segment, or null to use the pipes for data
+   */
+  private SharedMemoryRings acceptSharedMemory() {
+    if (getSharedMemoryName() == null) {
+      return null;
+    }
+    s_logger.debug("Attaching to shared memory: {}", getSharedMemoryName());
+    try {
+      final SharedMemoryRings sharedMemory = SharedMemoryRings.open(getSharedMemoryName());
+      sharedMemory.accept();
+      s_logger.info("Using shared memory {} with {} byte rings", getSharedMemoryName(), sharedMemory.getRingSize());
+      return sharedMemory;
+    } catch (final IOException e) {
+      s_logger.warn("Couldn't attach to shared memory: {} ({}), using pipes", getSharedMemoryName(), e.toString());
+      return null;
+    }
+  }
+
   private boolean connectPipes() {
+    final SharedMemoryRings sharedMemory = acceptSharedMemory();
     s_logger.debug("Connecting to input pipe: {}", getInputPipeName());
     try {
-      // Go via the File channel so that it is interruptible. This might not be necessary on all JVMs
-      // but just using a FileInputStream was not releasing the blocked reader thread on my Linux workstation
-      // at pipe closure.
-      _inputPipe = getClientContext().getFudgeContext().createReader(
-          (DataInput) new DataInputStream(new BufferedInputStream(new InputStreamWrapper(Channels.newInputStream(new FileInputStream(getInputPipeName()).getChannel())))));
+      // Read from the File channel so that it is interruptible. Just using a FileInputStream was not releasing the
+      // blocked reader thread on Linux at pipe closure.
+      final FileChannel in = new FileInputStream(getInputPipeName()).getChannel();
+      _inputPipe = new PipeReader(getClientContext().getFudgeContext(), in);
+      if (sharedMemory != null) {
+        _sharedInput = new PipeReader(getClientContext().getFudgeContext(), sharedMemory.openReader(SharedMemoryRings.CPP_TO_JAVA, in));
+      }
     } catch (final FileNotFoundException e) {
       s_logger.warn("Couldn't connect to pipe: {} ({})", getInputPipeName(), e.toString());
       return false;
     }
     s_logger.debug("Connecting to output pipe: {}", getOutputPipeName());
     try {
-      _outputPipe = getClientContext().getFudgeContext().createWriter((DataOutput) new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getOutputPipeName()))));
+      final FileChannel out = new FileOutputStream(getOutputPipeName()).getChannel();
+      if (sharedMemory != null) {
+        _outputPipe = sharedMemory.openWriter(SharedMemoryRings.JAVA_TO_CPP, out);
+      } else {
+        _outputPipe = out;
+      }
     } catch (final FileNotFoundException e) {
       s_logger.warn("Couldn't connect to pipe: {} ({})", getOutputPipeName(), e.toString());
     }
@@ -358,15 +550,15 @@ public class Client implements Runnable {
   }
 
   private void disconnectPipes() {
-    final FudgeStreamReader in = getInputPipe();
+    final PipeReader in = getInputPipe();
     _inputPipe = null;
-    final FudgeStreamWriter out = getOutputPipe();
+    final GatheringByteChannel out = getOutputPipe();
     _outputPipe = null;
     if (in != null) {
       try {
         s_logger.debug("Closing input pipe");
         in.close();
-      } catch (final FudgeRuntimeIOException e) {
+      } catch (final IOException e) {
         s_logger.warn("Error closing input pipe: {}", e.toString());
       }
     }
@@ -374,7 +566,7 @@ public class Client implements Runnable {
       try {
         s_logger.debug("Closing output pipe");
         out.close();
-      } catch (final FudgeRuntimeIOException e) {
+      } catch (final IOException e) {
         s_logger.warn("Error closing output pipe: {}", e.toString());
       }
     }
@@ -391,12 +583,14 @@ public class Client implements Runnable {
   }
 
   private Runnable dispatchUserMessage(final FudgeMsg msg) {
-    return new Runnable() {
+    final Runnable dispatch = new Runnable() {
       @Override
       public void run() {
         doDispatchUserMessage(msg);
       }
     };
+    // Nothing is waiting for the result of a message without a handle, so let messages that are being waited on go first
+    return msg.hasField(UserMessage.HANDLE_ORDINAL) ? dispatch : ClientExecutor.withPriority(dispatch, ClientExecutor.Priority.BULK);
   }
 
   private void initializeContext(final FudgeMsg stash, final Queue<Runnable> deferredDispatches) {
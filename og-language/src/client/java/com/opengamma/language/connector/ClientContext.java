@@ -5,7 +5,6 @@
  */
 package com.opengamma.language.connector;
 
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.fudgemsg.FudgeContext;
@@ -20,6 +19,11 @@ import com.opengamma.util.ArgumentChecker;
  */
 public final class ClientContext {
 
+  /**
+   * Default maximum number of asynchronous messages queued for a client.
+   */
+  public static final int DEFAULT_OUTPUT_HIGH_WATER_MARK = 10000;
+
   private final FudgeContext _fudgeContext;
   private final ScheduledExecutorService _housekeepingScheduler;
   private final ClientExecutor _executor;
@@ -28,10 +32,19 @@ public final class ClientContext {
   private final int _terminationTimeout;
   private final FudgeMsgEnvelope _heartbeatMessage;
   private final UserMessagePayloadVisitor<UserMessagePayload, SessionContext> _messageHandler;
+  private final int _outputHighWaterMark;
+  private final boolean _dropOldestOutput;
 
   public ClientContext(final FudgeContext fudgeContext, final ScheduledExecutorService housekeepingScheduler,
       final ClientExecutor executor, final int messageTimeout, final int heartbeatTimeout,
       final int terminationTimeout, final UserMessagePayloadVisitor<UserMessagePayload, SessionContext> messageHandler) {
+    this(fudgeContext, housekeepingScheduler, executor, messageTimeout, heartbeatTimeout, terminationTimeout, messageHandler, DEFAULT_OUTPUT_HIGH_WATER_MARK, false);
+  }
+
+  public ClientContext(final FudgeContext fudgeContext, final ScheduledExecutorService housekeepingScheduler,
+      final ClientExecutor executor, final int messageTimeout, final int heartbeatTimeout,
+      final int terminationTimeout, final UserMessagePayloadVisitor<UserMessagePayload, SessionContext> messageHandler,
+      final int outputHighWaterMark, final boolean dropOldestOutput) {
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
     ArgumentChecker.notNull(housekeepingScheduler, "housekeepingScheduler");
     ArgumentChecker.notNull(executor, "executor");
@@ -45,6 +58,8 @@ public final class ClientContext {
     _heartbeatMessage = new FudgeMsgEnvelope(new ConnectorMessage(ConnectorMessage.Operation.HEARTBEAT)
         .toFudgeMsg(new FudgeSerializer(fudgeContext)), 0, MessageDirectives.CLIENT);
     _messageHandler = messageHandler;
+    _outputHighWaterMark = outputHighWaterMark;
+    _dropOldestOutput = dropOldestOutput;
   }
 
   public FudgeContext getFudgeContext() {
@@ -55,10 +70,22 @@ public final class ClientContext {
     return _housekeepingScheduler;
   }
 
-  public ExecutorService createExecutor() {
+  public ClientExecutor.PerClientExecutor createExecutor() {
     return _executor.createClientExecutor();
   }
 
+  public ClientOutputQueue createOutputQueue() {
+    return new ClientOutputQueue(getOutputHighWaterMark(), isDropOldestOutput(), getMessageTimeout());
+  }
+
+  public int getOutputHighWaterMark() {
+    return _outputHighWaterMark;
+  }
+
+  public boolean isDropOldestOutput() {
+    return _dropOldestOutput;
+  }
+
   public int getMessageTimeout() {
     return _messageTimeout;
   }
@@ -61,6 +61,17 @@ public final class ClientContextFactoryBean implements ClientContextFactory, Ini
    */
   private int _maxClientThreads;
 
+  /**
+   * Maximum number of asynchronous messages (i.e. not responses to the client) that can be queued for writing to a client.
+   */
+  private int _outputHighWaterMark;
+
+  /**
+   * Whether to discard the oldest asynchronous message when the output high-water mark is reached. If false, the sender is blocked
+   * until there is space (or the message timeout elapses).
+   */
+  private boolean _dropOldestOutput;
+
   /**
    * Message handler.
    */
@@ -86,6 +97,8 @@ public final class ClientContextFactoryBean implements ClientContextFactory, Ini
     setTerminationTimeout(30000);
     setMaxThreadsPerClient(Math.max(2, Runtime.getRuntime().availableProcessors()));
     setMaxClientThreads(Integer.MAX_VALUE);
+    setOutputHighWaterMark(ClientContext.DEFAULT_OUTPUT_HIGH_WATER_MARK);
+    setDropOldestOutput(false);
     // messageHandler defaults to null and must be set
   }
 
@@ -98,6 +111,8 @@ public final class ClientContextFactoryBean implements ClientContextFactory, Ini
     setTerminationTimeout(copyFrom.getTerminationTimeout());
     setMaxThreadsPerClient(copyFrom.getMaxThreadsPerClient());
     setMaxClientThreads(copyFrom.getMaxClientThreads());
+    setOutputHighWaterMark(copyFrom.getOutputHighWaterMark());
+    setDropOldestOutput(copyFrom.isDropOldestOutput());
     setMessageHandler(copyFrom.getMessageHandler());
     setClientExecutor(copyFrom.getClientExecutor());
   }
@@ -163,6 +178,23 @@ public final class ClientContextFactoryBean implements ClientContextFactory, Ini
     return _maxClientThreads;
   }
 
+  public void setOutputHighWaterMark(final int outputHighWaterMark) {
+    ArgumentChecker.notNegativeOrZero(outputHighWaterMark, "outputHighWaterMark");
+    _outputHighWaterMark = outputHighWaterMark;
+  }
+
+  public int getOutputHighWaterMark() {
+    return _outputHighWaterMark;
+  }
+
+  public void setDropOldestOutput(final boolean dropOldestOutput) {
+    _dropOldestOutput = dropOldestOutput;
+  }
+
+  public boolean isDropOldestOutput() {
+    return _dropOldestOutput;
+  }
+
   public void setMessageHandler(final UserMessagePayloadVisitor<UserMessagePayload, SessionContext> visitor) {
     ArgumentChecker.notNull(visitor, "visitor");
     _messageHandler = visitor;
@@ -197,7 +229,8 @@ public final class ClientContextFactoryBean implements ClientContextFactory, Ini
 
   @Override
   public ClientContext createClientContext() {
-    return new ClientContext(getFudgeContext(), getHousekeepingScheduler(), getClientExecutor(), getMessageTimeout(), getHeartbeatTimeout(), getTerminationTimeout(), getMessageHandler());
+    return new ClientContext(getFudgeContext(), getHousekeepingScheduler(), getClientExecutor(), getMessageTimeout(), getHeartbeatTimeout(), getTerminationTimeout(), getMessageHandler(),
+        getOutputHighWaterMark(), isDropOldestOutput());
   }
 
 }
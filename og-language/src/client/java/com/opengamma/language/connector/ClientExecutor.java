@@ -6,37 +6,96 @@
 
 package com.opengamma.language.connector;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.AbstractExecutorService;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
-import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Creates {@link ExecutorService} instances that limit the number of threads they create to a "per-client" threshold
  * and a "per-system" threshold. If there are reasons for limiting the number of threads the process should start the
  * system threshold should be used. If the service is shared by a number of clients, and a level of "fairness" is
  * required then a client threshold will prevent any one from saturating the system with requests.
+ * <p>
+ * Thread slots are counted with atomic counters rather than shared monitors. A client that cannot get a slot because the
+ * system threshold has been reached joins a queue of waiting clients; when a command completes while other clients are waiting,
+ * the thread is handed to the next waiting client rather than continuing with its own client's work, so the waiting clients
+ * are served round-robin. Within a client, commands submitted with {@link #withPriority} are run ahead of lower priority ones.
  */
 public final class ClientExecutor {
 
   private static final Logger s_logger = LoggerFactory.getLogger(ClientExecutor.class);
 
+  /**
+   * Number of higher priority commands that may be run in a row before a waiting lower priority command is allowed to run.
+   */
+  private static final int MAX_PRIORITY_SKIP = 8;
+
+  /**
+   * Command priorities, highest first.
+   */
+  public static enum Priority {
+    /**
+     * Commands that a caller is waiting on.
+     */
+    INTERACTIVE,
+    /**
+     * Commands that can be deferred in favor of interactive ones.
+     */
+    BULK;
+  }
+
+  private static final Priority[] PRIORITIES = Priority.values();
+
+  private static final class PrioritizedCommand implements Runnable {
+
+    private final Runnable _command;
+    private final Priority _priority;
+
+    public PrioritizedCommand(final Runnable command, final Priority priority) {
+      _command = command;
+      _priority = priority;
+    }
+
+    @Override
+    public void run() {
+      _command.run();
+    }
+
+  }
+
+  private static final class Task {
+
+    private final Runnable _command;
+    private final long _queued = System.nanoTime();
+
+    public Task(final Runnable command) {
+      _command = command;
+    }
+
+  }
+
   private final int _maxThreadsPerClient;
   private final int _maxThreads;
-  private final Executor _executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("Dispatch-"));
-  private final Queue<Pair<PerClientExecutor, Runnable>> _commands = new LinkedList<Pair<PerClientExecutor, Runnable>>();
-
-  private int _activeThreads;
+  private final ExecutorService _executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("Dispatch-"));
+  private final AtomicInteger _activeThreads = new AtomicInteger();
+  private final Queue<PerClientExecutor> _waitingClients = new ConcurrentLinkedQueue<PerClientExecutor>();
 
   /* package */ClientExecutor(final int maxThreadsPerClient, final int maxThreads) {
     _maxThreadsPerClient = maxThreadsPerClient;
@@ -51,104 +110,240 @@ public final class ClientExecutor {
     return _maxThreads;
   }
 
-  private class PerClientExecutor extends AbstractExecutorService {
+  /**
+   * Returns the number of threads currently running commands for all clients.
+   *
+   * @return the thread count
+   */
+  public int getActiveThreads() {
+    return _activeThreads.get();
+  }
 
-    private final Queue<Runnable> _clientCommands = new LinkedList<Runnable>();
-    private int _activeClientThreads;
-    private int _activeCommands;
-    private int _waitingTermination;
-    private volatile boolean _poisoned;
+  /**
+   * Associates a priority with a command. If the command is passed to an executor it will be run ahead of any queued commands of
+   * a lower priority. Commands without an explicit priority are {@link Priority#INTERACTIVE}.
+   *
+   * @param command the command, not null
+   * @param priority the priority, not null
+   * @return the command to pass to the executor, not null
+   */
+  public static Runnable withPriority(final Runnable command, final Priority priority) {
+    ArgumentChecker.notNull(command, "command");
+    ArgumentChecker.notNull(priority, "priority");
+    return new PrioritizedCommand(command, priority);
+  }
 
-    private class RunFirst implements Runnable {
+  private static boolean tryAcquire(final AtomicInteger counter, final int limit) {
+    int count;
+    do {
+      count = counter.get();
+      if (count >= limit) {
+        return false;
+      }
+    } while (!counter.compareAndSet(count, count + 1));
+    return true;
+  }
 
-      private final Runnable _command;
+  /**
+   * Returns a system thread slot, passing it on to clients that are waiting for one.
+   */
+  private void releaseThread() {
+    _activeThreads.decrementAndGet();
+    startWaitingClients();
+  }
 
-      public RunFirst(final Runnable command) {
-        _command = command;
+  private void startWaitingClients() {
+    PerClientExecutor client;
+    while ((client = _waitingClients.poll()) != null) {
+      client._waiting.set(false);
+      if (!client.schedule()) {
+        // System limit reached again; the client has re-queued itself
+        return;
       }
+    }
+  }
+
+  /**
+   * Executor for a single client.
+   */
+  public final class PerClientExecutor extends AbstractExecutorService {
+
+    private final Queue<Task>[] _queues;
+    private final AtomicInteger _queued = new AtomicInteger();
+    private final AtomicInteger _activeClientThreads = new AtomicInteger();
+    private final AtomicInteger _activeCommands = new AtomicInteger();
+    private final AtomicInteger _waitingTermination = new AtomicInteger();
+    private final AtomicInteger _prioritySkip = new AtomicInteger();
+    private final AtomicBoolean _waiting = new AtomicBoolean();
+    private final AtomicLong _commandsStarted = new AtomicLong();
+    private final AtomicLong _totalWaitNanos = new AtomicLong();
+    private final AtomicLong _maxWaitNanos = new AtomicLong();
+    private final Set<Thread> _threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+    private volatile boolean _poisoned;
+
+    private final class Worker implements Runnable {
 
       @Override
       public void run() {
+        final Thread thread = Thread.currentThread();
+        _threads.add(thread);
         try {
-          s_logger.debug("Running command for client {}", PerClientExecutor.this);
-          _command.run();
-        } catch (Throwable t) {
-          s_logger.error("Exception thrown by command", t);
-        }
-        synchronized (ClientExecutor.this) {
-          synchronized (PerClientExecutor.this) {
-            if ((--_activeCommands == 0) && (_waitingTermination > 0)) {
-              PerClientExecutor.this.notifyAll();
+          do {
+            final Task task = poll();
+            if (task == null) {
+              _activeClientThreads.decrementAndGet();
+              // A command may have been queued after the poll but before the client slot was released
+              if ((_queued.get() > 0) && tryAcquire(_activeClientThreads, getMaxThreadsPerClient())) {
+                continue;
+              }
+              s_logger.debug("No more commands for client {}", PerClientExecutor.this);
+              releaseThread();
+              return;
             }
-            if (_clientCommands.isEmpty()) {
-              _activeClientThreads--;
-              respawnOrDecrementGlobalThreadCount();
-            } else {
-              s_logger.debug("Running queued commands for client {}", PerClientExecutor.this);
-              _executor.execute(new RunRemaining());
+            runTask(task);
+            if (!_waitingClients.isEmpty()) {
+              s_logger.debug("Releasing thread from client {} to waiting clients", PerClientExecutor.this);
+              _activeClientThreads.decrementAndGet();
+              releaseThread();
+              schedule();
+              return;
             }
-          }
+          } while (true);
+        } finally {
+          _threads.remove(thread);
+          // Don't let an interrupt from shutdownNow leak into the thread's next use
+          Thread.interrupted();
         }
       }
 
     }
 
-    // Caller must hold both monitors
-    private void respawnOrDecrementGlobalThreadCount() {
-      Pair<PerClientExecutor, Runnable> command = _commands.poll();
-      while (command != null) {
-        synchronized (command.getFirst()) {
-          if (command.getFirst()._activeClientThreads < getMaxThreadsPerClient()) {
-            // Transfer the execution slot to the other client
-            s_logger.debug("Releasing thread to client {}", command.getFirst());
-            command.getFirst()._activeClientThreads++;
-            _executor.execute(command.getFirst().new RunFirst(command.getSecond()));
-            return;
+    @SuppressWarnings("unchecked")
+    private PerClientExecutor() {
+      _queues = new Queue[PRIORITIES.length];
+      for (int i = 0; i < _queues.length; i++) {
+        _queues[i] = new ConcurrentLinkedQueue<Task>();
+      }
+    }
+
+    private Task poll() {
+      Task task;
+      if (_prioritySkip.get() >= MAX_PRIORITY_SKIP) {
+        // Let the longest waiting lower priority command through
+        _prioritySkip.set(0);
+        for (int i = _queues.length; --i >= 0;) {
+          task = _queues[i].poll();
+          if (task != null) {
+            _queued.decrementAndGet();
+            return task;
+          }
+        }
+        return null;
+      }
+      for (int i = 0; i < _queues.length; i++) {
+        task = _queues[i].poll();
+        if (task != null) {
+          _queued.decrementAndGet();
+          if ((i == 0) && (_queued.get() > 0)) {
+            _prioritySkip.incrementAndGet();
           } else {
-            // There is at least one thread running for the client, so put in its queue
-            s_logger.debug("Passing command from global queue to queue for client {}", command.getFirst());
-            command.getFirst()._clientCommands.add(command.getSecond());
-            command = _commands.poll();
+            _prioritySkip.set(0);
           }
+          return task;
         }
       }
-      // No global tasks left
-      s_logger.debug("No commands left in global queue");
-      _activeThreads--;
+      return null;
     }
 
-    private class RunRemaining implements Runnable {
+    private void runTask(final Task task) {
+      final long wait = System.nanoTime() - task._queued;
+      _commandsStarted.incrementAndGet();
+      _totalWaitNanos.addAndGet(wait);
+      long max = _maxWaitNanos.get();
+      while ((wait > max) && !_maxWaitNanos.compareAndSet(max, wait)) {
+        max = _maxWaitNanos.get();
+      }
+      try {
+        s_logger.debug("Running command for client {}", this);
+        task._command.run();
+      } catch (Throwable t) {
+        s_logger.error("Exception thrown by command", t);
+      }
+      commandComplete(1);
+    }
 
-      @Override
-      public void run() {
-        Runnable command = null;
-        do {
-          synchronized (ClientExecutor.this) {
-            synchronized (PerClientExecutor.this) {
-              if (command != null) {
-                // Don't do this on the first time round the loop
-                if ((--_activeCommands == 0) && (_waitingTermination > 0)) {
-                  PerClientExecutor.this.notifyAll();
-                }
-              }
-              command = _clientCommands.poll();
-              if (command == null) {
-                s_logger.debug("No more deferred commands for client {}", PerClientExecutor.this);
-                _activeClientThreads--;
-                respawnOrDecrementGlobalThreadCount();
-                return;
-              }
-            }
-          }
-          try {
-            s_logger.debug("Running deferred command for client {}", PerClientExecutor.this);
-            command.run();
-          } catch (Throwable t) {
-            s_logger.error("Exception thrown by command", t);
-          }
-        } while (true);
+    private void commandComplete(final int count) {
+      if ((_activeCommands.addAndGet(-count) == 0) && (_waitingTermination.get() > 0)) {
+        synchronized (this) {
+          notifyAll();
+        }
       }
+    }
 
+    /**
+     * Starts a worker thread for this client if there are queued commands and the thresholds allow it.
+     *
+     * @return false if the client is waiting for the system threshold, true otherwise
+     */
+    private boolean schedule() {
+      while (_queued.get() > 0) {
+        if (!tryAcquire(_activeClientThreads, getMaxThreadsPerClient())) {
+          // An existing thread will pick up the command
+          return true;
+        }
+        if (tryAcquire(_activeThreads, getMaxThreads())) {
+          _executor.execute(new Worker());
+          return true;
+        }
+        _activeClientThreads.decrementAndGet();
+        s_logger.debug("Total thread limit exceeded, queuing client {}", this);
+        if (_waiting.compareAndSet(false, true)) {
+          _waitingClients.add(this);
+        }
+        // A slot may have been released before the client was added to the waiting queue
+        if (_activeThreads.get() < getMaxThreads()) {
+          startWaitingClients();
+        }
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Returns the number of commands waiting for a thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+      return _queued.get();
+    }
+
+    /**
+     * Returns the number of threads currently running commands for this client.
+     *
+     * @return the thread count
+     */
+    public int getActiveThreads() {
+      return _activeClientThreads.get();
+    }
+
+    /**
+     * Returns the mean time commands have waited for a thread.
+     *
+     * @return the wait time in milliseconds
+     */
+    public double getMeanWaitTime() {
+      final long commands = _commandsStarted.get();
+      return (commands > 0) ? (double) _totalWaitNanos.get() / 1e6 / (double) commands : 0;
+    }
+
+    /**
+     * Returns the longest time a command has waited for a thread.
+     *
+     * @return the wait time in milliseconds
+     */
+    public double getMaxWaitTime() {
+      return (double) _maxWaitNanos.get() / 1e6;
     }
 
     @Override
@@ -158,40 +353,36 @@ public final class ClientExecutor {
         return;
       }
       s_logger.debug("Executing command for {}", this);
-      synchronized (ClientExecutor.this) {
-        synchronized (this) {
-          _activeCommands++;
-          if (_activeClientThreads < getMaxThreadsPerClient()) {
-            _activeClientThreads++;
-            if (_activeThreads < getMaxThreads()) {
-              _activeThreads++;
-              _executor.execute(new RunFirst(command));
-            } else {
-              _activeClientThreads--;
-              s_logger.debug("Total thread limit exceeded, queuing command for {}", this);
-              _commands.add(Pair.of(this, command));
-            }
-          } else {
-            s_logger.debug("Client thread limit exceeded, queuing command for {}", this);
-            _clientCommands.add(command);
-          }
-          s_logger.debug("Active client threads {}, total active threads {}", _activeClientThreads, _activeThreads);
-        }
+      final Task task;
+      final Priority priority;
+      if (command instanceof PrioritizedCommand) {
+        final PrioritizedCommand prioritized = (PrioritizedCommand) command;
+        task = new Task(prioritized._command);
+        priority = prioritized._priority;
+      } else {
+        task = new Task(command);
+        priority = Priority.INTERACTIVE;
       }
+      _activeCommands.incrementAndGet();
+      _queued.incrementAndGet();
+      _queues[priority.ordinal()].add(task);
+      schedule();
     }
 
     @Override
-    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
-      _waitingTermination++;
-      try {
-        timeout = unit.toMillis(timeout);
-        long tWaitUntil = System.currentTimeMillis() + timeout;
-        while (((_activeClientThreads > 0) || !_clientCommands.isEmpty()) && (System.currentTimeMillis() < tWaitUntil)) {
-          wait(timeout);
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+      final long waitUntil = System.currentTimeMillis() + unit.toMillis(timeout);
+      synchronized (this) {
+        _waitingTermination.incrementAndGet();
+        try {
+          long wait;
+          while ((_activeCommands.get() > 0) && ((wait = waitUntil - System.currentTimeMillis()) > 0)) {
+            wait(wait);
+          }
+          return _activeCommands.get() == 0;
+        } finally {
+          _waitingTermination.decrementAndGet();
         }
-        return (_activeClientThreads == 0) && _clientCommands.isEmpty();
-      } finally {
-        _waitingTermination--;
       }
     }
 
@@ -202,7 +393,7 @@ public final class ClientExecutor {
 
     @Override
     public boolean isTerminated() {
-      throw new UnsupportedOperationException();
+      return _poisoned && (_activeCommands.get() == 0);
     }
 
     @Override
@@ -212,12 +403,27 @@ public final class ClientExecutor {
 
     @Override
     public List<Runnable> shutdownNow() {
-      throw new UnsupportedOperationException();
+      _poisoned = true;
+      final List<Runnable> commands = new ArrayList<Runnable>();
+      for (Queue<Task> queue : _queues) {
+        Task task;
+        while ((task = queue.poll()) != null) {
+          _queued.decrementAndGet();
+          commands.add(task._command);
+        }
+      }
+      for (Thread thread : _threads) {
+        thread.interrupt();
+      }
+      if (!commands.isEmpty()) {
+        commandComplete(commands.size());
+      }
+      return commands;
     }
 
   }
 
-  /* package */ExecutorService createClientExecutor() {
+  /* package */PerClientExecutor createClientExecutor() {
     return new PerClientExecutor();
   }
 
@@ -39,7 +39,21 @@ public class ClientFactory {
 
   public Client createClient(final String inputPipeName, final String outputPipeName,
       final SessionContext sessionContext) {
-    return new Client(getClientContext(), inputPipeName, outputPipeName, sessionContext);
+    return createClient(inputPipeName, outputPipeName, null, sessionContext);
+  }
+
+  /**
+   * Creates a client for a new connection.
+   * 
+   * @param inputPipeName the pipe created for sending data from C++ to Java
+   * @param outputPipeName the pipe created for sending data from Java to C++
+   * @param sharedMemoryName the shared memory segment offered by the C++ client, null if none
+   * @param sessionContext the session context for the connection
+   * @return the client
+   */
+  public Client createClient(final String inputPipeName, final String outputPipeName, final String sharedMemoryName,
+      final SessionContext sessionContext) {
+    return new Client(getClientContext(), inputPipeName, outputPipeName, sharedMemoryName, sessionContext);
   }
 
 }
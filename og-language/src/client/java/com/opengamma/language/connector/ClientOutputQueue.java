@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of messages waiting to be written to the C++ client.
+ * <p>
+ * Messages are either essential (responses to the client's requests and connector messages) or asynchronous (messages posted to the client
+ * that it is not waiting for). Messages are written in the order they were queued. Essential messages are never discarded or delayed; when
+ * the number of queued asynchronous messages has reached the high-water mark, an essential message is queued ahead of the asynchronous
+ * backlog (but behind any earlier essential messages) rather than waiting for it to be written. Further asynchronous messages either block
+ * the caller until the writer catches up, or cause the oldest asynchronous message to be discarded. Discarded messages are counted and
+ * reported in the log each time the queue is drained.
+ */
+public final class ClientOutputQueue {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ClientOutputQueue.class);
+
+  private final Lock _lock = new ReentrantLock();
+  private final Condition _notEmpty = _lock.newCondition();
+  private final Condition _notFull = _lock.newCondition();
+  private final LinkedList<Entry> _queue = new LinkedList<Entry>();
+  private final int _highWaterMark;
+  private final boolean _dropOldest;
+  private final long _blockTimeoutMillis;
+  private int _asynchronous;
+  private int _maxDepth;
+  private long _dropped;
+  private int _droppedSinceDrain;
+  private long _blocked;
+
+  /**
+   * Creates a new queue.
+   *
+   * @param highWaterMark the maximum number of asynchronous messages to hold
+   * @param dropOldest true to discard the oldest asynchronous message when the high-water mark is reached, false to block the caller
+   * @param blockTimeoutMillis the maximum time to block a caller for before discarding its message
+   */
+  public ClientOutputQueue(final int highWaterMark, final boolean dropOldest, final long blockTimeoutMillis) {
+    _highWaterMark = highWaterMark;
+    _dropOldest = dropOldest;
+    _blockTimeoutMillis = blockTimeoutMillis;
+  }
+
+  private static final class Entry {
+
+    private final FudgeMsgEnvelope _message;
+    private final boolean _asynchronous;
+
+    public Entry(final FudgeMsgEnvelope message, final boolean asynchronous) {
+      _message = message;
+      _asynchronous = asynchronous;
+    }
+
+  }
+
+  private boolean isFull() {
+    return _asynchronous >= _highWaterMark;
+  }
+
+  private void updateDepth() {
+    final int depth = _queue.size();
+    if (depth > _maxDepth) {
+      _maxDepth = depth;
+    }
+  }
+
+  private void dropped() {
+    _dropped++;
+    _droppedSinceDrain++;
+  }
+
+  /**
+   * Adds an essential message to the queue. This never blocks.
+   *
+   * @param message the message to add, not null
+   */
+  public void add(final FudgeMsgEnvelope message) {
+    final Entry entry = new Entry(message, false);
+    _lock.lock();
+    try {
+      if (isFull()) {
+        // Queue behind the last essential message, ahead of the asynchronous backlog
+        final ListIterator<Entry> itr = _queue.listIterator(_queue.size());
+        while (itr.hasPrevious()) {
+          if (!itr.previous()._asynchronous) {
+            itr.next();
+            break;
+          }
+        }
+        itr.add(entry);
+      } else {
+        _queue.add(entry);
+      }
+      updateDepth();
+      _notEmpty.signal();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Adds an asynchronous message to the queue, applying the overflow policy if the high-water mark has been reached.
+   *
+   * @param message the message to add, not null
+   */
+  public void addAsynchronous(final FudgeMsgEnvelope message) {
+    _lock.lock();
+    try {
+      if (isFull()) {
+        if (_dropOldest) {
+          final Iterator<Entry> itr = _queue.iterator();
+          while (itr.hasNext()) {
+            if (itr.next()._asynchronous) {
+              itr.remove();
+              _asynchronous--;
+              break;
+            }
+          }
+          dropped();
+          s_logger.debug("Discarded oldest asynchronous message");
+        } else {
+          _blocked++;
+          long nanos = TimeUnit.MILLISECONDS.toNanos(_blockTimeoutMillis);
+          while (isFull()) {
+            if (nanos <= 0) {
+              dropped();
+              s_logger.warn("Timeout waiting for output queue space, discarding message");
+              return;
+            }
+            try {
+              nanos = _notFull.awaitNanos(nanos);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              dropped();
+              s_logger.warn("Interrupted waiting for output queue space, discarding message");
+              return;
+            }
+          }
+        }
+      }
+      _queue.add(new Entry(message, true));
+      _asynchronous++;
+      updateDepth();
+      _notEmpty.signal();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all queued messages, in the order they are to be written, waiting for at least one to be available.
+   *
+   * @param messages the collection to add the messages to, not null
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void drainTo(final Collection<FudgeMsgEnvelope> messages) throws InterruptedException {
+    final int dropped;
+    _lock.lock();
+    try {
+      while (_queue.isEmpty()) {
+        _notEmpty.await();
+      }
+      for (Entry entry : _queue) {
+        messages.add(entry._message);
+      }
+      _queue.clear();
+      _asynchronous = 0;
+      dropped = _droppedSinceDrain;
+      _droppedSinceDrain = 0;
+      _notFull.signalAll();
+    } finally {
+      _lock.unlock();
+    }
+    if (dropped > 0) {
+      s_logger.warn("Discarded {} asynchronous messages while the output queue was full", dropped);
+    }
+  }
+
+  public boolean isEmpty() {
+    _lock.lock();
+    try {
+      return _queue.isEmpty();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of messages currently queued.
+   *
+   * @return the queue depth
+   */
+  public int getDepth() {
+    _lock.lock();
+    try {
+      return _queue.size();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the largest number of messages that have been queued at once.
+   *
+   * @return the maximum queue depth
+   */
+  public int getMaxDepth() {
+    _lock.lock();
+    try {
+      return _maxDepth;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of asynchronous messages that have been discarded.
+   *
+   * @return the count
+   */
+  public long getDropped() {
+    _lock.lock();
+    try {
+      return _dropped;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of times a caller has been blocked because the high-water mark was reached.
+   *
+   * @return the count
+   */
+  public long getBlocked() {
+    _lock.lock();
+    try {
+      return _blocked;
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+}
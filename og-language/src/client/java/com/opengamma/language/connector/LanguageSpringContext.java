@@ -91,19 +91,28 @@ public class LanguageSpringContext {
    */
   public static GenericApplicationContext createSpringContext() {
     s_logger.info("Starting OpenGamma language integration service");
+    long time = System.nanoTime();
     GenericApplicationContext context = new GenericApplicationContext();
     final XmlBeanDefinitionReader xmlReader = new XmlBeanDefinitionReader(context);
     xmlReader.loadBeanDefinitions(new ClassPathResource(CLIENT_XML));
     String[] xmlFiles = findSpringXmlConfig();
     xmlReader.loadBeanDefinitions(xmlFiles);
+    s_logger.info("Bean definitions loaded in {}ms", elapsedMillis(time));
     s_logger.info("Creating context beans");
+    time = System.nanoTime();
     context.refresh();
+    s_logger.info("Context beans created in {}ms", elapsedMillis(time));
     s_logger.info("Starting application context");
+    time = System.nanoTime();
     context.start();
-    s_logger.info("Application context started");
+    s_logger.info("Application context started in {}ms", elapsedMillis(time));
     return context;
   }
 
+  private static long elapsedMillis(final long startNanos) {
+    return (System.nanoTime() - startNanos) / 1000000;
+  }
+
   /**
    * Searches the configuration directory for Spring XML files to load.  The directory must be specified using the
    * system property named {@link #LANGUAGE_EXT_PATH}. The files are returned in filename alphabetical order (case
@@ -5,17 +5,25 @@
  */
 package com.opengamma.language.connector;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import com.opengamma.language.context.AbstractContext;
 import com.opengamma.language.context.SessionContext;
 import com.opengamma.language.context.SessionContextFactory;
+import com.opengamma.language.context.SessionContextFactoryBean;
+import com.opengamma.language.context.UserContextFactoryBean;
 import com.opengamma.language.install.ConfigureMain;
 import com.opengamma.util.tuple.Pair;
 
@@ -26,11 +34,48 @@ public class Main {
 
   private static final Logger s_logger = LoggerFactory.getLogger(Main.class);
 
+  /**
+   * Name of the system property listing the language identifiers to prepare for at service start and while idle.
+   */
+  public static final String WARM_LANGUAGES_PROPERTY = "language.service.warm";
+
   private static LanguageSpringContext s_springContext;
   private static final ExecutorService s_executorService = Executors.newCachedThreadPool(new CustomizableThreadFactory("Client-"));
+  private static final ExecutorService s_warmExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("Warm-"));
 
   private static int s_activeConnections;
 
+  /**
+   * The most recent user name for each language identifier that has connected.
+   */
+  private static final Map<String, String> s_lastUsers = new LinkedHashMap<String, String>();
+
+  /**
+   * Time, from {@link System#nanoTime}, at which the service was started, or at which a client connected to an idle service, and no
+   * {@code QueryAvailable} has been answered since. Zero if there is no such time.
+   */
+  private static final AtomicLong s_coldStart = new AtomicLong();
+
+  /**
+   * Session contexts created by {@link #warm} to keep the user contexts of the last users open until the next connection, by language
+   * identifier.
+   */
+  private static final Map<String, SessionContext> s_warmSessions = new HashMap<String, SessionContext>();
+
+  /**
+   * Logs the first {@code QueryAvailable} answered after the service starts, or after a client connects to an idle service, with the
+   * time taken since.
+   */
+  private static final QueryAvailableListener s_queryAvailableListener = new QueryAvailableListener() {
+    @Override
+    public void queryAvailableAnswered() {
+      final long coldStart = s_coldStart.getAndSet(0);
+      if (coldStart != 0) {
+        s_logger.info("First QueryAvailable answered {}ms after start", (System.nanoTime() - coldStart) / 1000000);
+      }
+    }
+  };
+
   /**
    * Sets a system property.
    * 
@@ -75,7 +120,18 @@ public class Main {
   public static String svcStart() {
     try {
       s_logger.info("Starting OpenGamma language integration service");
+      s_coldStart.set(System.nanoTime());
       s_springContext = new LanguageSpringContext();
+      s_logger.info("Service started in {}ms", (System.nanoTime() - s_coldStart.get()) / 1000000);
+      final String warmLanguages = System.getProperty(WARM_LANGUAGES_PROPERTY);
+      if (!StringUtils.isBlank(warmLanguages)) {
+        for (String languageID : StringUtils.split(warmLanguages, ',')) {
+          synchronized (Main.class) {
+            s_lastUsers.put(languageID.trim(), null);
+          }
+        }
+        warm();
+      }
       return null;
     } catch (final BeanCreationException e) {
       s_logger.error("Exception thrown", e);
@@ -104,15 +160,39 @@ public class Main {
    * @param debug true if the bound language is a debug build
    * @return true if the connection started okay
    */
-  public static synchronized boolean svcAccept(final String userName, final String inputPipeName,
+  public static boolean svcAccept(final String userName, final String inputPipeName,
       final String outputPipeName, final String languageID, final boolean debug) {
+    return svcAccept(userName, inputPipeName, outputPipeName, null, languageID, debug);
+  }
+
+  /**
+   * Entry point from the service wrapper - starts a connection handler for a given client.
+   * 
+   * @param userName the user name of the incoming connection
+   * @param inputPipeName the pipe created for sending data from C++ to Java
+   * @param outputPipeName the pipe created for sending data from Java to C++
+   * @param sharedMemoryName the shared memory segment offered by the client for exchanging messages, null if none
+   * @param languageID the identifier of the bound language. Language specific factories will be used if present, otherwise the default factories will be used.
+   * @param debug true if the bound language is a debug build
+   * @return true if the connection started okay
+   */
+  public static synchronized boolean svcAccept(final String userName, final String inputPipeName,
+      final String outputPipeName, final String sharedMemoryName, final String languageID, final boolean debug) {
     try {
       s_logger.info("Accepted {} connection from {}", languageID, userName);
-      s_logger.debug("Using pipes IN:{} OUT:{}", inputPipeName, outputPipeName);
+      s_logger.debug("Using pipes IN:{} OUT:{} SHM:{}", new Object[] {inputPipeName, outputPipeName, sharedMemoryName });
+      if (s_activeConnections == 0) {
+        s_coldStart.compareAndSet(0, System.nanoTime());
+      }
       final Pair<ClientFactory, SessionContextFactory> factories = s_springContext.getLanguageFactories(languageID);
       final SessionContext sessionContext = factories.getSecond().createSessionContext(userName, debug);
-      final Client client = factories.getFirst().createClient(inputPipeName, outputPipeName, sessionContext);
+      final Client client = factories.getFirst().createClient(inputPipeName, outputPipeName, sharedMemoryName, sessionContext);
+      client.setQueryAvailableListener(s_queryAvailableListener);
       s_activeConnections++;
+      releaseWarmSession(languageID);
+      if (s_lastUsers.containsKey(languageID)) {
+        s_lastUsers.put(languageID, userName);
+      }
       s_executorService.submit(new Runnable() {
         @Override
         public void run() {
@@ -136,11 +216,90 @@ public class Main {
     if (--s_activeConnections == 0) {
       s_logger.info("Attempting to stop service on last client disconnect");
       notifyStop();
+      if (!s_lastUsers.isEmpty()) {
+        // The service will linger for the idle timeout set in the service wrapper; prepare for the next client
+        warm();
+      }
     } else {
       s_logger.info("{} clients still connected", s_activeConnections);
     }
   }
 
+  /**
+   * Prepares the contexts for the languages listed in {@link #WARM_LANGUAGES_PROPERTY} in the background. The global contexts
+   * are created and their definitions loaded. If a user has previously connected using the language, a session context is
+   * created for them and the definitions of its user context loaded so that any remote clients it connects are ready for the
+   * next connection. The session context is never initialized; it is held until the next connection using the language has
+   * its own session context, or the service stops, and is then released with {@link SessionContext#doneContext}.
+   */
+  private static synchronized void warm() {
+    for (final Map.Entry<String, String> language : s_lastUsers.entrySet()) {
+      final String languageID = language.getKey();
+      final String userName = language.getValue();
+      s_warmExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            final long t = System.nanoTime();
+            final SessionContextFactory sessionContextFactory;
+            synchronized (Main.class) {
+              sessionContextFactory = s_springContext.getLanguageFactories(languageID).getSecond();
+            }
+            if (sessionContextFactory instanceof SessionContextFactoryBean) {
+              final SessionContextFactoryBean bean = (SessionContextFactoryBean) sessionContextFactory;
+              if (bean.getUserContextFactory() instanceof UserContextFactoryBean) {
+                warm(((UserContextFactoryBean) bean.getUserContextFactory()).getGlobalContextFactory().getOrCreateGlobalContext());
+              }
+            }
+            if (userName != null) {
+              final SessionContext session = sessionContextFactory.createSessionContext(userName, false);
+              try {
+                warm(session.getUserContext());
+              } catch (final RuntimeException e) {
+                session.doneContext();
+                throw e;
+              }
+              holdWarmSession(languageID, session);
+            }
+            s_logger.info("Prepared {} for {} in {}ms", new Object[] {languageID, userName, (System.nanoTime() - t) / 1000000 });
+          } catch (final Throwable t) {
+            s_logger.warn("Couldn't prepare {} for {}: {}", new Object[] {languageID, userName, t.getMessage() });
+            s_logger.debug("Exception thrown", t);
+          }
+        }
+      });
+    }
+  }
+
+  private static void warm(final AbstractContext<?> context) {
+    context.getFunctionProvider().getDefinitions();
+    context.getLiveDataProvider().getDefinitions();
+    context.getProcedureProvider().getDefinitions();
+  }
+
+  private static void holdWarmSession(final String languageID, final SessionContext session) {
+    final SessionContext release;
+    synchronized (Main.class) {
+      if ((s_activeConnections > 0) || s_warmExecutor.isShutdown()) {
+        // A client has connected, or the service is stopping, while this was being prepared
+        release = session;
+      } else {
+        release = s_warmSessions.put(languageID, session);
+      }
+    }
+    if (release != null) {
+      release.doneContext();
+    }
+  }
+
+  private static synchronized void releaseWarmSession(final String languageID) {
+    final SessionContext session = s_warmSessions.remove(languageID);
+    if (session != null) {
+      s_logger.debug("Releasing prepared session for {}", languageID);
+      session.doneContext();
+    }
+  }
+
   /**
    * Entry point for the service wrapper - queries if there are no active clients.
    * 
@@ -170,6 +329,13 @@ public class Main {
   public static boolean svcStop() {
     try {
       s_logger.info("Waiting for client threads to stop");
+      s_warmExecutor.shutdownNow();
+      synchronized (Main.class) {
+        for (SessionContext session : s_warmSessions.values()) {
+          session.doneContext();
+        }
+        s_warmSessions.clear();
+      }
       s_executorService.shutdown();
       s_executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
       s_logger.info("Stopping application context");
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.wire.FudgeMsgReader;
+
+/**
+ * Reads Fudge message envelopes from a channel. Each envelope is read into a reusable direct buffer using the size from its header
+ * and then decoded directly from that buffer, rather than through a chain of input streams.
+ * <p>
+ * This is not thread-safe; there should be one instance for each reading thread. The channel may be closed from another thread to
+ * release a blocked reader.
+ */
+/* package */class PipeReader {
+
+  /**
+   * Default size of the buffer. It grows to hold a larger envelope, and shrinks back to this size once that has been read.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+  /**
+   * Size of the Fudge envelope header; directives, schema version, taxonomy and the message size.
+   */
+  private static final int HEADER_SIZE = 8;
+
+  /**
+   * Offset of the message size within the header.
+   */
+  private static final int SIZE_OFFSET = 4;
+
+  private final FudgeContext _fudgeContext;
+  private final ReadableByteChannel _channel;
+  private final int _bufferSize;
+  private ByteBuffer _buffer;
+
+  public PipeReader(final FudgeContext fudgeContext, final ReadableByteChannel channel) {
+    this(fudgeContext, channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  public PipeReader(final FudgeContext fudgeContext, final ReadableByteChannel channel, final int bufferSize) {
+    _fudgeContext = fudgeContext;
+    _channel = channel;
+    _bufferSize = Math.max(bufferSize, HEADER_SIZE);
+    _buffer = ByteBuffer.allocateDirect(_bufferSize);
+    _buffer.flip();
+  }
+
+  /* package */int getBufferCapacity() {
+    return _buffer.capacity();
+  }
+
+  /**
+   * Replaces the buffer with one of a different capacity, keeping any data not yet consumed.
+   *
+   * @param capacity the new capacity, at least the number of bytes remaining
+   */
+  private void resize(final int capacity) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+    buffer.put(_buffer);
+    buffer.flip();
+    _buffer = buffer;
+  }
+
+  /**
+   * Makes sure at least the given number of bytes are available in the buffer.
+   *
+   * @param bytes the number of bytes required
+   * @return true if the bytes are available, false if the channel ended cleanly before any more were read
+   * @throws IOException if the channel ended part way through the data or there is a problem reading from it
+   */
+  private boolean fill(final int bytes) throws IOException {
+    while (_buffer.remaining() < bytes) {
+      if (_buffer.capacity() < bytes) {
+        resize(Math.max(bytes, _buffer.capacity() * 2));
+      }
+      _buffer.compact();
+      final int read;
+      try {
+        read = _channel.read(_buffer);
+      } finally {
+        _buffer.flip();
+      }
+      if (read < 0) {
+        if (_buffer.hasRemaining()) {
+          throw new EOFException("Channel closed part way through a message");
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the next message envelope from the channel, blocking until it is available.
+   *
+   * @return the envelope, or null if the channel has ended
+   * @throws IOException if there is a problem reading from the channel or the data is not a valid envelope
+   */
+  public FudgeMsgEnvelope read() throws IOException {
+    if (!fill(HEADER_SIZE)) {
+      return null;
+    }
+    final int size = _buffer.getInt(_buffer.position() + SIZE_OFFSET);
+    if (size < HEADER_SIZE) {
+      throw new IOException("Invalid Fudge envelope size " + size);
+    }
+    if (!fill(size)) {
+      throw new EOFException();
+    }
+    final ByteBuffer envelope = _buffer.duplicate();
+    envelope.limit(envelope.position() + size);
+    _buffer.position(envelope.limit());
+    final FudgeMsgEnvelope result = new FudgeMsgReader(_fudgeContext.createReader((DataInput) new ByteBufferDataInput(envelope))).nextMessageEnvelope();
+    if ((_buffer.capacity() > _bufferSize) && (_buffer.remaining() <= _bufferSize)) {
+      // The envelope has been decoded so an oversized buffer need not be held on to; a large read-ahead is kept until consumed
+      resize(_bufferSize);
+    }
+    return result;
+  }
+
+  /**
+   * Closes the underlying channel. Any thread blocked in {@link #read} will be released with an exception.
+   *
+   * @throws IOException if there is a problem closing the channel
+   */
+  public void close() throws IOException {
+    _channel.close();
+  }
+
+}
@@ -0,0 +1,18 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+/**
+ * Receives notification of the {@code QueryAvailable} messages answered for a client.
+ */
+public interface QueryAvailableListener {
+
+  /**
+   * Called after a {@code QueryAvailable} message for functions, live data or procedures has been answered.
+   */
+  void queryAvailableAnswered();
+
+}
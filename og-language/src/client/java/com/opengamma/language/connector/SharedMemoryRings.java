@@ -0,0 +1,500 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.connector;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A shared memory segment, created by the C++ client, holding a pair of single-producer, single-consumer ring buffers for exchanging
+ * Fudge envelopes. The pipes to the client are then only used to wake a consumer that has blocked waiting for data, or a producer that
+ * has blocked waiting for space. The segment layout must match the C++ {@code CSharedMemoryRings} class.
+ * <p>
+ * The ring counters and flags are read and written with absolute accesses on the mapped buffer. These are ordered against each other,
+ * and against the data, by an atomic update of a sequence number which the memory model treats as both a volatile read and a volatile
+ * write.
+ */
+/* package */final class SharedMemoryRings {
+
+  /**
+   * Folder where POSIX shared memory segments are visible as files.
+   */
+  private static final String SHARED_MEMORY_FOLDER = "/dev/shm";
+
+  /* package */static final int MAGIC = 0x4F47524E;
+  /* package */static final int VERSION = 2;
+
+  /* package */static final int MAGIC_OFFSET = 0;
+  /* package */static final int VERSION_OFFSET = 4;
+  /* package */static final int RING_SIZE_OFFSET = 8;
+  /* package */static final int ACCEPTED_OFFSET = 12;
+  /* package */static final int SEGMENT_HEADER = 64;
+
+  /* package */static final int HEAD_OFFSET = 0;
+  /* package */static final int TAIL_OFFSET = 64;
+  /* package */static final int WAITING_OFFSET = 128;
+  /* package */static final int SPACE_WAITING_OFFSET = 132;
+  /* package */static final int RING_HEADER = 192;
+
+  /**
+   * Index of the ring carrying data from the C++ client to Java.
+   */
+  /* package */static final int CPP_TO_JAVA = 0;
+
+  /**
+   * Index of the ring carrying data from Java to the C++ client.
+   */
+  /* package */static final int JAVA_TO_CPP = 1;
+
+  /**
+   * Number of times to poll a ring before blocking.
+   */
+  private static final int SPIN_COUNT = 1000;
+
+  /**
+   * Maximum time, in milliseconds, a producer blocks for before checking the ring again. The signal that space has been freed is passed
+   * on by the thread reading the other ring, which may be busy dispatching a message rather than reading the pipe.
+   */
+  private static final long SPACE_TIMEOUT = 10;
+
+  private final MappedByteBuffer _segment;
+  private final int _ringSize;
+  private final AtomicInteger _sequence = new AtomicInteger();
+
+  /**
+   * Monitor a producer waits on for space. It is notified by a {@link Reader} when it has freed space, or has received a signal byte,
+   * which may be the C++ consumer saying that it has.
+   */
+  private final Object _spaceLock = new Object();
+  private volatile int _spaceWaiters;
+
+  private SharedMemoryRings(final MappedByteBuffer segment, final int ringSize) {
+    _segment = segment;
+    _ringSize = ringSize;
+  }
+
+  /**
+   * Opens a segment by the name given in the client's connection message.
+   *
+   * @param name the segment name, not null
+   * @return the segment, not null
+   * @throws IOException if the segment can't be opened or is not valid
+   */
+  public static SharedMemoryRings open(final String name) throws IOException {
+    if ((name.indexOf('/') >= 0) || (name.indexOf(File.separatorChar) >= 0)) {
+      throw new IOException("Invalid shared memory segment name " + name);
+    }
+    return open(new File(SHARED_MEMORY_FOLDER, name));
+  }
+
+  /* package */static SharedMemoryRings open(final File file) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      final FileChannel channel = raf.getChannel();
+      final long size = channel.size();
+      if (size < SEGMENT_HEADER) {
+        throw new IOException("Shared memory segment " + file + " is too small");
+      }
+      // The mapping remains valid after the file is closed
+      final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      segment.order(ByteOrder.nativeOrder());
+      if (segment.getInt(MAGIC_OFFSET) != MAGIC) {
+        throw new IOException("Shared memory segment " + file + " is not valid");
+      }
+      if (segment.getInt(VERSION_OFFSET) != VERSION) {
+        throw new IOException("Shared memory segment " + file + " has unsupported version " + segment.getInt(VERSION_OFFSET));
+      }
+      final int ringSize = segment.getInt(RING_SIZE_OFFSET);
+      if ((ringSize <= 0) || ((ringSize & (ringSize - 1)) != 0) || (size < SEGMENT_HEADER + 2L * (RING_HEADER + ringSize))) {
+        throw new IOException("Shared memory segment " + file + " has invalid ring size " + ringSize);
+      }
+      return new SharedMemoryRings(segment, ringSize);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Tells the client that the segment will be used. This must be called before the pipes are opened; the client checks the flag after
+   * its first successful write to the pipe.
+   */
+  public void accept() {
+    _segment.putInt(ACCEPTED_OFFSET, 1);
+    _sequence.incrementAndGet();
+  }
+
+  /**
+   * Returns the size of each ring's data area.
+   *
+   * @return the size in bytes
+   */
+  public int getRingSize() {
+    return _ringSize;
+  }
+
+  private int getRingOffset(final int ring) {
+    return SEGMENT_HEADER + ring * (RING_HEADER + _ringSize);
+  }
+
+  /**
+   * Creates a view of a ring's data area.
+   */
+  private ByteBuffer getData(final int ring) {
+    final ByteBuffer data = _segment.duplicate();
+    final int offset = getRingOffset(ring) + RING_HEADER;
+    data.limit(offset + _ringSize);
+    data.position(offset);
+    return data.slice();
+  }
+
+  /**
+   * Opens the consuming end of a ring.
+   *
+   * @param ring the ring index
+   * @param signal the pipe the producer writes a byte to when it has published data for a waiting consumer, not null
+   * @return the channel, not null
+   */
+  public ReadableByteChannel openReader(final int ring, final ReadableByteChannel signal) {
+    return new Reader(ring, signal);
+  }
+
+  /**
+   * Opens the producing end of a ring.
+   *
+   * @param ring the ring index
+   * @param signal the pipe to write a byte to when publishing data for a waiting consumer, not null
+   * @return the channel, not null
+   */
+  public GatheringByteChannel openWriter(final int ring, final WritableByteChannel signal) {
+    return new Writer(ring, signal);
+  }
+
+  /**
+   * Wakes any producer waiting for space.
+   */
+  private void signalSpace() {
+    if (_spaceWaiters != 0) {
+      synchronized (_spaceLock) {
+        _spaceLock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Common state of either end of a ring.
+   */
+  private abstract class Ring {
+
+    private final ByteBuffer _data;
+    private final int _head;
+    private final int _tail;
+    private final int _waiting;
+    private final int _spaceWaiting;
+    private final AtomicInteger _sequence = new AtomicInteger();
+    private volatile boolean _open = true;
+
+    protected Ring(final int ring) {
+      final int ringOffset = getRingOffset(ring);
+      _data = getData(ring);
+      _head = ringOffset + HEAD_OFFSET;
+      _tail = ringOffset + TAIL_OFFSET;
+      _waiting = ringOffset + WAITING_OFFSET;
+      _spaceWaiting = ringOffset + SPACE_WAITING_OFFSET;
+    }
+
+    /**
+     * Orders the memory accesses before the call against those after it. The sequence number is private to the ring so that the two
+     * ends, and the two rings, don't contend for it.
+     */
+    protected void fence() {
+      _sequence.incrementAndGet();
+    }
+
+    /**
+     * Reads a value written by the other process, ordering any subsequent memory accesses after it.
+     */
+    protected int load(final int offset) {
+      final int value = _segment.getInt(offset);
+      fence();
+      return value;
+    }
+
+    /**
+     * Writes a value for the other process to read after all previous memory accesses are complete, and before any subsequent ones are
+     * made.
+     */
+    protected void store(final int offset, final int value) {
+      fence();
+      _segment.putInt(offset, value);
+      fence();
+    }
+
+    protected ByteBuffer duplicateData() {
+      return _data.duplicate();
+    }
+
+    protected int getHead() {
+      return load(_head);
+    }
+
+    protected void setHead(final int head) {
+      store(_head, head);
+    }
+
+    protected int getTail() {
+      return load(_tail);
+    }
+
+    protected void setTail(final int tail) {
+      store(_tail, tail);
+    }
+
+    protected boolean isWaiting() {
+      return load(_waiting) != 0;
+    }
+
+    protected void setWaiting(final boolean waiting) {
+      store(_waiting, waiting ? 1 : 0);
+    }
+
+    protected void setSpaceWaiting(final boolean waiting) {
+      store(_spaceWaiting, waiting ? 1 : 0);
+    }
+
+    public boolean isOpen() {
+      return _open;
+    }
+
+    protected void checkOpen() throws ClosedChannelException {
+      if (!_open) {
+        throw new ClosedChannelException();
+      }
+    }
+
+    protected void setClosed() {
+      _open = false;
+    }
+
+  }
+
+  /**
+   * Consuming end of a ring. Reads return whatever data is available, blocking on the signal pipe only when the ring is empty.
+   */
+  private final class Reader extends Ring implements ReadableByteChannel {
+
+    private final ReadableByteChannel _signal;
+    private final ByteBuffer _signals = ByteBuffer.allocate(64);
+    private int _position;
+
+    public Reader(final int ring, final ReadableByteChannel signal) {
+      super(ring);
+      _signal = signal;
+      _position = getTail();
+    }
+
+    private int available() {
+      return getHead() - _position;
+    }
+
+    /**
+     * Blocks until the producer signals. The waiting flag is set, and the ring checked again, first so that a signal can't be missed.
+     * <p>
+     * The C++ consumer of the other ring writes to the same pipe when it frees space for a waiting producer, so any signal also wakes
+     * that producer.
+     *
+     * @return false if the signal pipe has closed
+     */
+    private boolean await() throws IOException {
+      setWaiting(true);
+      try {
+        if (available() != 0) {
+          return true;
+        }
+        // Any number of signals may be pending; it doesn't matter if some are left for a later wait
+        _signals.clear();
+        final int signals = _signal.read(_signals);
+        if (signals > 0) {
+          signalSpace();
+        }
+        return signals >= 0;
+      } finally {
+        setWaiting(false);
+      }
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+      checkOpen();
+      if (!dst.hasRemaining()) {
+        return 0;
+      }
+      int available = available();
+      for (int spin = 0; available == 0; spin++) {
+        if ((spin >= SPIN_COUNT) && !await()) {
+          return -1;
+        }
+        available = available();
+      }
+      final int count = Math.min(available, dst.remaining());
+      final int offset = _position & (_ringSize - 1);
+      final int first = Math.min(count, _ringSize - offset);
+      final ByteBuffer data = duplicateData();
+      data.limit(offset + first);
+      data.position(offset);
+      dst.put(data);
+      if (count > first) {
+        data.limit(count - first);
+        data.position(0);
+        dst.put(data);
+      }
+      _position += count;
+      setTail(_position);
+      signalSpace();
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      setClosed();
+      _signal.close();
+    }
+
+  }
+
+  /**
+   * Producing end of a ring. Writes block until all of the data has been copied. If the ring is full the producer sets a flag asking
+   * the consumer to signal when it frees space, and waits for that.
+   */
+  private final class Writer extends Ring implements GatheringByteChannel {
+
+    private final WritableByteChannel _signal;
+    private final ByteBuffer _signalByte = ByteBuffer.allocate(1);
+    private int _position;
+
+    public Writer(final int ring, final WritableByteChannel signal) {
+      super(ring);
+      _signal = signal;
+      _position = getHead();
+    }
+
+    private int free() {
+      return _ringSize - (_position - getTail());
+    }
+
+    /**
+     * Makes everything written so far visible to the consumer, waking it if it is waiting.
+     */
+    private void publish() throws IOException {
+      setHead(_position);
+      if (isWaiting()) {
+        _signalByte.clear();
+        while (_signalByte.hasRemaining()) {
+          _signal.write(_signalByte);
+        }
+      }
+    }
+
+    /**
+     * Blocks until the consumer frees space. The flag asking the consumer to signal is set, and the ring checked again, first so that a
+     * signal can't be missed. The wait is bounded as the signal from the C++ consumer is passed on by another thread.
+     *
+     * @return the free space, possibly still zero
+     */
+    private int awaitSpace() throws IOException {
+      synchronized (_spaceLock) {
+        _spaceWaiters++;
+        setSpaceWaiting(true);
+        try {
+          int free = free();
+          if (free == 0) {
+            _spaceLock.wait(SPACE_TIMEOUT);
+            free = free();
+          }
+          return free;
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        } finally {
+          setSpaceWaiting(false);
+          _spaceWaiters--;
+        }
+      }
+    }
+
+    private int waitForSpace() throws IOException {
+      int free = free();
+      for (int spin = 0; free == 0; spin++) {
+        checkOpen();
+        free = (spin < SPIN_COUNT) ? free() : awaitSpace();
+      }
+      return free;
+    }
+
+    @Override
+    public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+      checkOpen();
+      long written = 0;
+      for (int i = offset; i < offset + length; i++) {
+        final ByteBuffer src = srcs[i];
+        while (src.hasRemaining()) {
+          int free = free();
+          if (free == 0) {
+            // Let the consumer drain what is already there
+            publish();
+            free = waitForSpace();
+          }
+          final int count = Math.min(free, src.remaining());
+          final int ringOffset = _position & (_ringSize - 1);
+          final int first = Math.min(count, _ringSize - ringOffset);
+          final int limit = src.limit();
+          final ByteBuffer data = duplicateData();
+          data.position(ringOffset);
+          src.limit(src.position() + first);
+          data.put(src);
+          if (count > first) {
+            data.position(0);
+            src.limit(src.position() + count - first);
+            data.put(src);
+          }
+          src.limit(limit);
+          _position += count;
+          written += count;
+        }
+      }
+      publish();
+      return written;
+    }
+
+    @Override
+    public long write(final ByteBuffer[] srcs) throws IOException {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+      return (int) write(new ByteBuffer[] {src }, 0, 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+      setClosed();
+      _signal.close();
+    }
+
+  }
+
+}
@@ -21,6 +21,8 @@ public class Test extends com.opengamma.language.connector.UserMessagePayload im
   public static final int OPERATION_ORDINAL = 1;
   private int _nonce;
   public static final int NONCE_ORDINAL = 2;
+  private String _data;
+  public static final int DATA_ORDINAL = 3;
   public Test (com.opengamma.language.connector.Test.Operation operation, int nonce) {
     if (operation == null) throw new NullPointerException ("operation' cannot be null");
     _operation = operation;
@@ -45,12 +47,28 @@ public class Test extends com.opengamma.language.connector.UserMessagePayload im
     catch (IllegalArgumentException e) {
       throw new IllegalArgumentException ("Fudge message is not a Test - field 'nonce' is not integer", e);
     }
+    fudgeField = fudgeMsg.getByOrdinal (DATA_ORDINAL);
+    if (fudgeField != null)  {
+      try {
+        setData ((fudgeField.getValue () != null) ? fudgeField.getValue ().toString () : null);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a Test - field 'data' is not string", e);
+      }
+    }
+  }
+  public Test (com.opengamma.language.connector.Test.Operation operation, int nonce, String data) {
+    if (operation == null) throw new NullPointerException ("operation' cannot be null");
+    _operation = operation;
+    _nonce = nonce;
+    _data = data;
   }
   protected Test (final Test source) {
     super (source);
     if (source == null) throw new NullPointerException ("'source' must not be null");
     _operation = source._operation;
     _nonce = source._nonce;
+    _data = source._data;
   }
   public Test clone () {
     return new Test (this);
@@ -67,6 +85,9 @@ public class Test extends com.opengamma.language.connector.UserMessagePayload im
       msg.add (null, OPERATION_ORDINAL, _operation.name ());
     }
     msg.add (null, NONCE_ORDINAL, _nonce);
+    if (_data != null)  {
+      msg.add (null, DATA_ORDINAL, _data);
+    }
   }
   public static Test fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
@@ -95,6 +116,12 @@ public class Test extends com.opengamma.language.connector.UserMessagePayload im
   public void setNonce (int nonce) {
     _nonce = nonce;
   }
+  public String getData () {
+    return _data;
+  }
+  public void setData (String data) {
+    _data = data;
+  }
   public boolean equals (final Object o) {
     if (o == this) return true;
     if (!(o instanceof Test)) return false;
@@ -107,6 +134,13 @@ public class Test extends com.opengamma.language.connector.UserMessagePayload im
     }
     else if (msg._operation != null) return false;
     if (_nonce != msg._nonce) return false;
+    if (_data != null) {
+      if (msg._data != null) {
+        if (!_data.equals (msg._data)) return false;
+      }
+      else return false;
+    }
+    else if (msg._data != null) return false;
     return super.equals (msg);
   }
   public int hashCode () {
@@ -114,6 +148,8 @@ public class Test extends com.opengamma.language.connector.UserMessagePayload im
     hc *= 31;
     if (_operation != null) hc += _operation.hashCode ();
     hc = (hc * 31) + (int)_nonce;
+    hc *= 31;
+    if (_data != null) hc += _data.hashCode ();
     return hc;
   }
   public String toString () {
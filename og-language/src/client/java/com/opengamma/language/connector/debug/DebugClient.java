@@ -49,8 +49,8 @@ public class DebugClient extends Client implements FudgeMessageReceiver, FudgeCo
   private AtomicBoolean _connectionFailed = new AtomicBoolean();
 
   protected DebugClient(final ClientContext clientContext, final String inputPipeName, final String outputPipeName,
-      final SessionContext session) {
-    super(clientContext, inputPipeName, outputPipeName, session);
+      final String sharedMemoryName, final SessionContext session) {
+    super(clientContext, inputPipeName, outputPipeName, sharedMemoryName, session);
     
     String connectionString = System.getProperty(DEBUG_CLIENT_CONNECTION_SETTING);
     if (StringUtils.isBlank(connectionString)) {
@@ -33,8 +33,8 @@ public final class DebugClientFactory extends ClientFactory {
   // ClientFactory
 
   @Override
-  public Client createClient(final String inputPipeName, final String outputPipeName,
+  public Client createClient(final String inputPipeName, final String outputPipeName, final String sharedMemoryName,
       final SessionContext sessionContext) {
-    return new DebugClient(getClientContext(), inputPipeName, outputPipeName, sessionContext);
+    return new DebugClient(getClientContext(), inputPipeName, outputPipeName, sharedMemoryName, sessionContext);
   }
 }
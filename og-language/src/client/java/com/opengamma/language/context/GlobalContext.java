@@ -7,6 +7,7 @@ package com.opengamma.language.context;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import com.opengamma.core.exchange.ExchangeSource;
@@ -22,6 +23,7 @@ import com.opengamma.engine.view.helper.AvailableOutputsProvider;
 import com.opengamma.financial.analytics.volatility.cube.VolatilityCubeDefinitionSource;
 import com.opengamma.financial.currency.CurrencyPairsSource;
 import com.opengamma.financial.user.rest.RemoteClient;
+import com.opengamma.language.definition.AvailableCache;
 import com.opengamma.language.function.AggregatingFunctionProvider;
 import com.opengamma.language.function.DefaultFunctionDefinitionFilter;
 import com.opengamma.language.function.FunctionDefinitionFilter;
@@ -48,16 +50,31 @@ import com.opengamma.language.procedure.ProcedureDefinitionFilter;
  */
 public abstract class GlobalContext extends AbstractContext<AbstractContext<?>> {
 
+  /**
+   * Name under which the cache of published definitions is bound.
+   */
+  protected static final String AVAILABLE_CACHE = "availableCache";
+
   /**
    * Name under which the available outputs provider is bound.
    */
   protected static final String AVAILABLE_OUTPUTS_PROVIDER = "availableOutputsProvider";
 
+  /**
+   * Name under which the flag enabling the binary encoding of time series results is bound.
+   */
+  protected static final String BINARY_TIME_SERIES = "binaryTimeSeries";
+
   /**
    * Name under which the shared engine client is bound.
    */
   protected static final String CLIENT = "client";
 
+  /**
+   * Name under which the flag enabling the columnar encoding of {@link com.opengamma.language.Data} results is bound.
+   */
+  protected static final String COLUMNAR_DATA = "columnarData";
+
   /**
    * Name under which the default computation target resolver is bound.
    */
@@ -93,6 +110,11 @@ public abstract class GlobalContext extends AbstractContext<AbstractContext<?>>
    */
   protected static final String HISTORICAL_TIME_SERIES_SOURCE = "historicalTimeSeriesSource";
 
+  /**
+   * Name under which the set of per-user historical time series sources is bound.
+   */
+  protected static final String USER_HISTORICAL_TIME_SERIES_SOURCES = "userHistoricalTimeSeriesSources";
+
   /**
    * Name under which a holiday source is bound.
    */
@@ -285,14 +307,38 @@ public abstract class GlobalContext extends AbstractContext<AbstractContext<?>>
 
   // Standard context members
 
+  public AvailableCache getAvailableCache() {
+    return getValue(AVAILABLE_CACHE);
+  }
+
   public AvailableOutputsProvider getAvailableOutputsProvider() {
     return getValue(AVAILABLE_OUTPUTS_PROVIDER);
   }
 
+  /**
+   * Tests whether the bound language can decode the binary encoding of time series produced by
+   * {@link com.opengamma.language.timeseries.LocalDateDoubleTimeSeriesCodec}. If it can't, the per-value encoding must be used.
+   * 
+   * @return true if the binary encoding can be used, false otherwise
+   */
+  public boolean isBinaryTimeSeries() {
+    return getValue(BINARY_TIME_SERIES) != null;
+  }
+
   public RemoteClient getClient() {
     return getValue(CLIENT);
   }
   
+  /**
+   * Tests whether the bound language can decode the columnar encoding of {@link com.opengamma.language.Data}. If it
+   * can't, the per-value encoding must be used for all results.
+   * 
+   * @return true if the columnar encoding can be used, false otherwise
+   */
+  public boolean isColumnarData() {
+    return getValue(COLUMNAR_DATA) != null;
+  }
+
   public ComputationTargetResolver getComputationTargetResolver() {
     return getValue(COMPUTATION_TARGET_RESOLVER);
   }
@@ -321,6 +367,16 @@ public abstract class GlobalContext extends AbstractContext<AbstractContext<?>>
     return getValue(HISTORICAL_TIME_SERIES_SOURCE);
   }
 
+  /**
+   * Returns the historical time series sources of each user that has their own, for example one that caches the series fetched
+   * by the user. A write to the underlying data must be made visible to all of them.
+   *
+   * @return the user sources, or null if users do not have their own
+   */
+  public Set<HistoricalTimeSeriesSource> getUserHistoricalTimeSeriesSources() {
+    return getValue(USER_HISTORICAL_TIME_SERIES_SOURCES);
+  }
+
   public HolidaySource getHolidaySource() {
     return getValue(HOLIDAY_SOURCE);
   }
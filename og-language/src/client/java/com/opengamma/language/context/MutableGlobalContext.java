@@ -5,6 +5,7 @@
  */
 package com.opengamma.language.context;
 
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import com.opengamma.core.exchange.ExchangeSource;
@@ -20,6 +21,7 @@ import com.opengamma.engine.view.helper.AvailableOutputsProvider;
 import com.opengamma.financial.analytics.volatility.cube.VolatilityCubeDefinitionSource;
 import com.opengamma.financial.currency.CurrencyPairsSource;
 import com.opengamma.financial.user.rest.RemoteClient;
+import com.opengamma.language.definition.AvailableCache;
 import com.opengamma.language.function.AggregatingFunctionProvider;
 import com.opengamma.language.function.FunctionDefinitionFilter;
 import com.opengamma.language.invoke.AggregatingTypeConverterProvider;
@@ -60,14 +62,26 @@ public class MutableGlobalContext extends GlobalContext {
 
   // Standard context members
 
+  public void setAvailableCache(final AvailableCache availableCache) {
+    removeOrReplaceValue(AVAILABLE_CACHE, availableCache);
+  }
+
   public void setAvailableOutputsProvider(final AvailableOutputsProvider availableOutputsProvider) {
     removeOrReplaceValue(AVAILABLE_OUTPUTS_PROVIDER, availableOutputsProvider);
   }
 
+  public void setBinaryTimeSeries(final boolean binaryTimeSeries) {
+    removeOrReplaceValue(BINARY_TIME_SERIES, binaryTimeSeries ? Boolean.TRUE : null);
+  }
+
   public void setClient(final RemoteClient client) {
     removeOrReplaceValue(CLIENT, client);
   }
   
+  public void setColumnarData(final boolean columnarData) {
+    removeOrReplaceValue(COLUMNAR_DATA, columnarData ? Boolean.TRUE : null);
+  }
+
   public void setComputationTargetResolver(final DefaultComputationTargetResolver computationTargetResolver) {
     removeOrReplaceValue(COMPUTATION_TARGET_RESOLVER, computationTargetResolver);
   }
@@ -97,6 +111,10 @@ public class MutableGlobalContext extends GlobalContext {
     removeOrReplaceValue(HISTORICAL_TIME_SERIES_SOURCE, historicalTimeSeriesSource);
   }
 
+  public void setUserHistoricalTimeSeriesSources(final Set<HistoricalTimeSeriesSource> userHistoricalTimeSeriesSources) {
+    removeOrReplaceValue(USER_HISTORICAL_TIME_SERIES_SOURCES, userHistoricalTimeSeriesSources);
+  }
+
   public void setHolidaySource(final HolidaySource holidaySource) {
     removeOrReplaceValue(HOLIDAY_SOURCE, holidaySource);
   }
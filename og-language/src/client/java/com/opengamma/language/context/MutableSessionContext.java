@@ -11,9 +11,11 @@ import org.fudgemsg.FudgeMsg;
 
 import com.opengamma.financial.user.rest.RemoteClient;
 import com.opengamma.language.connector.MessageSender;
+import com.opengamma.language.connector.QueryAvailableListener;
 import com.opengamma.language.connector.StashMessage;
 import com.opengamma.language.function.AggregatingFunctionProvider;
 import com.opengamma.language.livedata.AggregatingLiveDataProvider;
+import com.opengamma.language.object.ObjectHandles;
 import com.opengamma.language.procedure.AggregatingProcedureProvider;
 import com.opengamma.language.view.SessionViewClients;
 
@@ -105,6 +107,10 @@ public class MutableSessionContext extends SessionContext {
     setValue(DEBUG, Boolean.TRUE);
   }
 
+  public void setObjectHandles(final ObjectHandles objectHandles) {
+    removeOrReplaceValue(OBJECT_HANDLES, objectHandles);
+  }
+
   public void setStashMessage(final StashMessage stashMessage) {
     setValue(STASH_MESSAGE, stashMessage);
   }
@@ -113,6 +119,10 @@ public class MutableSessionContext extends SessionContext {
     setValue(MESSAGE_SENDER, messageSender);
   }
 
+  public void setQueryAvailableListener(final QueryAvailableListener queryAvailableListener) {
+    setValue(QUERY_AVAILABLE_LISTENER, queryAvailableListener);
+  }
+
   public void setViewClients(final SessionViewClients viewClients) {
     setValue(VIEW_CLIENTS, viewClients);
   }
@@ -7,6 +7,7 @@ package com.opengamma.language.context;
 
 import java.util.concurrent.ScheduledFuture;
 
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
 import com.opengamma.financial.user.rest.RemoteClient;
 import com.opengamma.language.function.AggregatingFunctionProvider;
 import com.opengamma.language.livedata.AggregatingLiveDataProvider;
@@ -77,6 +78,10 @@ public class MutableUserContext extends UserContext {
     setValue(CLIENT_HEARTBEAT, clientHeartbeat);
   }
 
+  public void setHistoricalTimeSeriesSource(final HistoricalTimeSeriesSource historicalTimeSeriesSource) {
+    removeOrReplaceValue(HISTORICAL_TIME_SERIES_SOURCE, historicalTimeSeriesSource);
+  }
+
   public void setLiveDataUser(final UserPrincipal liveDataUser) {
     setValue(LIVEDATA_USER, liveDataUser);
   }
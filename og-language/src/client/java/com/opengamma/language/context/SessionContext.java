@@ -9,12 +9,14 @@ import org.fudgemsg.FudgeMsg;
 
 import com.opengamma.financial.user.rest.RemoteClient;
 import com.opengamma.language.connector.MessageSender;
+import com.opengamma.language.connector.QueryAvailableListener;
 import com.opengamma.language.connector.StashMessage;
 import com.opengamma.language.function.AggregatingFunctionProvider;
 import com.opengamma.language.function.FunctionRepository;
 import com.opengamma.language.livedata.AggregatingLiveDataProvider;
 import com.opengamma.language.livedata.LiveDataRepository;
 import com.opengamma.language.livedata.SessionConnections;
+import com.opengamma.language.object.ObjectHandles;
 import com.opengamma.language.procedure.AggregatingProcedureProvider;
 import com.opengamma.language.procedure.ProcedureRepository;
 import com.opengamma.language.view.SessionViewClients;
@@ -42,6 +44,16 @@ public abstract class SessionContext extends AbstractContext<UserContext> {
    */
   protected static final String MESSAGE_SENDER = "messageSender";
 
+  /**
+   * The objects held for the client in place of their serialized forms.
+   */
+  protected static final String OBJECT_HANDLES = "objectHandles";
+
+  /**
+   * The {@link QueryAvailableListener} to notify when definitions have been sent to the client.
+   */
+  protected static final String QUERY_AVAILABLE_LISTENER = "queryAvailableListener";
+
   /**
    * The stash message.
    */
@@ -114,6 +126,20 @@ public abstract class SessionContext extends AbstractContext<UserContext> {
     return getValue(MESSAGE_SENDER);
   }
 
+  /**
+   * Returns the store of objects held for the client. If this is set then results are passed to the client as handles
+   * instead of being serialized.
+   * 
+   * @return the store or null if handles are not used by the session
+   */
+  public ObjectHandles getObjectHandles() {
+    return getValue(OBJECT_HANDLES);
+  }
+
+  public QueryAvailableListener getQueryAvailableListener() {
+    return getValue(QUERY_AVAILABLE_LISTENER);
+  }
+
   public StashMessage getStashMessage() {
     return getValue(STASH_MESSAGE);
   }
@@ -11,6 +11,7 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
 import com.opengamma.financial.user.rest.RemoteClient;
 import com.opengamma.language.function.AggregatingFunctionProvider;
 import com.opengamma.language.livedata.AggregatingLiveDataProvider;
@@ -30,6 +31,11 @@ public abstract class UserContext extends AbstractContext<GlobalContext> {
    */
   protected static final String CLIENT = "client";
 
+  /**
+   * Name under which the user's historical time series source is bound, if different from the global one.
+   */
+  protected static final String HISTORICAL_TIME_SERIES_SOURCE = "historicalTimeSeriesSource";
+
   /**
    * Name under which the Live Data user principal is bound.
    */
@@ -67,6 +73,20 @@ public abstract class UserContext extends AbstractContext<GlobalContext> {
     return getValue(CLIENT);
   }
 
+  /**
+   * Returns the historical time series source for the user. This is the global source unless the user has their own, for
+   * example one that caches the series fetched by the user.
+   *
+   * @return the source, or null if there is none
+   */
+  public HistoricalTimeSeriesSource getHistoricalTimeSeriesSource() {
+    final HistoricalTimeSeriesSource source = getValue(HISTORICAL_TIME_SERIES_SOURCE);
+    if (source != null) {
+      return source;
+    }
+    return getGlobalContext().getHistoricalTimeSeriesSource();
+  }
+
   public UserPrincipal getLiveDataUser() {
     return getValue(LIVEDATA_USER);
   }
@@ -8,9 +8,11 @@ package com.opengamma.language.convert;
 
 import static com.opengamma.language.convert.TypeMap.ZERO_LOSS;
 
+import java.lang.reflect.Array;
 import java.util.Map;
 
 import com.opengamma.language.Data;
+import com.opengamma.language.DataColumns;
 import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
@@ -19,7 +21,8 @@ import com.opengamma.language.invoke.AbstractTypeConverter;
 import com.opengamma.language.invoke.TypeConverter;
 
 /**
- * Basic conversions to/from the {@link Data} type.
+ * Basic conversions to/from the {@link Data} type. Primitive arrays are converted directly, using the columnar
+ * encoding if the bound language supports it.
  */
 public final class DataConverter extends AbstractTypeConverter {
 
@@ -32,8 +35,15 @@ public final class DataConverter extends AbstractTypeConverter {
   private static final JavaTypeInfo<Value> VALUE = JavaTypeInfo.builder(Value.class).get();
   private static final JavaTypeInfo<Value[]> VALUE_1 = JavaTypeInfo.builder(Value[].class).get();
   private static final JavaTypeInfo<Value[][]> VALUE_2 = JavaTypeInfo.builder(Value[][].class).get();
+  private static final JavaTypeInfo<double[]> DOUBLE_1 = JavaTypeInfo.builder(double[].class).get();
+  private static final JavaTypeInfo<double[][]> DOUBLE_2 = JavaTypeInfo.builder(double[][].class).get();
+  private static final JavaTypeInfo<int[]> INTEGER_1 = JavaTypeInfo.builder(int[].class).get();
+  private static final JavaTypeInfo<int[][]> INTEGER_2 = JavaTypeInfo.builder(int[][].class).get();
+  private static final JavaTypeInfo<boolean[]> BOOLEAN_1 = JavaTypeInfo.builder(boolean[].class).get();
+  private static final JavaTypeInfo<boolean[][]> BOOLEAN_2 = JavaTypeInfo.builder(boolean[][].class).get();
 
-  private static final TypeMap TO_DATA = TypeMap.ofWeighted(ZERO_LOSS, VALUE, VALUE_1, VALUE_2);
+  private static final TypeMap TO_DATA = TypeMap.ofWeighted(ZERO_LOSS, VALUE, VALUE_1, VALUE_2).withWeighted(ZERO_LOSS, DOUBLE_1, DOUBLE_2, INTEGER_1,
+      INTEGER_2, BOOLEAN_1, BOOLEAN_2);
   private static final TypeMap FROM_DATA = TypeMap.of(ZERO_LOSS, DATA);
 
   protected DataConverter() {
@@ -69,6 +79,114 @@ public final class DataConverter extends AbstractTypeConverter {
     return TypeConverter.class.getSimpleName() + "[to/from " + Data.class.getName() + "]";
   }
 
+  private static Data toData(final ValueConversionContext conversionContext, final Object value) {
+    final DataColumns columns;
+    if (value instanceof double[]) {
+      columns = DataColumns.of((double[]) value);
+    } else if (value instanceof double[][]) {
+      columns = DataColumns.of((double[][]) value);
+    } else if (value instanceof int[]) {
+      columns = DataColumns.of((int[]) value);
+    } else if (value instanceof int[][]) {
+      columns = DataColumns.of((int[][]) value);
+    } else if (value instanceof boolean[]) {
+      columns = DataColumns.of((boolean[]) value);
+    } else if (value instanceof boolean[][]) {
+      columns = DataColumns.of((boolean[][]) value);
+    } else {
+      return null;
+    }
+    if (columns == null) {
+      // Jagged matrix
+      return null;
+    }
+    if (conversionContext.getGlobalContext().isColumnarData()) {
+      return DataUtils.of(columns);
+    } else {
+      if (columns.isMatrix()) {
+        return DataUtils.of(columns.toMatrix());
+      } else {
+        return DataUtils.of(columns.toLinear());
+      }
+    }
+  }
+
+  private static Object toPrimitiveArray(final Data data, final Class<?> clazz) {
+    final DataColumns columns = DataUtils.getColumns(data);
+    if ((columns != null) && !columns.hasNulls()) {
+      if (clazz == double[].class) {
+        if ((columns.getType() == DataColumns.Type.DOUBLE) && !columns.isMatrix()) {
+          return columns.getValues();
+        }
+      } else if (clazz == int[].class) {
+        if ((columns.getType() == DataColumns.Type.INTEGER) && !columns.isMatrix()) {
+          return columns.getValues();
+        }
+      } else if (clazz == boolean[].class) {
+        if ((columns.getType() == DataColumns.Type.BOOLEAN) && !columns.isMatrix()) {
+          return columns.getValues();
+        }
+      }
+    }
+    if (clazz.getComponentType().isArray()) {
+      final Value[][] matrix = DataUtils.getMatrix(data);
+      if (matrix == null) {
+        return null;
+      }
+      final Object result = Array.newInstance(clazz.getComponentType(), matrix.length);
+      for (int i = 0; i < matrix.length; i++) {
+        final Object row = toPrimitiveArray(matrix[i], clazz.getComponentType());
+        if (row == null) {
+          return null;
+        }
+        Array.set(result, i, row);
+      }
+      return result;
+    } else {
+      final Value[] linear = DataUtils.getLinear(data);
+      if (linear == null) {
+        return null;
+      }
+      return toPrimitiveArray(linear, clazz);
+    }
+  }
+
+  private static Object toPrimitiveArray(final Value[] values, final Class<?> clazz) {
+    if (clazz == double[].class) {
+      final double[] result = new double[values.length];
+      for (int i = 0; i < values.length; i++) {
+        final Double value = ValueUtils.toDouble(values[i]);
+        if (value == null) {
+          return null;
+        }
+        result[i] = value;
+      }
+      return result;
+    } else if (clazz == int[].class) {
+      final int[] result = new int[values.length];
+      for (int i = 0; i < values.length; i++) {
+        final Integer value = ValueUtils.toInt(values[i]);
+        if (value == null) {
+          return null;
+        }
+        result[i] = value;
+      }
+      return result;
+    } else if (clazz == boolean[].class) {
+      final boolean[] result = new boolean[values.length];
+      for (int i = 0; i < values.length; i++) {
+        final Boolean value = ValueUtils.toBool(values[i]);
+        if (value == null) {
+          return null;
+        }
+        result[i] = value;
+      }
+      return result;
+    } else {
+      return null;
+    }
+  }
+
   @Override
   public void convertValue(ValueConversionContext conversionContext, Object value, JavaTypeInfo<?> type) {
     final Class<?> clazz = type.getRawClass();
@@ -80,12 +198,27 @@ public final class DataConverter extends AbstractTypeConverter {
       } else if (value instanceof Value[][]) {
         conversionContext.setResult(DataUtils.of((Value[][]) value));
       } else {
-        conversionContext.setFail();
+        final Data data = toData(conversionContext, value);
+        if (data != null) {
+          conversionContext.setResult(data);
+        } else {
+          conversionContext.setFail();
+        }
       }
       return;
     }
     if (value instanceof Data) {
       final Data dataValue = (Data) value;
+      if (clazz.isArray() && !Value.class.equals(clazz.getComponentType()) && !Value[].class.equals(clazz.getComponentType())) {
+        // Primitive array (DOUBLE_1 and friends)
+        final Object result = toPrimitiveArray(dataValue, clazz);
+        if (result != null) {
+          conversionContext.setResult(result);
+        } else {
+          conversionContext.setFail();
+        }
+        return;
+      }
       if (dataValue.getSingle() != null) {
         if (clazz == Value.class) {
           conversionContext.setResult(dataValue.getSingle());
@@ -104,6 +237,20 @@ public final class DataConverter extends AbstractTypeConverter {
           conversionContext.setResult(dataValue.getMatrix());
           return;
         }
+      } else if (dataValue.getColumns() != null) {
+        if (clazz == Value[].class) {
+          final Value[] linear = DataUtils.getLinear(dataValue);
+          if (linear != null) {
+            conversionContext.setResult(linear);
+            return;
+          }
+        } else if (clazz == Value[][].class) {
+          final Value[][] matrix = DataUtils.getMatrix(dataValue);
+          if (matrix != null) {
+            conversionContext.setResult(matrix);
+            return;
+          }
+        }
       } else {
         if (type.isAllowNull()) {
           conversionContext.setResult(null);
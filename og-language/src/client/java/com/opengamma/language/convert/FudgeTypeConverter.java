@@ -9,6 +9,8 @@ package com.opengamma.language.convert;
 import static com.opengamma.language.convert.TypeMap.ZERO_LOSS_NON_PREFERRED;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeFieldType;
@@ -25,12 +27,16 @@ import org.slf4j.LoggerFactory;
 import com.opengamma.language.Data;
 import com.opengamma.language.Value;
 import com.opengamma.language.definition.JavaTypeInfo;
-import com.opengamma.language.definition.JavaTypeInfo.Builder;
 import com.opengamma.language.invoke.AbstractTypeConverter;
+import com.opengamma.language.object.ObjectHandles;
 
 /**
  * Conversions using the Fudge type and object dictionaries. Conversions will use secondary types if applicable, falling back to
  * the message/object builders otherwise.  
+ * <p>
+ * If the session holds {@link ObjectHandles} then objects are not serialized; the message produced is a handle to the object
+ * which resolves back to it when converted from. The handle resolves to the same instance, so any changes made to it by a
+ * function are visible through the handle. If the store is full the object is serialized as normal.
  */
 public final class FudgeTypeConverter extends AbstractTypeConverter {
 
@@ -45,8 +51,60 @@ public final class FudgeTypeConverter extends AbstractTypeConverter {
   private static final Map<JavaTypeInfo<?>, Integer> FROM_FUDGE_MSG = TypeMap.of(ZERO_LOSS_NON_PREFERRED, FUDGE_MSG);
   private static final Map<JavaTypeInfo<?>, Integer> FROM_FUDGE_MSG_ALLOW_NULL = TypeMap.of(ZERO_LOSS_NON_PREFERRED, FUDGE_MSG_ALLOW_NULL);
 
+  /**
+   * The results of the type and object dictionary lookups for a class.
+   */
+  private static final class TypeDescriptor {
+
+    private final FudgeFieldType _fieldType;
+    private final boolean _defaultObject;
+    private final Class<?> _baseClass;
+    private final Map<JavaTypeInfo<?>, Integer> _conversionsTo;
+    private final Map<JavaTypeInfo<?>, Integer> _conversionsToAllowNull;
+
+    private TypeDescriptor(final FudgeContext fudgeContext, final Class<?> rawClass) {
+      _fieldType = fudgeContext.getTypeDictionary().getByJavaType(rawClass);
+      _defaultObject = fudgeContext.getObjectDictionary().isDefaultObject(rawClass);
+      _baseClass = baseClass(rawClass);
+      if (_fieldType == null) {
+        // Arbitrary object type; conversion may be possible from a Fudge message
+        _conversionsTo = FROM_FUDGE_MSG;
+        _conversionsToAllowNull = FROM_FUDGE_MSG_ALLOW_NULL;
+      } else if (_fieldType instanceof SecondaryFieldType<?, ?>) {
+        // Secondary type; conversion is from the primary type
+        final Class<?> primaryType = ((SecondaryFieldType<?, ?>) _fieldType).getPrimaryType().getJavaType();
+        _conversionsTo = TypeMap.of(TypeMap.MINOR_LOSS, JavaTypeInfo.builder(primaryType).get());
+        _conversionsToAllowNull = TypeMap.of(TypeMap.MINOR_LOSS, JavaTypeInfo.builder(primaryType).allowNull().get());
+      } else {
+        // Arbitrary wire type; dictionary conversion may be possible
+        _conversionsTo = FROM_OBJECT;
+        _conversionsToAllowNull = FROM_OBJECT_ALLOW_NULL;
+      }
+    }
+
+  }
+
   private final FudgeContext _fudgeContext;
+  private final ConcurrentMap<Class<?>, TypeDescriptor> _descriptors = new ConcurrentHashMap<Class<?>, TypeDescriptor>();
+  private final ThreadLocal<FudgeSerializer> _serializer = new ThreadLocal<FudgeSerializer>() {
+    @Override
+    protected FudgeSerializer initialValue() {
+      return new FudgeSerializer(getFudgeContext());
+    }
+  };
+  private final ThreadLocal<FudgeDeserializer> _deserializer = new ThreadLocal<FudgeDeserializer>() {
+    @Override
+    protected FudgeDeserializer initialValue() {
+      return new FudgeDeserializer(getFudgeContext());
+    }
+  };
 
+  /**
+   * Creates a new converter. The lookups against the Fudge type and object dictionaries are cached, so the dictionaries must be
+   * fully configured before the converter is used.
+   * 
+   * @param fudgeContext the Fudge context, not null
+   */
   public FudgeTypeConverter(final FudgeContext fudgeContext) {
     _fudgeContext = fudgeContext;
   }
@@ -55,10 +113,22 @@ public final class FudgeTypeConverter extends AbstractTypeConverter {
     return _fudgeContext;
   }
 
+  private TypeDescriptor getDescriptor(final Class<?> rawClass) {
+    TypeDescriptor descriptor = _descriptors.get(rawClass);
+    if (descriptor == null) {
+      descriptor = new TypeDescriptor(getFudgeContext(), rawClass);
+      final TypeDescriptor existing = _descriptors.putIfAbsent(rawClass, descriptor);
+      if (existing != null) {
+        descriptor = existing;
+      }
+    }
+    return descriptor;
+  }
+
   @Override
-  public synchronized boolean canConvertTo(final JavaTypeInfo<?> targetType) {
+  public boolean canConvertTo(final JavaTypeInfo<?> targetType) {
     final Class<?> rawType = targetType.getRawClass();
-    return ((rawType != Data.class) && (rawType != Value.class) && !getFudgeContext().getObjectDictionary().isDefaultObject(rawType));
+    return ((rawType != Data.class) && (rawType != Value.class) && !getDescriptor(rawType)._defaultObject);
   }
 
   @SuppressWarnings("unchecked")
@@ -76,30 +146,55 @@ public final class FudgeTypeConverter extends AbstractTypeConverter {
       conversionContext.setFail();
       return;
     }
-    final FudgeFieldType fieldType = getFudgeContext().getTypeDictionary().getByJavaType(type.getRawClass());
+    final FudgeFieldType fieldType = getDescriptor(type.getRawClass())._fieldType;
     try {
       if (fieldType == null) {
         // Try conversion from Fudge message
-        final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
-        conversionContext.setResult(deserializer.fudgeMsgToObject(type.getRawClass(), (FudgeMsg) value));
+        final FudgeMsg msg = (FudgeMsg) value;
+        final ObjectHandles handles = conversionContext.getSessionContext().getObjectHandles();
+        if (handles != null) {
+          final Long handle = ObjectHandles.getHandle(msg);
+          if (handle != null) {
+            // Resolve to the live object; the handle message can't be deserialized
+            final Object object = handles.get(handle);
+            if ((object != null) && type.getRawClass().isInstance(object)) {
+              conversionContext.setResult(object);
+            } else {
+              s_logger.debug("Object handle {} not valid for {}", handle, type);
+              conversionContext.setFail();
+            }
+            return;
+          }
+        }
+        final FudgeDeserializer deserializer = _deserializer.get();
+        deserializer.reset();
+        conversionContext.setResult(deserializer.fudgeMsgToObject(type.getRawClass(), msg));
       } else if (fieldType instanceof SecondaryFieldType<?, ?>) {
         // Try conversion from primary type
         conversionContext.setResult(((SecondaryFieldType<Object, Object>) fieldType).primaryToSecondary(value));
       } else {
-        final FudgeFieldType valueType = getFudgeContext().getTypeDictionary().getByJavaType(value.getClass());
+        final Class<?> valueClass = value.getClass();
+        final TypeDescriptor valueDescriptor = getDescriptor(valueClass);
+        final FudgeFieldType valueType = valueDescriptor._fieldType;
         if ((valueType == null) && (fieldType.getTypeId() == FudgeWireType.SUB_MESSAGE_TYPE_ID)) {
           // Serialization to a message
-          final Class<?> valueClass = value.getClass();
-          if (getFudgeContext().getObjectDictionary().isDefaultObject(valueClass)) {
+          if (valueDescriptor._defaultObject) {
             // Don't convert default objects to messages; they should be expressed using Data/Value constructs
             conversionContext.setFail();
           } else {
-            final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
-            final MutableFudgeMsg msg = serializer.objectToFudgeMsg(value);
-            if (msg.getByOrdinal(FudgeSerializer.TYPES_HEADER_ORDINAL) == null) {
-              FudgeSerializer.addClassHeader(msg, valueClass, baseClass(valueClass));
+            final ObjectHandles handles = conversionContext.getSessionContext().getObjectHandles();
+            final Long handle = (handles != null) ? handles.lock(value) : null;
+            if (handle != null) {
+              // Hold the object in the session and pass a handle to it; the class header is kept so the client can still see the type
+              final MutableFudgeMsg msg = getFudgeContext().newMessage();
+              msg.add(ObjectHandles.HANDLE_FIELD, handle);
+              FudgeSerializer.addClassHeader(msg, valueClass, valueDescriptor._baseClass);
+              conversionContext.setResult(msg);
+            } else {
+              final FudgeSerializer serializer = _serializer.get();
+              serializer.reset();
+              conversionContext.setResult(objectToFudgeMsg(serializer, value, valueDescriptor._baseClass));
             }
-            conversionContext.setResult(msg);
           }
         } else {
           // Target is a primary type; the source value might be a secondary type that can convert to it
@@ -123,34 +218,41 @@ public final class FudgeTypeConverter extends AbstractTypeConverter {
     }
   }
 
-  private Class<?> baseClass(Class<?> cls) {
+  private static Class<?> baseClass(Class<?> cls) {
+    if (cls.getSuperclass() == null) {
+      // Interface, primitive or Object; these are never serialized
+      return null;
+    }
     while (cls.getSuperclass() != Object.class && cls.getSuperclass() != DirectBean.class) {
       cls = cls.getSuperclass();
     }
     return cls.getSuperclass();
   }
 
+  private static MutableFudgeMsg objectToFudgeMsg(final FudgeSerializer serializer, final Object value, final Class<?> baseClass) {
+    final MutableFudgeMsg msg = serializer.objectToFudgeMsg(value);
+    if (msg.getByOrdinal(FudgeSerializer.TYPES_HEADER_ORDINAL) == null) {
+      FudgeSerializer.addClassHeader(msg, value.getClass(), baseClass);
+    }
+    return msg;
+  }
+
+  /**
+   * Serializes an object to a message, adding a class header if the object's builder did not.
+   * 
+   * @param fudgeContext the Fudge context, not null
+   * @param value the object to serialize, not null
+   * @return the message, not null
+   */
+  public static MutableFudgeMsg objectToFudgeMsg(final FudgeContext fudgeContext, final Object value) {
+    return objectToFudgeMsg(new FudgeSerializer(fudgeContext), value, baseClass(value.getClass()));
+  }
+
   @Override
   public Map<JavaTypeInfo<?>, Integer> getConversionsTo(final JavaTypeInfo<?> targetType) {
-    final FudgeFieldType fieldType = getFudgeContext().getTypeDictionary().getByJavaType(targetType.getRawClass());
-    if (fieldType == null) {
-      // Arbitrary object type found; conversion may be possible from a Fudge message
-      s_logger.debug("Possible conversion from FudgeMsg to arbitrary object {}", targetType);
-      return targetType.isAllowNull() ? FROM_FUDGE_MSG_ALLOW_NULL : FROM_FUDGE_MSG;
-    } else if (fieldType instanceof SecondaryFieldType<?, ?>) {
-      // Secondary type found; conversion is from the primary type
-      final Builder<?> builder = JavaTypeInfo.builder(((SecondaryFieldType<?, ?>) fieldType).getPrimaryType().getJavaType());
-      if (targetType.isAllowNull()) {
-        builder.allowNull();
-      }
-      final JavaTypeInfo<?> sourceType = builder.get();
-      s_logger.debug("Secondary type conversion from {} to {}", sourceType, targetType);
-      return TypeMap.of(TypeMap.MINOR_LOSS, sourceType);
-    } else {
-      // Arbitrary wire type found; dictionary conversion may be possible
-      s_logger.debug("Possible conversion from Object to wire type {}", targetType);
-      return targetType.isAllowNull() ? FROM_OBJECT_ALLOW_NULL : FROM_OBJECT;
-    }
+    final TypeDescriptor descriptor = getDescriptor(targetType.getRawClass());
+    s_logger.debug("Conversions to {} are {}", targetType, descriptor._conversionsTo);
+    return targetType.isAllowNull() ? descriptor._conversionsToAllowNull : descriptor._conversionsTo;
   }
 
 }
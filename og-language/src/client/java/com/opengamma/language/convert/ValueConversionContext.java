@@ -22,7 +22,7 @@ import com.opengamma.util.ArgumentChecker;
  */
 public final class ValueConversionContext {
 
-  private final SessionContext _sessionContext;
+  private SessionContext _sessionContext;
   private final com.opengamma.language.invoke.ValueConverter _converter;
   private final Map<Object, Set<JavaTypeInfo<?>>> _failedConversions = new HashMap<Object, Set<JavaTypeInfo<?>>>();
   private final Set<JavaTypeInfo<?>> _visited = new HashSet<JavaTypeInfo<?>>();
@@ -30,6 +30,7 @@ public final class ValueConversionContext {
   private boolean _hasFailed;
   private Object _result;
   private int _reentrance;
+  private Object _hint;
 
   public ValueConversionContext(final SessionContext sessionContext, final com.opengamma.language.invoke.ValueConverter converter) {
     ArgumentChecker.notNull(sessionContext, "sessionContext");
@@ -38,6 +39,23 @@ public final class ValueConversionContext {
     _converter = converter;
   }
 
+  /**
+   * Resets the context so that it can be reused for another, unrelated, conversion.
+   * 
+   * @param sessionContext the session context for the next conversion, not null
+   */
+  public void reset(final SessionContext sessionContext) {
+    ArgumentChecker.notNull(sessionContext, "sessionContext");
+    _sessionContext = sessionContext;
+    _failedConversions.clear();
+    _visited.clear();
+    _hasResult = false;
+    _hasFailed = false;
+    _result = null;
+    _reentrance = 0;
+    _hint = null;
+  }
+
   public SessionContext getSessionContext() {
     return _sessionContext;
   }
@@ -50,6 +68,10 @@ public final class ValueConversionContext {
     return getSessionContext().getGlobalContext();
   }
 
+  public com.opengamma.language.invoke.ValueConverter getValueConverter() {
+    return _converter;
+  }
+
   public int getReentranceCount() {
     return _reentrance;
   }
@@ -82,6 +104,20 @@ public final class ValueConversionContext {
     return types.contains(type);
   }
 
+  /**
+   * Returns the hint left by the value converter describing how the last top level conversion was performed. Passing the hint back for a
+   * similar conversion may allow the converter to skip its normal search.
+   * 
+   * @return the opaque hint, or null if none
+   */
+  public Object getHint() {
+    return _hint;
+  }
+
+  public void setHint(final Object hint) {
+    _hint = hint;
+  }
+
   public boolean setFail() {
     if (_hasResult) {
       throw new IllegalStateException("Result (" + _result + ") already set");
@@ -70,6 +70,11 @@ public class CurrencyPairFunction implements PublishedFunction {
       super(parameters);
     }
 
+    @Override
+    protected boolean isBroadcast() {
+      return true;
+    }
+
     @Override
     protected Object invokeImpl(SessionContext sessionContext, Object[] parameters) throws AsynchronousExecution {
       Currency currency1 = (Currency) parameters[0];
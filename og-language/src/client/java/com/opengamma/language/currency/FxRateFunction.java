@@ -83,6 +83,11 @@ public class FxRateFunction implements PublishedFunction {
       super(params);
     }
 
+    @Override
+    protected boolean isBroadcast() {
+      return true;
+    }
+
     @Override
     protected Object invokeImpl(SessionContext sessionContext, Object[] parameters) throws AsynchronousExecution {
       Currency currency1 = (Currency) parameters[0];
@@ -54,13 +54,16 @@ public class DebugFunctionIncrement implements PublishedFunction {
   private Data execute(final Data parameter) {
     if (parameter.getSingle() != null) {
       return DataUtils.of(execute(parameter.getSingle()));
-    } else if (parameter.getLinear() != null) {
-      return DataUtils.of(execute(parameter.getLinear()));
-    } else if (parameter.getMatrix() != null) {
-      return DataUtils.of(execute(parameter.getMatrix()));
-    } else {
-      throw new IllegalArgumentException("Expected single, linear or matrix");
     }
+    final Value[] linear = DataUtils.getLinear(parameter);
+    if (linear != null) {
+      return DataUtils.of(execute(linear));
+    }
+    final Value[][] matrix = DataUtils.getMatrix(parameter);
+    if (matrix != null) {
+      return DataUtils.of(execute(matrix));
+    }
+    throw new IllegalArgumentException("Expected single, linear or matrix");
   }
 
   @Override
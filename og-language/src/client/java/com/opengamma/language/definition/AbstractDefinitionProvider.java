@@ -10,16 +10,35 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
 
 /**
- * Partial implementation of {@link DefinitionProvider} that caches the results.
+ * Partial implementation of {@link DefinitionProvider} that caches the results. Concurrent callers share a single load of the
+ * definitions rather than each loading them or waiting on a monitor.
  * 
  * @param <T> the definition type
  */
 public abstract class AbstractDefinitionProvider<T extends Definition> implements DefinitionProvider<T> {
 
+  private static final ExecutorService s_loader;
+
+  static {
+    final CustomizableThreadFactory threads = new CustomizableThreadFactory("DefinitionLoader-");
+    threads.setDaemon(true);
+    s_loader = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threads);
+  }
+
   private final boolean _enableCache;
-  private volatile Set<T> _cached;
+  private final AtomicReference<FutureTask<Set<T>>> _cached = new AtomicReference<FutureTask<Set<T>>>();
 
   protected AbstractDefinitionProvider() {
     this(true);
@@ -29,6 +48,43 @@ public abstract class AbstractDefinitionProvider<T extends Definition> implement
     _enableCache = enableCache;
   }
 
+  /**
+   * Returns the bounded pool that providers are loaded on. Work submitted to the pool must not block waiting for other work
+   * submitted to the pool unless it will run that work itself if it has not started; see {@link #getResult}.
+   *
+   * @return the executor service, not null
+   */
+  protected static ExecutorService getLoader() {
+    return s_loader;
+  }
+
+  /**
+   * Waits for a task submitted to {@link #getLoader}, running it in the calling thread if it has not yet started. This avoids
+   * starving the pool when loads are nested.
+   *
+   * @param <X> the result type
+   * @param task the task, not null
+   * @return the result of the task
+   */
+  protected static <X> X getResult(final FutureTask<X> task) {
+    task.run();
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new OpenGammaRuntimeException("Couldn't load definitions", cause);
+    }
+  }
+
   /**
    * Adds any definitions to the supplied collection. The implementation must not
    * attempt any caching or retain a reference to the collection.
@@ -56,19 +112,36 @@ public abstract class AbstractDefinitionProvider<T extends Definition> implement
   @Override
   public final Set<T> getDefinitions() {
     if (_enableCache) {
-      if (_cached == null) {
-        synchronized (this) {
-          if (_cached == null) {
+      FutureTask<Set<T>> cached = _cached.get();
+      if (cached == null) {
+        final FutureTask<Set<T>> load = new FutureTask<Set<T>>(new Callable<Set<T>>() {
+          @Override
+          public Set<T> call() {
             final Set<T> definitions = getDefinitionsImpl();
             if (definitions == null) {
-              _cached = Collections.emptySet();
+              return Collections.emptySet();
             } else {
-              _cached = definitions;
+              return definitions;
             }
           }
+        });
+        if (_cached.compareAndSet(null, load)) {
+          cached = load;
+        } else {
+          cached = _cached.get();
+          if (cached == null) {
+            // Flushed in the meantime
+            return getDefinitions();
+          }
         }
       }
-      return _cached;
+      try {
+        return getResult(cached);
+      } catch (RuntimeException e) {
+        // Allow a later call to retry
+        _cached.compareAndSet(cached, null);
+        throw e;
+      }
     } else {
       return getDefinitionsImpl();
     }
@@ -77,7 +150,7 @@ public abstract class AbstractDefinitionProvider<T extends Definition> implement
   @Override
   public void flush() {
     if (_enableCache) {
-      _cached = null;
+      _cached.set(null);
     }
   }
 
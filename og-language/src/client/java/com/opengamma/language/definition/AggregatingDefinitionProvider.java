@@ -12,6 +12,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.FutureTask;
 
 import com.opengamma.util.ArgumentChecker;
 
@@ -23,7 +26,7 @@ import com.opengamma.util.ArgumentChecker;
  */
 public abstract class AggregatingDefinitionProvider<T extends Definition> extends AbstractDefinitionProvider<T> {
 
-  private final List<DefinitionProvider<T>> _providers = new ArrayList<DefinitionProvider<T>>();
+  private final List<DefinitionProvider<T>> _providers = new CopyOnWriteArrayList<DefinitionProvider<T>>();
 
   protected AggregatingDefinitionProvider(final boolean enableCache) {
     super(enableCache);
@@ -48,11 +51,30 @@ public abstract class AggregatingDefinitionProvider<T extends Definition> extend
     }
   }
 
+  /**
+   * Loads the definitions from each provider concurrently. The results are combined in provider order so that later providers
+   * take precedence as they would if loaded one after another.
+   */
   @Override
   protected final void loadDefinitions(final Collection<T> definitions) {
+    final List<DefinitionProvider<T>> providers = getProviders();
+    final List<FutureTask<Set<T>>> tasks = new ArrayList<FutureTask<Set<T>>>(providers.size());
+    for (final DefinitionProvider<T> provider : providers) {
+      final FutureTask<Set<T>> task = new FutureTask<Set<T>>(new Callable<Set<T>>() {
+        @Override
+        public Set<T> call() {
+          return provider.getDefinitions();
+        }
+      });
+      if (!tasks.isEmpty()) {
+        // The first is run by this thread while the others are loading
+        getLoader().execute(task);
+      }
+      tasks.add(task);
+    }
     final Map<String, T> definitionMap = new HashMap<String, T>();
-    for (DefinitionProvider<T> provider : getProviders()) {
-      final Set<T> providerDefinitions = provider.getDefinitions();
+    for (FutureTask<Set<T>> task : tasks) {
+      final Set<T> providerDefinitions = getResult(task);
       if (providerDefinitions != null) {
         for (T definition : providerDefinitions) {
           definitionMap.put(definition.getName(), definition);
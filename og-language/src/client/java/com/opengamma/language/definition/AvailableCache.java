@@ -0,0 +1,376 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.definition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.language.connector.UserMessagePayload;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Persistent cache of the {@code Available} messages that publish definitions to a client. Building these messages runs all of the
+ * definition providers, which can make the first connection to a service slow. The messages are written to a file, keyed by a hash of the
+ * class path and configuration, so that a restarted service can answer the first query without running the providers.
+ * <p>
+ * The identifiers allocated to each definition are stored with the message and reserved in the session's {@link DefinitionRepository}
+ * so that invocations from the client resolve to the right definition when the repository is populated later. The first time a cached
+ * message is used the providers are run in the background; if the result differs the cache is updated for subsequent sessions.
+ * Cached messages are sent to the client in their encoded form rather than being decoded into the message classes again.
+ */
+public class AvailableCache {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(AvailableCache.class);
+
+  private static final int MAGIC = 0x4F474143;
+  private static final int VERSION = 1;
+
+  private static final String PAYLOAD_KEY = "payload";
+  private static final String IDENTIFIER_KEY = "identifier";
+  private static final String NAME_KEY = "name";
+
+  private static final class Entry {
+
+    private final FudgeMsg _payload;
+    private final byte[] _encoded;
+    private final Map<String, Integer> _identifiers;
+
+    public Entry(final FudgeMsg payload, final byte[] encoded, final Map<String, Integer> identifiers) {
+      _payload = payload;
+      _encoded = encoded;
+      _identifiers = identifiers;
+    }
+
+  }
+
+  private final File _file;
+  private final FudgeContext _fudgeContext;
+  private final byte[] _key;
+  private final ExecutorService _executor;
+  private final Set<String> _revalidated = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private volatile ConcurrentMap<String, Entry> _entries;
+
+  /**
+   * Creates a cache backed by the given file.
+   *
+   * @param file the cache file, not null
+   * @param configuration a description of the service configuration to include in the cache key, not null
+   * @param fudgeContext the Fudge context to encode messages with, not null
+   */
+  public AvailableCache(final File file, final String configuration, final FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(file, "file");
+    ArgumentChecker.notNull(configuration, "configuration");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _file = file;
+    _fudgeContext = fudgeContext;
+    _key = createKey(configuration);
+    final CustomizableThreadFactory threads = new CustomizableThreadFactory("AvailableCache-");
+    threads.setDaemon(true);
+    _executor = Executors.newSingleThreadExecutor(threads);
+  }
+
+  public File getFile() {
+    return _file;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  /**
+   * Hashes the class path and configuration. Class path entries contribute their size and modification time so that a rebuilt
+   * JAR invalidates the cache.
+   */
+  private static byte[] createKey(final String configuration) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final StringBuilder sb = new StringBuilder();
+      sb.append(VERSION).append('\n').append(configuration).append('\n');
+      final String classPath = System.getProperty("java.class.path", "");
+      for (String element : classPath.split(File.pathSeparator)) {
+        final File file = new File(element);
+        sb.append(element).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+      }
+      return digest.digest(sb.toString().getBytes("UTF-8"));
+    } catch (NoSuchAlgorithmException e) {
+      throw new OpenGammaRuntimeException("Can't create cache key", e);
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Can't create cache key", e);
+    }
+  }
+
+  private byte[] encode(final FudgeMsg message) {
+    return getFudgeContext().toByteArray(message);
+  }
+
+  private Entry createEntry(final FudgeMsg message) {
+    final FudgeMsg payload = message.getMessage(PAYLOAD_KEY);
+    final Map<String, Integer> identifiers = new HashMap<String, Integer>();
+    for (FudgeField field : message.getAllByName(IDENTIFIER_KEY)) {
+      final FudgeMsg identifier = (FudgeMsg) field.getValue();
+      identifiers.put(identifier.getString(NAME_KEY), identifier.getInt(IDENTIFIER_KEY));
+    }
+    return new Entry(payload, encode(payload), identifiers);
+  }
+
+  private ConcurrentMap<String, Entry> read() {
+    final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    if (!_file.exists()) {
+      s_logger.info("No cache file {}", _file);
+      return entries;
+    }
+    try {
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)));
+      try {
+        if ((in.readInt() != MAGIC) || (in.readInt() != VERSION)) {
+          s_logger.info("Ignoring cache file {} from a different version", _file);
+          return entries;
+        }
+        final byte[] key = new byte[in.readInt()];
+        in.readFully(key);
+        if (!Arrays.equals(key, _key)) {
+          s_logger.info("Ignoring cache file {} from a different class path or configuration", _file);
+          return entries;
+        }
+        final FudgeMsg message = getFudgeContext().deserialize((InputStream) in).getMessage();
+        for (FudgeField field : message) {
+          entries.put(field.getName(), createEntry((FudgeMsg) field.getValue()));
+        }
+        s_logger.info("Loaded {} cached definition sets from {}", entries.size(), _file);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      s_logger.warn("Couldn't read cache file {}: {}", _file, e.toString());
+    } catch (RuntimeException e) {
+      s_logger.warn("Invalid cache file {}: {}", _file, e.toString());
+      entries.clear();
+    }
+    return entries;
+  }
+
+  private ConcurrentMap<String, Entry> getEntries() {
+    ConcurrentMap<String, Entry> entries = _entries;
+    if (entries == null) {
+      synchronized (this) {
+        entries = _entries;
+        if (entries == null) {
+          entries = read();
+          _entries = entries;
+        }
+      }
+    }
+    return entries;
+  }
+
+  private void write() {
+    final MutableFudgeMsg message = getFudgeContext().newMessage();
+    for (Map.Entry<String, Entry> entry : getEntries().entrySet()) {
+      final MutableFudgeMsg msg = getFudgeContext().newMessage();
+      msg.add(PAYLOAD_KEY, entry.getValue()._payload);
+      for (Map.Entry<String, Integer> identifier : entry.getValue()._identifiers.entrySet()) {
+        final MutableFudgeMsg identifierMsg = getFudgeContext().newMessage();
+        identifierMsg.add(NAME_KEY, identifier.getKey());
+        identifierMsg.add(IDENTIFIER_KEY, identifier.getValue());
+        msg.add(IDENTIFIER_KEY, identifierMsg);
+      }
+      message.add(entry.getKey(), msg);
+    }
+    final File temp = new File(_file.getPath() + ".tmp");
+    try {
+      final OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+      try {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(_key.length);
+        data.write(_key);
+        data.write(encode(message));
+        data.flush();
+      } finally {
+        out.close();
+      }
+      if (_file.exists() && !_file.delete()) {
+        s_logger.warn("Couldn't replace cache file {}", _file);
+        temp.delete();
+        return;
+      }
+      if (!temp.renameTo(_file)) {
+        s_logger.warn("Couldn't write cache file {}", _file);
+        return;
+      }
+      s_logger.info("Wrote cache file {}", _file);
+    } catch (IOException e) {
+      s_logger.warn("Couldn't write cache file {}: {}", _file, e.toString());
+    }
+  }
+
+  /**
+   * Returns the cached message and reserves its identifiers in the repository.
+   *
+   * @param name the name of the definition set, not null
+   * @param repository the repository the client will invoke definitions from, not null
+   * @return the cached message, or null if there is none or its identifiers can't be used by the repository
+   */
+  public FudgeMsg get(final String name, final DefinitionRepository<?> repository) {
+    final Entry entry = getEntries().get(name);
+    if (entry == null) {
+      return null;
+    }
+    if (!repository.reserve(entry._identifiers)) {
+      s_logger.info("Cached {} identifiers conflict with session repository", name);
+      return null;
+    }
+    s_logger.debug("Using cached {} definitions", name);
+    return entry._payload;
+  }
+
+  /**
+   * Returns a deserializer for decoding the messages returned by {@link #get}.
+   *
+   * @return the deserializer to pass to the message's {@code fromFudgeMsg} method, not null
+   */
+  public FudgeDeserializer getFudgeDeserializer() {
+    return new FudgeDeserializer(getFudgeContext());
+  }
+
+  /**
+   * Stores a message in the cache. The cache file is written in the background if the message differs from the one already held.
+   *
+   * @param name the name of the definition set, not null
+   * @param payload the message, not null
+   * @param repository the repository the message's identifiers were allocated from, not null
+   * @return the encoded message, not null
+   */
+  public FudgeMsg put(final String name, final UserMessagePayload payload, final DefinitionRepository<?> repository) {
+    final FudgeMsg message = payload.toFudgeMsg(new FudgeSerializer(getFudgeContext()));
+    final byte[] encoded = encode(message);
+    final Entry previous = getEntries().get(name);
+    if ((previous != null) && Arrays.equals(previous._encoded, encoded)) {
+      s_logger.debug("Cached {} definitions are current", name);
+      return message;
+    }
+    final Map<String, Integer> identifiers = new HashMap<String, Integer>();
+    for (Map.Entry<Integer, ? extends Definition> definition : repository.getAll().entrySet()) {
+      identifiers.put(definition.getValue().getName(), definition.getKey());
+    }
+    s_logger.info("Updating cached {} definitions", name);
+    getEntries().put(name, new Entry(message, encoded, identifiers));
+    _executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        write();
+      }
+    });
+    return message;
+  }
+
+  /**
+   * Answers a query for the full set of definitions. A cached message is used if there is one, and rebuilt in the background the first
+   * time. Otherwise the message is built and stored. The message is returned in its encoded form, carrying the repository's epoch.
+   *
+   * @param name the name of the definition set, not null
+   * @param type the message type, not null
+   * @param repository the session's repository, not null
+   * @param builder builds the message, populating the repository as it does so, not null
+   * @return the payload to send to the client, not null
+   */
+  public UserMessagePayload getAvailable(final String name, final Class<? extends UserMessagePayload> type, final DefinitionRepository<?> repository,
+      final Callable<? extends UserMessagePayload> builder) {
+    final FudgeMsg cached = get(name, repository);
+    if (cached != null) {
+      s_logger.info("Using cached {} definitions", name);
+      revalidate(name, repository, builder);
+      // The cached generation is from another session's repository; everything in this one is newer than zero
+      return new EncodedPayload(type, cached, 0, repository.getEpoch());
+    }
+    final UserMessagePayload payload;
+    try {
+      payload = builder.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new OpenGammaRuntimeException("Couldn't build " + name + " definitions", e);
+    }
+    return new EncodedPayload(type, put(name, payload, repository), null, repository.getEpoch());
+  }
+
+  /**
+   * Waits for background rebuilds and writes to complete.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  /* package */void sync() throws InterruptedException {
+    try {
+      _executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          // No-op; completes after anything already queued
+        }
+      }).get();
+    } catch (ExecutionException e) {
+      throw new OpenGammaRuntimeException("Unexpected exception", e);
+    }
+  }
+
+  /**
+   * Rebuilds a message in the background, the first time its cached form is used, to detect a stale cache.
+   *
+   * @param name the name of the definition set, not null
+   * @param repository the repository the rebuilt message's identifiers will be allocated from, not null
+   * @param builder builds the message, typically populating the repository as it does so, not null
+   */
+  public void revalidate(final String name, final DefinitionRepository<?> repository, final Callable<? extends UserMessagePayload> builder) {
+    if (!_revalidated.add(name)) {
+      return;
+    }
+    _executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          put(name, builder.call(), repository);
+        } catch (Exception e) {
+          s_logger.warn("Couldn't rebuild {} definitions: {}", name, e.toString());
+          s_logger.debug("Caught exception", e);
+        }
+      }
+    });
+  }
+
+}
@@ -7,10 +7,15 @@
 package com.opengamma.language.definition;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -18,6 +23,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Repository of object definitions, mapping integer identifiers to the underlying objects. These
  * identifiers will be used by clients to refer to the objects for invocation.
+ * <p>
+ * The repository has a generation number which increases each time an object is added, changed or removed. A client
+ * holding the definitions from one generation can request just the changes made since then. Generations are only meaningful
+ * within one repository, so each repository also has a unique epoch which the client must present with its generation.
  * 
  * @param <T> the type of object held
  */
@@ -26,6 +35,10 @@ public class DefinitionRepository<T extends Definition> {
   private final AtomicInteger _nextIdentifier = new AtomicInteger(1);
   private final Map<Integer, T> _objects = new ConcurrentHashMap<Integer, T>();
   private final ConcurrentMap<String, Integer> _objectNames = new ConcurrentHashMap<String, Integer>();
+  private final String _epoch = UUID.randomUUID().toString();
+  private final AtomicInteger _generation = new AtomicInteger();
+  private final Map<Integer, Integer> _modified = new ConcurrentHashMap<Integer, Integer>();
+  private final Map<Integer, Integer> _removed = new ConcurrentHashMap<Integer, Integer>();
   private boolean _initialized;
 
   /**
@@ -44,10 +57,106 @@ public class DefinitionRepository<T extends Definition> {
         identifier = existing;
       }
     }
-    _objects.put(identifier, object);
+    final T previous = _objects.put(identifier, object);
+    if (!object.equals(previous)) {
+      _removed.remove(identifier);
+      _modified.put(identifier, _generation.incrementAndGet());
+    }
     return identifier;
   }
 
+  /**
+   * Removes an object from the repository. Its identifier remains allocated to the name in case it is added again.
+   *
+   * @param identifier the object to remove
+   * @return the object removed, null if not found
+   */
+  public T remove(final int identifier) {
+    final T previous = _objects.remove(identifier);
+    if (previous != null) {
+      _modified.remove(identifier);
+      _removed.put(identifier, _generation.incrementAndGet());
+    }
+    return previous;
+  }
+
+  /**
+   * Returns the current generation of the repository. This should be read before the definitions so that any changes made
+   * while they are being published are included in the next set of changes.
+   *
+   * @return the generation number
+   */
+  public int getGeneration() {
+    return _generation.get();
+  }
+
+  /**
+   * Returns the identifier of this repository instance. A generation number from a different epoch cannot be passed to
+   * {@link #getChanges}.
+   *
+   * @return the epoch, not null
+   */
+  public String getEpoch() {
+    return _epoch;
+  }
+
+  /**
+   * Returns the definitions added or changed since a given generation.
+   *
+   * @param generation the generation the client last received
+   * @param removed receives the identifiers of any definitions removed since that generation, not null
+   * @return the added or changed definitions, not null
+   */
+  public Map<Integer, T> getChanges(final int generation, final Collection<Integer> removed) {
+    final Map<Integer, T> changes = new HashMap<Integer, T>();
+    for (Map.Entry<Integer, Integer> modified : _modified.entrySet()) {
+      if (modified.getValue() > generation) {
+        final T object = _objects.get(modified.getKey());
+        if (object != null) {
+          changes.put(modified.getKey(), object);
+        }
+      }
+    }
+    for (Map.Entry<Integer, Integer> identifier : _removed.entrySet()) {
+      if (identifier.getValue() > generation) {
+        removed.add(identifier.getKey());
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Reserves identifiers for objects that will be added later. This allows identifiers published to a client from an
+   * {@link AvailableCache} to remain valid when the repository is initialized.
+   *
+   * @param identifiers the identifiers to reserve, keyed by object name, not null
+   * @return true if the identifiers were reserved, false if any conflict with ones already allocated
+   */
+  public synchronized boolean reserve(final Map<String, Integer> identifiers) {
+    final Map<Integer, String> allocated = new HashMap<Integer, String>();
+    for (Map.Entry<String, Integer> objectName : _objectNames.entrySet()) {
+      allocated.put(objectName.getValue(), objectName.getKey());
+    }
+    for (Map.Entry<String, Integer> identifier : identifiers.entrySet()) {
+      final String name = allocated.get(identifier.getValue());
+      if ((name != null) && !name.equals(identifier.getKey())) {
+        return false;
+      }
+      final Integer existing = _objectNames.get(identifier.getKey());
+      if ((existing != null) && !existing.equals(identifier.getValue())) {
+        return false;
+      }
+    }
+    for (Map.Entry<String, Integer> identifier : identifiers.entrySet()) {
+      _objectNames.putIfAbsent(identifier.getKey(), identifier.getValue());
+      int next = _nextIdentifier.get();
+      while ((identifier.getValue() >= next) && !_nextIdentifier.compareAndSet(next, identifier.getValue() + 1)) {
+        next = _nextIdentifier.get();
+      }
+    }
+    return true;
+  }
+
   /**
    * Returns an object from the repository.
    * 
@@ -69,7 +178,8 @@ public class DefinitionRepository<T extends Definition> {
 
   /**
    * Initializes the repository from a definition provider. Any definitions
-   * with matching names are replaced. Anything else is created new.
+   * with matching names are replaced. Anything else is created new. Definitions
+   * no longer supplied by the provider are removed.
    * 
    * @param provider definition provider
    * @param reinitialize false to ignore if already initialized, true to reinitialize regardless
@@ -86,8 +196,12 @@ public class DefinitionRepository<T extends Definition> {
         return o1.getName().compareTo(o2.getName());
       }
     });
+    final Set<Integer> stale = new HashSet<Integer>(_objects.keySet());
     for (T definition : definitions) {
-      add(definition);
+      stale.remove(add(definition));
+    }
+    for (Integer identifier : stale) {
+      remove(identifier);
     }
     _initialized = true;
     return true;
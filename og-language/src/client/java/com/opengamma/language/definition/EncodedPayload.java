@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.definition;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.language.connector.UserMessagePayload;
+
+/**
+ * An {@code Available} message that has already been encoded, as held by the {@link AvailableCache}. It is written to the client as
+ * the message type it was encoded from, with its generation and epoch replaced, without being decoded into the message classes.
+ */
+/* package */final class EncodedPayload extends UserMessagePayload {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final String GENERATION_KEY = "generation";
+  private static final String EPOCH_KEY = "epoch";
+
+  private final Class<? extends UserMessagePayload> _type;
+  private final FudgeMsg _message;
+  private final Integer _generation;
+  private final String _epoch;
+
+  /**
+   * Creates a new payload.
+   *
+   * @param type the message type the payload was encoded from, not null
+   * @param message the encoded message, not null
+   * @param generation the generation to publish, null to keep the one in the message
+   * @param epoch the epoch to publish, not null
+   */
+  public EncodedPayload(final Class<? extends UserMessagePayload> type, final FudgeMsg message, final Integer generation, final String epoch) {
+    _type = type;
+    _message = message;
+    _generation = generation;
+    _epoch = epoch;
+  }
+
+  @Override
+  public void toFudgeMsg(final FudgeSerializer serializer, final MutableFudgeMsg msg) {
+    // The class header names this class; the client must see the message type it stands in for
+    msg.remove(0);
+    FudgeSerializer.addClassHeader(msg, _type, UserMessagePayload.class);
+    for (FudgeField field : _message) {
+      if (EPOCH_KEY.equals(field.getName()) || ((_generation != null) && GENERATION_KEY.equals(field.getName()))) {
+        continue;
+      }
+      msg.add(field);
+    }
+    if (_generation != null) {
+      msg.add(GENERATION_KEY, null, _generation);
+    }
+    msg.add(EPOCH_KEY, null, _epoch);
+  }
+
+}
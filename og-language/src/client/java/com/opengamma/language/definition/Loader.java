@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.definition;
+
+import java.io.File;
+
+import org.fudgemsg.FudgeContext;
+
+import com.opengamma.language.context.ContextInitializationBean;
+import com.opengamma.language.context.MutableGlobalContext;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Extends a global context to cache the definitions published to clients in a file.
+ */
+public class Loader extends ContextInitializationBean {
+
+  private String _cacheFile;
+  private String _configuration = "";
+  private FudgeContext _fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+
+  public void setCacheFile(final String cacheFile) {
+    ArgumentChecker.notNull(cacheFile, "cacheFile");
+    _cacheFile = cacheFile;
+  }
+
+  public String getCacheFile() {
+    return _cacheFile;
+  }
+
+  /**
+   * Sets a description of the configuration that affects the published definitions, for example the language and the URL the
+   * remote components are configured from. A cache file written under a different configuration will not be used.
+   *
+   * @param configuration the configuration description, not null
+   */
+  public void setConfiguration(final String configuration) {
+    ArgumentChecker.notNull(configuration, "configuration");
+    _configuration = configuration;
+  }
+
+  public String getConfiguration() {
+    return _configuration;
+  }
+
+  public void setFudgeContext(final FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _fudgeContext = fudgeContext;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  // ContextInitializationBean
+
+  @Override
+  protected void assertPropertiesSet() {
+    ArgumentChecker.notNull(getCacheFile(), "cacheFile");
+  }
+
+  @Override
+  protected void initContext(final MutableGlobalContext globalContext) {
+    globalContext.setAvailableCache(new AvailableCache(new File(getCacheFile()), getConfiguration(), getFudgeContext()));
+  }
+
+}
@@ -91,12 +91,13 @@ public class ExternalFunctionProvider extends AbstractFunctionProvider {
   }
 
   public ExternalFunctionProvider() {
-    new Thread(new Runnable() {
+    // Start scanning now so that the results are likely to be ready when first needed
+    getLoader().execute(new Runnable() {
       @Override
       public void run() {
         getFunctions();
       }
-    }).start();
+    });
   }
 
   protected synchronized List<MetaFunction> getFunctions() {
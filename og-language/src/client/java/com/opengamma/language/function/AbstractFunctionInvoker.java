@@ -6,8 +6,19 @@
 
 package com.opengamma.language.function;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.opengamma.language.Data;
 import com.opengamma.language.DataUtils;
@@ -15,7 +26,9 @@ import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
 import com.opengamma.language.context.GlobalContext;
 import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.definition.JavaTypeInfo;
 import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.error.AbstractException;
 import com.opengamma.language.error.Constants;
 import com.opengamma.language.invoke.AbstractInvoker;
 import com.opengamma.language.invoke.ParameterConverter;
@@ -29,9 +42,21 @@ import com.opengamma.util.async.ResultListener;
 /**
  * Partial implementation of a {@link FunctionInvoker} that converts the parameters and results using
  * the converters bound to the invoking session context.
+ * <p>
+ * A function that is strictly scalar may declare that it can be broadcast by overriding {@link #isBroadcast}. If the client then
+ * passes a linear or matrix value where a scalar parameter is expected the function is invoked once for each element, in parallel
+ * for larger inputs, and the results returned in an array of the same shape. This lets a client replace many calls, one for each
+ * cell of a spreadsheet column for example, with a single call.
  */
 public abstract class AbstractFunctionInvoker extends AbstractInvoker implements FunctionInvoker {
 
+  private static final Logger s_logger = LoggerFactory.getLogger(AbstractFunctionInvoker.class);
+
+  /**
+   * Number of elements at which a broadcast invocation is spread over the saturating executor.
+   */
+  private static final int PARALLEL_THRESHOLD = 64;
+
   protected AbstractFunctionInvoker(final List<MetaParameter> parameters) {
     super(parameters);
   }
@@ -57,6 +82,201 @@ public abstract class AbstractFunctionInvoker extends AbstractInvoker implements
     return new Result(Collections.singleton(resultData));
   }
 
+  /**
+   * Tests whether the function can be invoked element-wise when arrays are passed for scalar parameters. Functions must only
+   * return true if each invocation is independent of any other.
+   * 
+   * @return true to allow broadcast invocation, false otherwise
+   */
+  protected boolean isBroadcast() {
+    return false;
+  }
+
+  private static boolean isScalar(final JavaTypeInfo<?> type) {
+    final Class<?> clazz = type.getRawClass();
+    return !clazz.isArray() && (clazz != Object.class) && (clazz != Data.class) && (clazz != Value.class) && !Collection.class.isAssignableFrom(clazz)
+        && !Map.class.isAssignableFrom(clazz);
+  }
+
+  /**
+   * The parameters and results of a broadcast invocation.
+   */
+  private final class Broadcast implements Runnable {
+
+    private final SessionContext _sessionContext;
+    private final List<Data> _parameters;
+    private final int[] _indices;
+    private final Value[][] _elements;
+    private final Value[] _results;
+    private final AtomicInteger _next = new AtomicInteger();
+    private final CountDownLatch _complete;
+
+    public Broadcast(final SessionContext sessionContext, final List<Data> parameters, final int[] indices, final Value[][] elements, final int size) {
+      _sessionContext = sessionContext;
+      _parameters = parameters;
+      _indices = indices;
+      _elements = elements;
+      _results = new Value[size];
+      _complete = new CountDownLatch(size);
+    }
+
+    private Object invokeElement(final Object[] parameters) {
+      try {
+        return invokeImpl(_sessionContext, parameters);
+      } catch (final AsynchronousExecution e) {
+        final BlockingQueue<AsynchronousResult<Object>> result = new ArrayBlockingQueue<AsynchronousResult<Object>>(1);
+        e.setResultListener(new ResultListener<Object>() {
+          @Override
+          public void operationComplete(final AsynchronousResult<Object> value) {
+            result.add(value);
+          }
+        });
+        try {
+          return result.take().getResult();
+        } catch (final InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted", ie);
+        }
+      }
+    }
+
+    private Value invoke(final int element) {
+      final List<Data> parameters = new ArrayList<Data>(_parameters);
+      for (int i = 0; i < _indices.length; i++) {
+        parameters.set(_indices[i], DataUtils.of(_elements[i][element]));
+      }
+      try {
+        final Object resultObject = invokeElement(convertParameters(_sessionContext, parameters));
+        if (resultObject == null) {
+          return new Value();
+        }
+        final Data resultData = convertResult(_sessionContext, resultObject);
+        if ((resultData == null) || (resultData.getSingle() == null)) {
+          final Value err = ValueUtils.ofError(Constants.ERROR_RESULT_CONVERSION);
+          err.setIntValue(0);
+          err.setStringValue("Result of broadcast invocation is not a single value");
+          return err;
+        }
+        return resultData.getSingle();
+      } catch (final AbstractException e) {
+        return e.getValue();
+      } catch (final RuntimeException e) {
+        s_logger.warn("Broadcast invocation runtime exception: {}", e.toString());
+        s_logger.debug("Caught exception", e);
+        final Value err = ValueUtils.ofError(Constants.ERROR_INTERNAL);
+        err.setStringValue(e.getMessage());
+        return err;
+      }
+    }
+
+    @Override
+    public void run() {
+      int element;
+      while ((element = _next.getAndIncrement()) < _results.length) {
+        _results[element] = invoke(element);
+        _complete.countDown();
+      }
+    }
+
+    public Value[] execute(final ExecutorService executor) {
+      if ((executor != null) && (_results.length >= PARALLEL_THRESHOLD)) {
+        final int helpers = Math.min(Runtime.getRuntime().availableProcessors(), _results.length / PARALLEL_THRESHOLD) - 1;
+        for (int i = 0; i < helpers; i++) {
+          executor.execute(this);
+        }
+      }
+      // This thread works through the elements too so that completion never depends on a busy executor
+      run();
+      try {
+        _complete.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted", e);
+      }
+      return _results;
+    }
+
+  }
+
+  /**
+   * Invokes the function element-wise if arrays have been passed for any scalar parameters.
+   * 
+   * @param sessionContext the session context, not null
+   * @param parameterValue the parameters from the client, not null
+   * @return the result, or null if this is not a broadcast invocation
+   */
+  private Result invokeBroadcast(final SessionContext sessionContext, final List<Data> parameterValue) {
+    final List<MetaParameter> metaParameters = getParameters();
+    final int count = Math.min(metaParameters.size(), parameterValue.size());
+    final List<Integer> indices = new ArrayList<Integer>(count);
+    final List<Value[]> elements = new ArrayList<Value[]>(count);
+    int rows = -1;
+    int columns = -1;
+    for (int i = 0; i < count; i++) {
+      final Data data = parameterValue.get(i);
+      if ((data == null) || (data.getSingle() != null) || !isScalar(metaParameters.get(i).getJavaTypeInfo())) {
+        continue;
+      }
+      final Value[] values;
+      final int r;
+      final int c;
+      final Value[] linear = DataUtils.getLinear(data);
+      if (linear != null) {
+        values = linear;
+        r = linear.length;
+        c = 0;
+      } else {
+        final Value[][] matrix = DataUtils.getMatrix(data);
+        if ((matrix == null) || (matrix.length == 0)) {
+          continue;
+        }
+        r = matrix.length;
+        c = matrix[0].length;
+        values = new Value[r * c];
+        for (int j = 0; j < r; j++) {
+          if (matrix[j].length != c) {
+            // Not rectangular
+            return null;
+          }
+          System.arraycopy(matrix[j], 0, values, j * c, c);
+        }
+      }
+      if (values.length <= 1) {
+        // A single element array is passed to the function as-is, as it would be without broadcasting
+        continue;
+      }
+      if (indices.isEmpty()) {
+        rows = r;
+        columns = c;
+      } else if ((rows != r) || (columns != c)) {
+        s_logger.debug("Parameter {} shape doesn't match other arrays", i);
+        return null;
+      }
+      indices.add(i);
+      elements.add(values);
+    }
+    if (indices.isEmpty()) {
+      return null;
+    }
+    final int[] indexArray = new int[indices.size()];
+    for (int i = 0; i < indexArray.length; i++) {
+      indexArray[i] = indices.get(i);
+    }
+    final int size = (columns > 0) ? rows * columns : rows;
+    s_logger.debug("Broadcasting invocation over {} elements", size);
+    final Value[] results = new Broadcast(sessionContext, parameterValue, indexArray, elements.toArray(new Value[elements.size()][]), size).execute(
+        sessionContext.getGlobalContext().getSaturatingExecutor());
+    if (columns > 0) {
+      final Value[][] matrix = new Value[rows][columns];
+      for (int i = 0; i < rows; i++) {
+        System.arraycopy(results, i * columns, matrix[i], 0, columns);
+      }
+      return new Result(Collections.singleton(DataUtils.of(matrix)));
+    } else {
+      return new Result(Collections.singleton(DataUtils.of(results)));
+    }
+  }
+
   // AbstractInvoker
 
   @Override
@@ -73,6 +293,12 @@ public abstract class AbstractFunctionInvoker extends AbstractInvoker implements
 
   @Override
   public final Result invoke(final SessionContext sessionContext, final List<Data> parameterValue) throws AsynchronousExecution {
+    if (isBroadcast()) {
+      final Result result = invokeBroadcast(sessionContext, parameterValue);
+      if (result != null) {
+        return result;
+      }
+    }
     final Object[] parameters = convertParameters(sessionContext, parameterValue);
     final Object resultObject;
     try {
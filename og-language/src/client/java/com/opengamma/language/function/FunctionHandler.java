@@ -6,9 +6,11 @@
 
 package com.opengamma.language.function;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,11 +20,13 @@ import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
 import com.opengamma.language.connector.Function;
+import com.opengamma.language.connector.QueryAvailableListener;
 import com.opengamma.language.connector.UserMessagePayload;
 import com.opengamma.language.context.SessionContext;
 import com.opengamma.language.custom.CustomFunctionVisitor;
 import com.opengamma.language.custom.CustomFunctionVisitorRegistry;
 import com.opengamma.language.custom.CustomVisitors;
+import com.opengamma.language.definition.AvailableCache;
 import com.opengamma.language.error.AbstractException;
 import com.opengamma.language.error.Constants;
 import com.opengamma.util.async.AsynchronousExecution;
@@ -35,6 +39,11 @@ public class FunctionHandler implements FunctionVisitor<UserMessagePayload, Sess
 
   private static final Logger s_logger = LoggerFactory.getLogger(FunctionHandler.class);
 
+  /**
+   * Name of the published definitions in the {@link AvailableCache}.
+   */
+  private static final String AVAILABLE_CACHE_NAME = "function";
+
   private final CustomVisitors<UserMessagePayload, SessionContext> _customVisitors = new CustomVisitors<UserMessagePayload, SessionContext>();
 
   // CustomFunctionVisitorRegistry
@@ -81,13 +90,29 @@ public class FunctionHandler implements FunctionVisitor<UserMessagePayload, Sess
     }
   }
 
-  @Override
-  public Available visitQueryAvailable(final QueryAvailable message, final SessionContext context) {
+  /**
+   * Creates the message describing the available functions.
+   *
+   * @param context the session context, not null
+   * @param generation the generation the client already holds, null to describe all of them
+   * @return the message, not null
+   */
+  private Available createAvailable(final SessionContext context, final Integer generation) {
     final FunctionRepository repository = context.getFunctionRepository();
     repository.initialize(context.getFunctionProvider(), true);
-    final Map<Integer, MetaFunction> definitions = repository.getAll();
-    s_logger.info("{} functions available", definitions.size());
     final Available available = new Available();
+    available.setGeneration(repository.getGeneration());
+    final Map<Integer, MetaFunction> definitions;
+    final List<Integer> removed;
+    if (generation != null) {
+      removed = new ArrayList<Integer>();
+      definitions = repository.getChanges(generation, removed);
+      s_logger.info("{} functions changed and {} removed since generation {}", new Object[] {definitions.size(), removed.size(), generation });
+    } else {
+      removed = null;
+      definitions = repository.getAll();
+      s_logger.info("{} functions available", definitions.size());
+    }
     final FunctionDefinitionFilter filter = context.getGlobalContext().getFunctionDefinitionFilter();
     for (Map.Entry<Integer, MetaFunction> definition : definitions.entrySet()) {
       Definition logical = filter.createDefinition(definition.getValue());
@@ -96,8 +121,49 @@ public class FunctionHandler implements FunctionVisitor<UserMessagePayload, Sess
         available.addFunction(new Available.Entry(definition.getKey(), logical));
       } else {
         s_logger.debug("Discarding {} after applying filter", definition);
+        if (removed != null) {
+          // May have been published in an earlier generation
+          removed.add(definition.getKey());
+        }
+      }
+    }
+    if ((removed != null) && !removed.isEmpty()) {
+      available.setRemoved(removed);
+    }
+    return available;
+  }
+
+  @Override
+  public UserMessagePayload visitQueryAvailable(final QueryAvailable message, final SessionContext context) {
+    final UserMessagePayload available = queryAvailable(message, context);
+    final QueryAvailableListener listener = context.getQueryAvailableListener();
+    if (listener != null) {
+      listener.queryAvailableAnswered();
+    }
+    return available;
+  }
+
+  private UserMessagePayload queryAvailable(final QueryAvailable message, final SessionContext context) {
+    final FunctionRepository repository = context.getFunctionRepository();
+    final Available available;
+    if ((message.getGeneration() != null) && repository.getEpoch().equals(message.getEpoch())) {
+      available = createAvailable(context, message.getGeneration());
+    } else {
+      if (message.getGeneration() != null) {
+        s_logger.info("Generation {} is from another repository; publishing all functions", message.getGeneration());
+      }
+      final AvailableCache cache = context.getGlobalContext().getAvailableCache();
+      if (cache != null) {
+        return cache.getAvailable(AVAILABLE_CACHE_NAME, Available.class, repository, new Callable<Available>() {
+          @Override
+          public Available call() {
+            return createAvailable(context, null);
+          }
+        });
       }
+      available = createAvailable(context, null);
     }
+    available.setEpoch(repository.getEpoch());
     return available;
   }
 
@@ -4,13 +4,43 @@ package com.opengamma.language.function;
 public class QueryAvailable extends com.opengamma.language.connector.Function implements java.io.Serializable {
   public <T1,T2> T1 accept (final FunctionVisitor<T1,T2> visitor, final T2 data) throws com.opengamma.util.async.AsynchronousExecution { return visitor.visitQueryAvailable (this, data); }
   private static final long serialVersionUID = 1l;
+  private Integer _generation;
+  public static final String GENERATION_KEY = "generation";
+  private String _epoch;
+  public static final String EPOCH_KEY = "epoch";
   public QueryAvailable () {
   }
   protected QueryAvailable (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     super (deserializer, fudgeMsg);
+    org.fudgemsg.FudgeField fudgeField;
+    fudgeField = fudgeMsg.getByName (GENERATION_KEY);
+    if (fudgeField != null)  {
+      try {
+        setGeneration (fudgeMsg.getFieldValue (Integer.class, fudgeField));
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a QueryAvailable - field 'generation' is not integer", e);
+      }
+    }
+    fudgeField = fudgeMsg.getByName (EPOCH_KEY);
+    if (fudgeField != null)  {
+      try {
+        setEpoch ((fudgeField.getValue () != null) ? fudgeField.getValue ().toString () : null);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a QueryAvailable - field 'epoch' is not string", e);
+      }
+    }
+  }
+  public QueryAvailable (Integer generation, String epoch) {
+    _generation = generation;
+    _epoch = epoch;
   }
   protected QueryAvailable (final QueryAvailable source) {
     super (source);
+    if (source == null) throw new NullPointerException ("'source' must not be null");
+    _generation = source._generation;
+    _epoch = source._epoch;
   }
   public org.fudgemsg.FudgeMsg toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer) {
     if (serializer == null) throw new NullPointerException ("serializer must not be null");
@@ -20,6 +50,12 @@ public class QueryAvailable extends com.opengamma.language.connector.Function im
   }
   public void toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer, final org.fudgemsg.MutableFudgeMsg msg) {
     super.toFudgeMsg (serializer, msg);
+    if (_generation != null)  {
+      msg.add (GENERATION_KEY, null, _generation);
+    }
+    if (_epoch != null)  {
+      msg.add (EPOCH_KEY, null, _epoch);
+    }
   }
   public static QueryAvailable fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
@@ -35,14 +71,44 @@ public class QueryAvailable extends com.opengamma.language.connector.Function im
     }
     return new QueryAvailable (deserializer, fudgeMsg);
   }
+  public Integer getGeneration () {
+    return _generation;
+  }
+  public void setGeneration (Integer generation) {
+    _generation = generation;
+  }
+  public String getEpoch () {
+    return _epoch;
+  }
+  public void setEpoch (String epoch) {
+    _epoch = epoch;
+  }
   public boolean equals (final Object o) {
     if (o == this) return true;
     if (!(o instanceof QueryAvailable)) return false;
     QueryAvailable msg = (QueryAvailable)o;
+    if (_generation != null) {
+      if (msg._generation != null) {
+        if (!_generation.equals (msg._generation)) return false;
+      }
+      else return false;
+    }
+    else if (msg._generation != null) return false;
+    if (_epoch != null) {
+      if (msg._epoch != null) {
+        if (!_epoch.equals (msg._epoch)) return false;
+      }
+      else return false;
+    }
+    else if (msg._epoch != null) return false;
     return super.equals (msg);
   }
   public int hashCode () {
     int hc = super.hashCode ();
+    hc *= 31;
+    if (_generation != null) hc += _generation.hashCode ();
+    hc *= 31;
+    if (_epoch != null) hc += _epoch.hashCode ();
     return hc;
   }
   public String toString () {
@@ -13,6 +13,7 @@ import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.ExternalIdFudgeBuilder;
 import com.opengamma.language.Data;
+import com.opengamma.language.DataColumns;
 import com.opengamma.language.Value;
 import com.opengamma.language.context.SessionContext;
 import com.opengamma.language.definition.Categories;
@@ -67,6 +68,8 @@ public class ExternalIdBundleFunction implements PublishedFunction {
         for (Value[] values : data.getMatrix()) {
           getIdentifiers(identifiers, values);
         }
+      } else if (data.getColumns() != null) {
+        getIdentifiers(identifiers, DataColumns.fromFudgeMsg(data.getColumns()).toLinear());
       }
     }
   }
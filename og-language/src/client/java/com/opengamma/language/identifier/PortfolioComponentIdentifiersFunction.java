@@ -7,7 +7,6 @@
 package com.opengamma.language.identifier;
 
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -17,13 +16,11 @@ import com.opengamma.core.position.Portfolio;
 import com.opengamma.core.position.PortfolioNode;
 import com.opengamma.core.position.Position;
 import com.opengamma.core.position.Trade;
-import com.opengamma.core.position.impl.AbstractPortfolioNodeTraversalCallback;
-import com.opengamma.core.position.impl.PortfolioNodeTraverser;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
-import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
 import com.opengamma.language.Data;
+import com.opengamma.language.DataColumns;
 import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
@@ -36,8 +33,8 @@ import com.opengamma.language.error.InvokeInvalidArgumentException;
 import com.opengamma.language.function.AbstractFunctionInvoker;
 import com.opengamma.language.function.MetaFunction;
 import com.opengamma.language.function.PublishedFunction;
+import com.opengamma.language.position.ParallelPortfolioTraverser;
 import com.opengamma.language.position.PortfolioUtils;
-import com.opengamma.util.tuple.Pair;
 
 /**
  * Retrieves the identifiers of components that make up a portfolio.
@@ -77,38 +74,91 @@ public class PortfolioComponentIdentifiersFunction extends AbstractFunctionInvok
     return _meta;
   }
 
-  private static void storeIdentifier(final List<Pair<String, String>> result, final UniqueId identifier) {
-    result.add(Pair.<String, String>of(identifier.toString(), null));
-  }
+  /**
+   * Writes the identifiers of each portfolio component directly into rows of a presized matrix.
+   */
+  private static final class ComponentIdentifiers extends ParallelPortfolioTraverser.Callback {
+
+    private final ExternalSchemeRank _rank;
+    private final boolean _includeSecurity;
+    private final boolean _includePosition;
+    private final boolean _includeTrade;
+    private final boolean _includePortfolioNode;
+    private String[][] _identifiers;
+
+    private ComponentIdentifiers(final ExternalSchemeRank rank, final boolean includeSecurity, final boolean includePosition, final boolean includeTrade,
+        final boolean includePortfolioNode) {
+      _rank = rank;
+      _includeSecurity = includeSecurity;
+      _includePosition = includePosition;
+      _includeTrade = includeTrade;
+      _includePortfolioNode = includePortfolioNode;
+    }
 
-  private static void storeIdentifier(final List<Pair<String, String>> result, final ObjectId identifier) {
-    result.add(Pair.<String, String>of(identifier.toString(), null));
-  }
+    private int getWidth() {
+      return _includeSecurity ? 2 : 1;
+    }
 
-  private static void storeIdentifiers(final List<Pair<String, String>> result, final UniqueId uniqueId, final ExternalId externalId) {
-    result.add(Pair.of(uniqueId.toString(), externalId.toString()));
-  }
+    private String[][] getIdentifiers() {
+      return _identifiers;
+    }
 
-  private static void storeIdentifiers(final List<Pair<String, String>> result, final ObjectId objectId, final ExternalId externalId) {
-    result.add(Pair.of(objectId.toString(), externalId.toString()));
-  }
+    private String getPreferredIdentifier(final ExternalIdBundle identifiers) {
+      final ExternalId externalId = _rank.getPreferredIdentifier(identifiers);
+      return (externalId != null) ? externalId.toString() : null;
+    }
 
-  private static void storeIdentifiers(final List<Pair<String, String>> result, final UniqueId identifier, final ExternalIdBundle identifiers, final ExternalSchemeRank rank) {
-    final ExternalId externalId = rank.getPreferredIdentifier(identifiers);
-    if (externalId == null) {
-      storeIdentifier(result, identifier);
-    } else {
-      storeIdentifiers(result, identifier, externalId);
+    @Override
+    protected int getRowCount(final PortfolioNode node) {
+      return _includePortfolioNode ? 1 : 0;
     }
-  }
 
-  private static void storeIdentifiers(final List<Pair<String, String>> result, final ObjectId identifier, final ExternalIdBundle identifiers, final ExternalSchemeRank rank) {
-    final ExternalId externalId = rank.getPreferredIdentifier(identifiers);
-    if (externalId == null) {
-      storeIdentifier(result, identifier);
-    } else {
-      storeIdentifiers(result, identifier, externalId);
+    @Override
+    protected int getRowCount(final PortfolioNode parentNode, final Position position) {
+      int rows = 0;
+      if (_includePosition) {
+        rows++;
+      }
+      if (_includeTrade) {
+        rows += position.getTrades().size();
+      }
+      if (_includeSecurity) {
+        rows++;
+      }
+      return rows;
     }
+
+    @Override
+    protected void allocate(final int rows) {
+      _identifiers = new String[rows][getWidth()];
+    }
+
+    @Override
+    protected void store(final int row, final PortfolioNode node) {
+      _identifiers[row][0] = node.getUniqueId().toString();
+    }
+
+    @Override
+    protected void store(int row, final PortfolioNode parentNode, final Position position) {
+      if (_includePosition) {
+        _identifiers[row++][0] = position.getUniqueId().toString();
+      }
+      if (_includeTrade) {
+        for (Trade trade : position.getTrades()) {
+          _identifiers[row++][0] = trade.getUniqueId().toString();
+        }
+      }
+      if (_includeSecurity) {
+        if (position.getSecurity() != null) {
+          _identifiers[row][0] = position.getSecurity().getUniqueId().toString();
+          _identifiers[row][1] = getPreferredIdentifier(position.getSecurity().getExternalIdBundle());
+        } else {
+          _identifiers[row][0] = position.getSecurityLink().getObjectId().toString();
+          _identifiers[row][1] = getPreferredIdentifier(position.getSecurityLink().getExternalId());
+        }
+      }
+    }
+
   }
 
   @Override
@@ -124,46 +174,18 @@ public class PortfolioComponentIdentifiersFunction extends AbstractFunctionInvok
     if (portfolio == null) {
       throw new InvokeInvalidArgumentException(0, "Portfolio " + portfolioIdentifier + " not found");
     }
-    final List<Pair<String, String>> componentIds = new LinkedList<Pair<String, String>>();
-    PortfolioNodeTraverser.depthFirst(new AbstractPortfolioNodeTraversalCallback() {
-
-      @Override
-      public void preOrderOperation(final PortfolioNode node) {
-        if (includePortfolioNode) {
-          storeIdentifier(componentIds, node.getUniqueId());
-        }
-      }
-
-      @Override
-      public void preOrderOperation(final PortfolioNode parentNode, final Position position) {
-        if (includePosition) {
-          storeIdentifier(componentIds, position.getUniqueId());
-        }
-        if (includeTrade) {
-          for (Trade trade : position.getTrades()) {
-            storeIdentifier(componentIds, trade.getUniqueId());
-          }
-        }
-        if (includeSecurity) {
-          if (position.getSecurity() != null) {
-            storeIdentifiers(componentIds, position.getSecurity().getUniqueId(), position.getSecurity().getExternalIdBundle(), externalSchemeRank);
-          } else {
-            storeIdentifiers(componentIds, position.getSecurityLink().getObjectId(), position.getSecurityLink().getExternalId(), externalSchemeRank);
-          }
-        }
-      }
-
-    }).traverse(portfolio.getRootNode());
-
-    int width = includeSecurity ? 2 : 1;
-    Value[][] values = new Value[componentIds.size()][width];
-    int i = 0;
-    for (Pair<String, String> portfolioComponent : componentIds) {
-      values[i][0] = portfolioComponent.getFirst() != null ? ValueUtils.of(portfolioComponent.getFirst()) : new Value();
-      if (includeSecurity) {
-        values[i][1] = portfolioComponent.getSecond() != null ? ValueUtils.of(portfolioComponent.getSecond()) : new Value();
+    final ComponentIdentifiers componentIds = new ComponentIdentifiers(externalSchemeRank, includeSecurity, includePosition, includeTrade, includePortfolioNode);
+    ParallelPortfolioTraverser.of(sessionContext.getGlobalContext()).traverse(portfolio.getRootNode(), componentIds);
+    final String[][] identifiers = componentIds.getIdentifiers();
+    if (sessionContext.getGlobalContext().isColumnarData()) {
+      return DataUtils.of(DataColumns.of(identifiers));
+    }
+    final int width = componentIds.getWidth();
+    final Value[][] values = new Value[identifiers.length][width];
+    for (int i = 0; i < identifiers.length; i++) {
+      for (int j = 0; j < width; j++) {
+        values[i][j] = (identifiers[i][j] != null) ? ValueUtils.of(identifiers[i][j]) : new Value();
       }
-      i++;
     }
     return DataUtils.of(values);
   }
@@ -6,31 +6,268 @@
 
 package com.opengamma.language.invoke;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.fudgemsg.FudgeMsg;
+
+import com.google.common.collect.MapMaker;
 import com.opengamma.language.Data;
+import com.opengamma.language.DataColumns;
+import com.opengamma.language.Value;
 import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.convert.ValueConversionContext;
+import com.opengamma.language.definition.JavaTypeInfo;
 import com.opengamma.language.definition.MetaParameter;
 import com.opengamma.language.error.InvokeParameterConversionException;
+import com.opengamma.util.test.Profiler;
 
 /**
  * Default implementation of {@link ParameterConverter}.
+ * <p>
+ * The conversion hints produced for each argument are cached against the "shape" of the arguments (whether each is a single, linear or
+ * matrix value and its primitive type) for each parameter list. A repeat call with arguments of the same shape passes the hints back to the
+ * value converter so that it can skip type discovery.
  */
 public class DefaultParameterConverter implements ParameterConverter {
 
+  private static final Profiler s_profilerHit = Profiler.create(DefaultParameterConverter.class, "ShapeHit");
+  private static final Profiler s_profilerMiss = Profiler.create(DefaultParameterConverter.class, "ShapeMiss");
+
+  /**
+   * Maximum number of distinct argument shapes remembered for a single parameter list.
+   */
+  private static final int MAX_SHAPES = 32;
+
+  /**
+   * Maximum number of idle conversion contexts kept for reuse.
+   */
+  private static final int MAX_POOLED_CONTEXTS = 16;
+
+  private static final int SHAPE_NULL = 0;
+  private static final int SHAPE_SINGLE = 0x10;
+  private static final int SHAPE_LINEAR = 0x20;
+  private static final int SHAPE_MATRIX = 0x30;
+  private static final int SHAPE_COLUMNS = 0x40;
+
+  private static final class Shape {
+
+    private final int[] _codes;
+    private final int _hashCode;
+
+    public Shape(final int[] codes) {
+      _codes = codes;
+      _hashCode = Arrays.hashCode(codes);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Shape)) {
+        return false;
+      }
+      return Arrays.equals(_codes, ((Shape) o)._codes);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+  }
+
+  /**
+   * Argument shapes to conversion hints, keyed on the identity of the target parameter list (i.e. one entry for each meta-definition).
+   */
+  private final ConcurrentMap<List<MetaParameter>, ConcurrentMap<Shape, Object[]>> _hints = new MapMaker().weakKeys().makeMap();
+  private final Queue<ValueConversionContext> _contexts = new ConcurrentLinkedQueue<ValueConversionContext>();
+  private final AtomicInteger _pooledContexts = new AtomicInteger();
+  private final AtomicLong _shapeHits = new AtomicLong();
+  private final AtomicLong _shapeMisses = new AtomicLong();
+
+  private static int valueCode(final Value value) {
+    if (value == null) {
+      return SHAPE_NULL;
+    } else if (value.getBoolValue() != null) {
+      return 1;
+    } else if (value.getIntValue() != null) {
+      return 2;
+    } else if (value.getDoubleValue() != null) {
+      return 3;
+    } else if (value.getStringValue() != null) {
+      return 4;
+    } else if (value.getMessageValue() != null) {
+      return 5;
+    } else if (value.getErrorValue() != null) {
+      return 6;
+    } else {
+      return SHAPE_NULL;
+    }
+  }
+
+  private static int columnsCode(final FudgeMsg columns) {
+    if (columns.hasField(DataColumns.BOOL_VALUES_ORDINAL)) {
+      return 1;
+    } else if (columns.hasField(DataColumns.INT_VALUES_ORDINAL)) {
+      return 2;
+    } else if (columns.hasField(DataColumns.DOUBLE_VALUES_ORDINAL)) {
+      return 3;
+    } else if (columns.hasField(DataColumns.STRING_VALUES_ORDINAL)) {
+      return 4;
+    } else {
+      return SHAPE_NULL;
+    }
+  }
+
+  /**
+   * Returns the shape code of a single argument. Linear and matrix values are classified by their first element only; the hints are only
+   * used to choose which conversion to try first so a mismatch is not an error.
+   */
+  private static int shapeCode(final Object parameter) {
+    if (!(parameter instanceof Data)) {
+      return SHAPE_NULL;
+    }
+    final Data data = (Data) parameter;
+    if (data.getSingle() != null) {
+      return SHAPE_SINGLE | valueCode(data.getSingle());
+    } else if (data.getLinear() != null) {
+      final Value[] linear = data.getLinear();
+      return SHAPE_LINEAR | ((linear.length > 0) ? valueCode(linear[0]) : SHAPE_NULL);
+    } else if (data.getMatrix() != null) {
+      final Value[][] matrix = data.getMatrix();
+      return SHAPE_MATRIX | (((matrix.length > 0) && (matrix[0].length > 0)) ? valueCode(matrix[0][0]) : SHAPE_NULL);
+    } else if (data.getColumns() != null) {
+      return SHAPE_COLUMNS | columnsCode(data.getColumns());
+    } else {
+      return SHAPE_NULL;
+    }
+  }
+
+  private static Shape shapeOf(final List<Data> clientParameters) {
+    final int[] codes = new int[clientParameters.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = shapeCode(clientParameters.get(i));
+    }
+    return new Shape(codes);
+  }
+
+  private ConcurrentMap<Shape, Object[]> getHints(final List<MetaParameter> targetParameters) {
+    ConcurrentMap<Shape, Object[]> hints = _hints.get(targetParameters);
+    if (hints == null) {
+      hints = new ConcurrentHashMap<Shape, Object[]>();
+      final ConcurrentMap<Shape, Object[]> previous = _hints.putIfAbsent(targetParameters, hints);
+      if (previous != null) {
+        hints = previous;
+      }
+    }
+    return hints;
+  }
+
+  private ValueConversionContext borrowContext(final SessionContext sessionContext, final ValueConverter valueConverter) {
+    final ValueConversionContext context = _contexts.poll();
+    if (context != null) {
+      _pooledContexts.decrementAndGet();
+      if (context.getValueConverter() == valueConverter) {
+        context.reset(sessionContext);
+        return context;
+      }
+    }
+    return new ValueConversionContext(sessionContext, valueConverter);
+  }
+
+  private void releaseContext(final ValueConversionContext context) {
+    if (_pooledContexts.incrementAndGet() <= MAX_POOLED_CONTEXTS) {
+      _contexts.add(context);
+    } else {
+      _pooledContexts.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the number of calls that found previously cached hints for their argument shape.
+   *
+   * @return the hit count
+   */
+  public long getShapeHits() {
+    return _shapeHits.get();
+  }
+
+  /**
+   * Returns the number of calls that had to discover the conversions for their argument shape.
+   *
+   * @return the miss count
+   */
+  public long getShapeMisses() {
+    return _shapeMisses.get();
+  }
+
   @Override
   public Object[] convertParameters(final SessionContext sessionContext, final List<Data> clientParameters,
       final List<MetaParameter> targetParameters) {
     final ValueConverter valueConverter = sessionContext.getGlobalContext().getValueConverter();
     final Object[] parameters = new Object[clientParameters.size()];
+    final Shape shape = shapeOf(clientParameters);
+    final ConcurrentMap<Shape, Object[]> shapeHints = getHints(targetParameters);
+    // The cached array may be read concurrently by other invocations so is never modified; it is copied before any hint changes
+    final Object[] cachedHints = shapeHints.get(shape);
+    Object[] hints = cachedHints;
+    final Profiler profiler;
+    final boolean newShape;
+    if (hints != null) {
+      _shapeHits.incrementAndGet();
+      profiler = s_profilerHit;
+      newShape = false;
+    } else {
+      _shapeMisses.incrementAndGet();
+      profiler = s_profilerMiss;
+      hints = new Object[parameters.length];
+      newShape = true;
+    }
+    profiler.begin();
+    final ValueConversionContext conversionContext = borrowContext(sessionContext, valueConverter);
     int i = 0;
     try {
       while (i < parameters.length) {
-        final Object converted = valueConverter.convertValue(sessionContext, clientParameters.get(i), targetParameters.get(i).getJavaTypeInfo());
-        parameters[i++] = converted;
+        final Data value = clientParameters.get(i);
+        final JavaTypeInfo<?> type = targetParameters.get(i).getJavaTypeInfo();
+        if (i > 0) {
+          // Each argument is an unrelated conversion; failures memoised for one must not leak into the next
+          conversionContext.reset(sessionContext);
+        }
+        conversionContext.setHint(hints[i]);
+        valueConverter.convertValue(conversionContext, value, type);
+        if (conversionContext.isFailed()) {
+          throw new InvalidConversionException(value, type);
+        }
+        final Object hint = conversionContext.getHint();
+        if (hint != hints[i]) {
+          if (hints == cachedHints) {
+            hints = hints.clone();
+          }
+          hints[i] = hint;
+        }
+        parameters[i++] = conversionContext.getResult();
       }
     } catch (InvalidConversionException e) {
       throw new InvokeParameterConversionException(i, e.getClientMessage());
+    } finally {
+      releaseContext(conversionContext);
+      profiler.end();
+    }
+    if (newShape) {
+      if (shapeHints.size() < MAX_SHAPES) {
+        shapeHints.putIfAbsent(shape, hints);
+      }
+    } else if (hints != cachedHints) {
+      shapeHints.replace(shape, cachedHints, hints);
     }
     return parameters;
   }
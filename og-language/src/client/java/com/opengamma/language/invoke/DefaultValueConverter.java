@@ -7,9 +7,9 @@
 package com.opengamma.language.invoke;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -18,8 +18,9 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,14 +100,6 @@ public class DefaultValueConverter extends ValueConverter {
       return false;
     }
 
-    public JavaTypeInfo<?> getRootType() {
-      State s = this;
-      while (s._nextState != null) {
-        s = s._nextState;
-      }
-      return s._targetType;
-    }
-
     @Override
     public boolean equals(final Object o) {
       if (o == this) {
@@ -136,8 +129,159 @@ public class DefaultValueConverter extends ValueConverter {
 
   }
 
+  /**
+   * An immutable, compiled conversion chain. The value must first be assignable to the entry type, after which each converter is applied in
+   * turn to produce the next type in the chain. The final type is the target type the plan was compiled for.
+   */
+  private static final class ConversionPlan {
+
+    private final JavaTypeInfo<?>[] _types;
+    private final TypeConverter[] _converters;
+    private final AtomicLong _attempts = new AtomicLong();
+    private final AtomicLong _successes = new AtomicLong();
+
+    public ConversionPlan(final State state) {
+      final List<JavaTypeInfo<?>> types = new ArrayList<JavaTypeInfo<?>>();
+      final List<TypeConverter> converters = new ArrayList<TypeConverter>();
+      State s = state;
+      types.add(s.getTargetType());
+      while (s.getNextStateConverter() != null) {
+        converters.add(s.getNextStateConverter());
+        s = s.getNextState();
+        types.add(s.getTargetType());
+      }
+      _types = types.toArray(new JavaTypeInfo<?>[types.size()]);
+      _converters = converters.toArray(new TypeConverter[converters.size()]);
+    }
+
+    public JavaTypeInfo<?> getEntryType() {
+      return _types[0];
+    }
+
+    public JavaTypeInfo<?> getTargetType() {
+      return _types[_types.length - 1];
+    }
+
+    public boolean apply(final ValueConversionContext conversionContext) {
+      for (int i = 0; i < _converters.length; i++) {
+        _converters[i].convertValue(conversionContext, conversionContext.getResult(), _types[i + 1]);
+        if (conversionContext.isFailed()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public void recordAttempt(final boolean success) {
+      _attempts.incrementAndGet();
+      if (success) {
+        _successes.incrementAndGet();
+      }
+    }
+
+    /**
+     * Tests whether this plan has a strictly better success rate than another.
+     * 
+     * @param other the plan to compare against, not null
+     * @return true if this plan should be tried before the other
+     */
+    public boolean isBetterThan(final ConversionPlan other) {
+      final long attempts = _attempts.get();
+      final long otherAttempts = other._attempts.get();
+      if (otherAttempts == 0) {
+        return false;
+      }
+      return _successes.get() * otherAttempts > other._successes.get() * attempts;
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append(_types[0]);
+      for (int i = 0; i < _converters.length; i++) {
+        sb.append("--[").append(_converters[i]).append("]->").append(_types[i + 1]);
+      }
+      sb.append(" (").append(_successes.get()).append('/').append(_attempts.get()).append(')');
+      return sb.toString();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof ConversionPlan)) {
+        return false;
+      }
+      final ConversionPlan other = (ConversionPlan) o;
+      // converters are from a single list, so test by reference
+      if (_converters.length != other._converters.length) {
+        return false;
+      }
+      for (int i = 0; i < _converters.length; i++) {
+        if (_converters[i] != other._converters[i]) {
+          return false;
+        }
+      }
+      return Arrays.equals(_types, other._types);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(_types);
+    }
+
+  }
+
+  /**
+   * The compiled plans for a given source class and target type, in the order they should be tried. The array is replaced, never modified, so
+   * readers need no locking.
+   */
+  private static final class ConversionPlans extends AtomicReference<ConversionPlan[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ConversionPlan[] EMPTY = new ConversionPlan[0];
+
+    public ConversionPlans() {
+      super(EMPTY);
+    }
+
+    public void add(final ConversionPlan plan) {
+      ConversionPlan[] plans;
+      ConversionPlan[] newPlans;
+      do {
+        plans = get();
+        for (ConversionPlan existing : plans) {
+          if (existing.equals(plan)) {
+            return;
+          }
+        }
+        newPlans = Arrays.copyOf(plans, plans.length + 1);
+        newPlans[plans.length] = plan;
+      } while (!compareAndSet(plans, newPlans));
+    }
+
+    /**
+     * Moves the plan at the given index ahead of its predecessor if it has the better success rate. If the array has been changed by another
+     * thread the promotion is abandoned; it will be considered again on the next successful use.
+     */
+    public void promote(final ConversionPlan[] plans, final int index) {
+      if ((index > 0) && plans[index].isBetterThan(plans[index - 1])) {
+        final ConversionPlan[] newPlans = plans.clone();
+        newPlans[index - 1] = plans[index];
+        newPlans[index] = plans[index - 1];
+        compareAndSet(plans, newPlans);
+      }
+    }
+
+  }
+
   private final ConcurrentMap<JavaTypeInfo<?>, List<TypeConverter>> _convertersByTarget = new ConcurrentHashMap<JavaTypeInfo<?>, List<TypeConverter>>();
-  private final ConcurrentMap<Class<?>, ConcurrentMap<JavaTypeInfo<?>, Queue<State>>> _validChains = new ConcurrentHashMap<Class<?>, ConcurrentMap<JavaTypeInfo<?>, Queue<State>>>();
+  private final ConcurrentMap<Class<?>, ConcurrentMap<JavaTypeInfo<?>, ConversionPlans>> _plans = new ConcurrentHashMap<Class<?>, ConcurrentMap<JavaTypeInfo<?>, ConversionPlans>>();
+  private final AtomicLong _planHits = new AtomicLong();
+  private final AtomicLong _planMisses = new AtomicLong();
+  private final AtomicLong _conversionFailures = new AtomicLong();
 
   public DefaultValueConverter() {
   }
@@ -167,24 +311,51 @@ public class DefaultValueConverter extends ValueConverter {
     return converters;
   }
 
-  protected Queue<State> getConversionChains(final Class<?> sourceType, final JavaTypeInfo<?> targetType) {
-    ConcurrentMap<JavaTypeInfo<?>, Queue<State>> conversions = _validChains.get(sourceType);
+  private ConversionPlans getConversionPlans(final Class<?> sourceType, final JavaTypeInfo<?> targetType) {
+    ConcurrentMap<JavaTypeInfo<?>, ConversionPlans> conversions = _plans.get(sourceType);
     if (conversions == null) {
-      conversions = new ConcurrentHashMap<JavaTypeInfo<?>, Queue<State>>();
-      final ConcurrentMap<JavaTypeInfo<?>, Queue<State>> previous = _validChains.putIfAbsent(sourceType, conversions);
+      conversions = new ConcurrentHashMap<JavaTypeInfo<?>, ConversionPlans>();
+      final ConcurrentMap<JavaTypeInfo<?>, ConversionPlans> previous = _plans.putIfAbsent(sourceType, conversions);
       if (previous != null) {
         conversions = previous;
       }
     }
-    Queue<State> chains = conversions.get(targetType);
-    if (chains == null) {
-      chains = new ConcurrentLinkedQueue<State>();
-      final Queue<State> previous = conversions.putIfAbsent(targetType, chains);
+    ConversionPlans plans = conversions.get(targetType);
+    if (plans == null) {
+      plans = new ConversionPlans();
+      final ConversionPlans previous = conversions.putIfAbsent(targetType, plans);
       if (previous != null) {
-        chains = previous;
+        plans = previous;
       }
     }
-    return chains;
+    return plans;
+  }
+
+  /**
+   * Returns the number of conversions that were satisfied by a previously compiled plan.
+   * 
+   * @return the hit count
+   */
+  public long getPlanHits() {
+    return _planHits.get();
+  }
+
+  /**
+   * Returns the number of conversions that required a search of the conversion state space.
+   * 
+   * @return the miss count
+   */
+  public long getPlanMisses() {
+    return _planMisses.get();
+  }
+
+  /**
+   * Returns the number of conversions that could not be performed.
+   * 
+   * @return the failure count
+   */
+  public long getConversionFailures() {
+    return _conversionFailures.get();
   }
 
   private boolean directConversion(final ValueConversionContext conversionContext, final Object value, final JavaTypeInfo<?> type) {
@@ -214,33 +385,17 @@ public class DefaultValueConverter extends ValueConverter {
     return false;
   }
 
-  private boolean stateConversion(final ValueConversionContext conversionContext, State state) {
-    /*{
-      final StringBuilder sb = new StringBuilder();
-      final Object result = conversionContext.getResult();
-      conversionContext.setResult(result);
-      sb.append(state.getCost()).append(' ').append(result);
-      State s = state;
-      do {
-        sb.append("--[").append(s.getNextStateConverter()).append("]->");
-        s = s.getNextState();
-        sb.append(s.getTargetType());
-      } while (s.getNextStateConverter() != null);
-      System.out.println(sb.toString());
-    }*/
-    TypeConverter converter = state.getNextStateConverter();
-    do {
-      state = state.getNextState();
-      s_logger.debug("Chained to {}, {}", converter, state);
-      converter.convertValue(conversionContext, conversionContext.getResult(), state.getTargetType());
-      if (conversionContext.isFailed()) {
-        s_logger.debug("Chain failed");
-        return false;
+  private boolean applyPlan(final ValueConversionContext conversionContext, final Object value, final ConversionPlan plan) {
+    s_logger.debug("Applying conversion plan {}", plan);
+    if (directConversion(conversionContext, value, plan.getEntryType())) {
+      final boolean success = !conversionContext.isFailed() && plan.apply(conversionContext);
+      plan.recordAttempt(success);
+      if (success) {
+        return true;
       }
-      converter = state.getNextStateConverter();
-    } while (converter != null);
-    s_logger.debug("Chain complete");
-    return true;
+    }
+    s_logger.debug("Conversion plan failed");
+    return false;
   }
 
   @Override
@@ -256,31 +411,39 @@ public class DefaultValueConverter extends ValueConverter {
         }
       }
     }
-    s_logger.info("Converting {} to type {}", value, type);
+    s_logger.debug("Converting {} to type {}", value, type);
+    final boolean topLevel = conversionContext.getReentranceCount() == 0;
+    final Object hint = topLevel ? conversionContext.getHint() : null;
     if (directConversion(conversionContext, value, type)) {
       s_logger.debug("Direct conversion complete");
+      if (topLevel) {
+        conversionContext.setHint(null);
+      }
       return;
     }
-    final Queue<State> conversionChains = getConversionChains(value.getClass(), type);
-    if (!conversionChains.isEmpty()) {
-      final Iterator<State> conversions = conversionChains.iterator();
-      while (conversions.hasNext()) {
-        final State state = conversions.next();
-        s_logger.debug("Found cached state-chain {}", state);
-        if (type.equals(state.getRootType())) {
-          s_logger.debug("Applying conversions");
-          if (directConversion(conversionContext, value, state.getTargetType()) && stateConversion(conversionContext, state)) {
-            s_logger.debug("Cached conversions successful");
-            return;
-          } else {
-            s_logger.debug("Cached conversions failed");
-          }
-        } else {
-          s_logger.debug("Cached conversions are for different target type");
+    if (hint instanceof ConversionPlan) {
+      final ConversionPlan plan = (ConversionPlan) hint;
+      if (type.equals(plan.getTargetType()) && applyPlan(conversionContext, value, plan)) {
+        s_logger.debug("Hinted conversion plan successful");
+        _planHits.incrementAndGet();
+        return;
+      }
+    }
+    final ConversionPlans conversionPlans = getConversionPlans(value.getClass(), type);
+    final ConversionPlan[] plans = conversionPlans.get();
+    for (int i = 0; i < plans.length; i++) {
+      final ConversionPlan plan = plans[i];
+      if ((plan != hint) && applyPlan(conversionContext, value, plan)) {
+        s_logger.debug("Conversion plan successful");
+        _planHits.incrementAndGet();
+        conversionPlans.promote(plans, i);
+        if (topLevel) {
+          conversionContext.setHint(plan);
         }
+        return;
       }
-      // TODO: housekeep to get rid of chains that don't work very often, and promote those that do to the top of the list 
     }
+    _planMisses.incrementAndGet();
     s_logger.debug("Exploring conversion state space");
     final SortedMap<Integer, Queue<State>> searchStates = new TreeMap<Integer, Queue<State>>();
     State explore = new State(type, null, null, 1);
@@ -330,6 +493,10 @@ public class DefaultValueConverter extends ValueConverter {
               s_logger.debug("Conversion of {} to {} failed", value, type);
               break;
           }
+          _conversionFailures.incrementAndGet();
+          if (topLevel) {
+            conversionContext.setHint(null);
+          }
           conversionContext.recordFailedConversion(value, type);
           conversionContext.setFail();
           return;
@@ -344,11 +511,13 @@ public class DefaultValueConverter extends ValueConverter {
         s_logger.debug("Processing state {}", explore);
         if (directConversion(conversionContext, value, explore.getTargetType()) && !conversionContext.isFailed()) {
           s_logger.debug("Direct conversion possible");
-          if (stateConversion(conversionContext, explore)) {
-            synchronized (conversionChains) {
-              if (!conversionChains.contains(explore)) {
-                conversionChains.add(explore);
-              }
+          final ConversionPlan plan = new ConversionPlan(explore);
+          final boolean success = plan.apply(conversionContext);
+          plan.recordAttempt(success);
+          if (success) {
+            conversionPlans.add(plan);
+            if (topLevel) {
+              conversionContext.setHint(plan);
             }
             return;
           } else {
@@ -11,8 +11,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import org.fudgemsg.FudgeContext;
+
 import com.opengamma.language.context.ContextInitializationBean;
 import com.opengamma.language.context.MutableGlobalContext;
+import com.opengamma.language.context.MutableSessionContext;
+import com.opengamma.language.function.FunctionProviderBean;
+import com.opengamma.language.object.MaterializeObjectFunction;
+import com.opengamma.language.object.ObjectHandles;
+import com.opengamma.language.object.ReleaseObjectProcedure;
+import com.opengamma.language.procedure.ProcedureProviderBean;
 import com.opengamma.util.ArgumentChecker;
 
 /**
@@ -21,6 +29,10 @@ import com.opengamma.util.ArgumentChecker;
 public class Loader extends ContextInitializationBean {
 
   private List<TypeConverterProvider> _typeConverterProviders;
+  private boolean _columnarData;
+  private boolean _binaryTimeSeries;
+  private int _objectHandles;
+  private FudgeContext _fudgeContext = FudgeContext.GLOBAL_DEFAULT;
 
   public void setTypeConverterProvider(final TypeConverterProvider typeConverterProvider) {
     ArgumentChecker.notNull(typeConverterProvider, "typeConverterProvider");
@@ -45,11 +57,66 @@ public class Loader extends ContextInitializationBean {
     return _typeConverterProviders;
   }
 
+  /**
+   * Declares that the bound language can decode the columnar encoding of {@link com.opengamma.language.Data} values.
+   * 
+   * @param columnarData true to enable the columnar encoding of results, false to use the per-value encoding only
+   */
+  public void setColumnarData(final boolean columnarData) {
+    _columnarData = columnarData;
+  }
+
+  public boolean isColumnarData() {
+    return _columnarData;
+  }
+
+  /**
+   * Declares that the bound language can decode the binary encoding of time series.
+   * 
+   * @param binaryTimeSeries true to enable the binary encoding of time series results, false to use the per-value encoding only
+   */
+  public void setBinaryTimeSeries(final boolean binaryTimeSeries) {
+    _binaryTimeSeries = binaryTimeSeries;
+  }
+
+  public boolean isBinaryTimeSeries() {
+    return _binaryTimeSeries;
+  }
+
+  /**
+   * Declares that results which would be serialized to Fudge messages are instead held in the session and passed to the bound
+   * language as handles. The handles resolve back to the original objects when passed as parameters, and can be expanded to the
+   * full message with the {@code MaterializeObject} function. Note that functions receiving a handled object receive the live
+   * instance, not a copy of it.
+   * 
+   * @param objectHandles the maximum number of objects each session may hold, or zero to serialize all results
+   */
+  public void setObjectHandles(final int objectHandles) {
+    ArgumentChecker.notNegative(objectHandles, "objectHandles");
+    _objectHandles = objectHandles;
+  }
+
+  public int getObjectHandles() {
+    return _objectHandles;
+  }
+
+  public void setFudgeContext(final FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _fudgeContext = fudgeContext;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
   // ContextInitializationBean
 
   @Override
   protected void assertPropertiesSet() {
     ArgumentChecker.notNull(getTypeConverterProviders(), "typeConverterProviders");
+    if (getObjectHandles() > 0) {
+      ArgumentChecker.notNull(getSessionContextFactory(), "sessionContextFactory");
+    }
   }
 
   @Override
@@ -57,6 +124,32 @@ public class Loader extends ContextInitializationBean {
     for (TypeConverterProvider typeConverterProvider : getTypeConverterProviders()) {
       globalContext.getTypeConverterProvider().addTypeConverterProvider(typeConverterProvider);
     }
+    if (isColumnarData()) {
+      globalContext.setColumnarData(true);
+    }
+    if (isBinaryTimeSeries()) {
+      globalContext.setBinaryTimeSeries(true);
+    }
+    if (getObjectHandles() > 0) {
+      globalContext.getFunctionProvider().addProvider(new FunctionProviderBean(new MaterializeObjectFunction(getFudgeContext())));
+      globalContext.getProcedureProvider().addProvider(new ProcedureProviderBean(ReleaseObjectProcedure.INSTANCE));
+    }
+  }
+
+  @Override
+  protected void initContext(final MutableSessionContext sessionContext) {
+    if (getObjectHandles() > 0) {
+      sessionContext.setObjectHandles(new ObjectHandles(getObjectHandles()));
+    }
+  }
+
+  @Override
+  protected void doneContext(final MutableSessionContext sessionContext) {
+    final ObjectHandles objectHandles = sessionContext.getObjectHandles();
+    if (objectHandles != null) {
+      objectHandles.releaseAll();
+      sessionContext.setObjectHandles(null);
+    }
   }
 
 }
@@ -116,10 +116,17 @@ public class Available extends com.opengamma.language.connector.LiveData impleme
   }
   private java.util.List<com.opengamma.language.livedata.Available.Entry> _liveData;
   public static final String LIVE_DATA_KEY = "liveData";
+  private Integer _generation;
+  public static final String GENERATION_KEY = "generation";
+  private String _epoch;
+  public static final String EPOCH_KEY = "epoch";
+  private java.util.List<Integer> _removed;
+  public static final String REMOVED_KEY = "removed";
   public Available () {
   }
   protected Available (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     super (deserializer, fudgeMsg);
+    org.fudgemsg.FudgeField fudgeField;
     java.util.List<org.fudgemsg.FudgeField> fudgeFields;
     fudgeFields = fudgeMsg.getAllByName (LIVE_DATA_KEY);
     if (fudgeFields.size () > 0)  {
@@ -137,8 +144,40 @@ public class Available extends com.opengamma.language.connector.LiveData impleme
       }
       setLiveData (fudge1);
     }
+    fudgeField = fudgeMsg.getByName (GENERATION_KEY);
+    if (fudgeField != null)  {
+      try {
+        setGeneration (fudgeMsg.getFieldValue (Integer.class, fudgeField));
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a Available - field 'generation' is not integer", e);
+      }
+    }
+    fudgeField = fudgeMsg.getByName (EPOCH_KEY);
+    if (fudgeField != null)  {
+      try {
+        setEpoch ((fudgeField.getValue () != null) ? fudgeField.getValue ().toString () : null);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a Available - field 'epoch' is not string", e);
+      }
+    }
+    fudgeFields = fudgeMsg.getAllByName (REMOVED_KEY);
+    if (fudgeFields.size () > 0)  {
+      final java.util.List<Integer> fudge1;
+      fudge1 = new java.util.ArrayList<Integer> (fudgeFields.size ());
+      for (org.fudgemsg.FudgeField fudge2 : fudgeFields) {
+        try {
+          fudge1.add (fudgeMsg.getFieldValue (Integer.class, fudge2));
+        }
+        catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException ("Fudge message is not a Available - field 'removed' is not integer", e);
+        }
+      }
+      setRemoved (fudge1);
+    }
   }
-  public Available (java.util.Collection<? extends com.opengamma.language.livedata.Available.Entry> liveData) {
+  public Available (java.util.Collection<? extends com.opengamma.language.livedata.Available.Entry> liveData, Integer generation, String epoch, java.util.Collection<? extends Integer> removed) {
     if (liveData == null) _liveData = null;
     else {
       final java.util.List<com.opengamma.language.livedata.Available.Entry> fudge0 = new java.util.ArrayList<com.opengamma.language.livedata.Available.Entry> (liveData);
@@ -149,6 +188,17 @@ public class Available extends com.opengamma.language.connector.LiveData impleme
       }
       _liveData = fudge0;
     }
+    _generation = generation;
+    _epoch = epoch;
+    if (removed == null) _removed = null;
+    else {
+      final java.util.List<Integer> fudge0 = new java.util.ArrayList<Integer> (removed);
+      for (java.util.ListIterator<Integer> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        Integer fudge2 = fudge1.next ();
+        if (fudge2 == null) throw new NullPointerException ("List element of 'removed' cannot be null");
+      }
+      _removed = fudge0;
+    }
   }
   protected Available (final Available source) {
     super (source);
@@ -162,6 +212,12 @@ public class Available extends com.opengamma.language.connector.LiveData impleme
       }
       _liveData = fudge0;
     }
+    _generation = source._generation;
+    _epoch = source._epoch;
+    if (source._removed == null) _removed = null;
+    else {
+      _removed = new java.util.ArrayList<Integer> (source._removed);
+    }
   }
   public Available clone () {
     return new Available (this);
@@ -181,6 +237,17 @@ public class Available extends com.opengamma.language.connector.LiveData impleme
         msg.add (LIVE_DATA_KEY, null, fudge2);
       }
     }
+    if (_generation != null)  {
+      msg.add (GENERATION_KEY, null, _generation);
+    }
+    if (_epoch != null)  {
+      msg.add (EPOCH_KEY, null, _epoch);
+    }
+    if (_removed != null)  {
+      for (Integer fudge1 : _removed) {
+        msg.add (REMOVED_KEY, null, fudge1);
+      }
+    }
   }
   public static Available fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
@@ -226,6 +293,47 @@ public class Available extends com.opengamma.language.connector.LiveData impleme
     if (_liveData == null) _liveData = new java.util.ArrayList<com.opengamma.language.livedata.Available.Entry> ();
     _liveData.add ((com.opengamma.language.livedata.Available.Entry)liveData.clone ());
   }
+  public Integer getGeneration () {
+    return _generation;
+  }
+  public void setGeneration (Integer generation) {
+    _generation = generation;
+  }
+  public String getEpoch () {
+    return _epoch;
+  }
+  public void setEpoch (String epoch) {
+    _epoch = epoch;
+  }
+  public java.util.List<Integer> getRemoved () {
+    if (_removed != null) {
+      return java.util.Collections.unmodifiableList (_removed);
+    }
+    else return null;
+  }
+  public void setRemoved (Integer removed) {
+    if (removed == null) _removed = null;
+    else {
+      _removed = new java.util.ArrayList<Integer> (1);
+      addRemoved (removed);
+    }
+  }
+  public void setRemoved (java.util.Collection<? extends Integer> removed) {
+    if (removed == null) _removed = null;
+    else {
+      final java.util.List<Integer> fudge0 = new java.util.ArrayList<Integer> (removed);
+      for (java.util.ListIterator<Integer> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        Integer fudge2 = fudge1.next ();
+        if (fudge2 == null) throw new NullPointerException ("List element of 'removed' cannot be null");
+      }
+      _removed = fudge0;
+    }
+  }
+  public void addRemoved (Integer removed) {
+    if (removed == null) throw new NullPointerException ("'removed' cannot be null");
+    if (_removed == null) _removed = new java.util.ArrayList<Integer> ();
+    _removed.add (removed);
+  }
   public boolean equals (final Object o) {
     if (o == this) return true;
     if (!(o instanceof Available)) return false;
@@ -237,12 +345,39 @@ public class Available extends com.opengamma.language.connector.LiveData impleme
       else return false;
     }
     else if (msg._liveData != null) return false;
+    if (_generation != null) {
+      if (msg._generation != null) {
+        if (!_generation.equals (msg._generation)) return false;
+      }
+      else return false;
+    }
+    else if (msg._generation != null) return false;
+    if (_epoch != null) {
+      if (msg._epoch != null) {
+        if (!_epoch.equals (msg._epoch)) return false;
+      }
+      else return false;
+    }
+    else if (msg._epoch != null) return false;
+    if (_removed != null) {
+      if (msg._removed != null) {
+        if (!_removed.equals (msg._removed)) return false;
+      }
+      else return false;
+    }
+    else if (msg._removed != null) return false;
     return super.equals (msg);
   }
   public int hashCode () {
     int hc = super.hashCode ();
     hc *= 31;
     if (_liveData != null) hc += _liveData.hashCode ();
+    hc *= 31;
+    if (_generation != null) hc += _generation.hashCode ();
+    hc *= 31;
+    if (_epoch != null) hc += _epoch.hashCode ();
+    hc *= 31;
+    if (_removed != null) hc += _removed.hashCode ();
     return hc;
   }
   public String toString () {
@@ -6,9 +6,11 @@
 
 package com.opengamma.language.livedata;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,11 +20,13 @@ import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
 import com.opengamma.language.connector.LiveData;
+import com.opengamma.language.connector.QueryAvailableListener;
 import com.opengamma.language.connector.UserMessagePayload;
 import com.opengamma.language.context.SessionContext;
 import com.opengamma.language.custom.CustomLiveDataVisitor;
 import com.opengamma.language.custom.CustomLiveDataVisitorRegistry;
 import com.opengamma.language.custom.CustomVisitors;
+import com.opengamma.language.definition.AvailableCache;
 import com.opengamma.language.error.AbstractException;
 import com.opengamma.language.error.Constants;
 import com.opengamma.util.async.AsynchronousExecution;
@@ -35,6 +39,11 @@ public class LiveDataHandler implements LiveDataVisitor<UserMessagePayload, Sess
 
   private static final Logger s_logger = LoggerFactory.getLogger(LiveDataHandler.class);
 
+  /**
+   * Name of the published definitions in the {@link AvailableCache}.
+   */
+  private static final String AVAILABLE_CACHE_NAME = "liveData";
+
   private final CustomVisitors<UserMessagePayload, SessionContext> _customVisitors = new CustomVisitors<UserMessagePayload, SessionContext>();
 
   // CustomLiveDataVisitorRegistry
@@ -93,13 +102,29 @@ public class LiveDataHandler implements LiveDataVisitor<UserMessagePayload, Sess
     return UserMessagePayload.EMPTY_PAYLOAD;
   }
 
-  @Override
-  public Available visitQueryAvailable(final QueryAvailable message, final SessionContext context) {
+  /**
+   * Creates the message describing the available live data definitions.
+   *
+   * @param context the session context, not null
+   * @param generation the generation the client already holds, null to describe all of them
+   * @return the message, not null
+   */
+  private Available createAvailable(final SessionContext context, final Integer generation) {
     final LiveDataRepository repository = context.getLiveDataRepository();
     repository.initialize(context.getLiveDataProvider(), true);
-    final Map<Integer, MetaLiveData> definitions = repository.getAll();
-    s_logger.info("{} live data available", definitions.size());
     final Available available = new Available();
+    available.setGeneration(repository.getGeneration());
+    final Map<Integer, MetaLiveData> definitions;
+    final List<Integer> removed;
+    if (generation != null) {
+      removed = new ArrayList<Integer>();
+      definitions = repository.getChanges(generation, removed);
+      s_logger.info("{} live data changed and {} removed since generation {}", new Object[] {definitions.size(), removed.size(), generation });
+    } else {
+      removed = null;
+      definitions = repository.getAll();
+      s_logger.info("{} live data available", definitions.size());
+    }
     final LiveDataDefinitionFilter filter = context.getGlobalContext().getLiveDataDefinitionFilter();
     for (Map.Entry<Integer, MetaLiveData> definition : definitions.entrySet()) {
       Definition logical = filter.createDefinition(definition.getValue());
@@ -108,8 +133,49 @@ public class LiveDataHandler implements LiveDataVisitor<UserMessagePayload, Sess
         available.addLiveData(new Available.Entry(definition.getKey(), logical));
       } else {
         s_logger.debug("Discarding {} after applying filter", definition);
+        if (removed != null) {
+          // May have been published in an earlier generation
+          removed.add(definition.getKey());
+        }
+      }
+    }
+    if ((removed != null) && !removed.isEmpty()) {
+      available.setRemoved(removed);
+    }
+    return available;
+  }
+
+  @Override
+  public UserMessagePayload visitQueryAvailable(final QueryAvailable message, final SessionContext context) {
+    final UserMessagePayload available = queryAvailable(message, context);
+    final QueryAvailableListener listener = context.getQueryAvailableListener();
+    if (listener != null) {
+      listener.queryAvailableAnswered();
+    }
+    return available;
+  }
+
+  private UserMessagePayload queryAvailable(final QueryAvailable message, final SessionContext context) {
+    final LiveDataRepository repository = context.getLiveDataRepository();
+    final Available available;
+    if ((message.getGeneration() != null) && repository.getEpoch().equals(message.getEpoch())) {
+      available = createAvailable(context, message.getGeneration());
+    } else {
+      if (message.getGeneration() != null) {
+        s_logger.info("Generation {} is from another repository; publishing all live data", message.getGeneration());
+      }
+      final AvailableCache cache = context.getGlobalContext().getAvailableCache();
+      if (cache != null) {
+        return cache.getAvailable(AVAILABLE_CACHE_NAME, Available.class, repository, new Callable<Available>() {
+          @Override
+          public Available call() {
+            return createAvailable(context, null);
+          }
+        });
       }
+      available = createAvailable(context, null);
     }
+    available.setEpoch(repository.getEpoch());
     return available;
   }
 
@@ -23,6 +23,7 @@ import com.opengamma.util.ArgumentChecker;
 public class Loader extends ContextInitializationBean {
 
   private List<LiveDataProvider> _liveDataProviders;
+  private LiveDataDispatcher _liveDataDispatcher;
 
   public void setLiveDataProvider(final LiveDataProvider liveDataProvider) {
     ArgumentChecker.notNull(liveDataProvider, "liveDataProvider");
@@ -47,6 +48,21 @@ public class Loader extends ContextInitializationBean {
     return _liveDataProviders;
   }
 
+  /**
+   * Sets the dispatcher to use in place of the default {@link BlockingLiveDataDispatcher}, for example a {@link StreamingLiveDataDispatcher}
+   * if the bound language handles the {@link Result} and {@link Results} messages pushed to it and sends {@link Disconnect} when it no
+   * longer wants values. This is set in the binding's own configuration rather than for all languages.
+   * 
+   * @param liveDataDispatcher the dispatcher, or null to use the default
+   */
+  public void setLiveDataDispatcher(final LiveDataDispatcher liveDataDispatcher) {
+    _liveDataDispatcher = liveDataDispatcher;
+  }
+
+  public LiveDataDispatcher getLiveDataDispatcher() {
+    return _liveDataDispatcher;
+  }
+
   protected void addProviders(final AggregatingLiveDataProvider aggregator) {
     for (LiveDataProvider provider : getLiveDataProviders()) {
       aggregator.addProvider(provider);
@@ -73,6 +89,9 @@ public class Loader extends ContextInitializationBean {
   @Override
   protected void initContext(final MutableGlobalContext globalContext) {
     addProviders(globalContext.getLiveDataProvider());
+    if (getLiveDataDispatcher() != null) {
+      globalContext.setLiveDataDispatcher(getLiveDataDispatcher());
+    }
   }
 
 }
@@ -0,0 +1,141 @@
+// Automatically created - do not modify
+///CLOVER:OFF - CSOFF
+package com.opengamma.language.livedata;
+public class Results extends com.opengamma.language.connector.LiveData implements java.io.Serializable {
+  private static final long serialVersionUID = 51339126740855873l;
+  private java.util.List<com.opengamma.language.livedata.Result> _result;
+  public static final String RESULT_KEY = "result";
+  public Results () {
+  }
+  protected Results (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    super (deserializer, fudgeMsg);
+    java.util.List<org.fudgemsg.FudgeField> fudgeFields;
+    fudgeFields = fudgeMsg.getAllByName (RESULT_KEY);
+    if (fudgeFields.size () > 0)  {
+      final java.util.List<com.opengamma.language.livedata.Result> fudge1;
+      fudge1 = new java.util.ArrayList<com.opengamma.language.livedata.Result> (fudgeFields.size ());
+      for (org.fudgemsg.FudgeField fudge2 : fudgeFields) {
+        try {
+          final com.opengamma.language.livedata.Result fudge3;
+          fudge3 = com.opengamma.language.livedata.Result.fromFudgeMsg (deserializer, fudgeMsg.getFieldValue (org.fudgemsg.FudgeMsg.class, fudge2));
+          fudge1.add (fudge3);
+        }
+        catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException ("Fudge message is not a Results - field 'result' is not Result message", e);
+        }
+      }
+      setResult (fudge1);
+    }
+  }
+  public Results (java.util.Collection<? extends com.opengamma.language.livedata.Result> result) {
+    if (result == null) _result = null;
+    else {
+      final java.util.List<com.opengamma.language.livedata.Result> fudge0 = new java.util.ArrayList<com.opengamma.language.livedata.Result> (result);
+      for (java.util.ListIterator<com.opengamma.language.livedata.Result> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        com.opengamma.language.livedata.Result fudge2 = fudge1.next ();
+        if (fudge2 == null) throw new NullPointerException ("List element of 'result' cannot be null");
+        fudge1.set ((com.opengamma.language.livedata.Result)fudge2.clone ());
+      }
+      _result = fudge0;
+    }
+  }
+  protected Results (final Results source) {
+    super (source);
+    if (source == null) throw new NullPointerException ("'source' must not be null");
+    if (source._result == null) _result = null;
+    else {
+      final java.util.List<com.opengamma.language.livedata.Result> fudge0 = new java.util.ArrayList<com.opengamma.language.livedata.Result> (source._result);
+      for (java.util.ListIterator<com.opengamma.language.livedata.Result> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        com.opengamma.language.livedata.Result fudge2 = fudge1.next ();
+        fudge1.set ((com.opengamma.language.livedata.Result)fudge2.clone ());
+      }
+      _result = fudge0;
+    }
+  }
+  public Results clone () {
+    return new Results (this);
+  }
+  public org.fudgemsg.FudgeMsg toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer) {
+    if (serializer == null) throw new NullPointerException ("serializer must not be null");
+    final org.fudgemsg.MutableFudgeMsg msg = serializer.newMessage ();
+    toFudgeMsg (serializer, msg);
+    return msg;
+  }
+  public void toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer, final org.fudgemsg.MutableFudgeMsg msg) {
+    super.toFudgeMsg (serializer, msg);
+    if (_result != null)  {
+      for (com.opengamma.language.livedata.Result fudge1 : _result) {
+        final org.fudgemsg.MutableFudgeMsg fudge2 = org.fudgemsg.mapping.FudgeSerializer.addClassHeader (serializer.newMessage (), fudge1.getClass (), com.opengamma.language.livedata.Result.class);
+        fudge1.toFudgeMsg (serializer, fudge2);
+        msg.add (RESULT_KEY, null, fudge2);
+      }
+    }
+  }
+  public static Results fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
+    for (org.fudgemsg.FudgeField field : types) {
+      final String className = (String)field.getValue ();
+      if ("com.opengamma.language.livedata.Results".equals (className)) break;
+      try {
+        return (com.opengamma.language.livedata.Results)Class.forName (className).getDeclaredMethod ("fromFudgeMsg", org.fudgemsg.mapping.FudgeDeserializer.class, org.fudgemsg.FudgeMsg.class).invoke (null, deserializer, fudgeMsg);
+      }
+      catch (Throwable t) {
+        // no-action
+      }
+    }
+    return new Results (deserializer, fudgeMsg);
+  }
+  public java.util.List<com.opengamma.language.livedata.Result> getResult () {
+    if (_result != null) {
+      return java.util.Collections.unmodifiableList (_result);
+    }
+    else return null;
+  }
+  public void setResult (com.opengamma.language.livedata.Result result) {
+    if (result == null) _result = null;
+    else {
+      _result = new java.util.ArrayList<com.opengamma.language.livedata.Result> (1);
+      addResult (result);
+    }
+  }
+  public void setResult (java.util.Collection<? extends com.opengamma.language.livedata.Result> result) {
+    if (result == null) _result = null;
+    else {
+      final java.util.List<com.opengamma.language.livedata.Result> fudge0 = new java.util.ArrayList<com.opengamma.language.livedata.Result> (result);
+      for (java.util.ListIterator<com.opengamma.language.livedata.Result> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        com.opengamma.language.livedata.Result fudge2 = fudge1.next ();
+        if (fudge2 == null) throw new NullPointerException ("List element of 'result' cannot be null");
+        fudge1.set ((com.opengamma.language.livedata.Result)fudge2.clone ());
+      }
+      _result = fudge0;
+    }
+  }
+  public void addResult (com.opengamma.language.livedata.Result result) {
+    if (result == null) throw new NullPointerException ("'result' cannot be null");
+    if (_result == null) _result = new java.util.ArrayList<com.opengamma.language.livedata.Result> ();
+    _result.add ((com.opengamma.language.livedata.Result)result.clone ());
+  }
+  public boolean equals (final Object o) {
+    if (o == this) return true;
+    if (!(o instanceof Results)) return false;
+    Results msg = (Results)o;
+    if (_result != null) {
+      if (msg._result != null) {
+        if (!_result.equals (msg._result)) return false;
+      }
+      else return false;
+    }
+    else if (msg._result != null) return false;
+    return super.equals (msg);
+  }
+  public int hashCode () {
+    int hc = super.hashCode ();
+    hc *= 31;
+    if (_result != null) hc += _result.hashCode ();
+    return hc;
+  }
+  public String toString () {
+    return org.apache.commons.lang.builder.ToStringBuilder.reflectionToString(this, org.apache.commons.lang.builder.ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
+///CLOVER:ON - CSON
@@ -87,6 +87,17 @@ public final class SessionConnections {
     } while (true);
   }
 
+  /**
+   * Tests whether a connection is registered with the session. A connection is registered before it can produce values and removed before
+   * it is canceled, so a value for an identifier that is not registered is from a connection that has closed.
+   *
+   * @param identifier identifier of the connection
+   * @return true if the connection is registered, false otherwise
+   */
+  public boolean contains(final int identifier) {
+    return _connections.containsKey(identifier);
+  }
+
   /**
    * Cancels the connection referenced by the identifier.
    * 
@@ -99,7 +110,8 @@ public final class SessionConnections {
       connection.cancel();
       _context.getGlobalContext().getLiveDataDispatcher().dispatchValue(_context, identifier, null);
     } else {
-      s_logger.warn("Invalid connection {} for cancelation", identifier);
+      // Not an error; a dispatcher that only delivers the first value will have canceled it before the client disconnects
+      s_logger.debug("Connection {} already canceled", identifier);
     }
   }
 
@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.livedata;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.language.Data;
+import com.opengamma.language.connector.MessageSender;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.async.AsynchronousExecution;
+import com.opengamma.util.async.AsynchronousOperation;
+import com.opengamma.util.async.ResultCallback;
+
+/**
+ * Implementation of {@link LiveDataDispatcher} that keeps connections open and pushes each new value to the client.
+ * <p>
+ * The first value from a connection is returned as the response to the connect message. Subsequent values are posted asynchronously
+ * through the session's {@link MessageSender}. Values are conflated for each connection so that if several arrive before they can be sent
+ * only the latest is delivered. If a scheduler is supplied, values are collected and sent once per tick as a single {@link Results} message;
+ * otherwise they are sent as soon as they arrive. All state is held per session so sessions do not contend with each other.
+ */
+public class StreamingLiveDataDispatcher implements LiveDataDispatcher {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(StreamingLiveDataDispatcher.class);
+
+  /**
+   * Marker for a connection that has delivered its first value.
+   */
+  private static final Object OPEN = new Object();
+
+  private final class SessionState implements Runnable {
+
+    private final SessionContext _context;
+    /**
+     * Open connections; the value is either {@link #OPEN} or the callback waiting for the first value.
+     */
+    private final ConcurrentMap<Integer, Object> _connections = new ConcurrentHashMap<Integer, Object>();
+    /**
+     * Latest undelivered value for each connection.
+     */
+    private final ConcurrentMap<Integer, Data> _pending = new ConcurrentHashMap<Integer, Data>();
+    private final AtomicBoolean _flushScheduled = new AtomicBoolean();
+
+    public SessionState(final SessionContext context) {
+      _context = context;
+    }
+
+    public void post(final int identifier, final Data value) {
+      if (_pending.put(identifier, value) != null) {
+        _valuesConflated.incrementAndGet();
+      }
+      if (_flushScheduled.compareAndSet(false, true)) {
+        if (_scheduler != null) {
+          _scheduler.schedule(this, _tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+          flush();
+        }
+      }
+    }
+
+    public void flush() {
+      _flushScheduled.set(false);
+      if (_pending.isEmpty()) {
+        return;
+      }
+      final Results results = new Results();
+      int count = 0;
+      Result last = null;
+      final Iterator<Map.Entry<Integer, Data>> itr = _pending.entrySet().iterator();
+      while (itr.hasNext()) {
+        final Map.Entry<Integer, Data> entry = itr.next();
+        if (_connections.get(entry.getKey()) != OPEN) {
+          // Connection not yet established; the value will be used for the connect response
+          continue;
+        }
+        // Only remove the value we're sending; a newer one will go in the next flush
+        if (_pending.remove(entry.getKey(), entry.getValue())) {
+          last = new Result(entry.getKey(), entry.getValue());
+          results.addResult(last);
+          count++;
+        }
+      }
+      if (count == 0) {
+        return;
+      }
+      s_logger.debug("Sending {} value(s) to client", count);
+      _messagesSent.incrementAndGet();
+      final MessageSender sender = _context.getMessageSender();
+      if (count == 1) {
+        sender.send(last);
+      } else {
+        sender.send(results);
+      }
+    }
+
+    // Runnable
+
+    @Override
+    public void run() {
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        s_logger.error("Couldn't send live data values", e);
+      }
+    }
+
+  }
+
+  private final ConcurrentMap<SessionContext, SessionState> _sessions = new ConcurrentHashMap<SessionContext, SessionState>();
+  private final ScheduledExecutorService _scheduler;
+  private final long _tickMillis;
+  private final AtomicLong _valuesDispatched = new AtomicLong();
+  private final AtomicLong _valuesConflated = new AtomicLong();
+  private final AtomicLong _messagesSent = new AtomicLong();
+
+  /**
+   * Creates a dispatcher that sends each value to the client as soon as it arrives.
+   */
+  public StreamingLiveDataDispatcher() {
+    _scheduler = null;
+    _tickMillis = 0;
+  }
+
+  /**
+   * Creates a dispatcher that batches values, sending at most one message per session each tick.
+   *
+   * @param scheduler the scheduler to run the batches from, not null
+   * @param tickMillis the tick period in milliseconds
+   */
+  public StreamingLiveDataDispatcher(final ScheduledExecutorService scheduler, final long tickMillis) {
+    ArgumentChecker.notNull(scheduler, "scheduler");
+    ArgumentChecker.notNegativeOrZero(tickMillis, "tickMillis");
+    _scheduler = scheduler;
+    _tickMillis = tickMillis;
+  }
+
+  /**
+   * Returns the number of values received from connections.
+   *
+   * @return the count
+   */
+  public long getValuesDispatched() {
+    return _valuesDispatched.get();
+  }
+
+  /**
+   * Returns the number of values that were replaced by a newer value before they could be sent.
+   *
+   * @return the count
+   */
+  public long getValuesConflated() {
+    return _valuesConflated.get();
+  }
+
+  /**
+   * Returns the number of messages pushed to clients.
+   *
+   * @return the count
+   */
+  public long getMessagesSent() {
+    return _messagesSent.get();
+  }
+
+  private SessionState getOrCreateState(final SessionContext context) {
+    SessionState state = _sessions.get(context);
+    if (state == null) {
+      state = new SessionState(context);
+      final SessionState previous = _sessions.putIfAbsent(context, state);
+      if (previous != null) {
+        state = previous;
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Returns the number of sessions holding state, because they have connections that are open or being set up.
+   *
+   * @return the count
+   */
+  public int getActiveSessions() {
+    return _sessions.size();
+  }
+
+  // LiveDataDispatcher
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void dispatchValue(final SessionContext context, final int identifier, final Data value) {
+    if (value == null) {
+      final SessionState state = _sessions.get(context);
+      if (state == null) {
+        return;
+      }
+      final Object o;
+      synchronized (state) {
+        state._pending.remove(identifier);
+        o = state._connections.remove(identifier);
+        if (state._connections.isEmpty() && state._pending.isEmpty()) {
+          s_logger.debug("No open connections for {}", context);
+          _sessions.remove(context, state);
+        }
+      }
+      if (o instanceof ResultCallback) {
+        ((ResultCallback<Result>) o).setResult(new Result(identifier, null));
+      }
+      return;
+    }
+    _valuesDispatched.incrementAndGet();
+    do {
+      SessionState state = _sessions.get(context);
+      if (state == null) {
+        if (!context.getConnections().contains(identifier)) {
+          s_logger.debug("Discarding value for closed connection {}", identifier);
+          return;
+        }
+        state = getOrCreateState(context);
+      }
+      final Object o;
+      // The check of the connection state and holding the value must be atomic with respect to createResult checking for a held value,
+      // and to the connection closing
+      synchronized (state) {
+        if (_sessions.get(context) != state) {
+          // Discarded by the last connection on the session closing
+          continue;
+        }
+        o = state._connections.get(identifier);
+        if (o == null) {
+          // Only hold the value if the connection is still being set up; createResult will collect it. The connection is registered with
+          // the session before it can produce values and unregistered before it is closed here, so a closed connection won't be revived.
+          if (context.getConnections().contains(identifier)) {
+            state._pending.put(identifier, value);
+          } else {
+            s_logger.debug("Discarding value for closed connection {}", identifier);
+            if (state._connections.isEmpty() && state._pending.isEmpty()) {
+              _sessions.remove(context, state);
+            }
+          }
+          return;
+        }
+        if (o instanceof ResultCallback) {
+          // This is the first value; later ones will be posted
+          state._connections.put(identifier, OPEN);
+        }
+      }
+      if (o instanceof ResultCallback) {
+        ((ResultCallback<Result>) o).setResult(new Result(identifier, value));
+      } else {
+        state.post(identifier, value);
+      }
+      return;
+    } while (true);
+  }
+
+  @Override
+  public Result createResult(final SessionContext context, final int identifier, final Data result) throws AsynchronousExecution {
+    if (result != null) {
+      SessionState state;
+      do {
+        state = getOrCreateState(context);
+        synchronized (state) {
+          // Any value held back before the connection was registered is superseded by the result. Values arriving after this will
+          // see the connection as open and be posted.
+          state._connections.put(identifier, OPEN);
+          state._pending.remove(identifier);
+        }
+        // Make sure the state wasn't discarded by the last connection on the session closing
+      } while (_sessions.get(context) != state);
+      return new Result(identifier, result);
+    }
+    final AsynchronousOperation<Result> async = AsynchronousOperation.create(Result.class);
+    final ResultCallback<Result> callback = async.getCallback();
+    SessionState state;
+    Data value;
+    do {
+      state = getOrCreateState(context);
+      synchronized (state) {
+        // A value may have arrived before the connection was registered; any later value will see the callback
+        value = state._pending.remove(identifier);
+        state._connections.put(identifier, (value != null) ? OPEN : callback);
+      }
+    } while (_sessions.get(context) != state);
+    if (value != null) {
+      return new Result(identifier, value);
+    }
+    return async.getResult();
+  }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.object;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.convert.FudgeTypeConverter;
+import com.opengamma.language.definition.Categories;
+import com.opengamma.language.definition.DefinitionAnnotater;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
+import com.opengamma.language.function.AbstractFunctionInvoker;
+import com.opengamma.language.function.MetaFunction;
+import com.opengamma.language.function.PublishedFunction;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Returns the full serialized form of an object held in the session by an {@link ObjectHandles} store. A message that is not
+ * a handle is returned unchanged.
+ */
+public class MaterializeObjectFunction extends AbstractFunctionInvoker implements PublishedFunction {
+
+  private final MetaFunction _meta;
+  private final FudgeContext _fudgeContext;
+
+  private static List<MetaParameter> parameters() {
+    final MetaParameter object = new MetaParameter("object", JavaTypeInfo.builder(FudgeMsg.class).get());
+    return Arrays.asList(object);
+  }
+
+  private MaterializeObjectFunction(final DefinitionAnnotater info, final FudgeContext fudgeContext) {
+    super(info.annotate(parameters()));
+    _meta = info.annotate(new MetaFunction(Categories.MISC, "MaterializeObject", getParameters(), this));
+    _fudgeContext = fudgeContext;
+  }
+
+  public MaterializeObjectFunction(final FudgeContext fudgeContext) {
+    this(new DefinitionAnnotater(MaterializeObjectFunction.class), fudgeContext);
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  public FudgeMsg invoke(final ObjectHandles handles, final FudgeMsg object) {
+    final Long handle = ObjectHandles.getHandle(object);
+    if ((handle == null) || (handles == null)) {
+      return object;
+    }
+    final Object value = handles.get(handle);
+    if (value == null) {
+      throw new InvokeInvalidArgumentException(0, "Object has been released from the session");
+    }
+    return FudgeTypeConverter.objectToFudgeMsg(getFudgeContext(), value);
+  }
+
+  // AbstractFunctionInvoker
+
+  @Override
+  protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
+    return invoke(sessionContext.getObjectHandles(), (FudgeMsg) parameters[0]);
+  }
+
+  // PublishedFunction
+
+  @Override
+  public MetaFunction getMetaFunction() {
+    return _meta;
+  }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.object;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Holds objects within a {@link SessionContext} so that the bound language can be given a compact handle instead of a full
+ * serialized form of each one. Each handle is reference counted; returning the same object again reuses its handle and
+ * increments the count, and each reference must be balanced by a call to {@link #release}. An object is only discarded when
+ * its last reference is released, so a handle held by the client is never invalidated by the store. The number of objects
+ * held is capped; once the cap is reached {@link #lock} refuses to issue new handles and the caller must pass the object by
+ * value instead. Any objects still held when the session ends are discarded by {@link #releaseAll}.
+ * <p>
+ * A handle resolves to the live object, not a copy of it. A function that modifies one of its parameters in place therefore
+ * modifies the object seen through every handle to it, where without handles the client would have held an independent copy.
+ */
+public final class ObjectHandles {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ObjectHandles.class);
+
+  /**
+   * Field in a handle message containing the handle identifier.
+   */
+  public static final String HANDLE_FIELD = "objectHandle";
+
+  /**
+   * Handles are unique within the JVM, and seeded from the clock, so that a handle stashed by the client from an earlier
+   * JVM is unlikely to resolve to an unrelated object.
+   */
+  private static final AtomicLong s_nextHandle = new AtomicLong(System.currentTimeMillis() << 16);
+
+  private static final class Entry {
+
+    private final long _handle;
+    private final Object _value;
+    private int _refCount = 1;
+
+    private Entry(final long handle, final Object value) {
+      _handle = handle;
+      _value = value;
+    }
+
+  }
+
+  private final int _maxObjects;
+  private final Map<Long, Entry> _byHandle = new HashMap<Long, Entry>();
+  private final Map<Object, Entry> _byValue = new IdentityHashMap<Object, Entry>();
+
+  /**
+   * Creates a new store.
+   *
+   * @param maxObjects the maximum number of objects to hold, after which new handles are refused until some are released
+   */
+  public ObjectHandles(final int maxObjects) {
+    ArgumentChecker.notNegativeOrZero(maxObjects, "maxObjects");
+    _maxObjects = maxObjects;
+  }
+
+  /**
+   * Returns the maximum number of objects held.
+   *
+   * @return the cap on the number of objects
+   */
+  public int getMaxObjects() {
+    return _maxObjects;
+  }
+
+  /**
+   * Tests whether a message is a handle produced by a store.
+   *
+   * @param msg the message to test, not null
+   * @return the handle identifier or null if the message is not a handle
+   */
+  public static Long getHandle(final FudgeMsg msg) {
+    return msg.getLong(HANDLE_FIELD);
+  }
+
+  /**
+   * Returns a handle for the object, adding it to the store or incrementing the reference count if it is already held.
+   *
+   * @param value the object to hold, not null
+   * @return the handle identifier, or null if the object is not already held and the store is full
+   */
+  public Long lock(final Object value) {
+    ArgumentChecker.notNull(value, "value");
+    synchronized (this) {
+      Entry entry = _byValue.get(value);
+      if (entry != null) {
+        entry._refCount++;
+        return entry._handle;
+      }
+      if (_byHandle.size() >= _maxObjects) {
+        s_logger.warn("Object handle store full with {} referenced objects", _byHandle.size());
+        return null;
+      }
+      entry = new Entry(s_nextHandle.getAndIncrement(), value);
+      _byHandle.put(entry._handle, entry);
+      _byValue.put(value, entry);
+      return entry._handle;
+    }
+  }
+
+  /**
+   * Returns the object for a handle.
+   *
+   * @param handle the handle identifier
+   * @return the object or null if the handle has been released
+   */
+  public synchronized Object get(final long handle) {
+    final Entry entry = _byHandle.get(handle);
+    return (entry != null) ? entry._value : null;
+  }
+
+  /**
+   * Releases a reference to a handle, discarding the object when the last reference is released.
+   *
+   * @param handle the handle identifier
+   * @return true if the handle was valid, false if it had already been released
+   */
+  public synchronized boolean release(final long handle) {
+    final Entry entry = _byHandle.get(handle);
+    if (entry == null) {
+      return false;
+    }
+    if (--entry._refCount == 0) {
+      s_logger.debug("Last reference to object handle {} released", handle);
+      _byHandle.remove(handle);
+      _byValue.remove(entry._value);
+    }
+    return true;
+  }
+
+  /**
+   * Discards all objects, regardless of their reference counts.
+   */
+  public synchronized void releaseAll() {
+    s_logger.debug("Releasing {} object handles", _byHandle.size());
+    _byHandle.clear();
+    _byValue.clear();
+  }
+
+  /**
+   * Returns the number of objects currently held.
+   *
+   * @return the number of objects
+   */
+  public synchronized int size() {
+    return _byHandle.size();
+  }
+
+}
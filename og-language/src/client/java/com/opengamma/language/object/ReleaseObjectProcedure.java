@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.object;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.fudgemsg.FudgeMsg;
+
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.definition.Categories;
+import com.opengamma.language.definition.DefinitionAnnotater;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.procedure.AbstractProcedureInvoker;
+import com.opengamma.language.procedure.MetaProcedure;
+import com.opengamma.language.procedure.PublishedProcedure;
+
+/**
+ * Releases a reference to an object held in the session by an {@link ObjectHandles} store.
+ */
+public final class ReleaseObjectProcedure extends AbstractProcedureInvoker.NoResult implements PublishedProcedure {
+
+  /**
+   * Default instance.
+   */
+  public static final ReleaseObjectProcedure INSTANCE = new ReleaseObjectProcedure();
+
+  private final MetaProcedure _meta;
+
+  private static List<MetaParameter> parameters() {
+    final MetaParameter object = new MetaParameter("object", JavaTypeInfo.builder(FudgeMsg.class).get());
+    return Arrays.asList(object);
+  }
+
+  private ReleaseObjectProcedure(final DefinitionAnnotater info) {
+    super(info.annotate(parameters()));
+    _meta = info.annotate(new MetaProcedure(Categories.MISC, "ReleaseObject", getParameters(), this));
+  }
+
+  private ReleaseObjectProcedure() {
+    this(new DefinitionAnnotater(ReleaseObjectProcedure.class));
+  }
+
+  public static void invoke(final ObjectHandles handles, final FudgeMsg object) {
+    final Long handle = ObjectHandles.getHandle(object);
+    if ((handle != null) && (handles != null)) {
+      handles.release(handle);
+    }
+  }
+
+  // AbstractProcedureInvoker.NoResult
+
+  @Override
+  protected void invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
+    invoke(sessionContext.getObjectHandles(), (FudgeMsg) parameters[0]);
+  }
+
+  // PublishedProcedure
+
+  @Override
+  public MetaProcedure getMetaProcedure() {
+    return _meta;
+  }
+
+}
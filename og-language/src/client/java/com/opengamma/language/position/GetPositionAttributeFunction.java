@@ -55,6 +55,11 @@ public class GetPositionAttributeFunction extends AbstractFunctionInvoker implem
 
   // AbstractFunctionInvoker
 
+  @Override
+  protected boolean isBroadcast() {
+    return true;
+  }
+
   @Override
   protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
     return invoke((Position) parameters[POSITION], (String) parameters[ATTRIBUTE]);
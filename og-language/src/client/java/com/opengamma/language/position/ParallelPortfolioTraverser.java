@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.position;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.position.PortfolioNode;
+import com.opengamma.core.position.Position;
+import com.opengamma.language.context.GlobalContext;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Depth-first traversal of a portfolio that produces rows of output in parallel. Each node and position is first asked how many
+ * rows it will produce, the output is then allocated at its final size, and each node and position writes its rows at a fixed
+ * offset. The rows are in the same order as a sequential {@link com.opengamma.core.position.impl.PortfolioNodeTraverser#depthFirst}
+ * traversal would produce them, regardless of which threads do the work.
+ * <p>
+ * Work is divided into batches which are claimed by the calling thread and by helper tasks submitted to the executor. The calling
+ * thread processes batches itself rather than waiting for the executor, and then waits only for batches that helpers have already
+ * claimed, so a saturated executor delays nothing and the traversal may safely be made from one of the executor's own threads.
+ */
+public final class ParallelPortfolioTraverser {
+
+  /**
+   * Default number of items processed by a task before it claims another batch.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  /**
+   * Receives the nodes and positions of the portfolio. The row counting and storing methods may be called concurrently from
+   * multiple threads, but never concurrently for the same node or position.
+   */
+  public abstract static class Callback {
+
+    /**
+     * Returns the number of rows that will be stored for a node.
+     *
+     * @param node the node, not null
+     * @return the number of rows
+     */
+    protected int getRowCount(final PortfolioNode node) {
+      return 0;
+    }
+
+    /**
+     * Returns the number of rows that will be stored for a position.
+     *
+     * @param parentNode the node containing the position, not null
+     * @param position the position, not null
+     * @return the number of rows
+     */
+    protected int getRowCount(final PortfolioNode parentNode, final Position position) {
+      return 0;
+    }
+
+    /**
+     * Allocates the output. This is called once, before any rows are stored.
+     *
+     * @param rows the total number of rows that will be stored
+     */
+    protected abstract void allocate(int rows);
+
+    /**
+     * Stores the rows for a node.
+     *
+     * @param row the first row to store
+     * @param node the node, not null
+     */
+    protected void store(final int row, final PortfolioNode node) {
+    }
+
+    /**
+     * Stores the rows for a position.
+     *
+     * @param row the first row to store
+     * @param parentNode the node containing the position, not null
+     * @param position the position, not null
+     */
+    protected void store(final int row, final PortfolioNode parentNode, final Position position) {
+    }
+
+  }
+
+  /**
+   * Operation on a range of items, as used by {@link #execute}.
+   */
+  public interface Operation {
+
+    /**
+     * Processes a range of items.
+     *
+     * @param from the first item, inclusive
+     * @param to the last item, exclusive
+     */
+    void execute(int from, int to);
+
+  }
+
+  private final ExecutorService _executor;
+  private final int _batchSize;
+  private final int _parallelism;
+
+  /**
+   * Creates a new traverser.
+   *
+   * @param executor the executor to run helper tasks on, or null to work on the calling thread only
+   * @param batchSize the number of items processed by a task before it claims another batch
+   */
+  public ParallelPortfolioTraverser(final ExecutorService executor, final int batchSize) {
+    ArgumentChecker.notNegativeOrZero(batchSize, "batchSize");
+    _executor = executor;
+    _batchSize = batchSize;
+    _parallelism = Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Creates a new traverser that uses the saturating executor of the context.
+   *
+   * @param context the global context, not null
+   * @return the traverser, not null
+   */
+  public static ParallelPortfolioTraverser of(final GlobalContext context) {
+    return new ParallelPortfolioTraverser(context.getSaturatingExecutor(), DEFAULT_BATCH_SIZE);
+  }
+
+  public ExecutorService getExecutor() {
+    return _executor;
+  }
+
+  public int getBatchSize() {
+    return _batchSize;
+  }
+
+  /**
+   * Processes a number of items, in batches, using the calling thread and the executor.
+   *
+   * @param count the number of items
+   * @param operation the operation to apply to each batch, not null
+   */
+  public void execute(final int count, final Operation operation) {
+    final int batches = (count + _batchSize - 1) / _batchSize;
+    if ((_executor == null) || (batches <= 1)) {
+      if (count > 0) {
+        operation.execute(0, count);
+      }
+      return;
+    }
+    final AtomicInteger nextBatch = new AtomicInteger();
+    final AtomicInteger completedBatches = new AtomicInteger();
+    final CountDownLatch completed = new CountDownLatch(1);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final Runnable worker = new Runnable() {
+      @Override
+      public void run() {
+        int batch = nextBatch.getAndIncrement();
+        while (batch < batches) {
+          try {
+            final int from = batch * _batchSize;
+            operation.execute(from, Math.min(from + _batchSize, count));
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          } finally {
+            if (completedBatches.incrementAndGet() == batches) {
+              completed.countDown();
+            }
+          }
+          batch = nextBatch.getAndIncrement();
+        }
+      }
+    };
+    final int helpers = Math.min(batches, _parallelism) - 1;
+    for (int i = 0; i < helpers; i++) {
+      try {
+        _executor.execute(worker);
+      } catch (RejectedExecutionException e) {
+        // The calling thread will do the work instead
+        break;
+      }
+    }
+    worker.run();
+    // Every batch has now been claimed, but helpers may still be working on theirs. Any helper that starts after this point
+    // finds nothing to do and doesn't need to be waited for.
+    try {
+      completed.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted", e);
+    }
+    final Throwable t = failure.get();
+    if (t != null) {
+      if (t instanceof RuntimeException) {
+        throw (RuntimeException) t;
+      }
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+      throw new OpenGammaRuntimeException("Couldn't traverse portfolio", t);
+    }
+  }
+
+  private static int countItems(final PortfolioNode node) {
+    int count = 1 + node.getPositions().size();
+    for (PortfolioNode child : node.getChildNodes()) {
+      count += countItems(child);
+    }
+    return count;
+  }
+
+  /**
+   * Flattens the tree in depth-first order, each node being followed by its positions and then its child nodes. A node is
+   * recorded with a null position.
+   */
+  private static int flatten(final PortfolioNode node, final PortfolioNode[] nodes, final Position[] positions, int index) {
+    nodes[index++] = node;
+    for (Position position : node.getPositions()) {
+      nodes[index] = node;
+      positions[index++] = position;
+    }
+    for (PortfolioNode child : node.getChildNodes()) {
+      index = flatten(child, nodes, positions, index);
+    }
+    return index;
+  }
+
+  /**
+   * Traverses the portfolio, storing the rows produced by each node and position.
+   *
+   * @param rootNode the root node of the portfolio, not null
+   * @param callback the callback to receive the nodes and positions, not null
+   * @return the total number of rows stored
+   */
+  public int traverse(final PortfolioNode rootNode, final Callback callback) {
+    ArgumentChecker.notNull(rootNode, "rootNode");
+    ArgumentChecker.notNull(callback, "callback");
+    final int items = countItems(rootNode);
+    final PortfolioNode[] nodes = new PortfolioNode[items];
+    final Position[] positions = new Position[items];
+    flatten(rootNode, nodes, positions, 0);
+    final int[] offsets = new int[items + 1];
+    execute(items, new Operation() {
+      @Override
+      public void execute(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+          offsets[i + 1] = (positions[i] != null) ? callback.getRowCount(nodes[i], positions[i]) : callback.getRowCount(nodes[i]);
+        }
+      }
+    });
+    for (int i = 0; i < items; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    callback.allocate(offsets[items]);
+    execute(items, new Operation() {
+      @Override
+      public void execute(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+          if (offsets[i + 1] > offsets[i]) {
+            if (positions[i] != null) {
+              callback.store(offsets[i], nodes[i], positions[i]);
+            } else {
+              callback.store(offsets[i], nodes[i]);
+            }
+          }
+        }
+      }
+    });
+    return offsets[items];
+  }
+
+}
@@ -6,9 +6,11 @@
 
 package com.opengamma.language.procedure;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,11 +20,13 @@ import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
 import com.opengamma.language.connector.Procedure;
+import com.opengamma.language.connector.QueryAvailableListener;
 import com.opengamma.language.connector.UserMessagePayload;
 import com.opengamma.language.context.SessionContext;
 import com.opengamma.language.custom.CustomProcedureVisitor;
 import com.opengamma.language.custom.CustomProcedureVisitorRegistry;
 import com.opengamma.language.custom.CustomVisitors;
+import com.opengamma.language.definition.AvailableCache;
 import com.opengamma.language.error.AbstractException;
 import com.opengamma.language.error.Constants;
 import com.opengamma.util.async.AsynchronousExecution;
@@ -35,6 +39,11 @@ public class ProcedureHandler implements ProcedureVisitor<UserMessagePayload, Se
 
   private static final Logger s_logger = LoggerFactory.getLogger(ProcedureHandler.class);
 
+  /**
+   * Name of the published definitions in the {@link AvailableCache}.
+   */
+  private static final String AVAILABLE_CACHE_NAME = "procedure";
+
   private final CustomVisitors<UserMessagePayload, SessionContext> _customVisitors = new CustomVisitors<UserMessagePayload, SessionContext>();
 
   // CustomProcedureVisitorRegistry
@@ -81,13 +90,29 @@ public class ProcedureHandler implements ProcedureVisitor<UserMessagePayload, Se
     }
   }
 
-  @Override
-  public UserMessagePayload visitQueryAvailable(final QueryAvailable message, final SessionContext data) {
+  /**
+   * Creates the message describing the available procedures.
+   *
+   * @param data the session context, not null
+   * @param generation the generation the client already holds, null to describe all of them
+   * @return the message, not null
+   */
+  private Available createAvailable(final SessionContext data, final Integer generation) {
     final ProcedureRepository repository = data.getProcedureRepository();
     repository.initialize(data.getProcedureProvider(), true);
-    final Map<Integer, MetaProcedure> definitions = repository.getAll();
-    s_logger.info("{} procedures available", definitions.size());
     final Available available = new Available();
+    available.setGeneration(repository.getGeneration());
+    final Map<Integer, MetaProcedure> definitions;
+    final List<Integer> removed;
+    if (generation != null) {
+      removed = new ArrayList<Integer>();
+      definitions = repository.getChanges(generation, removed);
+      s_logger.info("{} procedures changed and {} removed since generation {}", new Object[] {definitions.size(), removed.size(), generation });
+    } else {
+      removed = null;
+      definitions = repository.getAll();
+      s_logger.info("{} procedures available", definitions.size());
+    }
     final ProcedureDefinitionFilter filter = data.getGlobalContext().getProcedureDefinitionFilter();
     for (Map.Entry<Integer, MetaProcedure> definition : definitions.entrySet()) {
       Definition logical = filter.createDefinition(definition.getValue());
@@ -96,8 +121,49 @@ public class ProcedureHandler implements ProcedureVisitor<UserMessagePayload, Se
         available.addProcedure(new Available.Entry(definition.getKey(), logical));
       } else {
         s_logger.debug("Discarding {} after applying filter", definition);
+        if (removed != null) {
+          // May have been published in an earlier generation
+          removed.add(definition.getKey());
+        }
+      }
+    }
+    if ((removed != null) && !removed.isEmpty()) {
+      available.setRemoved(removed);
+    }
+    return available;
+  }
+
+  @Override
+  public UserMessagePayload visitQueryAvailable(final QueryAvailable message, final SessionContext data) {
+    final UserMessagePayload available = queryAvailable(message, data);
+    final QueryAvailableListener listener = data.getQueryAvailableListener();
+    if (listener != null) {
+      listener.queryAvailableAnswered();
+    }
+    return available;
+  }
+
+  private UserMessagePayload queryAvailable(final QueryAvailable message, final SessionContext data) {
+    final ProcedureRepository repository = data.getProcedureRepository();
+    final Available available;
+    if ((message.getGeneration() != null) && repository.getEpoch().equals(message.getEpoch())) {
+      available = createAvailable(data, message.getGeneration());
+    } else {
+      if (message.getGeneration() != null) {
+        s_logger.info("Generation {} is from another repository; publishing all procedures", message.getGeneration());
+      }
+      final AvailableCache cache = data.getGlobalContext().getAvailableCache();
+      if (cache != null) {
+        return cache.getAvailable(AVAILABLE_CACHE_NAME, Available.class, repository, new Callable<Available>() {
+          @Override
+          public Available call() {
+            return createAvailable(data, null);
+          }
+        });
       }
+      available = createAvailable(data, null);
     }
+    available.setEpoch(repository.getEpoch());
     return available;
   }
 
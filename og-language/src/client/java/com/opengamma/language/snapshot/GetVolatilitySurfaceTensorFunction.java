@@ -6,12 +6,9 @@
 
 package com.opengamma.language.snapshot;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
 import com.opengamma.core.marketdatasnapshot.impl.ManageableVolatilitySurfaceSnapshot;
@@ -22,7 +19,6 @@ import com.opengamma.language.definition.Categories;
 import com.opengamma.language.definition.DefinitionAnnotater;
 import com.opengamma.language.definition.JavaTypeInfo;
 import com.opengamma.language.definition.MetaParameter;
-import com.opengamma.language.error.InvokeInvalidArgumentException;
 import com.opengamma.language.function.AbstractFunctionInvoker;
 import com.opengamma.language.function.MetaFunction;
 import com.opengamma.language.function.PublishedFunction;
@@ -56,39 +52,26 @@ public class GetVolatilitySurfaceTensorFunction extends AbstractFunctionInvoker
     this(new DefinitionAnnotater(GetVolatilitySurfaceTensorFunction.class));
   }
 
-  @SuppressWarnings("unchecked")
   public static Value[][] invoke(final ManageableVolatilitySurfaceSnapshot snapshot, final Boolean marketValue, final Boolean overrideValue) {
-    final Set<Comparable<Object>> keyXSet = new HashSet<Comparable<Object>>();
-    final Set<Comparable<Object>> keyYSet = new HashSet<Comparable<Object>>();
-    for (Pair<Object, Object> key : snapshot.getValues().keySet()) {
-      if (key.getFirst() instanceof Comparable) {
-        keyXSet.add((Comparable<Object>) key.getFirst());
-      } else {
-        throw new InvokeInvalidArgumentException(0, "surface X key '" + key.getFirst() + "' is not comparable");
+    final VolatilitySurfaceAxisIndex index = VolatilitySurfaceAxisIndex.of(snapshot);
+    final Value[][] values = new Value[index.getYCount()][index.getXCount()];
+    for (Map.Entry<Pair<Object, Object>, ValueSnapshot> point : snapshot.getValues().entrySet()) {
+      final ValueSnapshot value = point.getValue();
+      if (value == null) {
+        continue;
       }
-      if (key.getSecond() instanceof Comparable) {
-        keyYSet.add((Comparable<Object>) key.getSecond());
-      } else {
-        throw new InvokeInvalidArgumentException(0, "surface Y key '" + key.getSecond() + "' is not comparable");
+      final Value[] row = values[index.getRow(point.getKey().getSecond())];
+      final int column = index.getColumn(point.getKey().getFirst());
+      if (Boolean.TRUE.equals(overrideValue) && (value.getOverrideValue() != null)) {
+        row[column] = ValueUtils.of(value.getOverrideValue());
+      } else if (Boolean.TRUE.equals(marketValue) && (value.getMarketValue() != null)) {
+        row[column] = ValueUtils.of(value.getMarketValue());
       }
     }
-    final List<Comparable<Object>> keyX = new ArrayList<Comparable<Object>>(keyXSet);
-    final List<Comparable<Object>> keyY = new ArrayList<Comparable<Object>>(keyYSet);
-    Collections.sort(keyX);
-    Collections.sort(keyY);
-    final Value[][] values = new Value[keyY.size()][keyX.size()];
-    for (int i = 0; i < keyY.size(); i++) {
-      final Object y = keyY.get(i);
-      for (int j = 0; j < keyX.size(); j++) {
-        final ValueSnapshot value = snapshot.getValues().get(Pair.of(keyX.get(j), y));
-        if (value == null) {
-          values[i][j] = new Value();
-        } else if (Boolean.TRUE.equals(overrideValue) && (value.getOverrideValue() != null)) {
-          values[i][j] = ValueUtils.of(value.getOverrideValue());
-        } else if (Boolean.TRUE.equals(marketValue) && (value.getMarketValue() != null)) {
-          values[i][j] = ValueUtils.of(value.getMarketValue());
-        } else {
-          values[i][j] = new Value();
+    for (Value[] row : values) {
+      for (int j = 0; j < row.length; j++) {
+        if (row[j] == null) {
+          row[j] = new Value();
         }
       }
     }
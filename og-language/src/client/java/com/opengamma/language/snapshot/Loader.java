@@ -92,14 +92,18 @@ public class Loader extends ContextInitializationBean {
         GetYieldCurveTensorFunction.INSTANCE,
         GetCurveTensorFunction.INSTANCE,
         SetSnapshotGlobalValueFunction.INSTANCE,
+        SetSnapshotGlobalValuesFunction.INSTANCE,
         SetSnapshotVolatilityCubeFunction.INSTANCE,
         SetSnapshotVolatilitySurfaceFunction.INSTANCE,
         SetSnapshotYieldCurveFunction.INSTANCE,
         SetVolatilityCubePointFunction.INSTANCE,
+        SetVolatilityCubePointsFunction.INSTANCE,
         SetVolatilityCubeTensorFunction.INSTANCE,
         SetVolatilitySurfacePointFunction.INSTANCE,
+        SetVolatilitySurfacePointsFunction.INSTANCE,
         SetVolatilitySurfaceTensorFunction.INSTANCE,
         SetYieldCurvePointFunction.INSTANCE,
+        SetYieldCurvePointsFunction.INSTANCE,
         SetCurvePointFunction.INSTANCE,
         SetYieldCurveTensorFunction.INSTANCE,
         SetCurveTensorFunction.INSTANCE,
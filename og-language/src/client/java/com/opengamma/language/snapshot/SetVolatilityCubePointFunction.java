@@ -58,8 +58,11 @@ public class SetVolatilityCubePointFunction extends AbstractFunctionInvoker impl
 
   public static ManageableVolatilityCubeSnapshot invoke(final ManageableVolatilityCubeSnapshot snapshot, final Tenor swapTenor, final Tenor optionExpiry, final double relativeStrike,
       final Double overrideValue, final Double marketValue) {
-    final Map<VolatilityPoint, ValueSnapshot> points = snapshot.getValues();
-    final VolatilityPoint key = new VolatilityPoint(swapTenor, optionExpiry, relativeStrike);
+    setValue(snapshot.getValues(), new VolatilityPoint(swapTenor, optionExpiry, relativeStrike), overrideValue, marketValue);
+    return snapshot;
+  }
+
+  /* package */static void setValue(final Map<VolatilityPoint, ValueSnapshot> points, final VolatilityPoint key, final Double overrideValue, final Double marketValue) {
     if ((overrideValue != null) || (marketValue != null)) {
       final ValueSnapshot value = points.get(key);
       if (value != null) {
@@ -74,7 +77,6 @@ public class SetVolatilityCubePointFunction extends AbstractFunctionInvoker impl
     } else {
       points.remove(key);
     }
-    return snapshot;
   }
 
   // AbstractFunctionInvoker
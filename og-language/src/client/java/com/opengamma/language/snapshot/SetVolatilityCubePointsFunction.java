@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.snapshot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
+import com.opengamma.core.marketdatasnapshot.VolatilityPoint;
+import com.opengamma.core.marketdatasnapshot.impl.ManageableVolatilityCubeSnapshot;
+import com.opengamma.language.Value;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.definition.Categories;
+import com.opengamma.language.definition.DefinitionAnnotater;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
+import com.opengamma.language.function.AbstractFunctionInvoker;
+import com.opengamma.language.function.MetaFunction;
+import com.opengamma.language.function.PublishedFunction;
+import com.opengamma.util.time.Tenor;
+
+/**
+ * Updates a set of points on a "volatility cube" in one call, each as {@link SetVolatilityCubePointFunction} would.
+ */
+public class SetVolatilityCubePointsFunction extends AbstractFunctionInvoker implements PublishedFunction {
+
+  /**
+   * Default instance.
+   */
+  public static final SetVolatilityCubePointsFunction INSTANCE = new SetVolatilityCubePointsFunction();
+
+  private static final int SNAPSHOT = 0;
+  private static final int SWAP_TENOR = 1;
+  private static final int OPTION_EXPIRY = 2;
+  private static final int RELATIVE_STRIKE = 3;
+  private static final int OVERRIDE_VALUE = 4;
+  private static final int MARKET_VALUE = 5;
+
+  private final MetaFunction _meta;
+
+  private static List<MetaParameter> parameters() {
+    return Arrays.asList(
+        new MetaParameter("snapshot", JavaTypeInfo.builder(ManageableVolatilityCubeSnapshot.class).get()),
+        new MetaParameter("swapTenor", JavaTypeInfo.builder(Tenor.class).arrayOf().get()),
+        new MetaParameter("optionExpiry", JavaTypeInfo.builder(Tenor.class).arrayOf().get()),
+        new MetaParameter("relativeStrike", JavaTypeInfo.builder(Double.class).arrayOf().get()),
+        new MetaParameter("overrideValue", JavaTypeInfo.builder(Value.class).arrayOf().allowNull().get()),
+        new MetaParameter("marketValue", JavaTypeInfo.builder(Value.class).arrayOf().allowNull().get()));
+  }
+
+  private SetVolatilityCubePointsFunction(final DefinitionAnnotater info) {
+    super(info.annotate(parameters()));
+    _meta = info.annotate(new MetaFunction(Categories.MARKET_DATA, "SetVolatilityCubePoints", getParameters(), this));
+  }
+
+  protected SetVolatilityCubePointsFunction() {
+    this(new DefinitionAnnotater(SetVolatilityCubePointsFunction.class));
+  }
+
+  public static ManageableVolatilityCubeSnapshot invoke(final ManageableVolatilityCubeSnapshot snapshot, final Tenor[] swapTenor, final Tenor[] optionExpiry,
+      final Double[] relativeStrike, final Value[] overrideValue, final Value[] marketValue) {
+    if (optionExpiry.length != swapTenor.length) {
+      throw new InvokeInvalidArgumentException(OPTION_EXPIRY, "Must have the same number of option expiries as swap tenors");
+    }
+    if (relativeStrike.length != swapTenor.length) {
+      throw new InvokeInvalidArgumentException(RELATIVE_STRIKE, "Must have the same number of strikes as swap tenors");
+    }
+    if ((overrideValue != null) && (overrideValue.length != swapTenor.length)) {
+      throw new InvokeInvalidArgumentException(OVERRIDE_VALUE, "Must have the same number of values as swap tenors");
+    }
+    if ((marketValue != null) && (marketValue.length != swapTenor.length)) {
+      throw new InvokeInvalidArgumentException(MARKET_VALUE, "Must have the same number of values as swap tenors");
+    }
+    final Map<VolatilityPoint, ValueSnapshot> points = snapshot.getValues();
+    for (int i = 0; i < swapTenor.length; i++) {
+      final VolatilityPoint key = new VolatilityPoint(swapTenor[i], optionExpiry[i], relativeStrike[i]);
+      // A null array leaves those values unchanged, as the tensor functions do
+      final ValueSnapshot value = ((overrideValue == null) || (marketValue == null)) ? points.get(key) : null;
+      final Double override = (overrideValue != null) ? overrideValue[i].getDoubleValue() : ((value != null) ? value.getOverrideValue() : null);
+      final Double market = (marketValue != null) ? marketValue[i].getDoubleValue() : ((value != null) ? value.getMarketValue() : null);
+      SetVolatilityCubePointFunction.setValue(points, key, override, market);
+    }
+    return snapshot;
+  }
+
+  // AbstractFunctionInvoker
+
+  @Override
+  protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
+    return invoke((ManageableVolatilityCubeSnapshot) parameters[SNAPSHOT], (Tenor[]) parameters[SWAP_TENOR], (Tenor[]) parameters[OPTION_EXPIRY],
+        (Double[]) parameters[RELATIVE_STRIKE], (Value[]) parameters[OVERRIDE_VALUE], (Value[]) parameters[MARKET_VALUE]);
+  }
+
+  // PublishedFunction
+
+  @Override
+  public MetaFunction getMetaFunction() {
+    return _meta;
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.snapshot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
+import com.opengamma.core.marketdatasnapshot.impl.ManageableVolatilitySurfaceSnapshot;
+import com.opengamma.language.Value;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.definition.Categories;
+import com.opengamma.language.definition.DefinitionAnnotater;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
+import com.opengamma.language.function.AbstractFunctionInvoker;
+import com.opengamma.language.function.MetaFunction;
+import com.opengamma.language.function.PublishedFunction;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Modifies a sparse set of points on a volatility surface, leaving the rest of the surface untouched. The points are addressed by
+ * their existing axis keys; use {@link SetVolatilitySurfacePointFunction} to add points on new keys.
+ */
+public class SetVolatilitySurfacePointsFunction extends AbstractFunctionInvoker implements PublishedFunction {
+
+  /**
+   * Default instance.
+   */
+  public static final SetVolatilitySurfacePointsFunction INSTANCE = new SetVolatilitySurfacePointsFunction();
+
+  private static final int SNAPSHOT = 0;
+  private static final int X = 1;
+  private static final int Y = 2;
+  private static final int OVERRIDE_VALUE = 3;
+  private static final int MARKET_VALUE = 4;
+
+  private final MetaFunction _meta;
+
+  private static List<MetaParameter> parameters() {
+    return Arrays.asList(
+        new MetaParameter("snapshot", JavaTypeInfo.builder(ManageableVolatilitySurfaceSnapshot.class).get()),
+        new MetaParameter("x", JavaTypeInfo.builder(String.class).arrayOf().get()),
+        new MetaParameter("y", JavaTypeInfo.builder(String.class).arrayOf().get()),
+        new MetaParameter("overrideValue", JavaTypeInfo.builder(Value.class).arrayOf().allowNull().get()),
+        new MetaParameter("marketValue", JavaTypeInfo.builder(Value.class).arrayOf().allowNull().get()));
+  }
+
+  private SetVolatilitySurfacePointsFunction(final DefinitionAnnotater info) {
+    super(info.annotate(parameters()));
+    _meta = info.annotate(new MetaFunction(Categories.MARKET_DATA, "SetVolatilitySurfacePoints", getParameters(), this));
+  }
+
+  protected SetVolatilitySurfacePointsFunction() {
+    this(new DefinitionAnnotater(SetVolatilitySurfacePointsFunction.class));
+  }
+
+  public static ManageableVolatilitySurfaceSnapshot invoke(final ManageableVolatilitySurfaceSnapshot snapshot, final String[] x, final String[] y,
+      final Value[] overrideValue, final Value[] marketValue) {
+    if (y.length != x.length) {
+      throw new InvokeInvalidArgumentException(Y, "Must have the same number of Y keys as X keys");
+    }
+    if ((overrideValue != null) && (overrideValue.length != x.length)) {
+      throw new InvokeInvalidArgumentException(OVERRIDE_VALUE, "Must have the same number of values as keys");
+    }
+    if ((marketValue != null) && (marketValue.length != x.length)) {
+      throw new InvokeInvalidArgumentException(MARKET_VALUE, "Must have the same number of values as keys");
+    }
+    final Map<Pair<Object, Object>, ValueSnapshot> values = snapshot.getValues();
+    VolatilitySurfaceAxisIndex index = VolatilitySurfaceAxisIndex.ofUnchecked(snapshot);
+    boolean rebuilt = false;
+    for (int i = 0; i < x.length; i++) {
+      Object xKey = index.getXByName(x[i]);
+      Object yKey = index.getYByName(y[i]);
+      if (((xKey == null) || (yKey == null)) && !rebuilt) {
+        // The index may be older than a point added since it was built
+        index = VolatilitySurfaceAxisIndex.rebuild(snapshot);
+        rebuilt = true;
+        xKey = index.getXByName(x[i]);
+        yKey = index.getYByName(y[i]);
+      }
+      if (xKey == null) {
+        throw new InvokeInvalidArgumentException(X, "X key '" + x[i] + "' is not on the surface");
+      }
+      if (yKey == null) {
+        throw new InvokeInvalidArgumentException(Y, "Y key '" + y[i] + "' is not on the surface");
+      }
+      final Pair<Object, Object> key = Pair.of(xKey, yKey);
+      final ValueSnapshot value = values.get(key);
+      final ValueSnapshot newValue = SetVolatilitySurfaceTensorFunction.update(value, (overrideValue != null) ? overrideValue[i] : null,
+          (marketValue != null) ? marketValue[i] : null);
+      if (newValue != value) {
+        values.put(key, newValue);
+      }
+    }
+    return snapshot;
+  }
+
+  // AbstractFunctionInvoker
+
+  @Override
+  protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
+    return invoke((ManageableVolatilitySurfaceSnapshot) parameters[SNAPSHOT], (String[]) parameters[X], (String[]) parameters[Y],
+        (Value[]) parameters[OVERRIDE_VALUE], (Value[]) parameters[MARKET_VALUE]);
+  }
+
+  // PublishedFunction
+
+  @Override
+  public MetaFunction getMetaFunction() {
+    return _meta;
+  }
+
+}
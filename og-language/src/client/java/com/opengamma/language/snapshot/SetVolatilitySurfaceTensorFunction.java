@@ -6,12 +6,9 @@
 
 package com.opengamma.language.snapshot;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
 import com.opengamma.core.marketdatasnapshot.impl.ManageableVolatilitySurfaceSnapshot;
@@ -55,61 +52,77 @@ public class SetVolatilitySurfaceTensorFunction extends AbstractFunctionInvoker
     this(new DefinitionAnnotater(SetVolatilitySurfaceTensorFunction.class));
   }
 
-  @SuppressWarnings("unchecked")
-  public static ManageableVolatilitySurfaceSnapshot invoke(final ManageableVolatilitySurfaceSnapshot snapshot, final Value[][] overrideValue, final Value[][] marketValue) {
-    final Set<Comparable<Object>> keyXSet = new HashSet<Comparable<Object>>();
-    final Set<Comparable<Object>> keyYSet = new HashSet<Comparable<Object>>();
-    for (Pair<Object, Object> key : snapshot.getValues().keySet()) {
-      if (key.getFirst() instanceof Comparable) {
-        keyXSet.add((Comparable<Object>) key.getFirst());
+  /**
+   * Applies the new values for one point of the surface.
+   *
+   * @param value the current point, null if there is none
+   * @param overrideValue the new override value, null to leave unchanged
+   * @param marketValue the new market value, null to leave unchanged
+   * @return the updated point, the same instance as {@code value} if it was updated in place
+   */
+  /* package */static ValueSnapshot update(final ValueSnapshot value, final Value overrideValue, final Value marketValue) {
+    if (marketValue != null) {
+      final Double override;
+      if (overrideValue != null) {
+        override = overrideValue.getDoubleValue();
       } else {
-        throw new InvokeInvalidArgumentException(0, "surface X key '" + key.getFirst() + "' is not comparable");
+        if (value != null) {
+          override = value.getOverrideValue();
+        } else {
+          override = null;
+        }
       }
-      if (key.getSecond() instanceof Comparable) {
-        keyYSet.add((Comparable<Object>) key.getSecond());
+      return new ValueSnapshot(marketValue.getDoubleValue(), override);
+    } else if (overrideValue != null) {
+      if (value != null) {
+        value.setOverrideValue(overrideValue.getDoubleValue());
+        return value;
       } else {
-        throw new InvokeInvalidArgumentException(0, "surface Y key '" + key.getSecond() + "' is not comparable");
+        return new ValueSnapshot(null, overrideValue.getDoubleValue());
       }
+    } else {
+      return value;
     }
-    final List<Comparable<Object>> keyX = new ArrayList<Comparable<Object>>(keyXSet);
-    final List<Comparable<Object>> keyY = new ArrayList<Comparable<Object>>(keyYSet);
-    Collections.sort(keyX);
-    Collections.sort(keyY);
-    if ((overrideValue != null) && (overrideValue.length < keyY.size())) {
+  }
+
+  public static ManageableVolatilitySurfaceSnapshot invoke(final ManageableVolatilitySurfaceSnapshot snapshot, final Value[][] overrideValue, final Value[][] marketValue) {
+    final VolatilitySurfaceAxisIndex index = VolatilitySurfaceAxisIndex.of(snapshot);
+    final int rows = index.getYCount();
+    final int columns = index.getXCount();
+    if ((overrideValue != null) && (overrideValue.length < rows)) {
       throw new InvokeInvalidArgumentException(1, "Not enough rows in matrix");
     }
-    if ((marketValue != null) && (marketValue.length < keyY.size())) {
+    if ((marketValue != null) && (marketValue.length < rows)) {
       throw new InvokeInvalidArgumentException(2, "Not enough rows in matrix");
     }
-    for (int i = 0; i < keyY.size(); i++) {
-      final Object y = keyY.get(i);
-      if ((overrideValue != null) && (overrideValue[i].length < keyX.size())) {
+    for (int i = 0; i < rows; i++) {
+      if ((overrideValue != null) && (overrideValue[i].length < columns)) {
         throw new InvokeInvalidArgumentException(1, "Not enough columns in matrix");
       }
-      if ((marketValue != null) && (marketValue[i].length < keyX.size())) {
+      if ((marketValue != null) && (marketValue[i].length < columns)) {
         throw new InvokeInvalidArgumentException(2, "Not enough columns in matrix");
       }
-      for (int j = 0; j < keyX.size(); j++) {
-        final Pair<Object, Object> key = Pair.of((Object) keyX.get(j), y);
-        final ValueSnapshot value = snapshot.getValues().get(key);
-        if (marketValue != null) {
-          Double override;
-          if (overrideValue != null) {
-            override = overrideValue[i][j].getDoubleValue();
-          } else {
-            if (value != null) {
-              override = value.getOverrideValue();
-            } else {
-              override = null;
-            }
-          }
-          snapshot.getValues().put(key, new ValueSnapshot(marketValue[i][j].getDoubleValue(), override));
-        } else if (overrideValue != null) {
-          if (value != null) {
-            value.setOverrideValue(overrideValue[i][j].getDoubleValue());
-          } else {
-            snapshot.getValues().put(key, new ValueSnapshot(null, overrideValue[i][j].getDoubleValue()));
-          }
+    }
+    if ((overrideValue == null) && (marketValue == null)) {
+      return snapshot;
+    }
+    // Update the existing points in place, then add the points the surface doesn't have yet
+    final boolean[][] present = new boolean[rows][columns];
+    for (Map.Entry<Pair<Object, Object>, ValueSnapshot> point : snapshot.getValues().entrySet()) {
+      final int i = index.getRow(point.getKey().getSecond());
+      final int j = index.getColumn(point.getKey().getFirst());
+      present[i][j] = true;
+      final ValueSnapshot value = point.getValue();
+      final ValueSnapshot newValue = update(value, (overrideValue != null) ? overrideValue[i][j] : null, (marketValue != null) ? marketValue[i][j] : null);
+      if (newValue != value) {
+        point.setValue(newValue);
+      }
+    }
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        if (!present[i][j]) {
+          snapshot.getValues().put(Pair.of(index.getX(j), index.getY(i)),
+              update(null, (overrideValue != null) ? overrideValue[i][j] : null, (marketValue != null) ? marketValue[i][j] : null));
         }
       }
     }
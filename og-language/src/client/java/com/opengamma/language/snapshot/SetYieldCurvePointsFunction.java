@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.snapshot;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.opengamma.core.marketdatasnapshot.impl.ManageableUnstructuredMarketDataSnapshot;
+import com.opengamma.core.marketdatasnapshot.impl.ManageableYieldCurveSnapshot;
+import com.opengamma.id.ExternalId;
+import com.opengamma.language.Value;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.definition.Categories;
+import com.opengamma.language.definition.DefinitionAnnotater;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.function.AbstractFunctionInvoker;
+import com.opengamma.language.function.MetaFunction;
+import com.opengamma.language.function.PublishedFunction;
+
+/**
+ * Updates a set of points on a "yield curve" in one call, each as {@link SetYieldCurvePointFunction} would.
+ */
+public class SetYieldCurvePointsFunction extends AbstractFunctionInvoker implements PublishedFunction {
+
+  /**
+   * Default instance.
+   */
+  public static final SetYieldCurvePointsFunction INSTANCE = new SetYieldCurvePointsFunction();
+
+  private static final int SNAPSHOT = 0;
+  private static final int VALUE_NAME = 1;
+  private static final int IDENTIFIER = 2;
+  private static final int OVERRIDE_VALUE = 3;
+  private static final int MARKET_VALUE = 4;
+
+  private final MetaFunction _meta;
+
+  private static List<MetaParameter> parameters() {
+    return Arrays.asList(
+        new MetaParameter("snapshot", JavaTypeInfo.builder(ManageableYieldCurveSnapshot.class).get()),
+        new MetaParameter("valueName", JavaTypeInfo.builder(String.class).arrayOf().get()),
+        new MetaParameter("identifier", JavaTypeInfo.builder(ExternalId.class).arrayOf().get()),
+        new MetaParameter("overrideValue", JavaTypeInfo.builder(Value.class).arrayOf().allowNull().get()),
+        new MetaParameter("marketValue", JavaTypeInfo.builder(Value.class).arrayOf().allowNull().get()));
+  }
+
+  private SetYieldCurvePointsFunction(final DefinitionAnnotater info) {
+    super(info.annotate(parameters()));
+    _meta = info.annotate(new MetaFunction(Categories.MARKET_DATA, "SetYieldCurvePoints", getParameters(), this));
+  }
+
+  protected SetYieldCurvePointsFunction() {
+    this(new DefinitionAnnotater(SetYieldCurvePointsFunction.class));
+  }
+
+  public static ManageableYieldCurveSnapshot invoke(final ManageableYieldCurveSnapshot snapshot, final String[] valueName, final ExternalId[] identifier,
+      final Value[] overrideValue, final Value[] marketValue) {
+    if (snapshot.getValues() == null) {
+      snapshot.setValues(new ManageableUnstructuredMarketDataSnapshot());
+    }
+    UnstructuredMarketDataSnapshotUtil.setValues(snapshot.getValues(), valueName, identifier, overrideValue, marketValue, VALUE_NAME);
+    return snapshot;
+  }
+
+  // AbstractFunctionInvoker
+
+  @Override
+  protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
+    return invoke((ManageableYieldCurveSnapshot) parameters[SNAPSHOT], (String[]) parameters[VALUE_NAME], (ExternalId[]) parameters[IDENTIFIER],
+        (Value[]) parameters[OVERRIDE_VALUE], (Value[]) parameters[MARKET_VALUE]);
+  }
+
+  // PublishedFunction
+
+  @Override
+  public MetaFunction getMetaFunction() {
+    return _meta;
+  }
+
+}
@@ -6,9 +6,15 @@
 
 package com.opengamma.language.snapshot;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
 import com.opengamma.core.marketdatasnapshot.impl.ManageableUnstructuredMarketDataSnapshot;
 import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.language.Value;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
 
 /* package */final class UnstructuredMarketDataSnapshotUtil {
 
@@ -30,4 +36,75 @@ import com.opengamma.id.ExternalId;
     }
   }
 
+  /**
+   * Applies a set of changes, each as {@link #setValue} would. A null array of override or market values leaves those values on each point
+   * unchanged, as the tensor functions do, rather than clearing them. The targets of the snapshot are indexed by identifier once so that
+   * each change is a direct lookup, and the index is kept up to date as changes add targets or remove their last values.
+   * 
+   * @param snapshot the snapshot to update, not null
+   * @param valueName the value name of each change, not null
+   * @param identifier the identifier of each change, not null
+   * @param overrideValue the override value of each change, null to leave all override values unchanged
+   * @param marketValue the market value of each change, null to leave all market values unchanged
+   * @param parameterOffset index of the value name parameter to report in errors, the others following it
+   */
+  public static void setValues(final ManageableUnstructuredMarketDataSnapshot snapshot, final String[] valueName, final ExternalId[] identifier,
+      final Value[] overrideValue, final Value[] marketValue, final int parameterOffset) {
+    if (identifier.length != valueName.length) {
+      throw new InvokeInvalidArgumentException(parameterOffset + 1, "Must have the same number of identifiers as value names");
+    }
+    if ((overrideValue != null) && (overrideValue.length != valueName.length)) {
+      throw new InvokeInvalidArgumentException(parameterOffset + 2, "Must have the same number of values as value names");
+    }
+    if ((marketValue != null) && (marketValue.length != valueName.length)) {
+      throw new InvokeInvalidArgumentException(parameterOffset + 3, "Must have the same number of values as value names");
+    }
+    final Map<ExternalId, ExternalIdBundle> targets = new HashMap<ExternalId, ExternalIdBundle>();
+    for (ExternalIdBundle target : snapshot.getTargets()) {
+      for (ExternalId id : target) {
+        if (!targets.containsKey(id)) {
+          targets.put(id, target);
+        }
+      }
+    }
+    for (int i = 0; i < valueName.length; i++) {
+      final ExternalIdBundle target = targets.get(identifier[i]);
+      ValueSnapshot existing = null;
+      if ((target != null) && ((overrideValue == null) || (marketValue == null))) {
+        final Map<String, ValueSnapshot> values = snapshot.getTargetValues(target);
+        existing = (values != null) ? values.get(valueName[i]) : null;
+      }
+      final Double override = (overrideValue != null) ? overrideValue[i].getDoubleValue() : ((existing != null) ? existing.getOverrideValue() : null);
+      final Double market = (marketValue != null) ? marketValue[i].getDoubleValue() : ((existing != null) ? existing.getMarketValue() : null);
+      if ((override == null) && (market == null)) {
+        if (target != null) {
+          snapshot.removeValue(identifier[i], valueName[i]);
+          if (snapshot.getTargetValues(target) == null) {
+            // The snapshot dropped the target with its last value
+            for (ExternalId id : target) {
+              if (targets.get(id) == target) {
+                targets.remove(id);
+              }
+            }
+          }
+        }
+      } else if (target == null) {
+        // No target contains the identifier so, as the snapshot would, create one for it
+        final ExternalIdBundle newTarget = ExternalIdBundle.of(identifier[i]);
+        snapshot.putValue(newTarget, valueName[i], new ValueSnapshot(market, override));
+        targets.put(identifier[i], newTarget);
+      } else if (market != null) {
+        snapshot.putValue(target, valueName[i], new ValueSnapshot(market, override));
+      } else {
+        final Map<String, ValueSnapshot> values = snapshot.getTargetValues(target);
+        final ValueSnapshot value = (values != null) ? values.get(valueName[i]) : null;
+        if (value != null) {
+          value.setOverrideValue(override);
+        } else {
+          snapshot.putValue(target, valueName[i], new ValueSnapshot(null, override));
+        }
+      }
+    }
+  }
+
 }
@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.snapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+import com.opengamma.core.marketdatasnapshot.ValueSnapshot;
+import com.opengamma.core.marketdatasnapshot.impl.ManageableVolatilitySurfaceSnapshot;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Sorted X and Y axes of a {@link ManageableVolatilitySurfaceSnapshot}, giving the row and column of each point in the tensor form
+ * of the surface. An index is held for as long as the snapshot it describes is reachable, so repeated tensor operations on the same
+ * snapshot only sort the axes again if points have been added on new axis keys or the last point on an axis key has been removed.
+ */
+/* package */final class VolatilitySurfaceAxisIndex {
+
+  private static final ConcurrentMap<ManageableVolatilitySurfaceSnapshot, VolatilitySurfaceAxisIndex> s_indices = new MapMaker().weakKeys().makeMap();
+
+  private final Map<Pair<Object, Object>, ValueSnapshot> _values;
+  private final Object[] _x;
+  private final Object[] _y;
+  private final Map<Object, Integer> _xIndex;
+  private final Map<Object, Integer> _yIndex;
+  private final Map<String, Object> _xByName;
+  private final Map<String, Object> _yByName;
+
+  @SuppressWarnings("unchecked")
+  private VolatilitySurfaceAxisIndex(final Map<Pair<Object, Object>, ValueSnapshot> values) {
+    _values = values;
+    final Set<Comparable<Object>> keyXSet = new HashSet<Comparable<Object>>();
+    final Set<Comparable<Object>> keyYSet = new HashSet<Comparable<Object>>();
+    for (Pair<Object, Object> key : values.keySet()) {
+      if (key.getFirst() instanceof Comparable) {
+        keyXSet.add((Comparable<Object>) key.getFirst());
+      } else {
+        throw new InvokeInvalidArgumentException(0, "surface X key '" + key.getFirst() + "' is not comparable");
+      }
+      if (key.getSecond() instanceof Comparable) {
+        keyYSet.add((Comparable<Object>) key.getSecond());
+      } else {
+        throw new InvokeInvalidArgumentException(0, "surface Y key '" + key.getSecond() + "' is not comparable");
+      }
+    }
+    final List<Comparable<Object>> keyX = new ArrayList<Comparable<Object>>(keyXSet);
+    final List<Comparable<Object>> keyY = new ArrayList<Comparable<Object>>(keyYSet);
+    Collections.sort(keyX);
+    Collections.sort(keyY);
+    _x = keyX.toArray();
+    _y = keyY.toArray();
+    _xIndex = index(_x);
+    _yIndex = index(_y);
+    _xByName = byName(_x);
+    _yByName = byName(_y);
+  }
+
+  private static Map<Object, Integer> index(final Object[] keys) {
+    final Map<Object, Integer> index = new HashMap<Object, Integer>();
+    for (int i = 0; i < keys.length; i++) {
+      index.put(keys[i], i);
+    }
+    return index;
+  }
+
+  private static Map<String, Object> byName(final Object[] keys) {
+    final Map<String, Object> byName = new HashMap<String, Object>();
+    for (Object key : keys) {
+      byName.put(StructuredMarketDataSnapshotUtil.toString(key), key);
+    }
+    return byName;
+  }
+
+  /**
+   * Tests whether the index describes the current points of the surface. Every point must lie on the axes, and every axis key must
+   * have at least one point on it.
+   */
+  private boolean isValid(final Map<Pair<Object, Object>, ValueSnapshot> values) {
+    if (values != _values) {
+      return false;
+    }
+    final boolean[] seenX = new boolean[_x.length];
+    final boolean[] seenY = new boolean[_y.length];
+    int unseenX = _x.length;
+    int unseenY = _y.length;
+    for (Pair<Object, Object> key : values.keySet()) {
+      final Integer x = _xIndex.get(key.getFirst());
+      final Integer y = _yIndex.get(key.getSecond());
+      if ((x == null) || (y == null)) {
+        return false;
+      }
+      if (!seenX[x]) {
+        seenX[x] = true;
+        unseenX--;
+      }
+      if (!seenY[y]) {
+        seenY[y] = true;
+        unseenY--;
+      }
+    }
+    return (unseenX == 0) && (unseenY == 0);
+  }
+
+  /**
+   * Returns an index of the snapshot's current points, reusing the previous index if it is still valid.
+   *
+   * @param snapshot the snapshot, not null
+   * @return the index, not null
+   */
+  public static VolatilitySurfaceAxisIndex of(final ManageableVolatilitySurfaceSnapshot snapshot) {
+    final VolatilitySurfaceAxisIndex index = s_indices.get(snapshot);
+    if ((index != null) && index.isValid(snapshot.getValues())) {
+      return index;
+    }
+    return rebuild(snapshot);
+  }
+
+  /**
+   * Returns an index of the snapshot, reusing the previous index without checking it against the current points. This is for operations
+   * that address points by axis key rather than tensor position, for which a stale axis key does no harm. A caller that fails to find
+   * an axis key must {@link #rebuild} the index and try again.
+   *
+   * @param snapshot the snapshot, not null
+   * @return the index, not null
+   */
+  public static VolatilitySurfaceAxisIndex ofUnchecked(final ManageableVolatilitySurfaceSnapshot snapshot) {
+    final VolatilitySurfaceAxisIndex index = s_indices.get(snapshot);
+    if ((index != null) && (index._values == snapshot.getValues())) {
+      return index;
+    }
+    return rebuild(snapshot);
+  }
+
+  /**
+   * Builds a new index of the snapshot's current points.
+   *
+   * @param snapshot the snapshot, not null
+   * @return the index, not null
+   */
+  public static VolatilitySurfaceAxisIndex rebuild(final ManageableVolatilitySurfaceSnapshot snapshot) {
+    final VolatilitySurfaceAxisIndex index = new VolatilitySurfaceAxisIndex(snapshot.getValues());
+    s_indices.put(snapshot, index);
+    return index;
+  }
+
+  public int getXCount() {
+    return _x.length;
+  }
+
+  public int getYCount() {
+    return _y.length;
+  }
+
+  public Object getX(final int column) {
+    return _x[column];
+  }
+
+  public Object getY(final int row) {
+    return _y[row];
+  }
+
+  /**
+   * Returns the column of an X axis key.
+   *
+   * @param x the axis key
+   * @return the column, or -1 if the key is not on the axis
+   */
+  public int getColumn(final Object x) {
+    final Integer column = _xIndex.get(x);
+    return (column != null) ? column : -1;
+  }
+
+  /**
+   * Returns the row of a Y axis key.
+   *
+   * @param y the axis key
+   * @return the row, or -1 if the key is not on the axis
+   */
+  public int getRow(final Object y) {
+    final Integer row = _yIndex.get(y);
+    return (row != null) ? row : -1;
+  }
+
+  /**
+   * Returns the X axis key with the given string form, as produced by {@link StructuredMarketDataSnapshotUtil#toString}.
+   *
+   * @param name the string form of the key, not null
+   * @return the key, or null if there is none
+   */
+  public Object getXByName(final String name) {
+    return _xByName.get(name);
+  }
+
+  /**
+   * Returns the Y axis key with the given string form, as produced by {@link StructuredMarketDataSnapshotUtil#toString}.
+   *
+   * @param name the string form of the key, not null
+   * @return the key, or null if there is none
+   */
+  public Object getYByName(final String name) {
+    return _yByName.get(name);
+  }
+
+}
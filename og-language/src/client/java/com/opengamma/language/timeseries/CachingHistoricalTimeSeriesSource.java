@@ -0,0 +1,695 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.timeseries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Clock;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.core.change.ChangeManager;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
+import com.opengamma.core.historicaltimeseries.impl.SimpleHistoricalTimeSeries;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Caches the time series fetched from an underlying {@link HistoricalTimeSeriesSource}. Series are held by their resolved unique
+ * identifier with the union of the date ranges that have been fetched. A request for a range that has already been fetched is served
+ * from the cache; otherwise only the missing segments are fetched. The number of points held is bounded, with the least recently used
+ * series discarded first.
+ * <p>
+ * Requests by external identifier are cached against the unique identifier of the series they resolved to. Requests for a maximum
+ * number of points, for the latest data point or for a set of identifiers are passed to the underlying source.
+ * <p>
+ * Points may still be appended to a series, so a range is only treated as covered up to the day before the current date. Points
+ * for today or later are fetched again on each request that includes them. The cache does not otherwise observe changes to the
+ * underlying data. Writes made through {@link StoreTimeSeriesProcedure} call {@link #invalidate} to discard the affected series.
+ */
+public class CachingHistoricalTimeSeriesSource implements HistoricalTimeSeriesSource {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(CachingHistoricalTimeSeriesSource.class);
+
+  /**
+   * Epoch day representing an omitted start date.
+   */
+  private static final int EARLIEST = Integer.MIN_VALUE;
+  /**
+   * Epoch day representing an omitted end date.
+   */
+  private static final int LATEST = Integer.MAX_VALUE;
+
+  private static final int MAX_RESOLUTIONS = 10000;
+
+  /**
+   * The cached points for a series. The covered ranges are inclusive epoch days, in order, with no two overlapping or adjacent. The
+   * points are in date order. All are replaced rather than updated so that a reader holding the arrays sees a consistent state.
+   */
+  private static final class Entry {
+
+    private int[] _rangeStart = new int[0];
+    private int[] _rangeEnd = new int[0];
+    private int[] _dates = new int[0];
+    private double[] _values = new double[0];
+
+  }
+
+  /**
+   * The arguments of a request by external identifier, used to find the series it previously resolved to.
+   */
+  private static final class Resolution {
+
+    private final Object[] _args;
+    private final ExternalIdBundle _identifiers;
+
+    public Resolution(final ExternalIdBundle identifiers, final Object... args) {
+      _identifiers = identifiers;
+      _args = args;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Resolution)) {
+        return false;
+      }
+      final Resolution other = (Resolution) o;
+      return _identifiers.equals(other._identifiers) && Arrays.equals(_args, other._args);
+    }
+
+    @Override
+    public int hashCode() {
+      return _identifiers.hashCode() * 31 + Arrays.hashCode(_args);
+    }
+
+  }
+
+  private final HistoricalTimeSeriesSource _underlying;
+  private final int _maxPoints;
+  private final Clock _clock;
+  private final LinkedHashMap<UniqueId, Entry> _entries = new LinkedHashMap<UniqueId, Entry>(16, 0.75f, true);
+  private final LinkedHashMap<Resolution, UniqueId> _resolutions = new LinkedHashMap<Resolution, UniqueId>(16, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Resolution, UniqueId> eldest) {
+      return size() > MAX_RESOLUTIONS;
+    }
+
+  };
+  private int _points;
+  private long _hits;
+  private long _misses;
+
+  /**
+   * Creates a new cache.
+   *
+   * @param underlying the source to fetch series from, not null
+   * @param maxPoints the maximum number of points to hold
+   */
+  public CachingHistoricalTimeSeriesSource(final HistoricalTimeSeriesSource underlying, final int maxPoints) {
+    this(underlying, maxPoints, Clock.systemDefaultZone());
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param underlying the source to fetch series from, not null
+   * @param maxPoints the maximum number of points to hold
+   * @param clock the clock giving the current date, after which points may still be added to a series, not null
+   */
+  public CachingHistoricalTimeSeriesSource(final HistoricalTimeSeriesSource underlying, final int maxPoints, final Clock clock) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNegativeOrZero(maxPoints, "maxPoints");
+    ArgumentChecker.notNull(clock, "clock");
+    _underlying = underlying;
+    _maxPoints = maxPoints;
+    _clock = clock;
+  }
+
+  public HistoricalTimeSeriesSource getUnderlying() {
+    return _underlying;
+  }
+
+  public int getMaxPoints() {
+    return _maxPoints;
+  }
+
+  /**
+   * Returns the number of requests served entirely from the cache.
+   *
+   * @return the hit count
+   */
+  public synchronized long getHits() {
+    return _hits;
+  }
+
+  /**
+   * Returns the number of requests that needed at least one fetch from the underlying source.
+   *
+   * @return the miss count
+   */
+  public synchronized long getMisses() {
+    return _misses;
+  }
+
+  /**
+   * Returns the number of points currently held.
+   *
+   * @return the point count
+   */
+  public synchronized int getPoints() {
+    return _points;
+  }
+
+  /**
+   * Discards any cached series that may be affected by a write to the time series identified.
+   *
+   * @param identifiers the external identifiers of the series written to, null if not known
+   * @param objectIds the object identifiers of the series, or its information document, written to
+   */
+  public synchronized void invalidate(final ExternalIdBundle identifiers, final ObjectId... objectIds) {
+    final Iterator<Map.Entry<Resolution, UniqueId>> resolutions = _resolutions.entrySet().iterator();
+    while (resolutions.hasNext()) {
+      final Map.Entry<Resolution, UniqueId> resolution = resolutions.next();
+      boolean affected = false;
+      if (identifiers != null) {
+        for (ExternalId identifier : identifiers) {
+          if (resolution.getKey()._identifiers.contains(identifier)) {
+            affected = true;
+            break;
+          }
+        }
+      }
+      if (affected) {
+        remove(resolution.getValue());
+        resolutions.remove();
+      }
+    }
+    final Iterator<UniqueId> entries = _entries.keySet().iterator();
+    while (entries.hasNext()) {
+      final UniqueId uniqueId = entries.next();
+      for (ObjectId objectId : objectIds) {
+        if ((objectId != null) && objectId.equals(uniqueId.getObjectId())) {
+          _points -= _entries.get(uniqueId)._dates.length;
+          entries.remove();
+          break;
+        }
+      }
+    }
+  }
+
+  private void remove(final UniqueId uniqueId) {
+    final Entry entry = _entries.remove(uniqueId);
+    if (entry != null) {
+      _points -= entry._dates.length;
+    }
+  }
+
+  /**
+   * Returns the last epoch day that can be treated as covered. Later points may not have been written yet.
+   */
+  private int getCoverageLimit() {
+    return (int) LocalDate.now(_clock).toEpochDay() - 1;
+  }
+
+  private static int lowerBound(final LocalDate start, final boolean inclusiveStart) {
+    if (start == null) {
+      return EARLIEST;
+    }
+    final int day = (int) start.toEpochDay();
+    return inclusiveStart ? day : day + 1;
+  }
+
+  private static int upperBound(final LocalDate end, final boolean inclusiveEnd) {
+    if (end == null) {
+      return LATEST;
+    }
+    final int day = (int) end.toEpochDay();
+    return inclusiveEnd ? day : day - 1;
+  }
+
+  private static LocalDate toLocalDate(final int epochDay) {
+    if ((epochDay == EARLIEST) || (epochDay == LATEST)) {
+      return null;
+    }
+    return LocalDate.ofEpochDay(epochDay);
+  }
+
+  /**
+   * Returns the segments of {@code [from, to]} that are not covered by the entry.
+   */
+  private static List<int[]> missing(final Entry entry, final int from, final int to) {
+    final List<int[]> missing = new ArrayList<int[]>();
+    long next = from;
+    for (int i = 0; (i < entry._rangeStart.length) && (next <= to); i++) {
+      if (entry._rangeEnd[i] < next) {
+        continue;
+      }
+      if (entry._rangeStart[i] > to) {
+        break;
+      }
+      if (entry._rangeStart[i] > next) {
+        missing.add(new int[] {(int) next, entry._rangeStart[i] - 1 });
+      }
+      next = (long) entry._rangeEnd[i] + 1;
+    }
+    if (next <= to) {
+      missing.add(new int[] {(int) next, to });
+    }
+    return missing;
+  }
+
+  /**
+   * Adds a covered range to the entry, coalescing it with any that it overlaps or adjoins.
+   */
+  private static void addRange(final Entry entry, final int from, final int to) {
+    final int n = entry._rangeStart.length;
+    final int[] start = new int[n + 1];
+    final int[] end = new int[n + 1];
+    int count = 0;
+    long newStart = from;
+    long newEnd = to;
+    boolean added = false;
+    for (int i = 0; i < n; i++) {
+      final int s = entry._rangeStart[i];
+      final int e = entry._rangeEnd[i];
+      if ((long) e + 1 < newStart) {
+        start[count] = s;
+        end[count++] = e;
+      } else if ((long) s - 1 > newEnd) {
+        if (!added) {
+          start[count] = (int) newStart;
+          end[count++] = (int) newEnd;
+          added = true;
+        }
+        start[count] = s;
+        end[count++] = e;
+      } else {
+        newStart = Math.min(newStart, s);
+        newEnd = Math.max(newEnd, e);
+      }
+    }
+    if (!added) {
+      start[count] = (int) newStart;
+      end[count++] = (int) newEnd;
+    }
+    entry._rangeStart = Arrays.copyOf(start, count);
+    entry._rangeEnd = Arrays.copyOf(end, count);
+  }
+
+  /**
+   * Merges points fetched for {@code [from, to]} into the entry, replacing any existing points in that range.
+   */
+  private static void addPoints(final Entry entry, final int from, final int to, final int[] dates, final double[] values) {
+    int lo = Arrays.binarySearch(entry._dates, from);
+    if (lo < 0) {
+      lo = -(lo + 1);
+    }
+    int hi = Arrays.binarySearch(entry._dates, to);
+    hi = (hi < 0) ? -(hi + 1) : hi + 1;
+    final int[] oldDates;
+    final double[] oldValues;
+    if (hi > lo) {
+      final int n = entry._dates.length - (hi - lo);
+      oldDates = new int[n];
+      oldValues = new double[n];
+      System.arraycopy(entry._dates, 0, oldDates, 0, lo);
+      System.arraycopy(entry._values, 0, oldValues, 0, lo);
+      System.arraycopy(entry._dates, hi, oldDates, lo, entry._dates.length - hi);
+      System.arraycopy(entry._values, hi, oldValues, lo, entry._values.length - hi);
+    } else {
+      oldDates = entry._dates;
+      oldValues = entry._values;
+    }
+    final int[] newDates = new int[oldDates.length + dates.length];
+    final double[] newValues = new double[newDates.length];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while ((i < oldDates.length) || (j < dates.length)) {
+      if ((j >= dates.length) || ((i < oldDates.length) && (oldDates[i] < dates[j]))) {
+        newDates[k] = oldDates[i];
+        newValues[k++] = oldValues[i++];
+      } else {
+        if ((i < oldDates.length) && (oldDates[i] == dates[j])) {
+          i++;
+        }
+        newDates[k] = dates[j];
+        newValues[k++] = values[j++];
+      }
+    }
+    entry._dates = (k == newDates.length) ? newDates : Arrays.copyOf(newDates, k);
+    entry._values = (k == newValues.length) ? newValues : Arrays.copyOf(newValues, k);
+  }
+
+  private static LocalDateDoubleTimeSeries subSeries(final int[] dates, final double[] values, final int from, final int to) {
+    int lo = Arrays.binarySearch(dates, from);
+    if (lo < 0) {
+      lo = -(lo + 1);
+    }
+    int hi = Arrays.binarySearch(dates, to);
+    hi = (hi < 0) ? -(hi + 1) : hi + 1;
+    if (hi <= lo) {
+      return ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES;
+    }
+    final int[] resultDates = new int[hi - lo];
+    for (int i = 0; i < resultDates.length; i++) {
+      resultDates[i] = LocalDateDoubleTimeSeriesCodec.fromEpochDay(dates[lo + i]);
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(resultDates, Arrays.copyOfRange(values, lo, hi));
+  }
+
+  private static int[] toEpochDays(final LocalDateDoubleTimeSeries timeSeries) {
+    final int[] dates = timeSeries.timesArrayFast();
+    final int[] epochDays = new int[dates.length];
+    for (int i = 0; i < dates.length; i++) {
+      epochDays[i] = LocalDateDoubleTimeSeriesCodec.toEpochDay(dates[i]);
+    }
+    return epochDays;
+  }
+
+  /**
+   * Stores points fetched for a range, and evicts other series if the cache is over its bound. The range is only marked as covered
+   * up to the coverage limit.
+   */
+  private synchronized void store(final UniqueId uniqueId, final int from, final int to, final LocalDateDoubleTimeSeries timeSeries) {
+    Entry entry = _entries.get(uniqueId);
+    if (entry == null) {
+      entry = new Entry();
+      _entries.put(uniqueId, entry);
+    }
+    _points -= entry._dates.length;
+    if (timeSeries != null) {
+      addPoints(entry, from, to, toEpochDays(timeSeries), timeSeries.valuesArrayFast());
+    }
+    final int coveredTo = Math.min(to, getCoverageLimit());
+    if (from <= coveredTo) {
+      addRange(entry, from, coveredTo);
+    }
+    _points += entry._dates.length;
+    final Iterator<Map.Entry<UniqueId, Entry>> itr = _entries.entrySet().iterator();
+    while ((_points > _maxPoints) && itr.hasNext()) {
+      final Map.Entry<UniqueId, Entry> eldest = itr.next();
+      if (eldest.getValue() != entry) {
+        s_logger.debug("Evicting {}", eldest.getKey());
+        _points -= eldest.getValue()._dates.length;
+        itr.remove();
+      }
+    }
+    if (_points > _maxPoints) {
+      // A single series larger than the bound is returned but not kept
+      _points -= entry._dates.length;
+      _entries.remove(uniqueId);
+    }
+  }
+
+  /**
+   * Returns a series by unique identifier, fetching any parts of the range that are not already cached.
+   */
+  private HistoricalTimeSeries get(final UniqueId uniqueId, final int from, final int to) {
+    final List<int[]> missing;
+    synchronized (this) {
+      final Entry entry = _entries.get(uniqueId);
+      if (entry != null) {
+        missing = missing(entry, from, to);
+        if (missing.isEmpty()) {
+          _hits++;
+          return new SimpleHistoricalTimeSeries(uniqueId, subSeries(entry._dates, entry._values, from, to));
+        }
+      } else {
+        missing = null;
+      }
+      _misses++;
+    }
+    if (missing == null) {
+      final HistoricalTimeSeries hts = getUnderlying().getHistoricalTimeSeries(uniqueId, toLocalDate(from), true, toLocalDate(to), true);
+      if (hts != null) {
+        store(uniqueId, from, to, hts.getTimeSeries());
+      }
+      return hts;
+    }
+    for (int[] segment : missing) {
+      s_logger.debug("Fetching {} from {} to {}", new Object[] {uniqueId, segment[0], segment[1] });
+      final HistoricalTimeSeries hts = getUnderlying().getHistoricalTimeSeries(uniqueId, toLocalDate(segment[0]), true, toLocalDate(segment[1]), true);
+      if (hts == null) {
+        // Series no longer exists
+        synchronized (this) {
+          remove(uniqueId);
+        }
+        return null;
+      }
+      store(uniqueId, segment[0], segment[1], hts.getTimeSeries());
+    }
+    synchronized (this) {
+      // Everything up to the coverage limit is now held, and any later points have just been fetched
+      final Entry entry = _entries.get(uniqueId);
+      if ((entry != null) && missing(entry, from, Math.min(to, getCoverageLimit())).isEmpty()) {
+        return new SimpleHistoricalTimeSeries(uniqueId, subSeries(entry._dates, entry._values, from, to));
+      }
+    }
+    // Evicted, or invalidated, by a concurrent request
+    return getUnderlying().getHistoricalTimeSeries(uniqueId, toLocalDate(from), true, toLocalDate(to), true);
+  }
+
+  /**
+   * Returns a series by external identifier. If the request has been resolved before it is served by unique identifier, otherwise
+   * the request is passed to the underlying source and the resolved series cached.
+   */
+  private HistoricalTimeSeries get(final Resolution resolution, final int from, final int to, final HistoricalTimeSeriesRequest request) {
+    final UniqueId uniqueId;
+    synchronized (this) {
+      uniqueId = _resolutions.get(resolution);
+    }
+    if (uniqueId != null) {
+      return get(uniqueId, from, to);
+    }
+    final HistoricalTimeSeries hts = request.fetch();
+    if ((hts != null) && (hts.getUniqueId() != null)) {
+      synchronized (this) {
+        _misses++;
+        _resolutions.put(resolution, hts.getUniqueId());
+      }
+      store(hts.getUniqueId(), from, to, hts.getTimeSeries());
+    }
+    return hts;
+  }
+
+  /**
+   * A request for the underlying source, made when a request by external identifier has not been resolved before.
+   */
+  private interface HistoricalTimeSeriesRequest {
+
+    HistoricalTimeSeries fetch();
+
+  }
+
+  // HistoricalTimeSeriesSource
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId) {
+    return get(uniqueId, EARLIEST, LATEST);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId, final LocalDate start, final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+    return get(uniqueId, lowerBound(start, inclusiveStart), upperBound(end, inclusiveEnd));
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd,
+      final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final UniqueId uniqueId) {
+    return getUnderlying().getLatestDataPoint(uniqueId);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(uniqueId, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider, final String dataField) {
+    return getHistoricalTimeSeries(identifierBundle, dataSource, dataProvider, dataField, null, true, null, true);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider, final String dataField,
+      final LocalDate start, final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+    return get(new Resolution(identifierBundle, null, dataSource, dataProvider, dataField), lowerBound(start, inclusiveStart), upperBound(end, inclusiveEnd),
+        new HistoricalTimeSeriesRequest() {
+          @Override
+          public HistoricalTimeSeries fetch() {
+            return getUnderlying().getHistoricalTimeSeries(identifierBundle, dataSource, dataProvider, dataField, start, inclusiveStart, end, inclusiveEnd);
+          }
+        });
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider, final String dataField,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider, final String dataField) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider, final String dataField,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate, final String dataSource,
+      final String dataProvider, final String dataField) {
+    return getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, null, true, null, true);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate, final String dataSource,
+      final String dataProvider, final String dataField, final LocalDate start, final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+    return get(new Resolution(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField), lowerBound(start, inclusiveStart), upperBound(end, inclusiveEnd),
+        new HistoricalTimeSeriesRequest() {
+          @Override
+          public HistoricalTimeSeries fetch() {
+            return getUnderlying().getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, inclusiveStart, end,
+                inclusiveEnd);
+          }
+        });
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate, final String dataSource,
+      final String dataProvider, final String dataField, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd,
+        maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate, final String dataSource,
+      final String dataProvider, final String dataField) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate, final String dataSource,
+      final String dataProvider, final String dataField, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey) {
+    return getHistoricalTimeSeries(dataField, identifierBundle, (LocalDate) null, resolutionKey, null, true, null, true);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey, final LocalDate start,
+      final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+    return get(new Resolution(identifierBundle, dataField, null, resolutionKey), lowerBound(start, inclusiveStart), upperBound(end, inclusiveEnd),
+        new HistoricalTimeSeriesRequest() {
+          @Override
+          public HistoricalTimeSeries fetch() {
+            return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, resolutionKey, start, inclusiveStart, end, inclusiveEnd);
+          }
+        });
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey, final LocalDate start,
+      final boolean includeStart, final LocalDate end, final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, resolutionKey, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, resolutionKey);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey, final LocalDate start,
+      final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, resolutionKey, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String resolutionKey) {
+    return getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, null, true, null, true);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String resolutionKey, final LocalDate start, final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+    return get(new Resolution(identifierBundle, dataField, identifierValidityDate, resolutionKey), lowerBound(start, inclusiveStart), upperBound(end, inclusiveEnd),
+        new HistoricalTimeSeriesRequest() {
+          @Override
+          public HistoricalTimeSeries fetch() {
+            return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, inclusiveStart, end, inclusiveEnd);
+          }
+        });
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String resolutionKey, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String resolutionKey) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, identifierValidityDate, resolutionKey);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String resolutionKey, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public Map<ExternalIdBundle, HistoricalTimeSeries> getHistoricalTimeSeries(final Set<ExternalIdBundle> identifierSet, final String dataSource, final String dataProvider,
+      final String dataField, final LocalDate start, final boolean inclusiveStart, final LocalDate end, final boolean inclusiveEnd) {
+    return getUnderlying().getHistoricalTimeSeries(identifierSet, dataSource, dataProvider, dataField, start, inclusiveStart, end, inclusiveEnd);
+  }
+
+  @Override
+  public ExternalIdBundle getExternalIdBundle(final UniqueId uniqueId) {
+    return getUnderlying().getExternalIdBundle(uniqueId);
+  }
+
+  @Override
+  public ChangeManager changeManager() {
+    return getUnderlying().changeManager();
+  }
+
+}
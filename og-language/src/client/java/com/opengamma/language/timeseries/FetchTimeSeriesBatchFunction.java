@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.timeseries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.DataNotFoundException;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.language.Data;
+import com.opengamma.language.DataUtils;
+import com.opengamma.language.Value;
+import com.opengamma.language.ValueUtils;
+import com.opengamma.language.context.SessionContext;
+import com.opengamma.language.definition.Categories;
+import com.opengamma.language.definition.DefinitionAnnotater;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.language.definition.MetaParameter;
+import com.opengamma.language.error.AbstractException;
+import com.opengamma.language.error.InvokeInvalidArgumentException;
+import com.opengamma.language.function.AbstractFunctionInvoker;
+import com.opengamma.language.function.MetaFunction;
+import com.opengamma.language.function.PublishedFunction;
+import com.opengamma.language.invoke.InvalidConversionException;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+
+/**
+ * Fetches a number of time series from the {@link HistoricalTimeSeriesSource} with the same field, source, provider and date
+ * range. The series are fetched concurrently, or with a single bulk request if the source, provider and field are given, and
+ * aligned into a matrix with a row for each date and a column for each series. The first column contains the dates and the values
+ * are NaN where a series has no point for the date. A series that cannot be fetched, for example because its identifier is invalid,
+ * gives a column of NaN rather than failing the whole batch.
+ */
+public class FetchTimeSeriesBatchFunction extends AbstractFunctionInvoker implements PublishedFunction {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(FetchTimeSeriesBatchFunction.class);
+
+  /**
+   * Default instance.
+   */
+  public static final FetchTimeSeriesBatchFunction INSTANCE = new FetchTimeSeriesBatchFunction();
+
+  private static final JavaTypeInfo<Value> VALUE = JavaTypeInfo.builder(Value.class).get();
+
+  private static final int IDENTIFIERS = 0;
+  private static final int START = 1;
+  private static final int END = 2;
+  private static final int DATA_FIELD = 3;
+  private static final int RESOLUTION_KEY = 4;
+  private static final int INCLUSIVE_START = 5;
+  private static final int INCLUSIVE_END = 6;
+  private static final int DATA_SOURCE = 7;
+  private static final int DATA_PROVIDER = 8;
+  private static final int IDENTIFIER_VALIDITY_DATE = 9;
+
+  private final MetaFunction _meta;
+
+  private static List<MetaParameter> parameters() {
+    final MetaParameter identifiersParameter = new MetaParameter("identifiers", JavaTypeInfo.builder(Data.class).get());
+    final MetaParameter startParameter = new MetaParameter("start", JavaTypeInfo.builder(LocalDate.class).allowNull().get());
+    final MetaParameter endParameter = new MetaParameter("end", JavaTypeInfo.builder(LocalDate.class).allowNull().get());
+    final MetaParameter dataFieldParameter = new MetaParameter("dataField", JavaTypeInfo.builder(String.class).allowNull().get());
+    final MetaParameter resolutionKeyParameter = new MetaParameter("resolutionKey", JavaTypeInfo.builder(String.class).allowNull().get());
+    final MetaParameter inclusiveStartParameter = new MetaParameter("inclusiveStart", JavaTypeInfo.builder(Boolean.class).defaultValue(true).get());
+    final MetaParameter inclusiveEndParameter = new MetaParameter("inclusiveEnd", JavaTypeInfo.builder(Boolean.class).defaultValue(false).get());
+    final MetaParameter dataSourceParameter = new MetaParameter("dataSource", JavaTypeInfo.builder(String.class).allowNull().get());
+    final MetaParameter dataProviderParameter = new MetaParameter("dataProvider", JavaTypeInfo.builder(String.class).allowNull().get());
+    final MetaParameter identifierValidityDateParameter = new MetaParameter("identifierValidityDate", JavaTypeInfo.builder(LocalDate.class).allowNull().get());
+    return Arrays.asList(identifiersParameter, startParameter, endParameter, dataFieldParameter, resolutionKeyParameter, inclusiveStartParameter, inclusiveEndParameter,
+        dataSourceParameter, dataProviderParameter, identifierValidityDateParameter);
+  }
+
+  private FetchTimeSeriesBatchFunction(final DefinitionAnnotater info) {
+    super(info.annotate(parameters()));
+    _meta = info.annotate(new MetaFunction(Categories.TIMESERIES, "FetchTimeSeriesBatch", getParameters(), this));
+  }
+
+  protected FetchTimeSeriesBatchFunction() {
+    this(new DefinitionAnnotater(FetchTimeSeriesBatchFunction.class));
+  }
+
+  /**
+   * Returns the individual identifiers from the parameter, which may be a single value or an array.
+   */
+  private static Value[] getIdentifiers(final Data identifiers) {
+    if (identifiers.getSingle() != null) {
+      return new Value[] {identifiers.getSingle() };
+    }
+    final Value[] linear = DataUtils.getLinear(identifiers);
+    if (linear != null) {
+      return linear;
+    }
+    final Value[][] matrix = DataUtils.getMatrix(identifiers);
+    if (matrix != null) {
+      final List<Value> values = new ArrayList<Value>();
+      for (Value[] row : matrix) {
+        values.addAll(Arrays.asList(row));
+      }
+      return values.toArray(new Value[values.size()]);
+    }
+    throw new InvokeInvalidArgumentException(IDENTIFIERS, "No identifiers");
+  }
+
+  /**
+   * Tests whether a failure only concerns the one series being fetched, rather than the source as a whole.
+   */
+  private static boolean isSeriesFailure(final RuntimeException e) {
+    return (e instanceof AbstractException) || (e instanceof DataNotFoundException) || (e instanceof IllegalArgumentException);
+  }
+
+  /**
+   * Fetches the series using the source's bulk request.
+   */
+  private static LocalDateDoubleTimeSeries[] fetchBulk(final SessionContext sessionContext, final Value[] identifiers, final Object[] parameters) {
+    final ExternalIdBundle[] bundles = new ExternalIdBundle[identifiers.length];
+    final Set<ExternalIdBundle> request = new HashSet<ExternalIdBundle>();
+    for (int i = 0; i < identifiers.length; i++) {
+      try {
+        bundles[i] = FetchTimeSeriesFunction.INSTANCE.getExternalIdBundle(sessionContext, DataUtils.of(identifiers[i]));
+        request.add(bundles[i]);
+      } catch (RuntimeException e) {
+        if (!isSeriesFailure(e)) {
+          throw e;
+        }
+        s_logger.warn("Invalid identifier {}: {}", identifiers[i], e.getMessage());
+      }
+    }
+    final Map<ExternalIdBundle, HistoricalTimeSeries> result = sessionContext.getUserContext().getHistoricalTimeSeriesSource().getHistoricalTimeSeries(request,
+        (String) parameters[DATA_SOURCE], (String) parameters[DATA_PROVIDER], (String) parameters[DATA_FIELD], (LocalDate) parameters[START],
+        (Boolean) parameters[INCLUSIVE_START], (LocalDate) parameters[END], (Boolean) parameters[INCLUSIVE_END]);
+    final LocalDateDoubleTimeSeries[] timeSeries = new LocalDateDoubleTimeSeries[identifiers.length];
+    for (int i = 0; i < bundles.length; i++) {
+      final HistoricalTimeSeries hts = (bundles[i] != null) ? result.get(bundles[i]) : null;
+      timeSeries[i] = (hts != null) ? hts.getTimeSeries() : null;
+    }
+    return timeSeries;
+  }
+
+  /**
+   * Fetches a single series with the same logic as {@link FetchTimeSeriesFunction}.
+   *
+   * @return the series, or null if it was not found or could not be fetched
+   */
+  private static LocalDateDoubleTimeSeries fetch(final SessionContext sessionContext, final Value identifier, final Object[] parameters) {
+    final Object[] single = new Object[] {DataUtils.of(identifier), parameters[START], parameters[END], parameters[DATA_FIELD], parameters[RESOLUTION_KEY],
+        parameters[INCLUSIVE_START], parameters[INCLUSIVE_END], parameters[DATA_SOURCE], parameters[DATA_PROVIDER], parameters[IDENTIFIER_VALIDITY_DATE], null };
+    final HistoricalTimeSeries hts;
+    try {
+      hts = (HistoricalTimeSeries) FetchTimeSeriesFunction.INSTANCE.invokeImpl(sessionContext, single);
+    } catch (RuntimeException e) {
+      if (!isSeriesFailure(e)) {
+        throw e;
+      }
+      s_logger.warn("Couldn't fetch time series {}: {}", identifier, e.getMessage());
+      return null;
+    }
+    return (hts != null) ? hts.getTimeSeries() : null;
+  }
+
+  /**
+   * Fetches the series concurrently using the saturating executor.
+   */
+  private static LocalDateDoubleTimeSeries[] fetchConcurrent(final SessionContext sessionContext, final Value[] identifiers, final Object[] parameters) {
+    final LocalDateDoubleTimeSeries[] timeSeries = new LocalDateDoubleTimeSeries[identifiers.length];
+    final ExecutorService executor = sessionContext.getGlobalContext().getSaturatingExecutor();
+    if ((executor == null) || (identifiers.length == 1)) {
+      for (int i = 0; i < identifiers.length; i++) {
+        timeSeries[i] = fetch(sessionContext, identifiers[i], parameters);
+      }
+      return timeSeries;
+    }
+    final List<Future<LocalDateDoubleTimeSeries>> futures = new ArrayList<Future<LocalDateDoubleTimeSeries>>(identifiers.length);
+    for (final Value identifier : identifiers) {
+      futures.add(executor.submit(new Callable<LocalDateDoubleTimeSeries>() {
+        @Override
+        public LocalDateDoubleTimeSeries call() {
+          return fetch(sessionContext, identifier, parameters);
+        }
+      }));
+    }
+    try {
+      for (int i = 0; i < timeSeries.length; i++) {
+        try {
+          timeSeries[i] = futures.get(i).get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw new OpenGammaRuntimeException("Couldn't fetch time series " + identifiers[i], e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted", e);
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(false);
+      }
+    }
+    return timeSeries;
+  }
+
+  /**
+   * Aligns the series into a matrix with the dates in the first column.
+   *
+   * @param sessionContext the session context, not null
+   * @param timeSeries the series to align, null elements for any that were not found
+   * @return the matrix, not null
+   */
+  /* package */static Value[][] align(final SessionContext sessionContext, final LocalDateDoubleTimeSeries[] timeSeries) {
+    // Dates are held as yyyymmdd integers so the union can be sorted as primitives
+    int count = 0;
+    for (LocalDateDoubleTimeSeries series : timeSeries) {
+      if (series != null) {
+        count += series.size();
+      }
+    }
+    int[] dates = new int[count];
+    count = 0;
+    for (LocalDateDoubleTimeSeries series : timeSeries) {
+      if (series != null) {
+        final int[] times = series.timesArrayFast();
+        System.arraycopy(times, 0, dates, count, times.length);
+        count += times.length;
+      }
+    }
+    Arrays.sort(dates);
+    int unique = 0;
+    for (int i = 0; i < dates.length; i++) {
+      if ((unique == 0) || (dates[i] != dates[unique - 1])) {
+        dates[unique++] = dates[i];
+      }
+    }
+    dates = Arrays.copyOf(dates, unique);
+    final Value[][] result = new Value[unique][timeSeries.length + 1];
+    for (int row = 0; row < unique; row++) {
+      final LocalDate date = LocalDate.of(dates[row] / 10000, (dates[row] / 100) % 100, dates[row] % 100);
+      try {
+        result[row][0] = sessionContext.getGlobalContext().getValueConverter().convertValue(sessionContext, date, VALUE);
+      } catch (InvalidConversionException e) {
+        result[row][0] = ValueUtils.of(date.toString());
+      }
+    }
+    final Value nan = ValueUtils.of(Double.NaN);
+    for (int column = 0; column < timeSeries.length; column++) {
+      final LocalDateDoubleTimeSeries series = timeSeries[column];
+      if (series == null) {
+        for (int row = 0; row < unique; row++) {
+          result[row][column + 1] = nan;
+        }
+        continue;
+      }
+      final int[] times = series.timesArrayFast();
+      final double[] values = series.valuesArrayFast();
+      int index = 0;
+      for (int row = 0; row < unique; row++) {
+        if ((index < times.length) && (times[index] == dates[row])) {
+          result[row][column + 1] = ValueUtils.of(values[index++]);
+        } else {
+          result[row][column + 1] = nan;
+        }
+      }
+    }
+    return result;
+  }
+
+  // AbstractFunctionInvoker
+
+  @Override
+  protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
+    final Value[] identifiers = getIdentifiers((Data) parameters[IDENTIFIERS]);
+    final LocalDateDoubleTimeSeries[] timeSeries;
+    if ((parameters[DATA_SOURCE] != null) && (parameters[DATA_PROVIDER] != null) && (parameters[DATA_FIELD] != null) && (parameters[IDENTIFIER_VALIDITY_DATE] == null)) {
+      timeSeries = fetchBulk(sessionContext, identifiers, parameters);
+    } else {
+      timeSeries = fetchConcurrent(sessionContext, identifiers, parameters);
+    }
+    return align(sessionContext, timeSeries);
+  }
+
+  // PublishedFunction
+
+  @Override
+  public MetaFunction getMetaFunction() {
+    return _meta;
+  }
+
+}
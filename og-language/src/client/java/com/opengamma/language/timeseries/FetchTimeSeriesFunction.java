@@ -212,7 +212,7 @@ public class FetchTimeSeriesFunction extends AbstractFunctionInvoker implements
     if (parameters[IDENTIFIER_VALIDITY_DATE] != null) {
       flags |= FLAG_IDENTIFIER_VALIDITY_DATE;
     }
-    final HistoricalTimeSeriesSource source = sessionContext.getGlobalContext().getHistoricalTimeSeriesSource();
+    final HistoricalTimeSeriesSource source = sessionContext.getUserContext().getHistoricalTimeSeriesSource();
     switch (flags) {
       case 0:
         return invoke(source, getUniqueId(sessionContext, parameters[IDENTIFIER]));
@@ -7,14 +7,19 @@
 package com.opengamma.language.timeseries;
 
 import java.net.URI;
+import java.util.Collections;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.MapMaker;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
 import com.opengamma.core.historicaltimeseries.impl.RemoteHistoricalTimeSeriesSource;
 import com.opengamma.language.config.Configuration;
 import com.opengamma.language.context.ContextInitializationBean;
 import com.opengamma.language.context.MutableGlobalContext;
+import com.opengamma.language.context.MutableUserContext;
 import com.opengamma.language.function.FunctionProviderBean;
 import com.opengamma.language.invoke.TypeConverterProviderBean;
 import com.opengamma.language.procedure.ProcedureProviderBean;
@@ -27,8 +32,24 @@ public class Loader extends ContextInitializationBean {
 
   private static final Logger s_logger = LoggerFactory.getLogger(Loader.class);
 
+  /**
+   * Value for {@link #setCacheScope} to disable caching of fetched time series.
+   */
+  public static final String CACHE_NONE = "none";
+  /**
+   * Value for {@link #setCacheScope} to cache fetched time series in the global context, shared by all users.
+   */
+  public static final String CACHE_GLOBAL = "global";
+  /**
+   * Value for {@link #setCacheScope} to cache fetched time series in each user context. A write through
+   * {@link StoreTimeSeriesProcedure} invalidates the affected series in every user's cache.
+   */
+  public static final String CACHE_USER = "user";
+
   private String _configurationEntry = "historicalTimeSeriesSource";
   private Configuration _configuration;
+  private String _cacheScope = CACHE_NONE;
+  private int _cacheSize = 1000000;
 
   public void setConfiguration(final Configuration configuration) {
     ArgumentChecker.notNull(configuration, "configuration");
@@ -48,11 +69,46 @@ public class Loader extends ContextInitializationBean {
     return _configurationEntry;
   }
 
+  /**
+   * Sets where fetched time series are cached, one of {@link #CACHE_NONE}, {@link #CACHE_GLOBAL} or {@link #CACHE_USER}. A user
+   * cache requires the user context factory to be set.
+   *
+   * @param cacheScope the cache scope, not null
+   */
+  public void setCacheScope(final String cacheScope) {
+    ArgumentChecker.notNull(cacheScope, "cacheScope");
+    if (!CACHE_NONE.equals(cacheScope) && !CACHE_GLOBAL.equals(cacheScope) && !CACHE_USER.equals(cacheScope)) {
+      throw new IllegalArgumentException("Invalid cache scope " + cacheScope);
+    }
+    _cacheScope = cacheScope;
+  }
+
+  public String getCacheScope() {
+    return _cacheScope;
+  }
+
+  /**
+   * Sets the maximum number of time series points held by each cache.
+   *
+   * @param cacheSize the number of points
+   */
+  public void setCacheSize(final int cacheSize) {
+    ArgumentChecker.notNegativeOrZero(cacheSize, "cacheSize");
+    _cacheSize = cacheSize;
+  }
+
+  public int getCacheSize() {
+    return _cacheSize;
+  }
+
   // ContextInitializationBean
 
   @Override
   protected void assertPropertiesSet() {
     ArgumentChecker.notNull(getConfiguration(), "configuration");
+    if (CACHE_USER.equals(getCacheScope())) {
+      ArgumentChecker.notNull(getUserContextFactory(), "userContextFactory");
+    }
   }
 
   @Override
@@ -63,9 +119,18 @@ public class Loader extends ContextInitializationBean {
       return;
     }
     s_logger.info("Configuring time-series support");
-    globalContext.setHistoricalTimeSeriesSource(new RemoteHistoricalTimeSeriesSource(uri));
+    HistoricalTimeSeriesSource source = new RemoteHistoricalTimeSeriesSource(uri);
+    if (CACHE_GLOBAL.equals(getCacheScope())) {
+      s_logger.info("Caching up to {} time-series points", getCacheSize());
+      source = new CachingHistoricalTimeSeriesSource(source, getCacheSize());
+    }
+    globalContext.setHistoricalTimeSeriesSource(source);
+    if (CACHE_USER.equals(getCacheScope())) {
+      globalContext.setUserHistoricalTimeSeriesSources(Collections.newSetFromMap(new MapMaker().weakKeys().<HistoricalTimeSeriesSource, Boolean>makeMap()));
+    }
     globalContext.getFunctionProvider().addProvider(new FunctionProviderBean(
-        FetchTimeSeriesFunction.INSTANCE));
+        FetchTimeSeriesFunction.INSTANCE,
+        FetchTimeSeriesBatchFunction.INSTANCE));
     globalContext.getProcedureProvider().addProvider(new ProcedureProviderBean(
         StoreTimeSeriesProcedure.INSTANCE));
     globalContext.getTypeConverterProvider().addTypeConverterProvider(new TypeConverterProviderBean(
@@ -73,4 +138,26 @@ public class Loader extends ContextInitializationBean {
         LocalDateDoubleTimeSeriesConverter.INSTANCE));
   }
 
+  @Override
+  protected void initContext(final MutableUserContext userContext) {
+    if (!CACHE_USER.equals(getCacheScope())) {
+      return;
+    }
+    final HistoricalTimeSeriesSource source = userContext.getGlobalContext().getHistoricalTimeSeriesSource();
+    if (source != null) {
+      s_logger.debug("Caching up to {} time-series points for {}", getCacheSize(), userContext.getUserName());
+      final CachingHistoricalTimeSeriesSource cache = new CachingHistoricalTimeSeriesSource(source, getCacheSize());
+      userContext.setHistoricalTimeSeriesSource(cache);
+      userContext.getGlobalContext().getUserHistoricalTimeSeriesSources().add(cache);
+    }
+  }
+
+  @Override
+  protected void doneContext(final MutableUserContext userContext) {
+    final Set<HistoricalTimeSeriesSource> sources = userContext.getGlobalContext().getUserHistoricalTimeSeriesSources();
+    if (sources != null) {
+      sources.remove(userContext.getHistoricalTimeSeriesSource());
+    }
+  }
+
 }
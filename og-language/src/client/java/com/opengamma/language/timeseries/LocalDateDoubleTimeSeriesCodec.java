@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.language.timeseries;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgFactory;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Binary encoding of a {@link LocalDateDoubleTimeSeries} for bound languages that can decode it. The dates and values are held
+ * in primitive arrays rather than a {@link com.opengamma.language.Value} per date and value, and the dates are sent as day
+ * numbers rather than strings that must be formatted and parsed.
+ * <p>
+ * The message fields are:
+ * <ul>
+ * <li>1 - {@code int[]} dates as the number of days since 1970-01-01
+ * <li>2 - {@code double[]} values
+ * </ul>
+ * The arrays are the same length with the dates in ascending order.
+ */
+public final class LocalDateDoubleTimeSeriesCodec {
+
+  /**
+   * Ordinal of the dates field.
+   */
+  public static final int DATES_ORDINAL = 1;
+  /**
+   * Ordinal of the values field.
+   */
+  public static final int VALUES_ORDINAL = 2;
+
+  private LocalDateDoubleTimeSeriesCodec() {
+  }
+
+  /**
+   * Converts a date in the {@code yyyymmdd} form used by the time series arrays to a day number.
+   *
+   * @param date the date as {@code yyyymmdd}
+   * @return the number of days since 1970-01-01
+   */
+  /* package */static int toEpochDay(final int date) {
+    int y = date / 10000;
+    final int m = (date / 100) % 100;
+    final int d = date % 100;
+    if (m <= 2) {
+      y--;
+    }
+    final int era = ((y >= 0) ? y : (y - 399)) / 400;
+    final int yoe = y - era * 400;
+    final int doy = (153 * ((m > 2) ? (m - 3) : (m + 9)) + 2) / 5 + d - 1;
+    final int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097 + doe - 719468;
+  }
+
+  /**
+   * Converts a day number to a date in the {@code yyyymmdd} form used by the time series arrays.
+   *
+   * @param epochDay the number of days since 1970-01-01
+   * @return the date as {@code yyyymmdd}
+   */
+  /* package */static int fromEpochDay(final int epochDay) {
+    final int z = epochDay + 719468;
+    final int era = ((z >= 0) ? z : (z - 146096)) / 146097;
+    final int doe = z - era * 146097;
+    final int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    final int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    final int mp = (5 * doy + 2) / 153;
+    final int d = doy - (153 * mp + 2) / 5 + 1;
+    final int m = (mp < 10) ? (mp + 3) : (mp - 9);
+    final int y = yoe + era * 400 + ((m <= 2) ? 1 : 0);
+    return y * 10000 + m * 100 + d;
+  }
+
+  /**
+   * Encodes a time series.
+   *
+   * @param factory the message factory, not null
+   * @param timeSeries the time series to encode, not null
+   * @return the encoded form
+   */
+  public static MutableFudgeMsg toFudgeMsg(final FudgeMsgFactory factory, final LocalDateDoubleTimeSeries timeSeries) {
+    ArgumentChecker.notNull(factory, "factory");
+    ArgumentChecker.notNull(timeSeries, "timeSeries");
+    final int[] dates = timeSeries.timesArrayFast();
+    final int[] epochDays = new int[dates.length];
+    for (int i = 0; i < dates.length; i++) {
+      epochDays[i] = toEpochDay(dates[i]);
+    }
+    final MutableFudgeMsg msg = factory.newMessage();
+    msg.add(null, DATES_ORDINAL, epochDays);
+    msg.add(null, VALUES_ORDINAL, timeSeries.valuesArrayFast());
+    return msg;
+  }
+
+  /**
+   * Tests whether a message is in the form produced by {@link #toFudgeMsg}.
+   *
+   * @param msg the message to test, not null
+   * @return true if the message can be decoded, false otherwise
+   */
+  public static boolean isEncoded(final FudgeMsg msg) {
+    if (msg.getNumFields() != 2) {
+      return false;
+    }
+    final FudgeField dates = msg.getByOrdinal(DATES_ORDINAL);
+    final FudgeField values = msg.getByOrdinal(VALUES_ORDINAL);
+    return (dates != null) && (dates.getValue() instanceof int[]) && (values != null) && (values.getValue() instanceof double[])
+        && (((int[]) dates.getValue()).length == ((double[]) values.getValue()).length);
+  }
+
+  /**
+   * Decodes a message produced by {@link #toFudgeMsg}.
+   *
+   * @param msg the message to decode, not null
+   * @return the time series, or null if the message is not in the encoded form
+   */
+  public static LocalDateDoubleTimeSeries fromFudgeMsg(final FudgeMsg msg) {
+    ArgumentChecker.notNull(msg, "msg");
+    if (!isEncoded(msg)) {
+      return null;
+    }
+    final int[] epochDays = (int[]) msg.getByOrdinal(DATES_ORDINAL).getValue();
+    final int[] dates = new int[epochDays.length];
+    for (int i = 0; i < epochDays.length; i++) {
+      if ((i > 0) && (epochDays[i] <= epochDays[i - 1])) {
+        throw new IllegalArgumentException("Dates not in ascending order in " + msg);
+      }
+      dates[i] = fromEpochDay(epochDays[i]);
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(dates, (double[]) msg.getByOrdinal(VALUES_ORDINAL).getValue());
+  }
+
+}
@@ -7,12 +7,17 @@
 package com.opengamma.language.timeseries;
 
 import static com.opengamma.language.convert.TypeMap.ZERO_LOSS;
+import static com.opengamma.language.convert.TypeMap.ZERO_LOSS_NON_PREFERRED;
 
 import java.util.Iterator;
 import java.util.Map;
 
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
 import org.threeten.bp.LocalDate;
 
+import com.opengamma.language.Data;
+import com.opengamma.language.DataUtils;
 import com.opengamma.language.Value;
 import com.opengamma.language.ValueUtils;
 import com.opengamma.language.convert.TypeMap;
@@ -23,7 +28,8 @@ import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSerie
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
 
 /**
- * Converts a {@link LocalDateDoubleTimeSeries} to/from a 2D value array.
+ * Converts a {@link LocalDateDoubleTimeSeries} to/from a 2D value array. If the bound language declares support for it, results
+ * are sent in the binary form of {@link LocalDateDoubleTimeSeriesCodec} instead and messages in that form are always accepted.
  */
 public class LocalDateDoubleTimeSeriesConverter extends AbstractTypeConverter {
 
@@ -35,25 +41,39 @@ public class LocalDateDoubleTimeSeriesConverter extends AbstractTypeConverter {
   // TODO: handle nulls
 
   private static final JavaTypeInfo<Value> VALUE = JavaTypeInfo.builder(Value.class).get();
+  private static final JavaTypeInfo<FudgeMsg> MESSAGE = JavaTypeInfo.builder(FudgeMsg.class).get();
   private static final JavaTypeInfo<Value[][]> VALUES = JavaTypeInfo.builder(Value[][].class).get();
   private static final JavaTypeInfo<LocalDate> LOCAL_DATE = JavaTypeInfo.builder(LocalDate.class).get();
   private static final JavaTypeInfo<Double> DOUBLE = JavaTypeInfo.builder(Double.class).get();
   private static final JavaTypeInfo<LocalDateDoubleTimeSeries> LOCAL_DATE_DOUBLE_TIME_SERIES = JavaTypeInfo.builder(LocalDateDoubleTimeSeries.class).get();
 
-  private static final TypeMap TO_LOCAL_DATE_DOUBLE_TIME_SERIES = TypeMap.of(ZERO_LOSS, VALUES);
+  private static final TypeMap TO_LOCAL_DATE_DOUBLE_TIME_SERIES = TypeMap.of(ZERO_LOSS, VALUES, MESSAGE);
   private static final TypeMap FROM_LOCAL_DATE_DOUBLE_TIME_SERIES = TypeMap.of(ZERO_LOSS, LOCAL_DATE_DOUBLE_TIME_SERIES);
+  // Cheaper than going through Value[][], but more expensive than any language specific conversion to Data
+  private static final TypeMap BINARY_FROM_LOCAL_DATE_DOUBLE_TIME_SERIES = TypeMap.of(ZERO_LOSS_NON_PREFERRED, LOCAL_DATE_DOUBLE_TIME_SERIES);
 
   protected LocalDateDoubleTimeSeriesConverter() {
   }
 
   @Override
   public boolean canConvertTo(final JavaTypeInfo<?> targetType) {
-    return (targetType.getRawClass() == LocalDateDoubleTimeSeries.class) || (targetType.getRawClass() == Value[][].class);
+    final Class<?> clazz = targetType.getRawClass();
+    return (clazz == LocalDateDoubleTimeSeries.class) || (clazz == Value[][].class) || (clazz == Data.class);
   }
 
   @Override
   public void convertValue(final ValueConversionContext conversionContext, final Object value, final JavaTypeInfo<?> type) {
     if (type.getRawClass() == LocalDateDoubleTimeSeries.class) {
+      if (value instanceof FudgeMsg) {
+        // Converting from the binary form to LocalDateDoubleTimeSeries
+        final LocalDateDoubleTimeSeries timeSeries = LocalDateDoubleTimeSeriesCodec.fromFudgeMsg((FudgeMsg) value);
+        if (timeSeries == null) {
+          conversionContext.setFail();
+        } else {
+          conversionContext.setResult(timeSeries);
+        }
+        return;
+      }
       // Converting from Values[][] to LocalDateDoubleTimeSeries
       final Value[][] values = (Value[][]) value;
       final LocalDate[] timeSeriesDates = new LocalDate[values.length];
@@ -78,6 +98,14 @@ public class LocalDateDoubleTimeSeriesConverter extends AbstractTypeConverter {
         timeSeriesValues[i++] = (Double) conversionContext.getResult();
       }
       conversionContext.setResult(ImmutableLocalDateDoubleTimeSeries.of(timeSeriesDates, timeSeriesValues));
+    } else if (type.getRawClass() == Data.class) {
+      // Converting from LocalDateDoubleTimeSeries to the binary form
+      if (!conversionContext.getGlobalContext().isBinaryTimeSeries()) {
+        conversionContext.setFail();
+        return;
+      }
+      final LocalDateDoubleTimeSeries timeSeries = (LocalDateDoubleTimeSeries) value;
+      conversionContext.setResult(DataUtils.of(LocalDateDoubleTimeSeriesCodec.toFudgeMsg(FudgeContext.GLOBAL_DEFAULT, timeSeries)));
     } else {
       // Converting from LocalDateDoubleTimeSeries to Values[][]
       final LocalDateDoubleTimeSeries timeSeries = (LocalDateDoubleTimeSeries) value;
@@ -102,6 +130,8 @@ public class LocalDateDoubleTimeSeriesConverter extends AbstractTypeConverter {
   public Map<JavaTypeInfo<?>, Integer> getConversionsTo(final JavaTypeInfo<?> targetType) {
     if (targetType.getRawClass() == LocalDateDoubleTimeSeries.class) {
       return TO_LOCAL_DATE_DOUBLE_TIME_SERIES;
+    } else if (targetType.getRawClass() == Data.class) {
+      return BINARY_FROM_LOCAL_DATE_DOUBLE_TIME_SERIES;
     } else {
       return FROM_LOCAL_DATE_DOUBLE_TIME_SERIES;
     }
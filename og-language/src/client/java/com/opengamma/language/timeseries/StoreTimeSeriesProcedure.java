@@ -8,7 +8,9 @@ package com.opengamma.language.timeseries;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
 import com.opengamma.financial.user.rest.RemoteClient;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
@@ -121,7 +123,21 @@ public class StoreTimeSeriesProcedure extends AbstractProcedureInvoker.SingleRes
     } catch (UnsupportedOperationException e) {
       throw new InvokeInvalidArgumentException(MASTER, e);
     }
-    return invoke(tsMaster, timeSeries, name, identifier, dataField, dataSource, dataProvider, observationTime);
+    final UniqueId uniqueId = invoke(tsMaster, timeSeries, name, identifier, dataField, dataSource, dataProvider, observationTime);
+    final Set<HistoricalTimeSeriesSource> userSources = sessionContext.getGlobalContext().getUserHistoricalTimeSeriesSources();
+    if (userSources != null) {
+      for (HistoricalTimeSeriesSource userSource : userSources) {
+        invalidate(userSource, identifier, uniqueId);
+      }
+    }
+    invalidate(sessionContext.getGlobalContext().getHistoricalTimeSeriesSource(), identifier, uniqueId);
+    return uniqueId;
+  }
+
+  private static void invalidate(final HistoricalTimeSeriesSource source, final ExternalIdBundle identifier, final UniqueId uniqueId) {
+    if (source instanceof CachingHistoricalTimeSeriesSource) {
+      ((CachingHistoricalTimeSeriesSource) source).invalidate(identifier, (uniqueId != null) ? uniqueId.getObjectId() : null);
+    }
   }
 
   // AbstractProcedureInvoker
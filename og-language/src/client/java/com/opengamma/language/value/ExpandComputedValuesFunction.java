@@ -7,7 +7,9 @@
 package com.opengamma.language.value;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +35,7 @@ import com.opengamma.language.definition.MetaParameter;
 import com.opengamma.language.function.AbstractFunctionInvoker;
 import com.opengamma.language.function.MetaFunction;
 import com.opengamma.language.function.PublishedFunction;
+import com.opengamma.language.position.ParallelPortfolioTraverser;
 
 /**
  * Expands a Fudge representation of a {@link List} of {@link ComputedValue} objects into a 2D structure.
@@ -48,6 +51,11 @@ public class ExpandComputedValuesFunction extends AbstractFunctionInvoker implem
 
   private static final ComputationTargetTypeMap<Function2<SessionContext, ComputationTargetSpecification, String>> s_getName = getName();
 
+  /**
+   * Number of target names resolved by a task before it claims another batch. This is small as each one may be a remote query.
+   */
+  private static final int NAME_BATCH_SIZE = 8;
+
   private final MetaFunction _meta;
 
   private static List<MetaParameter> parameters() {
@@ -172,6 +180,31 @@ public class ExpandComputedValuesFunction extends AbstractFunctionInvoker implem
     }
   }
 
+  /**
+   * Resolves the names of the distinct targets of the values. Each name may need a position or security source query, so the
+   * queries are made once per target and run concurrently.
+   */
+  private static Map<ComputationTargetSpecification, String> getNames(final SessionContext sessionContext, final List<ComputedValue> values) {
+    final Map<ComputationTargetSpecification, String> names = new HashMap<ComputationTargetSpecification, String>();
+    for (ComputedValue value : values) {
+      names.put(value.getSpecification().getTargetSpecification(), null);
+    }
+    final ComputationTargetSpecification[] targetSpecs = names.keySet().toArray(new ComputationTargetSpecification[names.size()]);
+    final String[] targetNames = new String[targetSpecs.length];
+    new ParallelPortfolioTraverser(sessionContext.getGlobalContext().getSaturatingExecutor(), NAME_BATCH_SIZE).execute(targetSpecs.length, new ParallelPortfolioTraverser.Operation() {
+      @Override
+      public void execute(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+          targetNames[i] = getName(sessionContext, targetSpecs[i]);
+        }
+      }
+    });
+    for (int i = 0; i < targetSpecs.length; i++) {
+      names.put(targetSpecs[i], targetNames[i]);
+    }
+    return names;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   protected Object invokeImpl(final SessionContext sessionContext, final Object[] parameters) {
@@ -193,6 +226,7 @@ public class ExpandComputedValuesFunction extends AbstractFunctionInvoker implem
     if (includeType) {
       columns++;
     }
+    final Map<ComputationTargetSpecification, String> names = includeName ? getNames(sessionContext, values) : null;
     final Object[][] result = new Object[values.size()][columns];
     int row = 0;
     for (ComputedValue value : values) {
@@ -203,7 +237,7 @@ public class ExpandComputedValuesFunction extends AbstractFunctionInvoker implem
         resultRow[columns++] = uid;
       }
       if (includeName) {
-        resultRow[columns++] = getName(sessionContext, value.getSpecification().getTargetSpecification());
+        resultRow[columns++] = names.get(value.getSpecification().getTargetSpecification());
       }
       if (includeValue) {
         resultRow[columns++] = value.getValue();
@@ -39,6 +39,8 @@ public class Loader extends ContextInitializationBean {
   private JmsConnector _jmsConnector;
   private ScheduledExecutorService _housekeepingScheduler;
   private FudgeContext _fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+  private int _graveyardSize = 8;
+  private long _graveyardAge = 300000L;
 
   public void setConfiguration(final Configuration configuration) {
     ArgumentChecker.notNull(configuration, "configuration");
@@ -84,6 +86,34 @@ public class Loader extends ContextInitializationBean {
     return _fudgeContext;
   }
 
+  /**
+   * Sets the number of unlocked view clients each user context may hold for reuse. Zero destroys clients as soon as they are unlocked.
+   * 
+   * @param graveyardSize the number of clients to hold
+   */
+  public void setGraveyardSize(final int graveyardSize) {
+    ArgumentChecker.notNegative(graveyardSize, "graveyardSize");
+    _graveyardSize = graveyardSize;
+  }
+
+  public int getGraveyardSize() {
+    return _graveyardSize;
+  }
+
+  /**
+   * Sets the time an unlocked view client may be held for reuse before it is destroyed.
+   * 
+   * @param graveyardAge the time, in milliseconds
+   */
+  public void setGraveyardAge(final long graveyardAge) {
+    ArgumentChecker.notNegativeOrZero(graveyardAge, "graveyardAge");
+    _graveyardAge = graveyardAge;
+  }
+
+  public long getGraveyardAge() {
+    return _graveyardAge;
+  }
+
   // ContextInitializationBean
 
   @Override
@@ -134,7 +164,7 @@ public class Loader extends ContextInitializationBean {
 
   @Override
   protected void initContext(final MutableUserContext userContext) {
-    userContext.setViewClients(new UserViewClients(userContext));
+    userContext.setViewClients(new UserViewClients(userContext, getHousekeepingScheduler(), getGraveyardSize(), getGraveyardAge()));
   }
 
   @Override
@@ -229,6 +229,15 @@ public final class UserViewClient implements UniqueIdentifiable {
     return _refCount.decrementAndGet() > 0;
   }
 
+  /**
+   * Restores the reference/lock count of an unreferenced object that has been held in a graveyard rather than destroyed.
+   * 
+   * @return true if the object was revived, false if it was already referenced
+   */
+  protected boolean revive() {
+    return _refCount.compareAndSet(0, 1);
+  }
+
   protected boolean isLocked() {
     return _refCount.get() > 0;
   }
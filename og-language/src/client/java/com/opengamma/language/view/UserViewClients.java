@@ -5,6 +5,15 @@
  */
 package com.opengamma.language.view;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,18 +23,192 @@ import com.opengamma.engine.view.client.ViewResultMode;
 import com.opengamma.id.UniqueId;
 import com.opengamma.language.context.SessionContext;
 import com.opengamma.language.context.UserContext;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Manages a set of {@link ViewClient} within a {@link UserContext}. Each is uniquely identified by a {@link ViewClientKey}. When
  * clients are referred to externally within a session, the reference can be detached into the {@link SessionContext} and be
  * retrieved by its {@link UniqueId}.
+ * <p>
+ * Clients that are no longer locked can be held in a "graveyard", still attached to their view process, for a short time before being
+ * destroyed. If a client with the same key is requested while it is there it is revived, avoiding the cost of attaching to (and compiling)
+ * the view again. The graveyard is bounded in size, discarding the least recently released client first, and in age.
  */
 public class UserViewClients extends ViewClients<ViewClientKey, UserContext> {
 
   private static final Logger s_logger = LoggerFactory.getLogger(UserViewClients.class);
 
+  private static final class Parked {
+
+    private final UserViewClient _client;
+    private final long _released;
+
+    public Parked(final UserViewClient client, final long released) {
+      _client = client;
+      _released = released;
+    }
+
+  }
+
+  private final ScheduledExecutorService _scheduler;
+  private final int _graveyardSize;
+  private final long _graveyardAge;
+  /**
+   * Unlocked clients, in the order they were released. Access must be synchronized on the map.
+   */
+  private final LinkedHashMap<ViewClientKey, Parked> _graveyard = new LinkedHashMap<ViewClientKey, Parked>();
+  private final AtomicLong _revived = new AtomicLong();
+  private final AtomicLong _evicted = new AtomicLong();
+  private boolean _destroyed;
+
+  private final Runnable _purge = new Runnable() {
+    @Override
+    public void run() {
+      purge();
+    }
+  };
+
+  /**
+   * Creates an instance that destroys clients as soon as they are unlocked.
+   * 
+   * @param userContext the owning context, not null
+   */
   public UserViewClients(final UserContext userContext) {
+    this(userContext, null, 0, 0);
+  }
+
+  /**
+   * Creates an instance that holds unlocked clients for possible reuse.
+   * 
+   * @param userContext the owning context, not null
+   * @param scheduler the scheduler for removing expired clients, not null if the graveyard size is non-zero
+   * @param graveyardSize the maximum number of unlocked clients to hold, zero to destroy clients immediately
+   * @param graveyardAge the maximum time to hold an unlocked client for, in milliseconds
+   */
+  public UserViewClients(final UserContext userContext, final ScheduledExecutorService scheduler, final int graveyardSize, final long graveyardAge) {
     super(userContext);
+    ArgumentChecker.notNegative(graveyardSize, "graveyardSize");
+    if (graveyardSize > 0) {
+      ArgumentChecker.notNull(scheduler, "scheduler");
+      ArgumentChecker.notNegativeOrZero(graveyardAge, "graveyardAge");
+    }
+    _scheduler = scheduler;
+    _graveyardSize = graveyardSize;
+    _graveyardAge = graveyardAge;
+  }
+
+  /**
+   * Returns the number of clients that were revived from the graveyard instead of being created.
+   * 
+   * @return the count
+   */
+  public long getRevivedCount() {
+    return _revived.get();
+  }
+
+  /**
+   * Returns the number of clients destroyed after being held in the graveyard.
+   * 
+   * @return the count
+   */
+  public long getEvictedCount() {
+    return _evicted.get();
+  }
+
+  /**
+   * Returns the number of clients currently held in the graveyard.
+   * 
+   * @return the count
+   */
+  public int getGraveyardSize() {
+    synchronized (_graveyard) {
+      return _graveyard.size();
+    }
+  }
+
+  private void evict(final List<UserViewClient> clients) {
+    for (UserViewClient client : clients) {
+      s_logger.debug("Destroying {} from graveyard", client.getViewClientKey());
+      _evicted.incrementAndGet();
+      client.destroy();
+    }
+  }
+
+  /**
+   * Destroys any clients that have been in the graveyard for longer than the age limit.
+   */
+  private void purge() {
+    final List<UserViewClient> evicted = new ArrayList<UserViewClient>();
+    final long expiry = System.currentTimeMillis() - _graveyardAge;
+    synchronized (_graveyard) {
+      final Iterator<Parked> itr = _graveyard.values().iterator();
+      while (itr.hasNext()) {
+        final Parked parked = itr.next();
+        if (parked._released > expiry) {
+          break;
+        }
+        evicted.add(parked._client);
+        itr.remove();
+      }
+    }
+    evict(evicted);
+  }
+
+  /**
+   * Places an unlocked client in the graveyard, evicting the least recently released if the size limit is exceeded.
+   * 
+   * @param client the unlocked client, not null
+   * @return false if the client couldn't be placed in the graveyard and should be destroyed, true otherwise
+   */
+  private boolean park(final UserViewClient client) {
+    final List<UserViewClient> evicted = new ArrayList<UserViewClient>();
+    synchronized (_graveyard) {
+      if (_destroyed) {
+        return false;
+      }
+      final Parked previous = _graveyard.remove(client.getViewClientKey());
+      if (previous != null) {
+        evicted.add(previous._client);
+      }
+      _graveyard.put(client.getViewClientKey(), new Parked(client, System.currentTimeMillis()));
+      final Iterator<Parked> itr = _graveyard.values().iterator();
+      while (_graveyard.size() > _graveyardSize) {
+        evicted.add(itr.next()._client);
+        itr.remove();
+      }
+    }
+    s_logger.debug("Placed {} in graveyard", client.getViewClientKey());
+    evict(evicted);
+    _scheduler.schedule(_purge, _graveyardAge, TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  /**
+   * Takes a client from the graveyard and locks it.
+   * 
+   * @param viewClientKey the key of the client to revive, not null
+   * @return the locked client, or null if there was none in the graveyard
+   */
+  private UserViewClient revive(final ViewClientKey viewClientKey) {
+    final Parked parked;
+    synchronized (_graveyard) {
+      parked = _graveyard.remove(viewClientKey);
+    }
+    if (parked == null) {
+      return null;
+    }
+    if (parked._released <= System.currentTimeMillis() - _graveyardAge) {
+      evict(Collections.singletonList(parked._client));
+      return null;
+    }
+    if (!parked._client.revive()) {
+      // Shouldn't happen - nothing else can lock a client in the graveyard
+      s_logger.error("Client {} in graveyard was locked", viewClientKey);
+      return null;
+    }
+    s_logger.info("Revived {} from graveyard", viewClientKey);
+    _revived.incrementAndGet();
+    return parked._client;
   }
 
   protected ViewClient createViewClient() {
@@ -54,7 +237,19 @@ public class UserViewClients extends ViewClients<ViewClientKey, UserContext> {
     do {
       client = getClients().get(viewClientKey);
       if (client == null) {
-        // TODO: check the graveyard for a matching view client instead of creating a new one
+        client = revive(viewClientKey);
+        if (client != null) {
+          final UserViewClient existing = getClients().putIfAbsent(viewClientKey, client);
+          if (existing == null) {
+            return new AttachedViewClientHandle(this, client);
+          }
+          // Another thread has created or revived a client for the key
+          if (!client.decrementRefCount()) {
+            client.destroy();
+          }
+          client = existing;
+          continue;
+        }
         final ViewClient viewClient = createViewClient();
         try {
           client = new UserViewClient(getContext(), viewClient, viewClientKey);
@@ -81,17 +276,24 @@ public class UserViewClients extends ViewClients<ViewClientKey, UserContext> {
   @Override
   protected void releaseViewClient(final UserViewClient viewClient) {
     assert !viewClient.isLocked();
-    // TODO: post the old view client to a "graveyard" queue
-    getClients().remove(viewClient.getViewClientKey());
-    // TODO: only destroy immediately if the client is older than a given age
-    // TODO: remove the client from the graveyard (only destroy if still in the graveyard)
-    viewClient.destroy();
+    getClients().remove(viewClient.getViewClientKey(), viewClient);
+    if ((_graveyardSize == 0) || !park(viewClient)) {
+      viewClient.destroy();
+    }
   }
 
   @Override
   protected void destroyAll() {
+    final List<UserViewClient> parked = new ArrayList<UserViewClient>();
+    synchronized (_graveyard) {
+      _destroyed = true;
+      for (Parked client : _graveyard.values()) {
+        parked.add(client._client);
+      }
+      _graveyard.clear();
+    }
     super.destroyAll();
-    // TODO: destroy anything in the graveyard
+    evict(parked);
   }
 
   @Override
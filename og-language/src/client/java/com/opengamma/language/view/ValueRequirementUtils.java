@@ -9,6 +9,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,6 +29,14 @@ public final class ValueRequirementUtils {
 
   private static final Pattern REQUIREMENT_EXPRESSION = Pattern.compile("^(?:(.+)/)?(.+?)([\\[\\{](.+)[\\]\\}])?$");
   private static final String DEFAULT_CONFIG_NAME = "Default";
+  /* package */static final int MAX_PARSED_REQUIREMENTS = 10000;
+
+  /**
+   * Previously parsed requirement strings. Clients typically request the same handful of requirements many times so the cache is simply
+   * discarded if it grows too large.
+   */
+  private static final ConcurrentMap<String, Triple<String, String, ValueProperties>> s_parsedRequirements =
+      new ConcurrentHashMap<String, Triple<String, String, ValueProperties>>();
   
   /**
    * Hidden constructor
@@ -77,6 +87,18 @@ public final class ValueRequirementUtils {
    */
   public static Triple<String, String, ValueProperties> parseRequirement(String requirement) {
     ArgumentChecker.notNull(requirement, "requirement");
+    Triple<String, String, ValueProperties> parsed = s_parsedRequirements.get(requirement);
+    if (parsed == null) {
+      parsed = parseRequirementImpl(requirement);
+      if (s_parsedRequirements.size() >= MAX_PARSED_REQUIREMENTS) {
+        s_parsedRequirements.clear();
+      }
+      s_parsedRequirements.put(requirement, parsed);
+    }
+    return parsed;
+  }
+
+  private static Triple<String, String, ValueProperties> parseRequirementImpl(String requirement) {
     Matcher matcher = REQUIREMENT_EXPRESSION.matcher(requirement);
     if (!matcher.matches()) {
       throw new OpenGammaRuntimeException("Invalid requirement syntax: " + requirement);
@@ -6,7 +6,6 @@
 package com.opengamma.language.view;
 
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.lang.BooleanUtils;
@@ -14,7 +13,6 @@ import org.apache.commons.lang.BooleanUtils;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.value.ComputedValueResult;
 import com.opengamma.engine.value.ValueProperties;
-import com.opengamma.engine.view.ViewCalculationResultModel;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.id.UniqueId;
 import com.opengamma.language.context.SessionContext;
@@ -60,26 +58,18 @@ public class ViewPrimitiveCycleValueFunction extends AbstractFunctionInvoker imp
 
   public static Object invoke(final ViewComputationResultModel resultModel, final String calcConfigName, final String valueName, final ComputationTargetSpecification target,
       final ValueProperties constraints, final String notAvailableValue, final boolean flattenValue) {
-    final ViewCalculationResultModel calcResultModel = resultModel.getCalculationResult(calcConfigName);
-    if (calcResultModel == null) {
+    final ComputedValueResult result = ViewResultModelIndex.of(resultModel).get(resultModel, calcConfigName, valueName, target, constraints);
+    if (result == null) {
       // TODO should return #NA if notAvailableValue is null
       return notAvailableValue;
     }
-    Collection<ComputedValueResult> results = calcResultModel.getAllValues(target);
-    if (results == null) {
-      // TODO should return #NA if notAvailableValue is null
-      return notAvailableValue;
-    }
-    for (ComputedValueResult result : results) {
-      if (valueName.equals(result.getSpecification().getValueName()) && constraints.isSatisfiedBy(result.getSpecification().getProperties())) {
-        final Object resultValue = result.getValue();
-        if (resultValue != null) {
-          // TODO: Use more intelligent value flatteners than toString
-          return flattenValue ? resultValue.toString() : resultValue;
-        }
-      }
-    }
-    return notAvailableValue;
+    // TODO: Use more intelligent value flatteners than toString
+    return flattenValue ? result.getValue().toString() : result.getValue();
+  }
+
+  @Override
+  protected boolean isBroadcast() {
+    return true;
   }
 
   @Override
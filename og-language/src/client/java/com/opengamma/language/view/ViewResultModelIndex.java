@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.language.view;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Lazily built index of the values in a {@link ViewComputationResultModel}, for clients that make many single value lookups against the same
+ * cycle result. An index is held for as long as the result model it describes is reachable, so is discarded once the next cycle's result
+ * replaces it.
+ */
+/* package */final class ViewResultModelIndex {
+
+  private static final ConcurrentMap<ViewComputationResultModel, ViewResultModelIndex> s_indices = new MapMaker().weakKeys().makeMap();
+
+  private static final Object NOT_AVAILABLE = new Object();
+
+  private static final class Key {
+
+    private final String _calcConfigName;
+    private final String _valueName;
+    private final ComputationTargetSpecification _target;
+    private final ValueProperties _constraints;
+    private final int _hashCode;
+
+    public Key(final String calcConfigName, final String valueName, final ComputationTargetSpecification target, final ValueProperties constraints) {
+      _calcConfigName = calcConfigName;
+      _valueName = valueName;
+      _target = target;
+      _constraints = constraints;
+      int hc = calcConfigName.hashCode();
+      hc += (hc << 4) + valueName.hashCode();
+      hc += (hc << 4) + target.hashCode();
+      hc += (hc << 4) + constraints.hashCode();
+      _hashCode = hc;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return _calcConfigName.equals(other._calcConfigName) && _valueName.equals(other._valueName) && _target.equals(other._target)
+          && _constraints.equals(other._constraints);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+  }
+
+  /**
+   * Results for each (calculation configuration, target), grouped by value name. Built on first access to a target.
+   */
+  private final ConcurrentMap<Pair<String, ComputationTargetSpecification>, Map<String, List<ComputedValueResult>>> _targets =
+      new ConcurrentHashMap<Pair<String, ComputationTargetSpecification>, Map<String, List<ComputedValueResult>>>();
+
+  /**
+   * Previously resolved lookups.
+   */
+  private final ConcurrentMap<Key, Object> _lookups = new ConcurrentHashMap<Key, Object>();
+
+  private ViewResultModelIndex() {
+  }
+
+  /**
+   * Returns the index for a result model, creating it if this is the first request.
+   *
+   * @param resultModel the result model, not null
+   * @return the index, not null
+   */
+  public static ViewResultModelIndex of(final ViewComputationResultModel resultModel) {
+    ViewResultModelIndex index = s_indices.get(resultModel);
+    if (index == null) {
+      index = new ViewResultModelIndex();
+      final ViewResultModelIndex previous = s_indices.putIfAbsent(resultModel, index);
+      if (previous != null) {
+        index = previous;
+      }
+    }
+    return index;
+  }
+
+  private Map<String, List<ComputedValueResult>> getTargetValues(final ViewComputationResultModel resultModel, final String calcConfigName,
+      final ComputationTargetSpecification target) {
+    final Pair<String, ComputationTargetSpecification> key = Pair.of(calcConfigName, target);
+    Map<String, List<ComputedValueResult>> values = _targets.get(key);
+    if (values != null) {
+      return values;
+    }
+    final ViewCalculationResultModel calcResultModel = resultModel.getCalculationResult(calcConfigName);
+    final Collection<ComputedValueResult> results = (calcResultModel != null) ? calcResultModel.getAllValues(target) : null;
+    if ((results == null) || results.isEmpty()) {
+      values = Collections.emptyMap();
+    } else {
+      values = new HashMap<String, List<ComputedValueResult>>();
+      for (ComputedValueResult result : results) {
+        final String valueName = result.getSpecification().getValueName();
+        List<ComputedValueResult> named = values.get(valueName);
+        if (named == null) {
+          named = new ArrayList<ComputedValueResult>(1);
+          values.put(valueName, named);
+        }
+        named.add(result);
+      }
+    }
+    final Map<String, List<ComputedValueResult>> previous = _targets.putIfAbsent(key, values);
+    return (previous != null) ? previous : values;
+  }
+
+  /**
+   * Finds the first result with a value that satisfies a requirement.
+   *
+   * @param resultModel the result model this index was obtained for, not null
+   * @param calcConfigName the calculation configuration name, not null
+   * @param valueName the value name, not null
+   * @param target the target, not null
+   * @param constraints the constraints the result must satisfy, not null
+   * @return the result, or null if there is none
+   */
+  public ComputedValueResult get(final ViewComputationResultModel resultModel, final String calcConfigName, final String valueName,
+      final ComputationTargetSpecification target, final ValueProperties constraints) {
+    final Key key = new Key(calcConfigName, valueName, target, constraints);
+    Object result = _lookups.get(key);
+    if (result == null) {
+      result = NOT_AVAILABLE;
+      final List<ComputedValueResult> candidates = getTargetValues(resultModel, calcConfigName, target).get(valueName);
+      if (candidates != null) {
+        for (ComputedValueResult candidate : candidates) {
+          if ((candidate.getValue() != null) && constraints.isSatisfiedBy(candidate.getSpecification().getProperties())) {
+            result = candidate;
+            break;
+          }
+        }
+      }
+      _lookups.putIfAbsent(key, result);
+    }
+    return (result != NOT_AVAILABLE) ? (ComputedValueResult) result : null;
+  }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+#include "stdafx.h"
+
+// Test the functions and objects in Connector/SharedMemory.cpp, and benchmark the pipe and shared
+// memory transports in Connector/Pipes.cpp
+
+#include <connector/cpp/Client.h>
+#include <connector/cpp/SharedMemory.h>
+#define FUDGE_NO_NAMESPACE
+#include <connector/cpp/com_opengamma_language_connector_Test.h>
+#include <connector/cpp/com_opengamma_language_connector_UserMessage.h>
+
+LOGGING (com.opengamma.language.connector.TransportTest);
+
+#define TEST_LANGUAGE		TEXT ("test")
+#define TIMEOUT_START		30000
+#define TIMEOUT_MESSAGE		3000
+#define ROUND_TRIPS			1000
+#define DATA_ORDINAL		3
+
+class CEchoCallback : public CClientService::CMessageReceived {
+private:
+	CSemaphore m_oSemaphore;
+protected:
+	void OnMessageReceived (FudgeMsg msg) {
+		__unused (msg)
+		m_oSemaphore.Signal ();
+	}
+public:
+	bool WaitForResponse () {
+		return m_oSemaphore.Wait (TIMEOUT_MESSAGE);
+	}
+};
+
+static FudgeMsg _EchoRequest (int nHandle, const char *pszData) {
+	FudgeMsg msgTest;
+	FudgeMsg msgUser;
+	ASSERT (FudgeMsg_create (&msgTest) == FUDGE_OK);
+	ASSERT (Test_addClass (msgTest) == FUDGE_OK);
+	ASSERT (Test_setOperation (msgTest, ECHO_REQUEST) == FUDGE_OK);
+	ASSERT (Test_setNonce (msgTest, nHandle) == FUDGE_OK);
+	if (pszData) {
+		FudgeString strData;
+		fudge_i16 ordinal = DATA_ORDINAL;
+		ASSERT (FudgeString_createFromASCIIZ (&strData, pszData) == FUDGE_OK);
+		ASSERT (FudgeMsg_addFieldString (msgTest, NULL, &ordinal, strData) == FUDGE_OK);
+		FudgeString_release (strData);
+	}
+	ASSERT (FudgeMsg_create (&msgUser) == FUDGE_OK);
+	ASSERT (UserMessage_setHandle (msgUser, nHandle) == FUDGE_OK);
+	ASSERT (UserMessage_setFudgeMsgPayload (msgUser, msgTest) == FUDGE_OK);
+	FudgeMsg_release (msgTest);
+	return msgUser;
+}
+
+/// Sends a sequence of echo requests, each waiting for the response before sending the next, and
+/// reports the mean round trip time and the rate the echoed data crossed the connection at.
+static void _RoundTrips (CClientService *poService, CEchoCallback *poCallback, const TCHAR *pszMode, size_t cbData) {
+	char *pszData = NULL;
+	if (cbData) {
+		pszData = (char*)malloc (cbData + 1);
+		ASSERT (pszData);
+		memset (pszData, 'x', cbData);
+		pszData[cbData] = 0;
+	}
+	// Warm up the JIT on the Java side before timing anything
+	int n;
+	for (n = 0; n < ROUND_TRIPS / 10; n++) {
+		FudgeMsg msg = _EchoRequest (n, pszData);
+		ASSERT (poService->Send (msg));
+		FudgeMsg_release (msg);
+		ASSERT (poCallback->WaitForResponse ());
+	}
+	unsigned long lStart = GetTickCount ();
+	for (n = 0; n < ROUND_TRIPS; n++) {
+		FudgeMsg msg = _EchoRequest (n, pszData);
+		ASSERT (poService->Send (msg));
+		FudgeMsg_release (msg);
+		ASSERT (poCallback->WaitForResponse ());
+	}
+	unsigned long lElapsed = GetTickCount () - lStart;
+	if (!lElapsed) {
+		lElapsed = 1;
+	}
+	LOGINFO (pszMode << TEXT (", ") << cbData << TEXT (" bytes: ") << ((double)lElapsed * 1000.0 / ROUND_TRIPS) << TEXT ("us per round trip, ")
+		<< ((double)cbData * 2 * ROUND_TRIPS / 1048.576 / lElapsed) << TEXT (" MB/s"));
+	if (pszData) {
+		free (pszData);
+	}
+}
+
+static void _Benchmark (bool bSharedMemory) {
+	const TCHAR *pszMode = bSharedMemory ? TEXT ("Shared memory") : TEXT ("Pipes");
+	CClientService *poService = CClientService::Create (TEST_LANGUAGE);
+	ASSERT (poService);
+	poService->SetSharedMemory (bSharedMemory);
+	CEchoCallback oCallback;
+	poService->SetMessageReceivedCallback (&oCallback);
+	ASSERT (poService->Start ());
+	int n;
+	for (n = 0; (poService->GetState () != RUNNING) && (poService->GetState () != ERRORED) && (poService->GetState () != STOPPED) && (n < TIMEOUT_START / 100); n++) {
+		CThread::Sleep (100);
+	}
+	ASSERT (poService->GetState () == RUNNING);
+	_RoundTrips (poService, &oCallback, pszMode, 0);
+	_RoundTrips (poService, &oCallback, pszMode, 1024);
+	_RoundTrips (poService, &oCallback, pszMode, 65536);
+	_RoundTrips (poService, &oCallback, pszMode, 1048576);
+	ASSERT (poService->Stop ());
+	poService->SetMessageReceivedCallback (NULL);
+	CClientService::Release (poService);
+}
+
+static void BenchmarkPipes () {
+	_Benchmark (false);
+}
+
+#ifndef _WIN32
+
+static void BenchmarkSharedMemory () {
+	_Benchmark (true);
+}
+
+static void CreateSharedMemory () {
+	CSharedMemoryRings *poRings = CSharedMemoryRings::Create (TEXT ("TransportTest-"), 5000, 1);
+	ASSERT (poRings);
+	// Rounded up to a power of two
+	ASSERT (poRings->GetRingSize () == 8192);
+	ASSERT (!poRings->IsAccepted ());
+	ASSERT (!poRings->GetAvailable ());
+	ASSERT (!poRings->Peek (1));
+	char acData[8192];
+	memset (acData, 0, sizeof (acData));
+	// Nothing is consuming the ring, so it will fill up
+	ASSERT (poRings->Write (acData, 5000) == 5000);
+	ASSERT (poRings->Write (acData, 5000) == 3192);
+	ASSERT (poRings->Write (acData, 5000) == 0);
+	ASSERT (!poRings->IsReaderWaiting ());
+	delete poRings;
+}
+
+#endif /* ifndef _WIN32 */
+
+BEGIN_TESTS (TransportTest)
+#ifndef _WIN32
+	UNIT_TEST (CreateSharedMemory)
+	INTEGRATION_TEST (BenchmarkSharedMemory)
+#endif /* ifndef _WIN32 */
+	INTEGRATION_TEST (BenchmarkPipes)
+END_TESTS
@@ -258,6 +258,7 @@ CClientService::CClientService (const TCHAR *pszLanguageID)
 	m_poRunner = NULL;
 	m_poPipes = NULL;
 	m_poJVM = NULL;
+	m_bSharedMemory = CClientPipes::IsSharedMemoryEnabled ();
 	m_pszLanguageID = _tcsdup (pszLanguageID);
 }
 
@@ -501,7 +502,7 @@ bool CClientService::CreatePipes () {
 		assert (0);
 		return false;
 	}
-	m_poPipes = CClientPipes::Create ();
+	m_poPipes = CClientPipes::Create (m_bSharedMemory);
 	if (m_poPipes) {
 		m_oPipesSemaphore.Signal ();
 		return true;
@@ -118,6 +118,9 @@ private:
 	/// JVM hosting the Java stack.
 	CClientJVM *m_poJVM;
 
+	/// TRUE to offer the Java stack a shared memory segment when the pipes are next created.
+	bool m_bSharedMemory;
+
 	/// Timeout to use for sending messages, or waiting for the resources needed to send a message.
 	unsigned long m_lSendTimeout;
 
@@ -180,6 +183,13 @@ public:
 	bool Send (FudgeMsg msg) const;
 	void SetStateChangeCallback (CStateChange *poCallback);
 	void SetMessageReceivedCallback (CMessageReceived *poCallback);
+
+	/// Sets whether to offer the Java stack a shared memory segment for exchanging messages. This is
+	/// initialised from the settings and takes effect when the pipes are next created, for example
+	/// after calling Start. It has no effect on Windows.
+	///
+	/// @param[in] bSharedMemory TRUE to offer shared memory, FALSE to only use the pipes
+	void SetSharedMemory (bool bSharedMemory) { m_bSharedMemory = bSharedMemory; }
 };
 
 #endif /* ifndef __inc_og_language_connect_client_h */
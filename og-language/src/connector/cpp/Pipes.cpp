@@ -9,9 +9,37 @@
 #include "Settings.h"
 #include <util/cpp/String.h>
 #include <util/cpp/Error.h>
+#include <util/cpp/Thread.h>
 
 LOGGING (com.opengamma.language.connector.Pipes);
 
+#ifndef _WIN32
+
+/// Number of times to poll the shared memory segment before blocking on the pipe
+#define SHARED_SPIN_COUNT	1000
+
+/// Maximum time in milliseconds to try writing a signal that space has been freed for
+#define SPACE_SIGNAL_TIMEOUT	100
+
+/// Creates a new pipe pair.
+///
+/// @param[in] poOutput C++ to Java pipe, never NULL
+/// @param[in] poInput Java to C++ pipe, never NULL
+/// @param[in] poShared shared memory segment to offer the Java stack, or NULL for none
+CClientPipes::CClientPipes (CNamedPipe *poOutput, CNamedPipe *poInput, CSharedMemoryRings *poShared) {
+	m_poOutput = poOutput;
+	m_poInput = poInput;
+	m_bConnected = false;
+	m_lLastWrite = GetTickCount ();
+	m_poShared = poShared;
+	m_bSharedOutput = false;
+	m_pStaged = NULL;
+	m_cbStagedBuffer = 0;
+	m_cbStaged = 0;
+}
+
+#else /* ifndef _WIN32 */
+
 /// Creates a new pipe pair.
 ///
 /// @param[in] poOutput C++ to Java pipe, never NULL
@@ -23,10 +51,20 @@ CClientPipes::CClientPipes (CNamedPipe *poOutput, CNamedPipe *poInput) {
 	m_lLastWrite = GetTickCount ();
 }
 
+#endif /* ifndef _WIN32 */
+
 /// Destroys the pipe pair.
 CClientPipes::~CClientPipes () {
 	delete m_poOutput;
 	delete m_poInput;
+#ifndef _WIN32
+	if (m_poShared) {
+		delete m_poShared;
+	}
+	if (m_pStaged) {
+		free (m_pStaged);
+	}
+#endif /* ifndef _WIN32 */
 }
 
 /// Creates an input pipe, ready to receive a connection.
@@ -98,10 +136,24 @@ CNamedPipe *CClientPipes::CreateOutput (const TCHAR *pszPrefix, int nMaxAttempts
 	return CreateOutput (pszPrefix, nMaxAttempts, _ClockSuffix ());
 }
 
+/// Tests whether the settings enable offering a shared memory segment to the Java stack.
+///
+/// @return TRUE if shared memory is enabled, FALSE if only the pipes should be used
+bool CClientPipes::IsSharedMemoryEnabled () {
+#ifndef _WIN32
+	CSettings oSettings;
+	return oSettings.IsSharedMemory ();
+#else /* ifndef _WIN32 */
+	return false;
+#endif /* ifndef _WIN32 */
+}
+
 /// Creates a pair of pipes ready to accept a connection from the JVM.
 ///
+/// @param[in] bSharedMemory TRUE to also create a shared memory segment to offer the Java stack,
+/// FALSE to only use the pipes. This is ignored on Windows.
 /// @return the pipe pair instance or NULL if there is a problem
-CClientPipes *CClientPipes::Create () {
+CClientPipes *CClientPipes::Create (bool bSharedMemory) {
 	CSettings oSettings;
 	LOGDEBUG (TEXT ("Creating input pipe"));
 	CNamedPipe *poInput = CreateInput (oSettings.GetInputPipePrefix (), oSettings.GetMaxPipeAttempts ());
@@ -109,7 +161,20 @@ CClientPipes *CClientPipes::Create () {
 		LOGDEBUG (TEXT ("Creating output pipe"));
 		CNamedPipe *poOutput = CreateOutput (oSettings.GetOutputPipePrefix (), oSettings.GetMaxPipeAttempts ());
 		if (poOutput) {
+#ifndef _WIN32
+			CSharedMemoryRings *poShared = NULL;
+			if (bSharedMemory) {
+				LOGDEBUG (TEXT ("Creating shared memory segment"));
+				poShared = CSharedMemoryRings::Create (oSettings.GetSharedMemoryPrefix (), oSettings.GetSharedMemorySize (), oSettings.GetMaxPipeAttempts ());
+				if (!poShared) {
+					LOGWARN (TEXT ("Couldn't create shared memory segment, error ") << GetLastError () << TEXT (", using pipes"));
+				}
+			}
+			return new CClientPipes (poOutput, poInput, poShared);
+#else /* ifndef _WIN32 */
+			__unused (bSharedMemory)
 			return new CClientPipes (poOutput, poInput);
+#endif /* ifndef _WIN32 */
 		} else {
 			LOGERROR (TEXT ("Couldn't create output pipe, error ") << GetLastError ());
 			delete poInput;
@@ -154,6 +219,11 @@ bool CClientPipes::Connect (const TCHAR *pszLanguageID, CNamedPipe *poService, u
 	cc._CPPToJavaPipe = m_poOutput->GetName ();
 	cc._JavaToCPPPipe = m_poInput->GetName ();
 	cc._languageID = pszLanguageID;
+#ifndef _WIN32
+	if (m_poShared) {
+		cc._sharedMemory = m_poShared->GetName ();
+	}
+#endif /* ifndef _WIN32 */
 	LOGDEBUG (TEXT ("Writing connection message"));
 	FudgeMsg msg;
 	if (ClientConnect_toFudgeMsg (&cc, &msg) != FUDGE_OK) {
@@ -194,6 +264,11 @@ bool CClientPipes::Connect (const TCHAR *pszLanguageID, CNamedPipe *poService, u
 /// @param[in] lTimeout maximum time to try the write for in milliseconds
 /// @return TRUE if all of the data was written, FALSE if there was a problem
 bool CClientPipes::Write (void *ptrBuffer, size_t cbBuffer, unsigned long lTimeout) {
+#ifndef _WIN32
+	if (m_bSharedOutput) {
+		return WriteShared (ptrBuffer, cbBuffer, lTimeout);
+	}
+#endif /* ifndef _WIN32 */
 	do {
 		LOGDEBUG (TEXT ("Writing ") << cbBuffer << TEXT (" bytes"));
 		size_t cbWritten = m_poOutput->Write (ptrBuffer, cbBuffer, lTimeout);
@@ -206,6 +281,14 @@ bool CClientPipes::Write (void *ptrBuffer, size_t cbBuffer, unsigned long lTimeo
 					LOGERROR (TEXT ("Couldn't flush output buffer, error ") << GetLastError ());
 				}
 				m_lLastWrite = GetTickCount ();
+#ifndef _WIN32
+				// The Java stack sets the flag before opening the pipes, so it is known by the time a write has succeeded
+				if (m_poShared && m_poShared->IsAccepted ()) {
+					LOGINFO (TEXT ("Using shared memory segment ") << m_poShared->GetName ());
+					m_poShared->Unlink ();
+					m_bSharedOutput = true;
+				}
+#endif /* ifndef _WIN32 */
 				return true;
 			}
 		} else {
@@ -225,6 +308,11 @@ bool CClientPipes::Write (void *ptrBuffer, size_t cbBuffer, unsigned long lTimeo
 /// @param[in] lTimeout maximum time to wait for data if a read is needed
 /// @return the buffer or NULL if there is a problem
 const void *CClientPipes::PeekInput (size_t cb, unsigned long lTimeout) {
+#ifndef _WIN32
+	if (m_poShared && m_poShared->IsAccepted ()) {
+		return PeekShared (cb, lTimeout);
+	}
+#endif /* ifndef _WIN32 */
 	if (m_oInputBuffer.Read (m_poInput, cb, lTimeout)) {
 		return m_oInputBuffer.GetData ();
 	} else {
@@ -238,3 +326,172 @@ const void *CClientPipes::PeekInput (size_t cb, unsigned long lTimeout) {
 		return NULL;
 	}
 }
+
+/// Discard data from the input buffer
+///
+/// @param[in] cb number of bytes to discard
+void CClientPipes::DiscardInput (size_t cb) {
+#ifndef _WIN32
+	if (m_cbStaged) {
+		assert (cb <= m_cbStaged);
+		m_cbStaged -= cb;
+		if (m_cbStaged) {
+			memmove (m_pStaged, (char*)m_pStaged + cb, m_cbStaged);
+		}
+		return;
+	}
+	if (m_poShared && m_poShared->IsAccepted ()) {
+		m_poShared->Discard (cb);
+		SignalSpace ();
+		return;
+	}
+#endif /* ifndef _WIN32 */
+	m_oInputBuffer.Discard (cb);
+}
+
+#ifndef _WIN32
+
+/// Writes a signal byte to the Java stack. Both the thread writing data and the thread reading it
+/// may signal, so the writes are serialised.
+///
+/// @param[in] lTimeout maximum time to try the write for in milliseconds
+/// @return TRUE if the signal was written, FALSE if there was a problem
+bool CClientPipes::WriteSignal (unsigned long lTimeout) {
+	char cSignal = 0;
+	m_oSignalMutex.Enter ();
+	bool bResult = (m_poOutput->Write (&cSignal, 1, lTimeout) == 1);
+	int ec = GetLastError ();
+	m_oSignalMutex.Leave ();
+	if (!bResult) {
+		LOGWARN (TEXT ("Couldn't write signal, error ") << ec);
+		SetLastError (ec);
+	}
+	return bResult;
+}
+
+/// Wakes the Java producer if it is waiting for space in the Java to C++ ring. This must be called
+/// after space has been released. A lost signal only delays the producer, which bounds its wait, so
+/// a short timeout is used rather than blocking the reading thread.
+void CClientPipes::SignalSpace () {
+	if (m_poShared->IsWriterWaiting ()) {
+		WriteSignal (SPACE_SIGNAL_TIMEOUT);
+	}
+}
+
+/// Writes data to the shared memory segment, signalling the Java stack if it is waiting for it.
+/// The Java stack does not signal when it frees space in the ring, so if it is full the space is
+/// polled for.
+///
+/// @param[in] ptrBuffer buffer containing data to write, never NULL
+/// @param[in] cbBuffer number of bytes to write
+/// @param[in] lTimeout maximum time to try the write for in milliseconds
+/// @return TRUE if all of the data was written, FALSE if there was a problem
+bool CClientPipes::WriteShared (const void *ptrBuffer, size_t cbBuffer, unsigned long lTimeout) {
+	unsigned long lStartTime = GetTickCount ();
+	int nSpin = 0;
+	do {
+		size_t cbWritten = m_poShared->Write (ptrBuffer, cbBuffer);
+		if (cbWritten > 0) {
+			cbBuffer -= cbWritten;
+			ptrBuffer = (const char*)ptrBuffer + cbWritten;
+			nSpin = 0;
+			if (m_poShared->IsReaderWaiting () && !WriteSignal (lTimeout)) {
+				return false;
+			}
+		} else if (GetTickCount () - lStartTime >= lTimeout) {
+			LOGWARN (TEXT ("Timeout waiting for space to write ") << cbBuffer << TEXT (" bytes"));
+			SetLastError (ETIMEDOUT);
+			return false;
+		} else if (nSpin < SHARED_SPIN_COUNT) {
+			nSpin++;
+		} else {
+			CThread::Sleep (1);
+		}
+	} while (cbBuffer > 0);
+	m_lLastWrite = GetTickCount ();
+	return true;
+}
+
+/// Waits for the Java stack to write more data to the shared memory segment. The segment is
+/// polled briefly before blocking on the pipe for a signal.
+///
+/// @param[in] lStartTime time the calling operation started, from GetTickCount
+/// @param[in] lTimeout maximum time for the calling operation in milliseconds
+/// @return TRUE if there is more data, FALSE if there was a problem or the timeout elapsed
+bool CClientPipes::WaitShared (unsigned long lStartTime, unsigned long lTimeout) {
+	int nSpin;
+	for (nSpin = 0; nSpin < SHARED_SPIN_COUNT; nSpin++) {
+		if (m_poShared->GetAvailable ()) {
+			return true;
+		}
+	}
+	unsigned long lElapsed = GetTickCount () - lStartTime;
+	if (lElapsed >= lTimeout) {
+		SetLastError (ETIMEDOUT);
+		return false;
+	}
+	m_poShared->SetWaiting (true);
+	if (m_poShared->GetAvailable ()) {
+		m_poShared->SetWaiting (false);
+		return true;
+	}
+	// Any number of signals may be pending; it doesn't matter if some are left for a later wait
+	char acSignal[64];
+	size_t cbSignal = m_poInput->Read (acSignal, sizeof (acSignal), lTimeout - lElapsed);
+	m_poShared->SetWaiting (false);
+	if (cbSignal > 0) {
+		return true;
+	} else {
+		int ec = GetLastError ();
+		if (ec == ETIMEDOUT) {
+			LOGDEBUG (TEXT ("Timeout waiting for signal"));
+		} else {
+			LOGWARN (TEXT ("Error reading signal, error ") << ec);
+		}
+		SetLastError (ec);
+		return false;
+	}
+}
+
+/// Returns data from the shared memory segment. Contiguous data is returned in place; data that
+/// wraps around the end of the ring, or is larger than it, is copied to a staging buffer.
+///
+/// @param[in] cb number of bytes to read; the returned buffer will contain at least this many bytes
+/// @param[in] lTimeout maximum time to wait for the data
+/// @return the buffer or NULL if there is a problem
+const void *CClientPipes::PeekShared (size_t cb, unsigned long lTimeout) {
+	unsigned long lStartTime = GetTickCount ();
+	if (!m_cbStaged && (cb <= m_poShared->GetRingSize ())) {
+		while (m_poShared->GetAvailable () < cb) {
+			if (!WaitShared (lStartTime, lTimeout)) {
+				return NULL;
+			}
+		}
+		const void *ptr = m_poShared->Peek (cb);
+		if (ptr) {
+			return ptr;
+		}
+	}
+	if (m_cbStagedBuffer < cb) {
+		void *pStaged = realloc (m_pStaged, cb);
+		if (!pStaged) {
+			LOGFATAL (TEXT ("Out of memory"));
+			SetLastError (ENOMEM);
+			return NULL;
+		}
+		m_pStaged = pStaged;
+		m_cbStagedBuffer = cb;
+	}
+	while (m_cbStaged < cb) {
+		size_t cbRead = m_poShared->Read ((char*)m_pStaged + m_cbStaged, cb - m_cbStaged);
+		if (cbRead > 0) {
+			m_cbStaged += cbRead;
+			SignalSpace ();
+		} else if (!WaitShared (lStartTime, lTimeout)) {
+			return NULL;
+		}
+	}
+	return m_pStaged;
+}
+
+#endif /* ifndef _WIN32 */
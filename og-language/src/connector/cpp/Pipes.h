@@ -8,10 +8,17 @@
 #define __inc_og_language_connector_pipes_h
 
 #include <util/cpp/BufferedInput.h>
+#include <util/cpp/Mutex.h>
 #include <util/cpp/NamedPipe.h>
+#include "SharedMemory.h"
 
 /// Composes a pair of unidirectional pipes to the Java client stack for bi-directional
 /// communication.
+///
+/// On Posix a shared memory segment may also be offered to the Java stack. If it accepts, the
+/// messages are exchanged through the segment and the pipes just carry wake-up signals. The
+/// first message sent is always written to the pipe as the Java stack only switches to the
+/// segment after receiving it.
 class CClientPipes {
 private:
 
@@ -30,22 +37,51 @@ private:
 	/// Connection indicator flag - TRUE if the pipes are valid, FALSE if not connected
 	bool m_bConnected;
 
+#ifndef _WIN32
+	/// Shared memory segment offered to the Java stack, or NULL if the pipes are used for data
+	CSharedMemoryRings *m_poShared;
+
+	/// TRUE once output is being written to the shared memory segment instead of the pipe
+	bool m_bSharedOutput;
+
+	/// Staging buffer for input that wraps around the end of the shared memory ring
+	void *m_pStaged;
+
+	/// Size of the buffer pointed to by m_pStaged
+	size_t m_cbStagedBuffer;
+
+	/// Number of bytes in the staging buffer; these always precede any data still in the ring
+	size_t m_cbStaged;
+
+	/// Serialises signal bytes written to m_poOutput by the writing and reading threads
+	CMutex m_oSignalMutex;
+
+	CClientPipes (CNamedPipe *poOutput, CNamedPipe *poInput, CSharedMemoryRings *poShared);
+	bool WriteSignal (unsigned long lTimeout);
+	void SignalSpace ();
+	bool WriteShared (const void *ptrBuffer, size_t cbBuffer, unsigned long lTimeout);
+	bool WaitShared (unsigned long lStartTime, unsigned long lTimeout);
+	const void *PeekShared (size_t cb, unsigned long lTimeout);
+#else /* ifndef _WIN32 */
 	CClientPipes (CNamedPipe *poOutput, CNamedPipe *poInput);
+#endif /* ifndef _WIN32 */
 public:
 	static CNamedPipe *CreateInput (const TCHAR *pszPrefix, int nMaxAttempts, int nSuffix);
 	static CNamedPipe *CreateOutput (const TCHAR *pszPrefix, int nMaxAttempts, int nSuffix);
 	static CNamedPipe *CreateInput (const TCHAR *pszPrefix, int nMaxAttempts);
 	static CNamedPipe *CreateOutput (const TCHAR *pszPrefix, int nMaxAttempts);
-	static CClientPipes *Create ();
+	static CClientPipes *Create (bool bSharedMemory);
 	~CClientPipes ();
 	bool Connect (const TCHAR *pszLanguageID, CNamedPipe *poService, unsigned long lTimeout);
 	bool Write (void *ptrBuffer, size_t cbBuffer, unsigned long lTimeout);
 	const void *PeekInput (size_t cb, unsigned long lTimeout);
+	void DiscardInput (size_t cb);
 
-	/// Discard data from the input buffer
+	/// Creates a pair of pipes, with a shared memory segment if the settings enable it.
 	///
-	/// @param[in] cb number of bytes to discard
-	void DiscardInput (size_t cb) { m_oInputBuffer.Discard (cb); }
+	/// @return the pipe pair instance or NULL if there is a problem
+	static CClientPipes *Create () { return Create (IsSharedMemoryEnabled ()); }
+	static bool IsSharedMemoryEnabled ();
 
 	/// Clears the connection status.
 	void Disconnected () { m_bConnected = false; }
@@ -44,7 +44,15 @@ REQUESTBUILDER_END
 
 /// Message builder for Procedure/QueryAvailable
 REQUESTBUILDER_BEGIN (CProcedureQueryAvailable)
+private:
+	fudge_i32 m_nGeneration;
 	REQUESTBUILDER_REQUEST (CLASS_com_opengamma_language_procedure_QueryAvailable)
+	// The epoch string must remain valid until the request is sent
+	void SetGeneration (int nGeneration, const TCHAR *pszEpoch) {
+		m_nGeneration = nGeneration;
+		m_request._generation = &m_nGeneration;
+		m_request._epoch = (TCHAR*)pszEpoch;
+	}
 	REQUESTBUILDER_RESPONSE (CLASS_com_opengamma_language_procedure_Available)
 REQUESTBUILDER_END
 
@@ -43,6 +43,11 @@ LOGGING (com.opengamma.language.connector.Settings);
 # define DEFAULT_SERVICE_EXECUTABLE	TEXT ("ServiceRunner")
 #endif
 #define DEFAULT_SERVICE_POLL		250		/* 1/4s default */
+#ifndef _WIN32
+# define DEFAULT_SHARED_MEMORY		false
+# define DEFAULT_SHARED_MEMORY_PREFIX	TEXT ("OpenGammaLanguageAPI-Client-")
+# define DEFAULT_SHARED_MEMORY_SIZE	1048576	/* 1Mb per direction */
+#endif /* ifndef _WIN32 */
 #define DEFAULT_START_TIMEOUT		30000	/* 30s default */
 #define DEFAULT_STOP_TIMEOUT		2000	/* 2s default */
 
@@ -326,6 +331,32 @@ const TCHAR *CSettings::GetServiceStopCmd () const {
 	return GetServiceStopCmd (&g_oServiceStopDefault);
 }
 
+/// Returns whether to offer the Java stack a shared memory segment for exchanging messages. The
+/// pipes are then only used for wake-up signals. The pipes are used for everything if this is
+/// disabled or the Java stack is unable to attach to the segment.
+///
+/// @return TRUE to offer shared memory, FALSE to only use the pipes
+bool CSettings::IsSharedMemory () const {
+	return IsSharedMemory (DEFAULT_SHARED_MEMORY);
+}
+
+/// Returns the prefix to use at the start of shared memory segment names. This is a name in the
+/// shm_open namespace and must not contain any '/' characters.
+///
+/// @return the segment name prefix
+const TCHAR *CSettings::GetSharedMemoryPrefix () const {
+	return GetSharedMemoryPrefix (DEFAULT_SHARED_MEMORY_PREFIX);
+}
+
+/// Returns the size of the buffer for each direction of a shared memory segment. This will be
+/// rounded up to a power of two. Messages larger than this can still be sent, but the sender
+/// will have to wait for the receiver to consume the earlier parts.
+///
+/// @return the buffer size in bytes
+int CSettings::GetSharedMemorySize () const {
+	return GetSharedMemorySize (DEFAULT_SHARED_MEMORY_SIZE);
+}
+
 #endif /* ifndef _WIN32 */
 
 /// Returns the time to wait for a service or executable to startup in milliseconds.
@@ -22,6 +22,11 @@
 #define SETTINGS_SERVICE_EXECUTABLE			TEXT ("serviceExecutable")
 #define SETTINGS_SERVICE_NAME				SERVICE_SETTINGS_SERVICE_NAME
 #define SETTINGS_SERVICE_POLL				TEXT ("servicePoll")
+#ifndef _WIN32
+#define SETTINGS_SHARED_MEMORY				TEXT ("sharedMemory")
+#define SETTINGS_SHARED_MEMORY_PREFIX		TEXT ("sharedMemoryPrefix")
+#define SETTINGS_SHARED_MEMORY_SIZE			TEXT ("sharedMemorySize")
+#endif /* ifndef _WIN32 */
 #define SETTINGS_START_TIMEOUT				TEXT ("startTimeout")
 #define SETTINGS_STOP_TIMEOUT				TEXT ("stopTimeout")
 #ifndef _WIN32
@@ -52,6 +57,9 @@ private:
 	const TCHAR *GetServiceQueryCmd (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_SERVICE_QUERY_CMD, poDefault); }
 	const TCHAR *GetServiceStartCmd (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_SERVICE_START_CMD, poDefault); }
 	const TCHAR *GetServiceStopCmd (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_SERVICE_STOP_CMD, poDefault); }
+	bool IsSharedMemory (bool bDefault) const { return Get (SETTINGS_SHARED_MEMORY, bDefault ? 1 : 0) ? true : false; }
+	const TCHAR *GetSharedMemoryPrefix (const TCHAR *pszDefault) const { return Get (SETTINGS_SHARED_MEMORY_PREFIX, pszDefault); }
+	int GetSharedMemorySize (int nDefault) const { return Get (SETTINGS_SHARED_MEMORY_SIZE, nDefault); }
 #endif /* ifndef _WIN32 */
 	int GetStartTimeout (int nDefault) const { return Get (SETTINGS_START_TIMEOUT, nDefault); }
 	int GetStopTimeout (int nDefault) const { return Get (SETTINGS_STOP_TIMEOUT, nDefault); }
@@ -73,6 +81,9 @@ public:
 	const TCHAR *GetServiceQueryCmd () const;
 	const TCHAR *GetServiceStartCmd () const;
 	const TCHAR *GetServiceStopCmd () const;
+	bool IsSharedMemory () const;
+	const TCHAR *GetSharedMemoryPrefix () const;
+	int GetSharedMemorySize () const;
 #endif /* ifndef _WIN32 */
 	int GetStartTimeout () const;
 	int GetStopTimeout () const;
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+#include "stdafx.h"
+#include "SharedMemory.h"
+#include <util/cpp/Error.h>
+#include <util/cpp/TimeoutIO.h>
+
+#ifndef _WIN32
+
+#include <sys/mman.h>
+#include <sys/stat.h>
+
+LOGGING (com.opengamma.language.connector.SharedMemory);
+
+#define SEGMENT_MAGIC			0x4F47524E
+#define SEGMENT_VERSION			2
+#define SEGMENT_HEADER			64
+#define SEGMENT_MAGIC_OFFSET	0
+#define SEGMENT_VERSION_OFFSET	4
+#define SEGMENT_RING_SIZE_OFFSET	8
+#define SEGMENT_ACCEPTED_OFFSET	12
+
+#define RING_HEADER				192
+#define RING_HEAD_OFFSET		0
+#define RING_TAIL_OFFSET		64
+#define RING_WAITING_OFFSET		128
+#define RING_SPACE_WAITING_OFFSET	132
+
+#define RING_CPP_TO_JAVA		0
+#define RING_JAVA_TO_CPP		1
+
+#define MIN_RING_SIZE			4096
+#define MAX_RING_SIZE			0x40000000
+
+/// Reads a value written by the other process, ordering any subsequent memory reads after it.
+///
+/// @param[in] pn value to read, never NULL
+/// @return the value
+static inline unsigned int _LoadAcquire (volatile int *pn) {
+	unsigned int n = (unsigned int)*pn;
+	__sync_synchronize ();
+	return n;
+}
+
+/// Writes a value for the other process to read after all previous memory accesses are complete,
+/// and before any subsequent memory reads are made.
+///
+/// @param[in] pn value to write, never NULL
+/// @param[in] n new value
+static inline void _StoreFence (volatile int *pn, unsigned int n) {
+	__sync_synchronize ();
+	*pn = (int)n;
+	__sync_synchronize ();
+}
+
+/// Creates a new instance around a mapped segment.
+///
+/// @param[in] pszName name of the segment, without the leading '/', never NULL
+/// @param[in] pSegment base address of the mapping, never NULL
+/// @param[in] cbSegment size of the mapping in bytes
+/// @param[in] cbRing size of each ring's data area in bytes
+CSharedMemoryRings::CSharedMemoryRings (const TCHAR *pszName, void *pSegment, size_t cbSegment, size_t cbRing) {
+	m_pszName = _tcsdup (pszName);
+	m_pSegment = pSegment;
+	m_cbSegment = cbSegment;
+	m_cbRing = cbRing;
+	m_bUnlinked = false;
+}
+
+/// Destroys the instance, unmapping the segment and removing its name if that hasn't already been done.
+CSharedMemoryRings::~CSharedMemoryRings () {
+	Unlink ();
+	munmap (m_pSegment, m_cbSegment);
+	free (m_pszName);
+}
+
+/// Creates a new, uniquely named, shared memory segment.
+///
+/// @param[in] pszPrefix prefix for the segment name, never NULL
+/// @param[in] cbRing requested size of each ring; this will be rounded up to a power of two
+/// @param[in] nMaxAttempts number of times to retry the creation with different names
+/// @return the new segment or NULL if there was a problem
+CSharedMemoryRings *CSharedMemoryRings::Create (const TCHAR *pszPrefix, size_t cbRing, int nMaxAttempts) {
+	size_t cb = MIN_RING_SIZE;
+	while ((cb < cbRing) && (cb < MAX_RING_SIZE)) {
+		cb <<= 1;
+	}
+	cbRing = cb;
+	size_t cbSegment = SEGMENT_HEADER + 2 * (RING_HEADER + cbRing);
+	unsigned long nSuffix = GetTickCount ();
+	TCHAR szName[256];
+	int error = EINVAL;
+	while (nMaxAttempts-- > 0) {
+		StringCbPrintf (szName, sizeof (szName), TEXT ("/%s%d-%08lX"), pszPrefix, (int)getpid (), nSuffix++);
+		LOGDEBUG (TEXT ("Creating shared memory segment ") << szName);
+		int fd = shm_open (szName, O_RDWR | O_CREAT | O_EXCL, S_IRUSR | S_IWUSR);
+		if (fd < 0) {
+			error = GetLastError ();
+			LOGWARN (TEXT ("Error creating shared memory segment ") << szName << TEXT (", error ") << error);
+			continue;
+		}
+		void *pSegment = MAP_FAILED;
+		if (!ftruncate (fd, cbSegment)) {
+			pSegment = mmap (NULL, cbSegment, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+		}
+		error = GetLastError ();
+		close (fd);
+		if (pSegment != MAP_FAILED) {
+			// The segment is zero filled, so just the header is needed; the magic number goes last to mark it complete
+			CSharedMemoryRings *poRings = new CSharedMemoryRings (szName + 1, pSegment, cbSegment, cbRing);
+			*(int*)((char*)pSegment + SEGMENT_VERSION_OFFSET) = SEGMENT_VERSION;
+			*(int*)((char*)pSegment + SEGMENT_RING_SIZE_OFFSET) = (int)cbRing;
+			_StoreFence ((volatile int*)((char*)pSegment + SEGMENT_MAGIC_OFFSET), SEGMENT_MAGIC);
+			LOGINFO (TEXT ("Created shared memory segment ") << szName << TEXT (" with ") << cbRing << TEXT (" byte rings"));
+			return poRings;
+		}
+		LOGWARN (TEXT ("Couldn't map shared memory segment ") << szName << TEXT (", error ") << error);
+		shm_unlink (szName);
+	}
+	SetLastError (error);
+	return NULL;
+}
+
+/// Returns the start of a ring, including its header.
+///
+/// @param[in] nRing ring index
+/// @return the ring address
+char *CSharedMemoryRings::GetRing (int nRing) const {
+	return (char*)m_pSegment + SEGMENT_HEADER + nRing * (RING_HEADER + m_cbRing);
+}
+
+/// Returns the start of a ring's data area.
+///
+/// @param[in] nRing ring index
+/// @return the data address
+char *CSharedMemoryRings::GetData (int nRing) const {
+	return GetRing (nRing) + RING_HEADER;
+}
+
+/// Tests if the Java stack has attached to the segment and will use the rings.
+///
+/// @return TRUE if the rings are in use, FALSE if the pipes should be used for data
+bool CSharedMemoryRings::IsAccepted () const {
+	return _LoadAcquire ((volatile int*)((char*)m_pSegment + SEGMENT_ACCEPTED_OFFSET)) != 0;
+}
+
+/// Removes the segment's name from the system. Existing mappings remain valid so this can be called
+/// as soon as the Java stack has attached, making sure the segment is not left behind if either
+/// process terminates abnormally.
+void CSharedMemoryRings::Unlink () {
+	if (!m_bUnlinked) {
+		TCHAR szName[256];
+		StringCbPrintf (szName, sizeof (szName), TEXT ("/%s"), m_pszName);
+		if (shm_unlink (szName)) {
+			LOGWARN (TEXT ("Couldn't unlink shared memory segment ") << szName << TEXT (", error ") << GetLastError ());
+		}
+		m_bUnlinked = true;
+	}
+}
+
+/// Copies as much data into the C++ to Java ring as there is space for, and publishes it to the
+/// consumer.
+///
+/// @param[in] pData data to write, never NULL
+/// @param[in] cbData number of bytes to write
+/// @return the number of bytes written, zero if the ring is full
+size_t CSharedMemoryRings::Write (const void *pData, size_t cbData) {
+	volatile int *pnHead = GetField (RING_CPP_TO_JAVA, RING_HEAD_OFFSET);
+	unsigned int nHead = (unsigned int)*pnHead;
+	unsigned int nTail = _LoadAcquire (GetField (RING_CPP_TO_JAVA, RING_TAIL_OFFSET));
+	size_t cbFree = m_cbRing - (nHead - nTail);
+	if (cbData > cbFree) {
+		cbData = cbFree;
+	}
+	if (!cbData) {
+		return 0;
+	}
+	char *pRing = GetData (RING_CPP_TO_JAVA);
+	size_t nOffset = nHead & (m_cbRing - 1);
+	size_t cbFirst = m_cbRing - nOffset;
+	if (cbFirst >= cbData) {
+		memcpy (pRing + nOffset, pData, cbData);
+	} else {
+		memcpy (pRing + nOffset, pData, cbFirst);
+		memcpy (pRing, (const char*)pData + cbFirst, cbData - cbFirst);
+	}
+	_StoreFence (pnHead, nHead + (unsigned int)cbData);
+	return cbData;
+}
+
+/// Tests whether the Java consumer is blocked, or about to block, waiting for a signal. This must
+/// be called after Write has published the data.
+///
+/// @return TRUE if a signal byte must be written to the pipe, FALSE otherwise
+bool CSharedMemoryRings::IsReaderWaiting () const {
+	return *GetField (RING_CPP_TO_JAVA, RING_WAITING_OFFSET) != 0;
+}
+
+/// Returns the number of bytes that can be read from the Java to C++ ring.
+///
+/// @return the number of bytes
+size_t CSharedMemoryRings::GetAvailable () const {
+	unsigned int nHead = _LoadAcquire (GetField (RING_JAVA_TO_CPP, RING_HEAD_OFFSET));
+	return nHead - (unsigned int)*GetField (RING_JAVA_TO_CPP, RING_TAIL_OFFSET);
+}
+
+/// Returns a pointer to data in the Java to C++ ring. The caller may use the data in place until
+/// it is released with Discard.
+///
+/// @param[in] cb number of bytes required
+/// @return the data, or NULL if that many bytes are not available or are not contiguous
+const void *CSharedMemoryRings::Peek (size_t cb) const {
+	if (GetAvailable () < cb) {
+		return NULL;
+	}
+	size_t nOffset = (unsigned int)*GetField (RING_JAVA_TO_CPP, RING_TAIL_OFFSET) & (m_cbRing - 1);
+	if (nOffset + cb > m_cbRing) {
+		return NULL;
+	}
+	return GetData (RING_JAVA_TO_CPP) + nOffset;
+}
+
+/// Copies data out of the Java to C++ ring, releasing the space for the producer.
+///
+/// @param[out] pData buffer to receive the data, never NULL
+/// @param[in] cbData maximum number of bytes to read
+/// @return the number of bytes read, zero if the ring is empty
+size_t CSharedMemoryRings::Read (void *pData, size_t cbData) {
+	size_t cbAvailable = GetAvailable ();
+	if (cbData > cbAvailable) {
+		cbData = cbAvailable;
+	}
+	if (!cbData) {
+		return 0;
+	}
+	const char *pRing = GetData (RING_JAVA_TO_CPP);
+	size_t nOffset = (unsigned int)*GetField (RING_JAVA_TO_CPP, RING_TAIL_OFFSET) & (m_cbRing - 1);
+	size_t cbFirst = m_cbRing - nOffset;
+	if (cbFirst >= cbData) {
+		memcpy (pData, pRing + nOffset, cbData);
+	} else {
+		memcpy (pData, pRing + nOffset, cbFirst);
+		memcpy ((char*)pData + cbFirst, pRing, cbData - cbFirst);
+	}
+	Discard (cbData);
+	return cbData;
+}
+
+/// Releases data from the Java to C++ ring for the producer to reuse.
+///
+/// @param[in] cb number of bytes to release
+void CSharedMemoryRings::Discard (size_t cb) {
+	volatile int *pnTail = GetField (RING_JAVA_TO_CPP, RING_TAIL_OFFSET);
+	_StoreFence (pnTail, (unsigned int)*pnTail + (unsigned int)cb);
+}
+
+/// Tests whether the Java producer is blocked, or about to block, waiting for space. This must be
+/// called after Read or Discard has released the space.
+///
+/// @return TRUE if a signal byte must be written to the pipe, FALSE otherwise
+bool CSharedMemoryRings::IsWriterWaiting () const {
+	return *GetField (RING_JAVA_TO_CPP, RING_SPACE_WAITING_OFFSET) != 0;
+}
+
+/// Sets or clears the flag telling the Java producer that a signal byte is needed to wake the
+/// C++ consumer. After setting the flag the caller must check GetAvailable again before blocking.
+///
+/// @param[in] bWaiting TRUE if about to block, FALSE after waking
+void CSharedMemoryRings::SetWaiting (bool bWaiting) {
+	_StoreFence (GetField (RING_JAVA_TO_CPP, RING_WAITING_OFFSET), bWaiting ? 1 : 0);
+}
+
+#endif /* ifndef _WIN32 */
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+#ifndef __inc_og_language_connector_sharedmemory_h
+#define __inc_og_language_connector_sharedmemory_h
+
+#ifndef _WIN32
+
+/// A POSIX shared memory segment holding a pair of single-producer, single-consumer ring buffers
+/// for exchanging Fudge envelopes with the Java client stack. One ring carries data from C++ to
+/// Java and the other from Java to C++. The consumer of a ring sets a waiting flag before it
+/// blocks so that the producer knows to wake it with a byte on the corresponding pipe. The Java
+/// producer similarly sets a flag when the ring is full, and the C++ consumer wakes it with a
+/// byte on the C++ to Java pipe once it has freed space.
+///
+/// The segment layout must match the Java SharedMemoryRings class:
+///
+///   0 - magic number (4 bytes)
+///   4 - layout version (4 bytes)
+///   8 - size of each ring's data area, a power of two (4 bytes)
+///   12 - accepted flag, set by the Java stack when it has attached (4 bytes)
+///   64 - C++ to Java ring
+///   64 + RING_HEADER + ring size - Java to C++ ring
+///
+/// Each ring starts with its head (producer) counter, tail (consumer) counter and waiting flags
+/// on separate cache lines, followed by the data area. The consumer's waiting flag is at offset
+/// 128 and the producer's at offset 132. The counters are free-running 32-bit
+/// byte counts. All values are in native byte order.
+class CSharedMemoryRings {
+private:
+
+	/// Name of the segment, without the leading '/' required by shm_open.
+	TCHAR *m_pszName;
+
+	/// Base address of the mapped segment.
+	void *m_pSegment;
+
+	/// Size of the mapped segment in bytes.
+	size_t m_cbSegment;
+
+	/// Size of each ring's data area in bytes; always a power of two.
+	size_t m_cbRing;
+
+	/// TRUE if the segment name has been removed from the system namespace.
+	bool m_bUnlinked;
+
+	CSharedMemoryRings (const TCHAR *pszName, void *pSegment, size_t cbSegment, size_t cbRing);
+	char *GetRing (int nRing) const;
+	volatile int *GetField (int nRing, int nOffset) const { return (volatile int*)(GetRing (nRing) + nOffset); }
+	char *GetData (int nRing) const;
+public:
+	static CSharedMemoryRings *Create (const TCHAR *pszPrefix, size_t cbRing, int nMaxAttempts);
+	~CSharedMemoryRings ();
+	bool IsAccepted () const;
+	void Unlink ();
+
+	// Producer operations on the C++ to Java ring
+	size_t Write (const void *pData, size_t cbData);
+	bool IsReaderWaiting () const;
+
+	// Consumer operations on the Java to C++ ring
+	size_t GetAvailable () const;
+	const void *Peek (size_t cb) const;
+	size_t Read (void *pData, size_t cbData);
+	void Discard (size_t cb);
+	void SetWaiting (bool bWaiting);
+	bool IsWriterWaiting () const;
+
+	/// Returns the name of the segment. This is the name the Java stack should attach to, for
+	/// example by mapping the file of the same name under /dev/shm.
+	///
+	/// @return the segment name
+	const TCHAR *GetName () const { return m_pszName; }
+
+	/// Returns the size of each ring's data area.
+	///
+	/// @return the size in bytes
+	size_t GetRingSize () const { return m_cbRing; }
+};
+
+#endif /* ifndef _WIN32 */
+
+#endif /* ifndef __inc_og_language_connector_sharedmemory_h */
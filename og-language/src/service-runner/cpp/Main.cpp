@@ -64,7 +64,8 @@ static SERVICE_TABLE_ENTRY *_CreateDispatchTable () {
 
 /// Program entry point. If invoked from the command line with parameter "run" will run the service. If
 /// invoked from the service control manager will register the service handlers and then start the service
-/// dispatch logic.
+/// dispatch logic. The "dump-class-data" parameter creates the JVM class data sharing archive from a recorded
+/// class list.
 ///
 /// @param[in] argc number of parameters
 /// @param[in] argv parameters
@@ -96,6 +97,9 @@ int _tmain (int argc, _TCHAR* argv[]) {
 		} else if (!_tcscmp (argv[1], TEXT ("configure-impl"))) {
 			LOGDEBUG (TEXT ("Configuring service"));
 			ServiceConfigure ();
+		} else if (!_tcscmp (argv[1], TEXT ("dump-class-data"))) {
+			LOGDEBUG (TEXT ("Creating class data archive"));
+			ServiceDumpClassData ();
 		} else {
 			LOGERROR (TEXT ("Unrecognised parameter - ") << argv[1]);
 		}
@@ -112,7 +116,8 @@ int _tmain (int argc, _TCHAR* argv[]) {
 }
 #else
 /// Program entry point. If invoked with no parameters, runs as the service. If the "configure" parameter is
-/// given runs the interactive configuration dialogs.
+/// given runs the interactive configuration dialogs. The "dump-class-data" parameter creates the JVM class data
+/// sharing archive from a recorded class list.
 ///
 /// @param[in] argc number of parameters
 /// @param[in] argv parameters
@@ -124,6 +129,11 @@ int main (int argc, char **argv) {
 		} else if (!_tcscmp (argv[1], TEXT ("configure"))) {
 			LOGDEBUG (TEXT ("Configuring service"));
 			ServiceConfigure ();
+		} else if (!_tcscmp (argv[1], TEXT ("dump-class-data"))) {
+			LOGDEBUG (TEXT ("Creating class data archive"));
+			int nResult = ServiceDumpClassData () ? 0 : 1;
+			_mainEnd ();
+			return nResult;
 		} else {
 			LOGERROR (TEXT ("Unrecognised parameter - ") << argv[1]);
 		}
@@ -33,7 +33,7 @@ static void StartStop () {
 	}
 	ASSERT (pJvm->IsRunning ());
 	LOGDEBUG (TEXT ("Sending a client connection"));
-	pJvm->UserConnection (TEXT ("TestUser"), TEXT ("Foo"), TEXT ("Bar"), TEXT ("test"));
+	pJvm->UserConnection (TEXT ("TestUser"), TEXT ("Foo"), TEXT ("Bar"), NULL, TEXT ("test"));
 	LOGDEBUG (TEXT ("Stopping JVM"));
 	pJvm->Stop ();
 	nAttempt = 0;
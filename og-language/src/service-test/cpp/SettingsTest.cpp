@@ -27,6 +27,8 @@ static void InternalDefaults () {
 	PRINT_AND_ASSERT (ConnectionTimeout);
 	PRINT_AND_ASSERT (IdleTimeout);
 	PRINT_AND_ASSERT (JarPath);
+	PRINT_AND_ASSERT (JvmClassData);
+	PRINT_AND_ASSERT (JvmClassList);
 	PRINT_AND_ASSERT (JvmLibrary);
 	PRINT (LogConfiguration);
 	PRINT_AND_ASSERT (ServiceName);
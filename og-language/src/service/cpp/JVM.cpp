@@ -10,6 +10,11 @@
 #include "Service.h"
 #include <util/cpp/File.h>
 #include <util/cpp/Library.h>
+#include <util/cpp/TimeoutIO.h>
+#ifdef _WIN32
+#include <sys/types.h>
+#include <sys/stat.h>
+#endif /* ifdef _WIN32 */
 
 #ifdef _WIN32
 // It's this or disable warning C4996
@@ -251,6 +256,83 @@ static char *_OptionMemory (const char *pszPrefix, unsigned long dwMemory) {
 	return strdup (szOption);
 }
 
+/// Creates a JVM parameter that names a file. The caller must free the allocated memory.
+///
+/// @param[in] pszOption the option prefix, e.g. "-XX:SharedArchiveFile="
+/// @param[in] pszPath the path to the file
+/// @return the option string
+static char *_OptionPath (const char *pszOption, const TCHAR *pszPath) {
+	size_t cch = strlen (pszOption) + _tcslen (pszPath) + 1;
+	char *psz = (char*)malloc (cch);
+	if (!psz) {
+		LOGFATAL (TEXT ("Out of memory"));
+		return NULL;
+	}
+#ifdef _UNICODE
+	StringCbPrintfA (psz, cch, "%s%ws", pszOption, pszPath);
+#else
+	StringCbPrintf (psz, cch, "%s%s", pszOption, pszPath);
+#endif
+	return psz;
+}
+
+/// Returns the modification time of a file.
+///
+/// @param[in] pszPath the path to the file, never NULL
+/// @param[out] ptModified the modification time, never NULL
+/// @return TRUE if the file exists and is not empty, FALSE otherwise
+static bool _FileModified (const TCHAR *pszPath, time_t *ptModified) {
+#ifdef _WIN32
+	struct _stat st;
+	if (_tstat (pszPath, &st)) {
+#else /* ifdef _WIN32 */
+	struct stat st;
+	if (stat (pszPath, &st)) {
+#endif /* ifdef _WIN32 */
+		return false;
+	}
+	*ptModified = st.st_mtime;
+	return st.st_size > 0;
+}
+
+/// Tests whether the class data sharing archive can be used. It must exist and be newer than the
+/// client.jar it was created from. If the JVM finds the archive does not match the classpath it will
+/// ignore it and load classes normally.
+///
+/// @param[in] pSettings the current settings
+/// @return TRUE if the archive can be used, FALSE otherwise
+static bool _IsClassDataValid (const CSettings *pSettings) {
+	const TCHAR *pszClassData = pSettings->GetJvmClassData ();
+	time_t tClassData;
+	if (!pszClassData || !_FileModified (pszClassData, &tClassData)) {
+		LOGDEBUG (TEXT ("No class data archive"));
+		return false;
+	}
+	const TCHAR *pszJarPath = pSettings->GetJarPath ();
+	if (pszJarPath) {
+		size_t cch = _tcslen (pszJarPath) + 12;
+		TCHAR *pszClientJar = new TCHAR[cch];
+		if (!pszClientJar) {
+			LOGFATAL (TEXT ("Out of memory"));
+			return false;
+		}
+		StringCchPrintf (pszClientJar, cch, TEXT ("%s") TEXT (PATH_CHAR_STR) TEXT ("client.jar"), pszJarPath);
+		time_t tClientJar;
+		bool bStale = _FileModified (pszClientJar, &tClientJar) && (tClientJar > tClassData);
+		delete[] pszClientJar;
+		if (bStale) {
+			LOGWARN (TEXT ("Class data archive ") << pszClassData << TEXT (" is older than client.jar; it must be recreated"));
+			return false;
+		}
+	}
+	const TCHAR *pszClassList = pSettings->GetJvmClassList ();
+	time_t tClassList;
+	if (pszClassList && _FileModified (pszClassList, &tClassList) && (tClassList > tClassData)) {
+		LOGINFO (TEXT ("Class list ") << pszClassList << TEXT (" is newer than the class data archive; it should be recreated"));
+	}
+	return true;
+}
+
 /// Implementation of the notifyStop method in the Main class.
 ///
 /// @param pEnv see Java documentation
@@ -300,12 +382,19 @@ static void JNICALL _writeProperty (JNIEnv *pEnv, jclass cls, jstring jstrProper
 
 /// Creates a new JVM instance.
 ///
+/// If the class data sharing archive is present and valid the JVM is started with it, reducing the
+/// time spent loading classes. If the settings request it, the JVM records the classes it loads to
+/// the class list instead. The archive can then be created from the class list with bDumpClassData.
+///
 /// @param[in] poFeedback the feedback reporting mechansim for errors, never NULL
+/// @param[in] bDumpClassData TRUE to create the class data sharing archive from the class list. The
+/// JVM will terminate the process when the archive has been written.
 /// @return the JVM, or NULL if there was a problem
-CJVM *CJVM::Create (CErrorFeedback *poFeedback) {
+CJVM *CJVM::Create (CErrorFeedback *poFeedback, bool bDumpClassData) {
 	CSettings oSettings;
 	const TCHAR *pszLibrary = oSettings.GetJvmLibrary ();
 	LOGDEBUG (TEXT ("Loading library ") << pszLibrary << TEXT (" and creating JVM"));
+	unsigned long lTime = GetTickCount ();
 	CLibrary *poLibrary = _LoadJVMLibrary (pszLibrary);
 	if (!poLibrary) {
 		int ec = GetLastError ();
@@ -355,20 +444,52 @@ CJVM *CJVM::Create (CErrorFeedback *poFeedback) {
 		delete poLibrary;
 		return NULL;
 	}
+	LOGINFO (TEXT ("JVM library loaded in ") << (GetTickCount () - lTime) << TEXT ("ms"));
 	JavaVM *pJVM;
 	JNIEnv *pEnv;
 	JavaVMInitArgs args;
 	memset (&args, 0, sizeof (args));
 	args.version = JNI_VERSION_1_6;
-	JavaVMOption option[4];
+	JavaVMOption option[8];
 	memset (&option, 0, sizeof (option));
 	args.options = option;
 	if ((option[args.nOptions].optionString = _OptionClassPath (&oSettings)) != NULL) args.nOptions++;
 	if ((option[args.nOptions].optionString = strdup ("-Dcom.sun.management.jmxremote")) != NULL) args.nOptions++;
 	if ((option[args.nOptions].optionString = _OptionMemory ("ms", oSettings.GetJvmMinHeap ())) != NULL) args.nOptions++;
 	if ((option[args.nOptions].optionString = _OptionMemory ("mx", oSettings.GetJvmMaxHeap ())) != NULL) args.nOptions++;
+	if (bDumpClassData) {
+		const TCHAR *pszClassList = oSettings.GetJvmClassList ();
+		time_t tClassList;
+		if (!pszClassList || !_FileModified (pszClassList, &tClassList)) {
+			LOGWARN (TEXT ("No class list to create class data archive from"));
+			poFeedback->Write (TEXT ("No class list has been recorded. Set jvmRecordClassList and run a representative session first."));
+			while (args.nOptions > 0) {
+				free (option[--args.nOptions].optionString);
+			}
+			delete poLibrary;
+			return NULL;
+		}
+		LOGINFO (TEXT ("Creating class data archive ") << oSettings.GetJvmClassData () << TEXT (" from ") << pszClassList);
+		if ((option[args.nOptions].optionString = strdup ("-Xshare:dump")) != NULL) args.nOptions++;
+		if ((option[args.nOptions].optionString = _OptionPath ("-XX:SharedClassListFile=", pszClassList)) != NULL) args.nOptions++;
+		if ((option[args.nOptions].optionString = _OptionPath ("-XX:SharedArchiveFile=", oSettings.GetJvmClassData ())) != NULL) args.nOptions++;
+	} else {
+		// Class data sharing options are not recognised by all JVMs; when one is passed, the JVM is told
+		// to ignore it rather than fail, but other options must still be valid
+		if (oSettings.IsJvmRecordClassList ()) {
+			LOGINFO (TEXT ("Recording loaded classes to ") << oSettings.GetJvmClassList ());
+			args.ignoreUnrecognized = JNI_TRUE;
+			if ((option[args.nOptions].optionString = _OptionPath ("-XX:DumpLoadedClassList=", oSettings.GetJvmClassList ())) != NULL) args.nOptions++;
+		} else if (_IsClassDataValid (&oSettings)) {
+			LOGINFO (TEXT ("Using class data archive ") << oSettings.GetJvmClassData ());
+			args.ignoreUnrecognized = JNI_TRUE;
+			if ((option[args.nOptions].optionString = strdup ("-Xshare:auto")) != NULL) args.nOptions++;
+			if ((option[args.nOptions].optionString = _OptionPath ("-XX:SharedArchiveFile=", oSettings.GetJvmClassData ())) != NULL) args.nOptions++;
+		}
+	}
 	// TODO [PLAT-1116] additional option strings from registry
 	LOGDEBUG (TEXT ("Creating JVM"));
+	lTime = GetTickCount ();
 	jint err = procCreateVM (&pJVM, &pEnv, &args);
 	while (args.nOptions > 0) {
 		free (option[--args.nOptions].optionString);
@@ -387,8 +508,11 @@ CJVM *CJVM::Create (CErrorFeedback *poFeedback) {
 		delete poLibrary;
 		return NULL;
 	}
+	LOGINFO (TEXT ("JVM created in ") << (GetTickCount () - lTime) << TEXT ("ms"));
+	lTime = GetTickCount ();
 	CProperties oProperties (pEnv);
 	oProperties.SetProperties (&oSettings);
+	LOGINFO (TEXT ("JVM properties set in ") << (GetTickCount () - lTime) << TEXT ("ms"));
 	CJVM *pJvm = new CJVM (poLibrary, pJVM, pEnv);
 	if (!pJvm) {
 		LOGFATAL (TEXT ("Out of memory"));
@@ -679,13 +803,14 @@ void CJVM::Start (CErrorFeedback *poFeedback, bool bAsync) {
 		}
 		m_oMutex.Leave ();
 	} else {
+		unsigned long lTime = GetTickCount ();
 		TCHAR *pszStartupError = InvokeString ("svcStart");
 		if (pszStartupError) {
 			LOGERROR (TEXT ("Couldn't start service"));
 			poFeedback->Write (pszStartupError);
 			free (pszStartupError);
 		} else {
-			LOGINFO (TEXT ("Service started"));
+			LOGINFO (TEXT ("Service started in ") << (GetTickCount () - lTime) << TEXT ("ms"));
 			m_bRunning = true;
 		}
 	}
@@ -766,20 +891,23 @@ bool CJVM::IsRunning () const {
 /// @param[in] pszUserName name of the user, never NULL
 /// @param[in] pszInputPipe name of the pipe the stack should open for reading (i.e. the client will be writing to it), never NULL
 /// @param[in] pszOutputPipe name of the pipe the stack should open for writing (i.e. the client will be reading from it), never NULL
+/// @param[in] pszSharedMemory name of the shared memory segment offered by the client, or NULL if none
 /// @param[in] pszLanguageID language ID of the client, never NULL
-void CJVM::UserConnection (const TCHAR *pszUserName, const TCHAR *pszInputPipe, const TCHAR *pszOutputPipe, const TCHAR *pszLanguageID) {
+void CJVM::UserConnection (const TCHAR *pszUserName, const TCHAR *pszInputPipe, const TCHAR *pszOutputPipe, const TCHAR *pszSharedMemory, const TCHAR *pszLanguageID) {
 	m_oMutex.Enter ();
 	if (m_bRunning) {
-		m_pEnv->PushLocalFrame (4);
+		m_pEnv->PushLocalFrame (5);
 #ifdef _UNICODE
 		jstring jsUserName = m_pEnv->NewString ((jchar*)pszUserName, _SafeLen (pszUserName));
 		jstring jsInputPipe = m_pEnv->NewString ((jchar*)pszInputPipe, _SafeLen (pszInputPipe));
 		jstring jsOutputPipe = m_pEnv->NewString ((jchar*)pszOutputPipe, _SafeLen (pszOutputPipe));
+		jstring jsSharedMemory = pszSharedMemory ? m_pEnv->NewString ((jchar*)pszSharedMemory, _SafeLen (pszSharedMemory)) : NULL;
 		jstring jsLanguageID = m_pEnv->NewString ((jchar*)pszLanguageID, _SafeLen (pszLanguageID));
 #else
 		jstring jsUserName = m_pEnv->NewStringUTF (pszUserName);
 		jstring jsInputPipe = m_pEnv->NewStringUTF (pszInputPipe);
 		jstring jsOutputPipe = m_pEnv->NewStringUTF (pszOutputPipe);
+		jstring jsSharedMemory = pszSharedMemory ? m_pEnv->NewStringUTF (pszSharedMemory) : NULL;
 		jstring jsLanguageID = m_pEnv->NewStringUTF (pszLanguageID);
 #endif
 #ifdef _DEBUG
@@ -787,7 +915,7 @@ void CJVM::UserConnection (const TCHAR *pszUserName, const TCHAR *pszInputPipe,
 #else /* ifdef _DEBUG */
 #define DEBUG_FLAG false
 #endif /* ifdef _DEBUG */
-		if (InvokeBool (m_pEnv, "svcAccept", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Z)Z", jsUserName, jsInputPipe, jsOutputPipe, jsLanguageID, DEBUG_FLAG)) {
+		if (InvokeBool (m_pEnv, "svcAccept", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Z)Z", jsUserName, jsInputPipe, jsOutputPipe, jsSharedMemory, jsLanguageID, DEBUG_FLAG)) {
 #undef DEBUG_FLAG
 			LOGINFO (TEXT ("Connection from ") << pszUserName << TEXT (" accepted"));
 		} else {
@@ -54,13 +54,13 @@ private:
 	TCHAR *InvokeString (const char *pszMethod);
 public:
 	~CJVM ();
-	static CJVM *Create (CErrorFeedback *poFeedback);
+	static CJVM *Create (CErrorFeedback *poFeedback, bool bDumpClassData = false);
 	void Start (CErrorFeedback *poFeedback, bool bAsync = true);
 	void Stop (bool bAsync = true);
 	bool IsBusy (unsigned long dwTimeout) const;
 	bool IsRunning () const;
 	bool IsStopped () const;
-	void UserConnection (const TCHAR *pszUserName, const TCHAR *pszInputPipe, const TCHAR *pszOutputPipe, const TCHAR *pszLanguageID);
+	void UserConnection (const TCHAR *pszUserName, const TCHAR *pszInputPipe, const TCHAR *pszOutputPipe, const TCHAR *pszSharedMemory, const TCHAR *pszLanguageID);
 	bool Configure ();
 };
 
@@ -340,8 +340,11 @@ void ServiceRun (int nReason) {
 				LOGINFO (TEXT ("Connection received from ") << pcc->_userName);
 				LOGDEBUG (TEXT ("C++ -> Java = ") << pcc->_CPPToJavaPipe);
 				LOGDEBUG (TEXT ("Java -> C++ = ") << pcc->_JavaToCPPPipe);
+				if (pcc->_sharedMemory) {
+					LOGDEBUG (TEXT ("Shared memory = ") << pcc->_sharedMemory);
+				}
 				// TODO [PLAT-1117] Use challenge/response to verify the user name
-				g_poJVM->UserConnection (pcc->_userName, pcc->_CPPToJavaPipe, pcc->_JavaToCPPPipe, pcc->_languageID);
+				g_poJVM->UserConnection (pcc->_userName, pcc->_CPPToJavaPipe, pcc->_JavaToCPPPipe, pcc->_sharedMemory, pcc->_languageID);
 				ClientConnect_free (pcc);
 				if (!g_poJVM->IsStopped ()) {
 					g_poPipe->CancelLazyClose ();
@@ -401,6 +404,22 @@ bool ServiceRunning () {
 	return (g_nServiceState != SERVICE_STATE_STOPPED);
 }
 
+/// Creates the class data sharing archive from the class list recorded by an earlier session. The
+/// JVM terminates the process once the archive is written, so this does not normally return.
+///
+/// @return FALSE if the archive could not be created
+bool ServiceDumpClassData () {
+	CErrorFeedback oFeedback;
+	g_poJVM = CJVM::Create (&oFeedback, true);
+	if (!g_poJVM) {
+		LOGERROR (TEXT ("Couldn't create class data archive"));
+		return false;
+	}
+	delete g_poJVM;
+	g_poJVM = NULL;
+	return true;
+}
+
 /// Configure the service.
 void ServiceConfigure () {
 	CErrorFeedback oFeedback;
@@ -19,6 +19,7 @@ void ServiceSuspend ();
 void ServiceRun (int nReason);
 bool ServiceRunning ();
 void ServiceConfigure ();
+bool ServiceDumpClassData ();
 #ifndef _WIN32
 bool ServiceTestJVM (const TCHAR *pszLibraryPath);
 #endif /* ifndef _WIN32 */
@@ -440,6 +440,13 @@ unsigned long CSettings::GetJvmMaxHeap () const {
 	return GetJvmMaxHeap (DEFAULT_JVM_MAX_HEAP);
 }
 
+/// Tests whether the JVM should record the classes it loads to the class list file.
+///
+/// @return TRUE to record the classes loaded, FALSE to start normally
+bool CSettings::IsJvmRecordClassList () const {
+	return GetJvmRecordClassList (0) != 0;
+}
+
 /// Enumerate the system properties to be passed to the JVM.
 ///
 /// @param[in] poEnum enumerator to receive the key/value pairs
@@ -576,6 +583,54 @@ const TCHAR *CSettings::GetExtPath () const {
 	return GetExtPath (&g_oExtPathDefault);
 }
 
+/// Locates a file in the folder containing the client.jar
+class CJarFileDefault : public CAbstractSettingProvider {
+private:
+	/// Name of the file
+	const TCHAR *m_pszFile;
+protected:
+	TCHAR *CalculateString (const CAbstractSettings *poSettings) const {
+		const TCHAR *pszJarPath = g_oJarPathDefault.GetString (poSettings);
+		if (!pszJarPath) {
+			LOGERROR (TEXT ("No JAR path to base ") << m_pszFile << TEXT (" on"));
+			return NULL;
+		}
+		size_t cch = _tcslen (pszJarPath) + _tcslen (m_pszFile) + 2;
+		TCHAR *pszPath = new TCHAR[cch];
+		if (!pszPath) {
+			LOGFATAL (TEXT ("Out of memory"));
+			return NULL;
+		}
+		StringCchPrintf (pszPath, cch, TEXT ("%s") TEXT (PATH_CHAR_STR) TEXT ("%s"), pszJarPath, m_pszFile);
+		return pszPath;
+	}
+public:
+	CJarFileDefault (const TCHAR *pszFile) {
+		m_pszFile = pszFile;
+	}
+};
+
+/// Instance of the provider to get the default path for the class data archive.
+static CJarFileDefault g_oJvmClassDataDefault (TEXT ("client.jsa"));
+
+/// Instance of the provider to get the default path for the class list.
+static CJarFileDefault g_oJvmClassListDefault (TEXT ("client.classlist"));
+
+/// Returns the path of the class data sharing archive to start the JVM with, if it is present.
+///
+/// @return the path
+const TCHAR *CSettings::GetJvmClassData () const {
+	return GetJvmClassData (&g_oJvmClassDataDefault);
+}
+
+/// Returns the path of the class list that is recorded from a representative session and used to
+/// create the class data sharing archive.
+///
+/// @return the path
+const TCHAR *CSettings::GetJvmClassList () const {
+	return GetJvmClassList (&g_oJvmClassListDefault);
+}
+
 /// Returns the path where annotation cache files should be written. The default is the JAR path, but this
 /// may not be writable in some installations.
 ///
@@ -21,6 +21,9 @@
 #else
 #define SETTINGS_JVM_LIBRARY				TEXT ("jvmLibrary")
 #endif
+#define SETTINGS_JVM_CLASS_DATA			TEXT ("jvmClassData")
+#define SETTINGS_JVM_CLASS_LIST			TEXT ("jvmClassList")
+#define SETTINGS_JVM_RECORD_CLASS_LIST	TEXT ("jvmRecordClassList")
 #define SETTINGS_JVM_MIN_HEAP				TEXT ("jvmMinHeap")
 #define SETTINGS_JVM_MAX_HEAP				TEXT ("jvmMaxHeap")
 #define SETTINGS_JVM_PROPERTY				TEXT ("jvmProperty")
@@ -45,8 +48,11 @@ private:
 	const TCHAR *GetExtPath (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_EXT_PATH, poDefault); }
 	unsigned long GetIdleTimeout (unsigned long dwDefault) const { return Get (SETTINGS_IDLE_TIMEOUT, dwDefault); }
 	const TCHAR *GetJarPath (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_JAR_PATH, poDefault); }
+	const TCHAR *GetJvmClassData (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_JVM_CLASS_DATA, poDefault); }
+	const TCHAR *GetJvmClassList (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_JVM_CLASS_LIST, poDefault); }
 	const TCHAR *GetJvmLibrary (const CAbstractSettingProvider *poDefault) const { return Get (SETTINGS_JVM_LIBRARY, poDefault); }
 	unsigned long GetJvmMinHeap (unsigned long dwDefault) const { return Get (SETTINGS_JVM_MIN_HEAP, dwDefault); }
+	unsigned long GetJvmRecordClassList (unsigned long dwDefault) const { return Get (SETTINGS_JVM_RECORD_CLASS_LIST, dwDefault); }
 	unsigned long GetJvmMaxHeap (unsigned long dwDefault) const { return Get (SETTINGS_JVM_MAX_HEAP, dwDefault); }
 	const TCHAR *GetLogConfiguration (const TCHAR *pszDefault) const { return Get (SETTINGS_LOG_CONFIGURATION, pszDefault); }
 #ifndef _WIN32
@@ -64,9 +70,12 @@ public:
 	const TCHAR *GetExtPath () const;
 	unsigned long GetIdleTimeout () const;
 	const TCHAR *GetJarPath () const;
+	const TCHAR *GetJvmClassData () const;
+	const TCHAR *GetJvmClassList () const;
 	const TCHAR *GetJvmLibrary () const;
 	unsigned long GetJvmMinHeap () const;
 	unsigned long GetJvmMaxHeap () const;
+	bool IsJvmRecordClassList () const;
 	void GetJvmProperties (const CEnumerator *poEnum) const;
 	void SetJvmProperty (const TCHAR *pszProperty, const TCHAR *pszValue);
 	const TCHAR *GetLogConfiguration () const;
@@ -16,6 +16,18 @@ LOGGING (com.opengamma.rstats.package.DataValue);
 
 #define R_ENCODE_ARRAY		"Encode.Array"
 
+// Field ordinals of the columnar encoding; see com.opengamma.language.DataColumns
+#define COLUMNS_ROWS				1
+#define COLUMNS_COLUMNS				2
+#define COLUMNS_DOUBLE_VALUES		3
+#define COLUMNS_INT_VALUES			4
+#define COLUMNS_BOOL_VALUES			5
+#define COLUMNS_STRING_DICTIONARY	6
+#define COLUMNS_STRING_VALUES		7
+#define COLUMNS_NULL_VALUES			8
+#define COLUMNS_ERROR_INDICES		9
+#define COLUMNS_ERROR_VALUES		10
+
 /// Creates a Value instance describing the FudgeMsg.
 ///
 /// @param[in] msg Fudge message to describe
@@ -256,6 +268,124 @@ SEXP CValue::ToSEXP (const com_opengamma_language_Value *pValue) {
 	return result;
 }
 
+/// Creates the columnar encoding of a plain numeric or logical vector or matrix. Other types of data (lists, time
+/// series, N-dimensional arrays, objects, and so on) are not suitable and must use the per-value encoding.
+///
+/// @param[in] data data to convert
+/// @return the encoded form, or NULL if the data cannot be encoded in this way
+static FudgeMsg _SEXPToColumns (SEXP data) {
+	SEXPTYPE type = TYPEOF (data);
+	if ((type != REALSXP) && (type != INTSXP) && (type != LGLSXP)) {
+		return NULL;
+	}
+	if (isObject (data) || isTs (data)) {
+		return NULL;
+	}
+	int nRows, nCols;
+	if (isMatrix (data)) {
+		nRows = nrows (data);
+		nCols = ncols (data);
+	} else if (isArray (data)) {
+		return NULL;
+	} else if (length (data) > 1) {
+		nRows = length (data);
+		nCols = -1;
+	} else {
+		return NULL;
+	}
+	int nCount = (nCols >= 0) ? nRows * nCols : nRows;
+	FudgeMsg msg;
+	if (FudgeMsg_create (&msg) != FUDGE_OK) {
+		LOGFATAL (ERR_MEMORY);
+		return NULL;
+	}
+	fudge_i16 ordinal;
+	ordinal = COLUMNS_ROWS;
+	FudgeMsg_addFieldI32 (msg, NULL, &ordinal, nRows);
+	if (nCols >= 0) {
+		ordinal = COLUMNS_COLUMNS;
+		FudgeMsg_addFieldI32 (msg, NULL, &ordinal, nCols);
+	}
+	fudge_byte *pNulls = NULL;
+	int i, j, n;
+	switch (type) {
+	case REALSXP : {
+		fudge_f64 *pValues = new fudge_f64[nCount];
+		if (!pValues) {
+			LOGFATAL (ERR_MEMORY);
+			break;
+		}
+		for (i = 0, n = 0; i < nRows; i++) {
+			for (j = 0; j < ((nCols >= 0) ? nCols : 1); j++, n++) {
+				double value = REAL (data)[(j * nRows) + i];
+				if (ISNA (value)) {
+					if (!pNulls) {
+						pNulls = new fudge_byte[(nCount + 7) >> 3];
+						memset (pNulls, 0, (nCount + 7) >> 3);
+					}
+					pNulls[n >> 3] |= (fudge_byte)(1 << (n & 7));
+					value = 0;
+				}
+				pValues[n] = value;
+			}
+		}
+		ordinal = COLUMNS_DOUBLE_VALUES;
+		FudgeMsg_addFieldF64Array (msg, NULL, &ordinal, pValues, nCount);
+		delete[] pValues;
+		break;
+				   }
+	case INTSXP :
+	case LGLSXP : {
+		fudge_i32 *pValues = new fudge_i32[nCount];
+		if (!pValues) {
+			LOGFATAL (ERR_MEMORY);
+			break;
+		}
+		for (i = 0, n = 0; i < nRows; i++) {
+			for (j = 0; j < ((nCols >= 0) ? nCols : 1); j++, n++) {
+				int value = INTEGER (data)[(j * nRows) + i];
+				if (value == NA_INTEGER) {
+					if (!pNulls) {
+						pNulls = new fudge_byte[(nCount + 7) >> 3];
+						memset (pNulls, 0, (nCount + 7) >> 3);
+					}
+					pNulls[n >> 3] |= (fudge_byte)(1 << (n & 7));
+					value = 0;
+				}
+				pValues[n] = value;
+			}
+		}
+		if (type == INTSXP) {
+			ordinal = COLUMNS_INT_VALUES;
+			FudgeMsg_addFieldI32Array (msg, NULL, &ordinal, pValues, nCount);
+		} else {
+			fudge_byte *pBits = new fudge_byte[(nCount + 7) >> 3];
+			if (pBits) {
+				memset (pBits, 0, (nCount + 7) >> 3);
+				for (n = 0; n < nCount; n++) {
+					if (pValues[n]) {
+						pBits[n >> 3] |= (fudge_byte)(1 << (n & 7));
+					}
+				}
+				ordinal = COLUMNS_BOOL_VALUES;
+				FudgeMsg_addFieldByteArray (msg, NULL, &ordinal, pBits, (nCount + 7) >> 3);
+				delete[] pBits;
+			} else {
+				LOGFATAL (ERR_MEMORY);
+			}
+		}
+		delete[] pValues;
+		break;
+				  }
+	}
+	if (pNulls) {
+		ordinal = COLUMNS_NULL_VALUES;
+		FudgeMsg_addFieldByteArray (msg, NULL, &ordinal, pNulls, (nCount + 7) >> 3);
+		delete[] pNulls;
+	}
+	return msg;
+}
+
 /// Converts an R SEXP representation to a Data instance. Native R objects that cannot be represented
 /// as Value instances are converted via their toFudgeMsg or toString generic methods if possible.
 ///
@@ -266,7 +396,9 @@ com_opengamma_language_Data *CData::FromSEXP (const CRCallback *poR, SEXP data)
 	com_opengamma_language_Data *pData = new com_opengamma_language_Data;
 	if (pData) {
 		memset (pData, 0, sizeof (com_opengamma_language_Data));
-		if (isMatrix (data)) {
+		if ((pData->_columns = _SEXPToColumns (data)) != NULL) {
+			LOGDEBUG (TEXT ("Columnar encoding of ") << length (data) << TEXT (" elements"));
+		} else if (isMatrix (data)) {
 			int rows = nrows (data), cols = ncols (data);
 			LOGDEBUG (TEXT ("Matrix with ") << rows << TEXT ("x") << cols);
 			pData->_matrix = new com_opengamma_language_Value**[rows + 1];
@@ -497,6 +629,288 @@ static SEXP _MatrixToSEXP (com_opengamma_language_Value * const * const *pppValu
 	}
 }
 
+/// Fetches an integer field from a columnar encoding. Small values may have been reduced to a byte or short
+/// representation.
+///
+/// @param[in] msg the columnar encoding
+/// @param[in] ordinal field ordinal
+/// @param[out] pnValue receives the value
+/// @return true if the field was present, false otherwise
+static bool _ColumnsInt (FudgeMsg msg, fudge_i16 ordinal, int *pnValue) {
+	FudgeField field;
+	if (FudgeMsg_getFieldByOrdinal (&field, msg, ordinal) != FUDGE_OK) {
+		return false;
+	}
+	switch (field.type) {
+	case FUDGE_TYPE_BYTE :
+		*pnValue = field.data.byte;
+		return true;
+	case FUDGE_TYPE_SHORT :
+		*pnValue = field.data.i16;
+		return true;
+	case FUDGE_TYPE_INT :
+		*pnValue = field.data.i32;
+		return true;
+	default :
+		LOGWARN (TEXT ("Invalid type ") << field.type << TEXT (" for field ") << ordinal);
+		return false;
+	}
+}
+
+/// Fetches an array field from a columnar encoding.
+///
+/// @param[in] msg the columnar encoding
+/// @param[in] ordinal field ordinal
+/// @param[in] cbElement size of each array element
+/// @param[out] pnCount receives the number of array elements
+/// @return the array data, or NULL if the field was not present
+static const fudge_byte *_ColumnsArray (FudgeMsg msg, fudge_i16 ordinal, size_t cbElement, int *pnCount) {
+	FudgeField field;
+	if (FudgeMsg_getFieldByOrdinal (&field, msg, ordinal) != FUDGE_OK) {
+		return NULL;
+	}
+	*pnCount = field.numbytes / cbElement;
+	return field.data.bytes;
+}
+
+/// Tests a bit within a bitmap from a columnar encoding.
+///
+/// @param[in] pBits the bitmap, or NULL if there is none
+/// @param[in] nBits the size of the bitmap, in bytes
+/// @param[in] index the bit to test
+/// @return true if the bit is set, false otherwise
+static bool _ColumnsBit (const fudge_byte *pBits, int nBits, int index) {
+	return pBits && ((index >> 3) < nBits) && (pBits[index >> 3] & (1 << (index & 7)));
+}
+
+/// Copies an element between two R vectors of the same type.
+///
+/// @param[in] dest vector to copy to
+/// @param[in] d index to copy to
+/// @param[in] src vector to copy from
+/// @param[in] s index to copy from
+static void _CopyElement (SEXP dest, int d, SEXP src, int s) {
+	switch (TYPEOF (src)) {
+	case REALSXP :
+		REAL (dest)[d] = REAL (src)[s];
+		break;
+	case INTSXP :
+		INTEGER (dest)[d] = INTEGER (src)[s];
+		break;
+	case LGLSXP :
+		LOGICAL (dest)[d] = LOGICAL (src)[s];
+		break;
+	case STRSXP :
+		SET_STRING_ELT (dest, d, STRING_ELT (src, s));
+		break;
+	default :
+		LOGFATAL (ERR_INTERNAL);
+		break;
+	}
+}
+
+/// Extracts an element of an R vector as a single element vector.
+///
+/// @param[in] src vector to copy from
+/// @param[in] s index to copy from
+/// @return the single element vector
+static SEXP _ElementToSEXP (SEXP src, int s) {
+	SEXP result = allocVector (TYPEOF (src), 1);
+	PROTECT (result);
+	_CopyElement (result, 0, src, s);
+	UNPROTECT (1);
+	return result;
+}
+
+/// Converts an error element of a columnar encoding to an R error value.
+///
+/// @param[in] code the error code
+/// @return the R error value
+static SEXP _ColumnsErrorToSEXP (fudge_i32 code) {
+	com_opengamma_language_Value value;
+	memset (&value, 0, sizeof (value));
+	value._errorValue = &code;
+	return RErrorValue::FromValue (&value);
+}
+
+/// Finds the error element, if any, at an index of a columnar encoding.
+///
+/// @param[in] pErrorIndices indices of the error elements, in ascending order
+/// @param[in] nErrors number of error elements
+/// @param[in] index the element index
+/// @param[in,out] pnError position in the error indices to search from; updated with the position reached
+/// @return true if the element is an error, false otherwise
+static bool _ColumnsIsError (const fudge_i32 *pErrorIndices, int nErrors, int index, int *pnError) {
+	while ((*pnError < nErrors) && (pErrorIndices[*pnError] < index)) {
+		(*pnError)++;
+	}
+	return (*pnError < nErrors) && (pErrorIndices[*pnError] == index);
+}
+
+/// Rebuilds a typed R vector or matrix from a columnar encoding that contains error elements. A typed vector
+/// cannot hold an error value so the result takes the same shape the per-value encoding gives for mixed data;
+/// a list of elements for a vector, or a list of rows for a matrix with only the rows containing an error being
+/// lists rather than typed vectors.
+///
+/// @param[in] typed the typed vector or matrix
+/// @param[in] nRows number of rows
+/// @param[in] nCols number of columns, or -1 for a vector
+/// @param[in] pErrorIndices indices of the error elements, in ascending row-major order
+/// @param[in] pErrorValues error codes of the error elements
+/// @param[in] nErrors number of error elements
+/// @return the R list
+static SEXP _ColumnsWithErrors (SEXP typed, int nRows, int nCols, const fudge_i32 *pErrorIndices, const fudge_i32 *pErrorValues, int nErrors) {
+	SEXP result = allocVector (VECSXP, nRows);
+	PROTECT (result);
+	int i, j, n, e = 0;
+	if (nCols < 0) {
+		for (n = 0; n < nRows; n++) {
+			if (_ColumnsIsError (pErrorIndices, nErrors, n, &e)) {
+				SET_VECTOR_ELT (result, n, _ColumnsErrorToSEXP (pErrorValues[e]));
+			} else {
+				SET_VECTOR_ELT (result, n, _ElementToSEXP (typed, n));
+			}
+		}
+	} else {
+		for (i = 0, n = 0; i < nRows; i++, n += nCols) {
+			SEXP row;
+			// Columnar encoding is row-major, R is column-major
+			_ColumnsIsError (pErrorIndices, nErrors, n, &e);
+			if ((e < nErrors) && (pErrorIndices[e] < n + nCols)) {
+				row = allocVector (VECSXP, nCols);
+				PROTECT (row);
+				for (j = 0; j < nCols; j++) {
+					if (_ColumnsIsError (pErrorIndices, nErrors, n + j, &e)) {
+						SET_VECTOR_ELT (row, j, _ColumnsErrorToSEXP (pErrorValues[e]));
+					} else {
+						SET_VECTOR_ELT (row, j, _ElementToSEXP (typed, (j * nRows) + i));
+					}
+				}
+			} else {
+				row = allocVector (TYPEOF (typed), nCols);
+				PROTECT (row);
+				for (j = 0; j < nCols; j++) {
+					_CopyElement (row, j, typed, (j * nRows) + i);
+				}
+			}
+			SET_VECTOR_ELT (result, i, row);
+			UNPROTECT (1);
+		}
+	}
+	UNPROTECT (1);
+	return result;
+}
+
+/// Converts a columnar encoded Data object directly to an R vector or matrix.
+///
+/// @param[in] msg the columnar encoding
+/// @return the R vector or matrix, or R_NilValue if there is a problem
+static SEXP _ColumnsToSEXP (FudgeMsg msg) {
+	int nRows, nCols, nCount;
+	if (!_ColumnsInt (msg, COLUMNS_ROWS, &nRows)) {
+		LOGERROR (ERR_RESULT_TYPE);
+		return R_NilValue;
+	}
+	if (_ColumnsInt (msg, COLUMNS_COLUMNS, &nCols)) {
+		LOGDEBUG (TEXT ("Converting ") << nRows << TEXT ("x") << nCols << TEXT (" columnar result"));
+		nCount = nRows * nCols;
+	} else {
+		LOGDEBUG (TEXT ("Converting ") << nRows << TEXT (" element columnar result"));
+		nCols = -1;
+		nCount = nRows;
+	}
+	int nNulls = 0, nErrors = 0, nErrorValues = 0, nValues = 0;
+	const fudge_byte *pNulls = _ColumnsArray (msg, COLUMNS_NULL_VALUES, sizeof (fudge_byte), &nNulls);
+	const fudge_i32 *pErrorIndices = (const fudge_i32*)_ColumnsArray (msg, COLUMNS_ERROR_INDICES, sizeof (fudge_i32), &nErrors);
+	const fudge_i32 *pErrorValues = (const fudge_i32*)_ColumnsArray (msg, COLUMNS_ERROR_VALUES, sizeof (fudge_i32), &nErrorValues);
+	if (!pErrorIndices || !pErrorValues) {
+		nErrors = 0;
+	} else if (nErrorValues < nErrors) {
+		LOGWARN (TEXT ("Only ") << nErrorValues << TEXT (" error values for ") << nErrors << TEXT (" error indices"));
+		nErrors = nErrorValues;
+	}
+	if (nErrors) {
+		LOGDEBUG (nErrors << TEXT (" error values in columnar result"));
+	}
+	const fudge_byte *pValues;
+	SEXPTYPE sexptype;
+	if ((pValues = _ColumnsArray (msg, COLUMNS_DOUBLE_VALUES, sizeof (fudge_f64), &nValues)) != NULL) {
+		sexptype = REALSXP;
+	} else if ((pValues = _ColumnsArray (msg, COLUMNS_INT_VALUES, sizeof (fudge_i32), &nValues)) != NULL) {
+		sexptype = INTSXP;
+	} else if ((pValues = _ColumnsArray (msg, COLUMNS_BOOL_VALUES, sizeof (fudge_byte), &nValues)) != NULL) {
+		sexptype = LGLSXP;
+		nValues <<= 3;
+	} else if ((pValues = _ColumnsArray (msg, COLUMNS_STRING_VALUES, sizeof (fudge_i32), &nValues)) != NULL) {
+		sexptype = STRSXP;
+	} else {
+		LOGERROR (ERR_RESULT_TYPE);
+		return R_NilValue;
+	}
+	if (nValues < nCount) {
+		LOGERROR (ERR_RESULT_TYPE);
+		return R_NilValue;
+	}
+	FudgeField *aDictionary = NULL;
+	int nDictionary = 0;
+	if (sexptype == STRSXP) {
+		FudgeField field;
+		if ((FudgeMsg_getFieldByOrdinal (&field, msg, COLUMNS_STRING_DICTIONARY) == FUDGE_OK) && (field.type == FUDGE_TYPE_FUDGE_MSG)) {
+			nDictionary = FudgeMsg_numFields (field.data.message);
+			aDictionary = new FudgeField[nDictionary];
+			if (!aDictionary) {
+				LOGFATAL (ERR_MEMORY);
+				return R_NilValue;
+			}
+			nDictionary = FudgeMsg_getFields (aDictionary, nDictionary, field.data.message);
+		}
+	}
+	SEXP result = (nCols >= 0) ? allocMatrix (sexptype, nRows, nCols) : allocVector (sexptype, nCount);
+	PROTECT (result);
+	int i, j, n, r;
+	for (i = 0, n = 0; i < nRows; i++) {
+		for (j = 0; j < ((nCols >= 0) ? nCols : 1); j++, n++) {
+			// Columnar encoding is row-major, R is column-major
+			r = (j * nRows) + i;
+			bool bNull = _ColumnsBit (pNulls, nNulls, n);
+			switch (sexptype) {
+			case REALSXP :
+				REAL (result)[r] = bNull ? NA_REAL : ((const fudge_f64*)pValues)[n];
+				break;
+			case INTSXP :
+				INTEGER (result)[r] = bNull ? NA_INTEGER : ((const fudge_i32*)pValues)[n];
+				break;
+			case LGLSXP :
+				LOGICAL (result)[r] = bNull ? NA_LOGICAL : (_ColumnsBit (pValues, nValues >> 3, n) ? TRUE : FALSE);
+				break;
+			case STRSXP : {
+				int index = ((const fudge_i32*)pValues)[n];
+				if (!bNull && (index >= 0) && (index < nDictionary) && (aDictionary[index].type == FUDGE_TYPE_STRING)) {
+					char *psz;
+					if (FudgeString_convertToASCIIZ (&psz, aDictionary[index].data.string) == FUDGE_OK) {
+						SET_STRING_ELT (result, r, mkChar (psz));
+						free (psz);
+					} else {
+						SET_STRING_ELT (result, r, NA_STRING);
+					}
+				} else {
+					SET_STRING_ELT (result, r, NA_STRING);
+				}
+				break;
+						  }
+			}
+		}
+	}
+	if (nErrors) {
+		result = _ColumnsWithErrors (result, nRows, nCols, pErrorIndices, pErrorValues, nErrors);
+	}
+	UNPROTECT (1);
+	if (aDictionary) {
+		delete[] aDictionary;
+	}
+	return result;
+}
+
 /// Converts a Data object to an R representation.
 ///
 /// @param[in] pData data value to convert
@@ -512,6 +926,9 @@ SEXP CData::ToSEXP (const com_opengamma_language_Data *pData) {
 	} else if (pData->_matrix) {
 		LOGDEBUG (TEXT ("Converting MATRIX result"));
 		result = _MatrixToSEXP (pData->_matrix);
+	} else if (pData->_columns) {
+		LOGDEBUG (TEXT ("Converting COLUMNS result"));
+		result = _ColumnsToSEXP (pData->_columns);
 	} else {
 		LOGDEBUG (TEXT ("Empty DATA structure"));
 	}
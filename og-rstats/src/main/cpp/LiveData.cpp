@@ -22,8 +22,10 @@ CLiveDataEntry::CLiveDataEntry (int nComponentId, const com_opengamma_language_l
 CLiveDataEntry::~CLiveDataEntry () {
 }
 
-/// Connects to a live data component. The Java stack is assumed to block until a result is available and
-/// then cancel the connection.
+/// Connects to a live data component, returning its first value. The Java stack blocks until a result is
+/// available; the connection is then released as no further values are wanted. The Java stack may already
+/// have canceled it, but a dispatcher that keeps connections open would otherwise push values that are
+/// never read.
 ///
 /// @param[in] poConnector connector instance for communication with the Java stack, never NULL
 /// @param[in] ppArg array of arguments to send to the Java stack. Never NULL, values must never by NULL and there must be a value for each of the expected arguments (as returned by GetParameterCount)
@@ -47,6 +49,11 @@ com_opengamma_language_Data *CLiveDataEntry::Invoke (const CConnector *poConnect
 		LOGWARN ("Could not connect to " << GetName ());
 		return NULL;
 	}
+	CLiveDataDisconnect disconnect (poConnector);
+	disconnect.SetConnectionId (*pResult->fudgeParent._connection);
+	if (!disconnect.Send ()) {
+		LOGWARN (TEXT ("Could not send disconnect request"));
+	}
 	// Note: we can steal the pointers from the Data structure as long as we NULL them so they won't be
 	// free'd. The caller to Invoke is now responsible for releasing the memory.
 	com_opengamma_language_Data *pReturnResult = pResult->fudgeParent._result;
@@ -45,7 +45,7 @@ public class CubeConverter extends AbstractMappedConverter {
     }, new Action<Data, Value[][][]>() {
       @Override
       public Value[][][] convert(final Data data) {
-        final Value[] values = data.getLinear();
+        final Value[] values = DataUtils.getLinear(data);
         if (values == null) {
           return null;
         }
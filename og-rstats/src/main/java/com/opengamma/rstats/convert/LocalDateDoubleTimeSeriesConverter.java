@@ -13,6 +13,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
 import org.threeten.bp.LocalDate;
 
 import com.opengamma.language.Data;
@@ -23,13 +25,15 @@ import com.opengamma.language.convert.TypeMap;
 import com.opengamma.language.convert.ValueConversionContext;
 import com.opengamma.language.definition.JavaTypeInfo;
 import com.opengamma.language.invoke.AbstractTypeConverter;
+import com.opengamma.language.timeseries.LocalDateDoubleTimeSeriesCodec;
 import com.opengamma.rstats.data.RDataInfo;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
 import com.opengamma.util.time.DateUtils;
 
 /**
- * Converts a {@link LocalDateDoubleTimeSeries} to/from an R time-series wrapper.
+ * Converts a {@link LocalDateDoubleTimeSeries} to/from an R time-series wrapper. If the global context enables it, time series are
+ * sent in the binary form of {@link LocalDateDoubleTimeSeriesCodec} instead of a value for every calendar day.
  */
 public class LocalDateDoubleTimeSeriesConverter extends AbstractTypeConverter {
 
@@ -54,7 +58,17 @@ public class LocalDateDoubleTimeSeriesConverter extends AbstractTypeConverter {
   public void convertValue(final ValueConversionContext conversionContext, final Object value, final JavaTypeInfo<?> type) {
     if (type.getRawClass() == LocalDateDoubleTimeSeries.class) {
       // Converting from Data to LocalDateDoubleTimeSeries
-      final Value[] values = ((Data) value).getLinear();
+      final Value single = ((Data) value).getSingle();
+      if ((single != null) && (single.getMessageValue() != null)) {
+        final LocalDateDoubleTimeSeries timeSeries = LocalDateDoubleTimeSeriesCodec.fromFudgeMsg(single.getMessageValue());
+        if (timeSeries == null) {
+          conversionContext.setFail();
+        } else {
+          conversionContext.setResult(timeSeries);
+        }
+        return;
+      }
+      final Value[] values = DataUtils.getLinear((Data) value);
       if (values == null) {
         conversionContext.setFail();
         return;
@@ -87,6 +101,11 @@ public class LocalDateDoubleTimeSeriesConverter extends AbstractTypeConverter {
     } else {
       // Converting from LocalDateDoubleTimeSeries to Data
       final LocalDateDoubleTimeSeries timeSeries = (LocalDateDoubleTimeSeries) value;
+      if (conversionContext.getGlobalContext().isBinaryTimeSeries()) {
+        final FudgeMsg msg = LocalDateDoubleTimeSeriesCodec.toFudgeMsg(FudgeContext.GLOBAL_DEFAULT, timeSeries);
+        conversionContext.setResult(RDataInfo.create().wrapperClass("TimeSeriesArrays").applyTo(DataUtils.of(msg)));
+        return;
+      }
       final LocalDate earliest = timeSeries.getEarliestTime();
       final LocalDate latest = timeSeries.getLatestTime();
       final int size = DateUtils.getDaysBetween(earliest, true, latest, true);
@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.rstats.convert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.id.UniqueId;
+import com.opengamma.language.convert.AbstractMappedConverter;
+import com.opengamma.language.convert.FudgeTypeConverter;
+import com.opengamma.language.convert.TypeMap;
+import com.opengamma.language.definition.JavaTypeInfo;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Converts a {@link ViewComputationResultModel} to the Fudge message sent to R. The results of each calculation configuration are
+ * flattened into columns instead of the Fudge encoding of each value, so that the R package builds a {@code data.frame} from them
+ * in one step, with a row for each computation target and a column for each value name and property combination.
+ * <p>
+ * The {@code results} field of the message holds the configuration names at ordinal 1 and, at ordinal 2, a table message for each
+ * containing:
+ * <ul>
+ * <li>{@code strings} - a dictionary of the strings used in the table
+ * <li>{@code identifier} - {@code int[]} indices into the dictionary of the target identifier for each row
+ * <li>{@code type} - {@code int[]} indices into the dictionary of the target type for each row
+ * <li>{@code column} - a sub-message for each value column containing the column {@code name} and either {@code double}, a
+ * {@code double[]} of the values with NaN for any missing, or {@code string}, an {@code int[]} of dictionary indices with -1 for any
+ * missing.
+ * </ul>
+ */
+public class ViewComputationResultModelConverter extends AbstractMappedConverter {
+
+  /* package */static final String RESULTS_KEY = "results";
+  /* package */static final int CONFIGURATION_ORDINAL = 1;
+  /* package */static final int TABLE_ORDINAL = 2;
+  /* package */static final String STRINGS_KEY = "strings";
+  /* package */static final String IDENTIFIER_KEY = "identifier";
+  /* package */static final String TYPE_KEY = "type";
+  /* package */static final String COLUMN_KEY = "column";
+  /* package */static final String NAME_KEY = "name";
+  /* package */static final String DOUBLE_KEY = "double";
+  /* package */static final String STRING_KEY = "string";
+
+  private static final String ESCAPE_CHARS = "\\,= ?[]";
+
+  public ViewComputationResultModelConverter() {
+    conversion(TypeMap.ZERO_LOSS, JavaTypeInfo.builder(ViewComputationResultModel.class).get(), JavaTypeInfo.builder(FudgeMsg.class).get(),
+        new Action<ViewComputationResultModel, FudgeMsg>() {
+          @Override
+          protected FudgeMsg convert(final ViewComputationResultModel value) {
+            return toFudgeMsg(OpenGammaFudgeContext.getInstance(), value);
+          }
+        });
+  }
+
+  /**
+   * Strings used in the table, each encoded once.
+   */
+  private static final class Dictionary {
+
+    private final Map<String, Integer> _indices = new HashMap<String, Integer>();
+    private final MutableFudgeMsg _message;
+
+    public Dictionary(final FudgeContext fudgeContext) {
+      _message = fudgeContext.newMessage();
+    }
+
+    public int get(final String str) {
+      if (str == null) {
+        return -1;
+      }
+      Integer index = _indices.get(str);
+      if (index == null) {
+        index = _indices.size();
+        _indices.put(str, index);
+        _message.add(null, null, str);
+      }
+      return index;
+    }
+
+    public FudgeMsg getMessage() {
+      return _message;
+    }
+
+  }
+
+  /**
+   * The values for one column, indexed by row.
+   */
+  private static final class Column {
+
+    private Object[] _values = new Object[16];
+    private boolean _numeric = true;
+
+    public void set(final int row, final Object value) {
+      if (row >= _values.length) {
+        _values = Arrays.copyOf(_values, Math.max(row + 1, _values.length << 1));
+      }
+      _values[row] = value;
+      if ((value != null) && !(value instanceof Number)) {
+        _numeric = false;
+      }
+    }
+
+    public void toFudgeMsg(final MutableFudgeMsg msg, final int rows, final Dictionary strings) {
+      if (_numeric) {
+        final double[] values = new double[rows];
+        for (int i = 0; i < rows; i++) {
+          final Object value = (i < _values.length) ? _values[i] : null;
+          values[i] = (value != null) ? ((Number) value).doubleValue() : Double.NaN;
+        }
+        msg.add(DOUBLE_KEY, values);
+      } else {
+        final int[] values = new int[rows];
+        for (int i = 0; i < rows; i++) {
+          final Object value = (i < _values.length) ? _values[i] : null;
+          values[i] = (value != null) ? strings.get(value.toString()) : -1;
+        }
+        msg.add(STRING_KEY, values);
+      }
+    }
+
+  }
+
+  private static void escape(final StringBuilder sb, final String str) {
+    for (int i = 0; i < str.length(); i++) {
+      final char c = str.charAt(i);
+      if (ESCAPE_CHARS.indexOf(c) >= 0) {
+        sb.append('\\');
+      }
+      sb.append(c);
+    }
+  }
+
+  /**
+   * Formats the value properties in the same way as the {@code .toString.ValueProperties} function in the R package so that
+   * column names match those produced there.
+   *
+   * @param properties the properties to format, not null
+   * @return the string representation
+   */
+  /* package */static String toString(final ValueProperties properties) {
+    final Set<String> names = properties.getProperties();
+    if (names == null) {
+      // Result specifications never have infinite properties, so the names of any absent properties aren't written
+      return "INFINITE";
+    }
+    if (names.isEmpty()) {
+      return "EMPTY";
+    }
+    final StringBuilder sb = new StringBuilder();
+    for (String name : names) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      escape(sb, name);
+      sb.append('=');
+      final Set<String> values = properties.getValues(name);
+      final boolean optional = properties.isOptional(name);
+      if ((values.size() == 1) && !optional) {
+        escape(sb, values.iterator().next());
+      } else {
+        sb.append('[');
+        final Iterator<String> itr = values.iterator();
+        while (itr.hasNext()) {
+          escape(sb, itr.next());
+          if (itr.hasNext()) {
+            sb.append(',');
+          }
+        }
+        sb.append(']');
+        if (optional) {
+          sb.append('?');
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the column name for a value, in the same form as the {@code new.ValueRequirement} function in the R package.
+   *
+   * @param specification the value specification, not null
+   * @return the column name
+   */
+  /* package */static String columnName(final ValueSpecification specification) {
+    final String properties = toString(specification.getProperties());
+    if ("EMPTY".equals(properties)) {
+      return specification.getValueName();
+    } else {
+      return specification.getValueName() + "{" + properties + "}";
+    }
+  }
+
+  /**
+   * Builds the table message.
+   *
+   * @param fudgeContext the context to create messages with, not null
+   * @param values the values to tabulate, not null
+   * @return the table message
+   */
+  /* package */static FudgeMsg table(final FudgeContext fudgeContext, final Iterable<? extends ComputedValue> values) {
+    final Map<String, Integer> rows = new HashMap<String, Integer>();
+    final List<String> identifiers = new ArrayList<String>();
+    final List<String> types = new ArrayList<String>();
+    final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+    for (ComputedValue value : values) {
+      final ValueSpecification specification = value.getSpecification();
+      final UniqueId uid = specification.getTargetSpecification().getUniqueId();
+      final String identifier = (uid != null) ? uid.toString() : "";
+      Integer row = rows.get(identifier);
+      if (row == null) {
+        row = identifiers.size();
+        rows.put(identifier, row);
+        identifiers.add(identifier);
+        types.add(specification.getTargetSpecification().getType().toString());
+      }
+      final String name = columnName(specification);
+      Column column = columns.get(name);
+      if (column == null) {
+        column = new Column();
+        columns.put(name, column);
+      }
+      column.set(row, value.getValue());
+    }
+    final Dictionary strings = new Dictionary(fudgeContext);
+    final int[] identifierIndices = new int[identifiers.size()];
+    final int[] typeIndices = new int[identifiers.size()];
+    for (int i = 0; i < identifierIndices.length; i++) {
+      identifierIndices[i] = strings.get(identifiers.get(i));
+      typeIndices[i] = strings.get(types.get(i));
+    }
+    final MutableFudgeMsg msg = fudgeContext.newMessage();
+    msg.add(IDENTIFIER_KEY, identifierIndices);
+    msg.add(TYPE_KEY, typeIndices);
+    for (Map.Entry<String, Column> column : columns.entrySet()) {
+      final MutableFudgeMsg columnMsg = fudgeContext.newMessage();
+      columnMsg.add(NAME_KEY, column.getKey());
+      column.getValue().toFudgeMsg(columnMsg, identifierIndices.length, strings);
+      msg.add(COLUMN_KEY, columnMsg);
+    }
+    msg.add(STRINGS_KEY, strings.getMessage());
+    return msg;
+  }
+
+  /**
+   * Encodes the result model, replacing the Fudge encoding of the results with a table for each calculation configuration.
+   *
+   * @param fudgeContext the context to encode with, not null
+   * @param resultModel the result model, not null
+   * @return the message
+   */
+  /* package */static FudgeMsg toFudgeMsg(final FudgeContext fudgeContext, final ViewComputationResultModel resultModel) {
+    final MutableFudgeMsg msg = FudgeTypeConverter.objectToFudgeMsg(fudgeContext, resultModel);
+    msg.remove(RESULTS_KEY);
+    final MutableFudgeMsg results = fudgeContext.newMessage();
+    for (String calcConfigName : resultModel.getCalculationConfigurationNames()) {
+      final ViewCalculationResultModel calcResultModel = resultModel.getCalculationResult(calcConfigName);
+      final List<ComputedValue> values = new ArrayList<ComputedValue>();
+      for (ComputationTargetSpecification target : calcResultModel.getAllTargets()) {
+        values.addAll(calcResultModel.getAllValues(target));
+      }
+      results.add(null, CONFIGURATION_ORDINAL, calcConfigName);
+      results.add(null, TABLE_ORDINAL, table(fudgeContext, values));
+    }
+    msg.add(RESULTS_KEY, results);
+    return msg;
+  }
+
+}
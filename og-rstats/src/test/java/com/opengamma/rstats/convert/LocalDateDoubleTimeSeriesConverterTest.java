@@ -8,6 +8,7 @@ package com.opengamma.rstats.convert;
 
 import java.util.Arrays;
 
+import org.fudgemsg.FudgeContext;
 import org.testng.annotations.Test;
 import org.threeten.bp.LocalDate;
 
@@ -19,6 +20,7 @@ import com.opengamma.language.definition.JavaTypeInfo;
 import com.opengamma.language.invoke.TypeConverterProvider;
 import com.opengamma.language.invoke.TypeConverterProviderBean;
 import com.opengamma.language.test.AbstractConverterTest;
+import com.opengamma.language.timeseries.LocalDateDoubleTimeSeriesCodec;
 import com.opengamma.rstats.data.RDataInfo;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
@@ -45,6 +47,12 @@ public class LocalDateDoubleTimeSeriesConverterTest extends AbstractConverterTes
     assertValidConversion(converter, createData(), JavaTypeInfo.builder(LocalDateDoubleTimeSeries.class).get(), createTimeSeries());
   }
 
+  public void testFromBinaryData() {
+    final LocalDateDoubleTimeSeriesConverter converter = new LocalDateDoubleTimeSeriesConverter();
+    final Data data = DataUtils.of(LocalDateDoubleTimeSeriesCodec.toFudgeMsg(FudgeContext.GLOBAL_DEFAULT, createTimeSeries()));
+    assertValidConversion(converter, data, JavaTypeInfo.builder(LocalDateDoubleTimeSeries.class).get(), createTimeSeries());
+  }
+
   public void testToData () {
     final LocalDateDoubleTimeSeriesConverter converter = new LocalDateDoubleTimeSeriesConverter ();
     final Data expectedData = RDataInfo.create().wrapperClass("TimeSeries").applyTo(createData());
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.rstats.convert;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests the {@link ViewComputationResultModelConverter} class.
+ */
+@Test(groups = "unit")
+public class ViewComputationResultModelConverterTest {
+
+  private static ComputedValue value(final String name, final String target, final String function, final Object value) {
+    return new ComputedValue(new ValueSpecification(name, ComputationTargetSpecification.of(UniqueId.of("Test", target)), ValueProperties.with(ValuePropertyNames.FUNCTION,
+        function).get()), value);
+  }
+
+  private static List<String> strings(final FudgeMsg table) {
+    final List<String> strings = new ArrayList<String>();
+    for (FudgeField field : table.getMessage(ViewComputationResultModelConverter.STRINGS_KEY)) {
+      strings.add((String) field.getValue());
+    }
+    return strings;
+  }
+
+  private static String string(final List<String> strings, final int index) {
+    return (index >= 0) ? strings.get(index) : null;
+  }
+
+  public void testColumnName() {
+    assertEquals("Foo", ViewComputationResultModelConverter.columnName(new ValueSpecification("Foo", ComputationTargetSpecification.NULL, ValueProperties.none())));
+    assertEquals("Foo{Function=A\\ B}", ViewComputationResultModelConverter.columnName(new ValueSpecification("Foo", ComputationTargetSpecification.NULL,
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "A B").get())));
+    final String multiple = ViewComputationResultModelConverter.toString(ValueProperties.with("X", "1", "2").withOptional("X").get());
+    assertTrue(multiple, "X=[1,2]?".equals(multiple) || "X=[2,1]?".equals(multiple));
+  }
+
+  public void testTable() {
+    final FudgeMsg table = ViewComputationResultModelConverter.table(FudgeContext.GLOBAL_DEFAULT, Arrays.asList(
+        value("Present Value", "1", "PV", 42d),
+        value("Present Value", "2", "PV", 43d),
+        value("Currency", "2", "CCY", "USD")));
+    final List<String> strings = strings(table);
+    final int[] identifiers = table.getValue(int[].class, ViewComputationResultModelConverter.IDENTIFIER_KEY);
+    assertEquals(2, identifiers.length);
+    assertEquals("Test~1", string(strings, identifiers[0]));
+    assertEquals("Test~2", string(strings, identifiers[1]));
+    final List<FudgeField> columns = table.getAllByName(ViewComputationResultModelConverter.COLUMN_KEY);
+    assertEquals(2, columns.size());
+    final FudgeMsg pv = (FudgeMsg) columns.get(0).getValue();
+    assertEquals("Present Value{Function=PV}", pv.getString(ViewComputationResultModelConverter.NAME_KEY));
+    final double[] pvValues = pv.getValue(double[].class, ViewComputationResultModelConverter.DOUBLE_KEY);
+    assertEquals(42d, pvValues[0]);
+    assertEquals(43d, pvValues[1]);
+    final FudgeMsg ccy = (FudgeMsg) columns.get(1).getValue();
+    assertEquals("Currency{Function=CCY}", ccy.getString(ViewComputationResultModelConverter.NAME_KEY));
+    final int[] ccyValues = ccy.getValue(int[].class, ViewComputationResultModelConverter.STRING_KEY);
+    assertNull(string(strings, ccyValues[0]));
+    assertEquals("USD", string(strings, ccyValues[1]));
+  }
+
+}